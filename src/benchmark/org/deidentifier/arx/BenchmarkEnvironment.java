@@ -0,0 +1,209 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.deidentifier.arx.ARXConfiguration.ARXConfigurationInternal;
+import org.deidentifier.arx.framework.check.NodeChecker;
+import org.deidentifier.arx.framework.check.Transformer;
+import org.deidentifier.arx.framework.check.distribution.DistributionAggregateFunction;
+import org.deidentifier.arx.framework.check.distribution.IntArrayDictionary;
+import org.deidentifier.arx.framework.check.groupify.HashGroupify;
+import org.deidentifier.arx.framework.data.DataManager;
+import org.deidentifier.arx.framework.lattice.SolutionSpace;
+import org.deidentifier.arx.framework.lattice.Transformation;
+import org.deidentifier.arx.io.CSVHierarchyInput;
+import org.deidentifier.arx.metric.Metric;
+
+/**
+ * Provides access to the internal operators of the anonymization engine for benchmarking. It encodes a
+ * dataset from the data directory in the same way as the anonymizer does, but does not search the
+ * solution space.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class BenchmarkEnvironment {
+
+    /**
+     * Loads a dataset and its hierarchies from the data directory. Hierarchies are expected in files named
+     * [dataset]_hierarchy_[attribute].csv. The given attribute, if any, is marked as sensitive.
+     *
+     * @param dataset
+     * @param sensitiveAttribute
+     * @return
+     * @throws IOException
+     */
+    public static Data getData(final String dataset, final String sensitiveAttribute) throws IOException {
+
+        final File file = new File("data/" + dataset + ".csv");
+        if (!file.exists()) {
+            throw new IllegalArgumentException("Dataset not found: " + file.getAbsolutePath());
+        }
+        final Data data = Data.create(file, StandardCharsets.UTF_8, ';');
+        final File[] hierarchies = file.getParentFile().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.matches(dataset + "_hierarchy_(.)+.csv");
+            }
+        });
+        final Pattern pattern = Pattern.compile("_hierarchy_(.*?).csv");
+        for (final File hierarchy : hierarchies) {
+            final Matcher matcher = pattern.matcher(hierarchy.getName());
+            if (matcher.find()) {
+                final String attribute = matcher.group(1);
+                if (attribute.equalsIgnoreCase(sensitiveAttribute)) {
+                    data.getDefinition().setAttributeType(attribute, AttributeType.SENSITIVE_ATTRIBUTE);
+                } else {
+                    CSVHierarchyInput input = new CSVHierarchyInput(hierarchy, StandardCharsets.UTF_8, ';');
+                    data.getDefinition().setAttributeType(attribute, AttributeType.Hierarchy.create(input.getHierarchy()));
+                }
+            }
+        }
+        return data;
+    }
+
+    /** The configuration */
+    private final ARXConfiguration config;
+
+    /** The data manager */
+    private final DataManager      manager;
+
+    /** The solution space */
+    private final SolutionSpace    solutionSpace;
+
+    /**
+     * Creates a new environment for the given data and configuration.
+     *
+     * @param data
+     * @param config
+     */
+    public BenchmarkEnvironment(final Data data, final ARXConfiguration config) {
+
+        // Encode, as in ARXAnonymizer.anonymize(), but without microaggregation
+        final DataHandleInput handle = (DataHandleInput) data.getHandle();
+        final DataDefinition definition = handle.getDefinition();
+        definition.materializeHierarchies(handle);
+        handle.getRegistry().reset();
+        this.manager = new DataManager(handle.header,
+                                       handle.data,
+                                       handle.dictionary,
+                                       definition,
+                                       config.getPrivacyModels(),
+                                       new HashMap<String, DistributionAggregateFunction>());
+
+        // Initialize
+        this.config = config;
+        this.config.initialize(manager);
+        this.config.getQualityModel().initialize(manager, definition, manager.getDataGeneralized(), manager.getHierarchies(), config);
+        this.solutionSpace = new SolutionSpace(manager.getHierarchiesMinLevels(), manager.getHierarchiesMaxLevels());
+    }
+
+    /**
+     * Creates a new node checker.
+     *
+     * @param historySize
+     * @return
+     */
+    public NodeChecker createChecker(final int historySize) {
+        return new NodeChecker(manager, config.getQualityModel(), getConfiguration(), historySize, 200d, 0.8d, solutionSpace);
+    }
+
+    /**
+     * Creates a new groupify operator.
+     *
+     * @return
+     */
+    public HashGroupify createGroupify() {
+        return new HashGroupify((int) (manager.getDataGeneralized().getDataLength() * 0.01d), getConfiguration());
+    }
+
+    /**
+     * Creates a new transformer.
+     *
+     * @return
+     */
+    public Transformer createTransformer() {
+        return new Transformer(manager.getDataGeneralized().getColumns(),
+                               manager.getDataAnalyzed().getColumns(),
+                               manager.getHierarchies(),
+                               getConfiguration(),
+                               new IntArrayDictionary(0),
+                               new IntArrayDictionary(0));
+    }
+
+    /**
+     * Returns the internal configuration.
+     *
+     * @return
+     */
+    public ARXConfigurationInternal getConfiguration() {
+        return config.getInternalConfiguration();
+    }
+
+    /**
+     * Returns the data manager.
+     *
+     * @return
+     */
+    public DataManager getManager() {
+        return manager;
+    }
+
+    /**
+     * Returns the quality model.
+     *
+     * @return
+     */
+    public Metric<?> getMetric() {
+        return config.getQualityModel();
+    }
+
+    /**
+     * Returns the solution space.
+     *
+     * @return
+     */
+    public SolutionSpace getSolutionSpace() {
+        return solutionSpace;
+    }
+
+    /**
+     * Returns the transformation which generalizes each attribute to the given fraction of its
+     * hierarchy's height.
+     *
+     * @param fraction A value in [0, 1]
+     * @return
+     */
+    public Transformation getTransformation(final double fraction) {
+        final int[] min = manager.getHierarchiesMinLevels();
+        final int[] max = manager.getHierarchiesMaxLevels();
+        final int[] generalization = new int[min.length];
+        for (int i = 0; i < generalization.length; i++) {
+            generalization[i] = min[i] + (int) Math.round((max[i] - min[i]) * fraction);
+        }
+        return solutionSpace.getTransformation(generalization);
+    }
+}
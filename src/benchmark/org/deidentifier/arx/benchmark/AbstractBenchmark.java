@@ -0,0 +1,106 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.benchmark;
+
+import java.io.IOException;
+
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.BenchmarkEnvironment;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.criteria.DistinctLDiversity;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Base class for benchmarks. The dataset is a parameter, which can be set with "-p dataset=adult,cup,fars,ihis".
+ * Only the adult dataset is contained in the repository.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+@State(Scope.Thread)
+public abstract class AbstractBenchmark {
+
+    /** The dataset */
+    @Param({ "adult" })
+    public String dataset;
+
+    /**
+     * Returns the sensitive attribute used for the given dataset, analogously to the tests.
+     *
+     * @param dataset
+     * @return
+     */
+    private static String getSensitiveAttribute(String dataset) {
+        if (dataset.equals("adult")) {
+            return "occupation";
+        } else if (dataset.equals("cup")) {
+            return "RAMNTALL";
+        } else if (dataset.equals("fars")) {
+            return "istatenum";
+        } else if (dataset.equals("ihis")) {
+            return "EDUC";
+        } else if (dataset.equals("atus")) {
+            return "Highest level of school completed";
+        } else {
+            throw new IllegalArgumentException("Unknown dataset: " + dataset);
+        }
+    }
+
+    /**
+     * Returns a configuration with 5-anonymity or, if requested, additionally distinct-3-diversity
+     * for the sensitive attribute, and a suppression limit of 2%.
+     *
+     * @param sensitive
+     * @return
+     */
+    protected ARXConfiguration getConfiguration(boolean sensitive) {
+        ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        if (sensitive) {
+            config.addPrivacyModel(new DistinctLDiversity(getSensitiveAttribute(dataset), 3));
+        }
+        config.setSuppressionLimit(0.02d);
+        return config;
+    }
+
+    /**
+     * Loads the dataset.
+     *
+     * @param sensitive Whether the sensitive attribute should be loaded
+     * @return
+     * @throws IOException
+     */
+    protected Data getData(boolean sensitive) throws IOException {
+        return BenchmarkEnvironment.getData(dataset, sensitive ? getSensitiveAttribute(dataset) : null);
+    }
+
+    /**
+     * Creates an environment for the dataset.
+     *
+     * @param config
+     * @param sensitive
+     * @return
+     * @throws IOException
+     */
+    protected BenchmarkEnvironment getEnvironment(ARXConfiguration config, boolean sensitive) throws IOException {
+        return new BenchmarkEnvironment(getData(sensitive), config);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.deidentifier.arx.BenchmarkEnvironment;
+import org.deidentifier.arx.framework.data.DataColumns;
+import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reading and generalizing all records, as done by the transformers, from the
+ * columns of DataColumns in blocks and, for comparison, from an array which stores the records row by row.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BenchmarkDataColumns extends AbstractBenchmark {
+
+    /** The number of records per block, as used by the transformers */
+    private static final int BLOCK_SIZE = 256;
+
+    /** The generalization level relative to the height of the hierarchies */
+    @Param({ "0.0", "0.5" })
+    public double       level;
+
+    /** The block, column by column */
+    private int[][]     block;
+
+    /** The columns */
+    private DataColumns columns;
+
+    /** The generalization */
+    private int[]       generalization;
+
+    /** The hierarchies */
+    private int[][][]   hierarchies;
+
+    /** The generalization of the values of each column */
+    private int[][]     levels;
+
+    /** The records, row by row */
+    private int[][]     rows;
+
+    /**
+     * Prepares the benchmark.
+     *
+     * @throws IOException
+     */
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkEnvironment environment = getEnvironment(getConfiguration(false), false);
+        GeneralizationHierarchy[] hierarchies = environment.getManager().getHierarchies();
+        this.columns = environment.getManager().getDataGeneralized().getColumns();
+        this.generalization = environment.getTransformation(level).getGeneralization();
+        this.hierarchies = new int[hierarchies.length][][];
+        this.levels = new int[hierarchies.length][];
+        for (int i = 0; i < hierarchies.length; i++) {
+            this.hierarchies[i] = hierarchies[i].getArray();
+            this.levels[i] = hierarchies[i].getLevel(generalization[i]);
+        }
+        this.rows = new int[columns.getNumRows()][columns.getNumColumns()];
+        for (int i = 0; i < rows.length; i++) {
+            columns.getRow(i, rows[i]);
+        }
+        this.block = new int[columns.getNumColumns()][BLOCK_SIZE];
+    }
+
+    /**
+     * Reads and generalizes all records from the columns, block by block.
+     *
+     * @return
+     */
+    @Benchmark
+    public int readColumns() {
+        int result = 0;
+        for (int from = 0; from < columns.getNumRows(); from += BLOCK_SIZE) {
+            int to = Math.min(from + BLOCK_SIZE, columns.getNumRows());
+            for (int column = 0; column < block.length; column++) {
+                columns.getColumn(from, to, column, levels[column], block[column]);
+            }
+            for (int offset = 0; offset < to - from; offset++) {
+                int hash = 23;
+                for (int column = 0; column < block.length; column++) {
+                    hash = (31 * hash) + block[column][offset];
+                }
+                result += hash;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads and generalizes all records from the array.
+     *
+     * @return
+     */
+    @Benchmark
+    public int readRows() {
+        int result = 0;
+        for (int i = 0; i < rows.length; i++) {
+            result += generalize(rows[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Generalizes the given tuple and returns a hash code of the result.
+     *
+     * @param tuple
+     * @return
+     */
+    private int generalize(int[] tuple) {
+        int result = 23;
+        for (int i = 0; i < tuple.length; i++) {
+            result = (31 * result) + hierarchies[i][tuple[i]][generalization[i]];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.deidentifier.arx.framework.check.distribution.Distribution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the operations of distributions of sensitive values. This benchmark does not depend on
+ * a dataset.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkDistribution {
+
+    /** The number of values added to a distribution */
+    private static final int VALUES = 1000;
+
+    /** The number of distinct values */
+    @Param({ "2", "16", "256" })
+    public int               distinct;
+
+    /** The values */
+    private int[]            values;
+
+    /** A distribution */
+    private Distribution     distribution1;
+
+    /** A distribution */
+    private Distribution     distribution2;
+
+    /** A distribution which is reused */
+    private Distribution     distribution3;
+
+    /**
+     * Prepares the benchmark.
+     */
+    @Setup
+    public void setup() {
+        Random random = new Random(0xDEADBEEF);
+        this.values = new int[VALUES];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(distinct);
+        }
+        this.distribution1 = add();
+        this.distribution2 = add();
+        this.distribution1.pack();
+        this.distribution2.pack();
+        this.distribution3 = add();
+    }
+
+    /**
+     * Adds values to a new distribution.
+     *
+     * @return
+     */
+    @Benchmark
+    public Distribution add() {
+        Distribution distribution = new Distribution();
+        for (int value : values) {
+            distribution.add(value);
+        }
+        return distribution;
+    }
+
+    /**
+     * Adds values to a distribution which is reset and reused, as is done by the arena of
+     * a groupify operator. Run with "-prof gc" to compare allocations with add().
+     *
+     * @return
+     */
+    @Benchmark
+    public Distribution addReset() {
+        distribution3.reset();
+        for (int value : values) {
+            distribution3.add(value);
+        }
+        return distribution3;
+    }
+
+    /**
+     * Merges two distributions into a new distribution.
+     *
+     * @return
+     */
+    @Benchmark
+    public Distribution merge() {
+        Distribution distribution = new Distribution();
+        distribution.merge(distribution1);
+        distribution.merge(distribution2);
+        return distribution;
+    }
+
+    /**
+     * Merges the packed representations of two distributions into a new distribution, as is done
+     * when applying snapshots.
+     *
+     * @return
+     */
+    @Benchmark
+    public Distribution mergePacked() {
+        Distribution distribution = new Distribution();
+        distribution.merge(distribution1.getPackedElements(), distribution1.getPackedFrequency());
+        distribution.merge(distribution2.getPackedElements(), distribution2.getPackedFrequency());
+        return distribution;
+    }
+
+    /**
+     * Packs a distribution.
+     *
+     * @return
+     */
+    @Benchmark
+    public int[] pack() {
+        distribution1.pack();
+        return distribution1.getPackedElements();
+    }
+}
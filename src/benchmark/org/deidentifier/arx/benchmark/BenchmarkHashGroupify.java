@@ -0,0 +1,127 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.deidentifier.arx.BenchmarkEnvironment;
+import org.deidentifier.arx.framework.check.Transformer;
+import org.deidentifier.arx.framework.check.groupify.HashGroupify;
+import org.deidentifier.arx.framework.data.DataColumns;
+import org.deidentifier.arx.framework.lattice.Transformation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks HashGroupify.addFromBuffer() and HashGroupify.stateAnalyze() on records which have
+ * been generalized in advance.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BenchmarkHashGroupify extends AbstractBenchmark {
+
+    /** The generalization level relative to the height of the hierarchies */
+    @Param({ "0.0", "0.5" })
+    public double          level;
+
+    /** Whether a distribution of a sensitive attribute is maintained */
+    @Param({ "false", "true" })
+    public boolean         sensitive;
+
+    /** The generalized records */
+    private int[][]        generalized;
+
+    /** The sensitive values */
+    private int[][]        analyzed;
+
+    /** The groupify operator */
+    private HashGroupify   groupify;
+
+    /** The transformation */
+    private Transformation transformation;
+
+    /**
+     * Prepares the benchmark.
+     *
+     * @throws IOException
+     */
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkEnvironment environment = getEnvironment(getConfiguration(sensitive), sensitive);
+        Transformer transformer = environment.createTransformer();
+        this.transformation = environment.getTransformation(level);
+        this.groupify = environment.createGroupify();
+        transformer.apply(0L, transformation.getGeneralization(), groupify);
+        this.generalized = transformer.getBuffer();
+        this.analyzed = null;
+        if (sensitive) {
+            DataColumns columns = environment.getManager().getDataAnalyzed().getColumns();
+            this.analyzed = new int[columns.getNumRows()][columns.getNumColumns()];
+            for (int i = 0; i < analyzed.length; i++) {
+                columns.getRow(i, analyzed[i]);
+            }
+        }
+    }
+
+    /**
+     * Groups all records.
+     *
+     * @return
+     */
+    @Benchmark
+    public HashGroupify addFromBuffer() {
+        add();
+        return groupify;
+    }
+
+    /**
+     * Groups all records and evaluates the privacy model.
+     *
+     * @return
+     */
+    @Benchmark
+    public HashGroupify addFromBufferAndAnalyze() {
+        add();
+        groupify.stateAnalyze(transformation, true);
+        return groupify;
+    }
+
+    /**
+     * Adds all records to the groupify operator.
+     */
+    private void add() {
+        groupify.stateClear();
+        for (int i = 0; i < generalized.length; i++) {
+            groupify.addFromBuffer(generalized[i], analyzed != null ? analyzed[i] : null, i, 1, -1);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.deidentifier.arx.BenchmarkEnvironment;
+import org.deidentifier.arx.framework.check.Transformer;
+import org.deidentifier.arx.framework.check.distribution.IntArrayDictionary;
+import org.deidentifier.arx.framework.check.groupify.HashGroupify;
+import org.deidentifier.arx.framework.check.history.History;
+import org.deidentifier.arx.framework.check.history.History.StorageStrategy;
+import org.deidentifier.arx.framework.check.history.Snapshot;
+import org.deidentifier.arx.framework.lattice.Transformation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks History.store() and History.get(). The history is cleared before each invocation
+ * of store(), because a transformation is stored only once.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BenchmarkHistory extends AbstractBenchmark {
+
+    /** Whether a distribution of a sensitive attribute is maintained */
+    @Param({ "false", "true" })
+    public boolean         sensitive;
+
+    /** The groupify operator to store */
+    private HashGroupify   groupify;
+
+    /** The history used for storing */
+    private History        historyStore;
+
+    /** The history used for lookups */
+    private History        historyGet;
+
+    /** The successor to look up */
+    private int[]          successor;
+
+    /** The transformation to store */
+    private Transformation transformation;
+
+    /**
+     * Prepares the benchmark.
+     *
+     * @throws IOException
+     */
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkEnvironment environment = getEnvironment(getConfiguration(sensitive), sensitive);
+        Transformer transformer = environment.createTransformer();
+        this.transformation = environment.getTransformation(0.5d);
+        this.successor = environment.getTransformation(1.0d).getGeneralization();
+        this.groupify = environment.createGroupify();
+        transformer.apply(0L, transformation.getGeneralization(), groupify);
+        this.historyStore = createHistory(environment);
+        this.historyGet = createHistory(environment);
+        this.historyGet.store(transformation, groupify, null);
+    }
+
+    /**
+     * Clears the history used for storing.
+     */
+    @Setup(Level.Invocation)
+    public void reset() {
+        historyStore.reset();
+    }
+
+    /**
+     * Looks up a snapshot for a successor of the stored transformation.
+     *
+     * @return
+     */
+    @Benchmark
+    public Snapshot get() {
+        return historyGet.get(successor);
+    }
+
+    /**
+     * Stores a snapshot.
+     *
+     * @return
+     */
+    @Benchmark
+    public boolean store() {
+        return historyStore.store(transformation, groupify, null);
+    }
+
+    /**
+     * Creates a history which stores all snapshots.
+     *
+     * @param environment
+     * @return
+     */
+    private History createHistory(BenchmarkEnvironment environment) {
+        int rows = environment.getManager().getDataGeneralized().getDataLength();
+        History history = new History(rows,
+                                      200,
+                                      1d,
+                                      1d,
+                                      environment.getConfiguration(),
+                                      new IntArrayDictionary((int) (rows * 0.01d)),
+                                      new IntArrayDictionary((int) (rows * 0.01d)),
+                                      environment.getSolutionSpace());
+        history.setStorageStrategy(StorageStrategy.ALL);
+        return history;
+    }
+}
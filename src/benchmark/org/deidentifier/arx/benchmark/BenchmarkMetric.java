@@ -0,0 +1,127 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.BenchmarkEnvironment;
+import org.deidentifier.arx.framework.check.Transformer;
+import org.deidentifier.arx.framework.check.groupify.HashGroupify;
+import org.deidentifier.arx.framework.lattice.Transformation;
+import org.deidentifier.arx.metric.InformationLossWithBound;
+import org.deidentifier.arx.metric.Metric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the computation of information loss by the major quality models.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BenchmarkMetric extends AbstractBenchmark {
+
+    /** The quality model */
+    @Param({ "AECS", "Ambiguity", "Discernability", "Entropy", "Height", "KLDivergence", "Loss", "NormalizedEntropy", "Precision" })
+    public String          metric;
+
+    /** The generalization level relative to the height of the hierarchies */
+    @Param({ "0.5" })
+    public double          level;
+
+    /** The groupify operator */
+    private HashGroupify   groupify;
+
+    /** The quality model */
+    private Metric<?>      model;
+
+    /** The transformation */
+    private Transformation transformation;
+
+    /**
+     * Returns the quality model with the given name.
+     *
+     * @param name
+     * @return
+     */
+    private static Metric<?> getMetric(String name) {
+        if (name.equals("AECS")) {
+            return Metric.createAECSMetric();
+        } else if (name.equals("Ambiguity")) {
+            return Metric.createAmbiguityMetric();
+        } else if (name.equals("Discernability")) {
+            return Metric.createDiscernabilityMetric();
+        } else if (name.equals("Entropy")) {
+            return Metric.createEntropyMetric();
+        } else if (name.equals("Height")) {
+            return Metric.createHeightMetric();
+        } else if (name.equals("KLDivergence")) {
+            return Metric.createKLDivergenceMetric();
+        } else if (name.equals("Loss")) {
+            return Metric.createLossMetric();
+        } else if (name.equals("NormalizedEntropy")) {
+            return Metric.createNormalizedEntropyMetric();
+        } else if (name.equals("Precision")) {
+            return Metric.createPrecisionMetric();
+        } else {
+            throw new IllegalArgumentException("Unknown quality model: " + name);
+        }
+    }
+
+    /**
+     * Prepares the benchmark.
+     *
+     * @throws IOException
+     */
+    @Setup
+    public void setup() throws IOException {
+        ARXConfiguration config = getConfiguration(false);
+        config.setQualityModel(getMetric(metric));
+        BenchmarkEnvironment environment = getEnvironment(config, false);
+        Transformer transformer = environment.createTransformer();
+        this.model = environment.getMetric();
+        this.transformation = environment.getTransformation(level);
+        this.groupify = environment.createGroupify();
+        transformer.apply(0L, transformation.getGeneralization(), groupify);
+        groupify.stateAnalyze(transformation, true);
+    }
+
+    /**
+     * Computes the information loss.
+     *
+     * @return
+     */
+    @Benchmark
+    public InformationLossWithBound<?> getInformationLoss() {
+        return model.getInformationLoss(transformation, groupify);
+    }
+}
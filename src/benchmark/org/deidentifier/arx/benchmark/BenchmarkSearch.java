@@ -0,0 +1,96 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks complete anonymization processes with FLASH and LIGHTNING.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BenchmarkSearch extends AbstractBenchmark {
+
+    /** The search algorithm */
+    @Param({ "FLASH", "LIGHTNING" })
+    public String  algorithm;
+
+    /** Whether a distribution of a sensitive attribute is maintained */
+    @Param({ "false", "true" })
+    public boolean sensitive;
+
+    /** The time limit of LIGHTNING in milliseconds */
+    @Param({ "5000" })
+    public int     timeLimit;
+
+    /** The data, which is locked after anonymization */
+    private Data   data;
+
+    /**
+     * Loads the data.
+     *
+     * @throws IOException
+     */
+    @Setup(Level.Invocation)
+    public void setup() throws IOException {
+        this.data = getData(sensitive);
+    }
+
+    /**
+     * Anonymizes the data.
+     *
+     * @return
+     * @throws IOException
+     */
+    @Benchmark
+    public ARXResult anonymize() throws IOException {
+        ARXConfiguration config = getConfiguration(sensitive);
+        if (algorithm.equals("LIGHTNING")) {
+            config.setHeuristicSearchEnabled(true);
+            config.setHeuristicSearchTimeLimit(timeLimit);
+        } else if (algorithm.equals("FLASH")) {
+            config.setHeuristicSearchEnabled(false);
+            config.setHeuristicSearchThreshold(Integer.MAX_VALUE);
+        } else {
+            throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+        return new ARXAnonymizer().anonymize(data, config);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.deidentifier.arx.BenchmarkEnvironment;
+import org.deidentifier.arx.framework.check.Transformer;
+import org.deidentifier.arx.framework.check.groupify.HashGroupify;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks transforming and grouping all records of a dataset with TransformerXX.processAll().
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BenchmarkTransformer extends AbstractBenchmark {
+
+    /** The generalization level relative to the height of the hierarchies */
+    @Param({ "0.0", "0.5", "1.0" })
+    public double        level;
+
+    /** Whether a distribution of a sensitive attribute is maintained */
+    @Param({ "false", "true" })
+    public boolean       sensitive;
+
+    /** The generalization */
+    private int[]        generalization;
+
+    /** The target */
+    private HashGroupify groupify;
+
+    /** The transformer */
+    private Transformer  transformer;
+
+    /**
+     * Prepares the benchmark.
+     *
+     * @throws IOException
+     */
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkEnvironment environment = getEnvironment(getConfiguration(sensitive), sensitive);
+        this.transformer = environment.createTransformer();
+        this.groupify = environment.createGroupify();
+        this.generalization = environment.getTransformation(level).getGeneralization();
+    }
+
+    /**
+     * Transforms all records.
+     *
+     * @return
+     */
+    @Benchmark
+    public HashGroupify processAll() {
+        return transformer.apply(0L, generalization, groupify);
+    }
+}
@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.deidentifier.arx.ARXConfiguration.Monotonicity;
 import org.deidentifier.arx.AttributeType.MicroAggregationFunction;
 import org.deidentifier.arx.algorithm.AbstractAlgorithm;
 import org.deidentifier.arx.algorithm.FLASHAlgorithm;
@@ -82,6 +83,9 @@ public class ARXAnonymizer {
         /** The global optimum */
         final Transformation    optimum;
 
+        /** Statistics about the search */
+        final ARXEngineStatistics statistics;
+
         /**
          * Creates a new instance.
          *
@@ -91,13 +95,15 @@ public class ARXAnonymizer {
          * @param manager the manager
          * @param algorithm
          * @param time
+         * @param statistics
          */
         Result(final Metric<?> metric,
                final NodeChecker checker,
                final SolutionSpace solutionSpace,
                final DataManager manager,
                final AbstractAlgorithm algorithm,
-               final long time) {
+               final long time,
+               final ARXEngineStatistics statistics) {
             this.metric = metric;
             this.checker = checker;
             this.solutionSpace = solutionSpace;
@@ -105,6 +111,7 @@ public class ARXAnonymizer {
             this.algorithm = algorithm;
             this.time = time;
             this.optimum = algorithm.getGlobalOptimum();
+            this.statistics = statistics;
         }
 
         /**
@@ -132,13 +139,17 @@ public class ARXAnonymizer {
                                  config,
                                  lattice,
                                  System.currentTimeMillis() - time,
-                                 solutionSpace);      
+                                 solutionSpace,
+                                 statistics);      
 		}
     }
 
     /** History size. */
     private int         historySize          = 200;
 
+    /** The maximal number of bytes occupied by snapshots in the history. */
+    private long        historyMemoryLimit   = Long.MAX_VALUE;
+
     /** The listener, if any. */
     private ARXListener listener             = null;
 
@@ -151,6 +162,21 @@ public class ARXAnonymizer {
     /** The maximal number of QIs that can be processed. */
     private int         maxQuasiIdentifiers  = Integer.MAX_VALUE;
 
+    /** The number of threads used for transforming data. */
+    private int         numberOfThreads      = 1;
+
+    /** The number of threads used for checking transformations. */
+    private int         numberOfSearchThreads = 1;
+
+    /** Whether transformations are aborted as soon as the suppression limit is provably exceeded. */
+    private boolean     fastFail             = false;
+
+    /** Whether transformers are generated at runtime for more than 15 quasi-identifiers. */
+    private boolean     generatedTransformers = false;
+
+    /** The cache for classifications of transformations, if any. */
+    private ARXClassificationCache classificationCache = null;
+
 
     /**
      * Creates a new anonymizer with the default configuration.
@@ -198,6 +224,9 @@ public class ARXAnonymizer {
         checkBeforeEncoding(handle, config);
         handle.getRegistry().reset();
         
+        // Derive key for cached classifications
+        String cacheKey = classificationCache == null ? null : classificationCache.getKey(handle, config);
+        
         // Create manager
         DataManager manager = getDataManager(handle, handle.getDefinition(), config);
 
@@ -205,13 +234,22 @@ public class ARXAnonymizer {
         handle.getRegistry().createInputSubset(config);
         
         // Attach arrays to data handle
-        ((DataHandleInput)handle).update(manager.getDataGeneralized().getArray(), 
-                                         manager.getDataAnalyzed().getArray(),
-                                         manager.getDataStatic().getArray());
+        ((DataHandleInput)handle).update(manager.getDataGeneralized().getColumns(), 
+                                         manager.getDataAnalyzed().getColumns(),
+                                         manager.getDataStatic().getColumns());
 
 
         // Execute
-        return anonymize(manager, handle.getDefinition(), config).asResult(config, handle);
+        return anonymize(manager, handle.getDefinition(), config, cacheKey).asResult(config, handle);
+    }
+
+    /**
+     * Returns the cache for classifications of transformations, if any.
+     * 
+     * @return
+     */
+    public ARXClassificationCache getClassificationCache() {
+        return classificationCache;
     }
     
     /**
@@ -222,6 +260,15 @@ public class ARXAnonymizer {
     public int getHistorySize() {
         return historySize;
     }
+
+    /**
+     * Returns the maximum number of bytes occupied by snapshots stored in the history.
+     * 
+     * @return The limit
+     */
+    public long getHistoryMemoryLimit() {
+        return historyMemoryLimit;
+    }
     
     /**
      * Gets the snapshot size.
@@ -250,6 +297,55 @@ public class ARXAnonymizer {
         return maxQuasiIdentifiers;
     }
 
+    /**
+     * Returns the number of threads used for transforming data.
+     * 
+     * @return
+     */
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    /**
+     * Returns the number of threads used for checking transformations.
+     * 
+     * @return
+     */
+    public int getNumberOfSearchThreads() {
+        return numberOfSearchThreads;
+    }
+
+    /**
+     * Returns whether transformations are aborted as soon as the suppression limit is provably exceeded.
+     * 
+     * @return
+     */
+    public boolean isFastFailEnabled() {
+        return fastFail;
+    }
+
+    /**
+     * Returns whether transformers are generated at runtime for more than 15 quasi-identifiers.
+     * 
+     * @return
+     */
+    public boolean isGeneratedTransformersEnabled() {
+        return generatedTransformers;
+    }
+
+    /**
+     * Sets the maximum number of bytes occupied by snapshots stored in the history. Snapshots
+     * are evicted in least-recently-used order if either this limit or the maximum number
+     * of snapshots is exceeded. By default, the memory is not limited.
+     * 
+     * @param historyMemoryLimit
+     *            The limit in bytes
+     */
+    public void setHistoryMemoryLimit(final long historyMemoryLimit) {
+        if (historyMemoryLimit < 0) { throw new IllegalArgumentException("Memory limit of history must be positive or 0"); }
+        this.historyMemoryLimit = historyMemoryLimit;
+    }
+
     /**
      * Sets the maximum number of snapshots allowed to store in the history.
      * 
@@ -262,7 +358,8 @@ public class ARXAnonymizer {
     }
 
     /**
-     * Sets a listener.
+     * Sets a listener. Listeners implementing {@link ARXEngineStatisticsListener}
+     * additionally receive statistics about the work performed by the engine.
      * 
      * @param listener
      *            the new listener, if any
@@ -293,6 +390,78 @@ public class ARXAnonymizer {
         this.snapshotSizeSnapshot = snapshotSizeSnapshot;
     }
 
+    /**
+     * Enables or disables aborting the transformation of data as soon as the number of records in
+     * equivalence classes that are smaller than the minimal class size provably exceeds the suppression
+     * limit. Such transformations are classified as not anonymous without processing the remaining records.
+     * This only affects the FLASH algorithm and monotonic privacy models which define a minimal class size,
+     * e.g. k-anonymity. The result is identical, but fewer lower bounds on information loss may be available
+     * for pruning. The default is false.
+     * 
+     * @param fastFail
+     */
+    public void setFastFailEnabled(final boolean fastFail) {
+        this.fastFail = fastFail;
+    }
+
+    /**
+     * Enables or disables transformers which are generated at runtime for datasets with more than 15
+     * quasi-identifiers. By default, such data is transformed with a generic implementation. Generated
+     * transformers are specialized for the number of attributes, but they are compiled with the system Java
+     * compiler, which is only available on a JDK and takes several seconds. Compilation is therefore performed
+     * in the background, while data is transformed with the generic implementation until it has finished.
+     * Generated classes are reused by subsequent anonymizations. The default is false.
+     * 
+     * @param generatedTransformers
+     */
+    public void setGeneratedTransformersEnabled(final boolean generatedTransformers) {
+        this.generatedTransformers = generatedTransformers;
+    }
+
+    /**
+     * Sets a cache in which the classification of transformations is stored persistently. When the same
+     * data is anonymized again with the same hierarchies and privacy models, transformations which are
+     * known to not be anonymous are not checked again, if the suppression limit has not been increased.
+     * Changes to other parameters, e.g. the quality model, are supported. Set to null to disable caching.
+     * The default is null.
+     * 
+     * @param classificationCache
+     */
+    public void setClassificationCache(final ARXClassificationCache classificationCache) {
+        this.classificationCache = classificationCache;
+    }
+
+    /**
+     * Sets the number of threads used for checking transformations. If more than one thread is specified,
+     * the FLASH algorithm checks independent transformations which it is likely to visit next in parallel,
+     * i.e. the successors of a transformation or the next candidates of a binary search, while the search
+     * itself and the order in which results are processed remain unchanged. Each additional thread uses its
+     * own history and transforms data with a single thread. As a result, the state transitions performed for
+     * a transformation differ from a sequential search. Parallel checks are therefore only performed for fully
+     * monotonic privacy models, for which the result is independent of these transitions. Privacy models and
+     * quality models are shared between threads, so that their evaluation is serialized. The heuristic search
+     * algorithm always uses a single thread. The default is one thread.
+     * 
+     * @param numberOfSearchThreads
+     */
+    public void setNumberOfSearchThreads(final int numberOfSearchThreads) {
+        if (numberOfSearchThreads < 1) { throw new IllegalArgumentException("Number of search threads must be >= 1"); }
+        this.numberOfSearchThreads = numberOfSearchThreads;
+    }
+
+    /**
+     * Sets the number of threads used for transforming data. If more than one thread is specified,
+     * the rows of the dataset (or the entries of a snapshot) are split into ranges which are 
+     * transformed and grouped concurrently. The threads are also used for encoding the data 
+     * and building the hierarchies of the attributes before the search. The default is one thread.
+     * 
+     * @param numberOfThreads
+     */
+    public void setNumberOfThreads(final int numberOfThreads) {
+        if (numberOfThreads < 1) { throw new IllegalArgumentException("Number of threads must be >= 1"); }
+        this.numberOfThreads = numberOfThreads;
+    }
+
     /**
      * Sets the maximal number of quasi-identifiers. Set to Integer.MAX_VALUE to disable the 
      * restriction. By default, the restriction is disabled.
@@ -488,23 +657,41 @@ public class ARXAnonymizer {
      * @param manager
      * @param solutionSpace
      * @param checker
+     * @param workers
      * @return
      */
     private AbstractAlgorithm getAlgorithm(final ARXConfiguration config,
                                           final DataManager manager,
                                           final SolutionSpace solutionSpace,
-                                          final NodeChecker checker) {
+                                          final NodeChecker checker,
+                                          final NodeChecker[] workers) {
         
-        if (config.isHeuristicSearchEnabled() ||
-            solutionSpace.getSize() > config.getHeuristicSearchThreshold()) {
+        if (isHeuristicSearch(config, solutionSpace)) {
             return LIGHTNINGAlgorithm.create(solutionSpace, checker, config.getHeuristicSearchTimeLimit());
             
         } else {
+            // The search is only independent of the state transitions performed, if privacy is monotonic
+            boolean fastFail = this.fastFail && config.getMonotonicityOfPrivacy() == Monotonicity.FULL;
+            checker.setFastFailEnabled(fastFail);
+            for (NodeChecker worker : workers) {
+                worker.setFastFailEnabled(fastFail);
+            }
             FLASHStrategy strategy = new FLASHStrategy(solutionSpace, manager.getHierarchies());
-            return FLASHAlgorithm.create(solutionSpace, checker, strategy);
+            return FLASHAlgorithm.create(solutionSpace, checker, workers, strategy);
         }
     }
 
+    /**
+     * Returns whether the heuristic search algorithm will be used.
+     *
+     * @param config
+     * @param solutionSpace
+     * @return
+     */
+    private boolean isHeuristicSearch(final ARXConfiguration config, final SolutionSpace solutionSpace) {
+        return config.isHeuristicSearchEnabled() || solutionSpace.getSize() > config.getHeuristicSearchThreshold();
+    }
+
     /**
      * Prepares the data manager.
      *
@@ -520,10 +707,33 @@ public class ARXAnonymizer {
         final String[] header = ((DataHandleInput) handle).header;
         final int[][] dataArray = ((DataHandleInput) handle).data;
         final Dictionary dictionary = ((DataHandleInput) handle).dictionary;
-        final DataManager manager = new DataManager(header, dataArray, dictionary, definition, config.getPrivacyModels(), getAggregateFunctions(definition));
+        final DataManager manager = new DataManager(header, dataArray, dictionary, definition, config.getPrivacyModels(), getAggregateFunctions(definition), numberOfThreads);
         return manager;
     }
 
+    /**
+     * Returns the listener to be used by the algorithm. If the listener is an
+     * {@link ARXEngineStatisticsListener}, each progress update is followed by
+     * the statistics collected so far.
+     *
+     * @param checker
+     * @param workers
+     * @return
+     */
+    private ARXListener getListener(final NodeChecker checker, final NodeChecker[] workers) {
+        if (!(listener instanceof ARXEngineStatisticsListener)) {
+            return listener;
+        }
+        final ARXEngineStatisticsListener statisticsListener = (ARXEngineStatisticsListener) listener;
+        return new ARXListener() {
+            @Override
+            public void progress(double progress) {
+                statisticsListener.progress(progress);
+                statisticsListener.statistics(new ARXEngineStatistics(checker, workers));
+            }
+        };
+    }
+
     /**
      * Reset a previous lattice and run the algorithm .
      *
@@ -536,6 +746,24 @@ public class ARXAnonymizer {
     protected Result anonymize(final DataManager manager,
                                final DataDefinition definition,
                                final ARXConfiguration config) throws IOException {
+        return anonymize(manager, definition, config, null);
+    }
+
+    /**
+     * Reset a previous lattice and run the algorithm. If a key is given, the solution space
+     * is seeded with cached classifications and the classifications are stored afterwards.
+     *
+     * @param manager
+     * @param definition
+     * @param config
+     * @param cacheKey
+     * @return
+     * @throws IOException
+     */
+    private Result anonymize(final DataManager manager,
+                             final DataDefinition definition,
+                             final ARXConfiguration config,
+                             String cacheKey) throws IOException {
 
         // Initialize
         config.initialize(manager);
@@ -556,26 +784,70 @@ public class ARXAnonymizer {
                                                     historySize,
                                                     snapshotSizeDataset,
                                                     snapshotSizeSnapshot,
-                                                    solutionSpace);
+                                                    solutionSpace,
+                                                    numberOfThreads);
+        checker.getHistory().setMemoryLimit(historyMemoryLimit);
+        checker.setGeneratedTransformersEnabled(generatedTransformers);
+
+        // Build additional node checkers for checking transformations in parallel with FLASH. Like fast-fail checks,
+        // this is only performed if privacy is monotonic, as the search may otherwise depend on the state transitions
+        final boolean parallel = config.getMonotonicityOfPrivacy() == Monotonicity.FULL && !isHeuristicSearch(config, solutionSpace);
+        final NodeChecker[] workers = new NodeChecker[parallel ? numberOfSearchThreads - 1 : 0];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new NodeChecker(manager,
+                                         config.getQualityModel(),
+                                         config.getInternalConfiguration(),
+                                         historySize,
+                                         snapshotSizeDataset,
+                                         snapshotSizeSnapshot,
+                                         solutionSpace,
+                                         1);
+            workers[i].getHistory().setMemoryLimit(historyMemoryLimit);
+            workers[i].setGeneratedTransformersEnabled(generatedTransformers);
+        }
 
         // Create an algorithm instance
         AbstractAlgorithm algorithm = getAlgorithm(config,
                                                    manager,
                                                    solutionSpace,
-                                                   checker);
-        algorithm.setListener(listener);
-
+                                                   checker,
+                                                   workers);
+        algorithm.setListener(getListener(checker, workers));
+
+        // Seed with cached classifications, after the algorithm has configured the solution space
+        if (cacheKey != null) {
+            cacheKey = classificationCache.getKey(cacheKey, config.getSubset());
+            classificationCache.seed(cacheKey, solutionSpace, config.getAbsoluteMaxOutliers());
+        }
         
         // Execute
 
         final long time = System.currentTimeMillis();
-        algorithm.traverse();
+        try {
+            algorithm.traverse();
+        } finally {
+            // Release the threads used for transforming data
+            checker.shutdown();
+            for (NodeChecker worker : workers) {
+                worker.shutdown();
+            }
+        }
+        final ARXEngineStatistics statistics = new ARXEngineStatistics(checker, workers);
+        
+        // Store classifications
+        if (cacheKey != null) {
+            classificationCache.store(cacheKey, solutionSpace, config.getAbsoluteMaxOutliers());
+        }
         
         // Deactivate history to prevent bugs when sorting data
+        checker.setFastFailEnabled(false);
         checker.getHistory().reset();
         checker.getHistory().setSize(0);
+        for (NodeChecker worker : workers) {
+            worker.getHistory().reset();
+        }
         
         // Return the result
-        return new Result(config.getQualityModel(), checker, solutionSpace, manager, algorithm, time);
+        return new Result(config.getQualityModel(), checker, solutionSpace, manager, algorithm, time, statistics);
     }
 }
@@ -0,0 +1,393 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.deidentifier.arx.criteria.PrivacyCriterion;
+import org.deidentifier.arx.framework.lattice.SolutionSpace;
+import org.deidentifier.arx.framework.lattice.Transformation;
+import org.deidentifier.arx.io.CSVDataChecksum;
+
+import de.linearbits.jhpl.JHPLIterator.LongIterator;
+
+/**
+ * A persistent cache for the classification of transformations, which can be shared between
+ * multiple executions of the anonymization process. Classifications are stored in a directory, 
+ * in one file per combination of input data, attribute types, hierarchies, privacy models and
+ * research subset. The key is derived from SHA-256 checksums of these parameters.<br>
+ * <br>
+ * Transformations which are known to not fulfill the privacy models with a given suppression 
+ * limit also do not fulfill them with a lower suppression limit. Such transformations are 
+ * classified as not anonymous before the search is started and will not be checked again. 
+ * Transformations which are known to fulfill the privacy models are checked nevertheless, 
+ * because their utility depends on the quality model, which is not part of the key.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class ARXClassificationCache {
+
+    /**
+     * The classification of a transformation.
+     * 
+     * @author Fabian Prasser
+     */
+    private static class Classification {
+
+        /** The transformation */
+        private final int[] transformation;
+
+        /** The lowest suppression limit with which the transformation is known to be anonymous */
+        private int         anonymous    = Integer.MAX_VALUE;
+
+        /** The highest suppression limit with which the transformation is known to not be anonymous */
+        private int         notAnonymous = -1;
+
+        /**
+         * Creates a new instance
+         * @param transformation
+         */
+        private Classification(int[] transformation) {
+            this.transformation = transformation;
+        }
+    }
+
+    /** Suffix of the files in the cache */
+    private static final String SUFFIX  = ".classification";
+
+    /** Version of the file format */
+    private static final int    VERSION = 1;
+
+    /** The directory */
+    private final File          directory;
+
+    /**
+     * Creates a new cache which stores its files in the given directory. The directory will
+     * be created, if it does not exist.
+     * 
+     * @param directory
+     */
+    public ARXClassificationCache(File directory) {
+        if (directory == null) {
+            throw new NullPointerException("Directory must not be null");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create directory: " + directory.getAbsolutePath());
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Removes all classifications from the cache.
+     */
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(SUFFIX)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the directory
+     * @return
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the file for the given key
+     * @param key
+     * @return
+     */
+    private File getFile(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    /**
+     * Returns the string representation of the given transformation
+     * @param transformation
+     * @return
+     */
+    private String getIdentifier(int[] transformation) {
+        return Arrays.toString(transformation);
+    }
+
+    /**
+     * Returns a hex-encoded SHA-256 checksum of the serialized form of the given object
+     * @param object
+     * @return
+     * @throws IOException
+     */
+    private String getSHA256Checksum(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray());
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < digest.length; i++) {
+                builder.append(Integer.toString((digest[i] & 0xff) + 0x100, 16).substring(1));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns a hex-encoded SHA-256 checksum of the given rows
+     * @param rows
+     * @return
+     */
+    private String getSHA256Checksum(Iterator<String[]> rows) {
+        try {
+            return new CSVDataChecksum().getSHA256Checksum(rows);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the classifications stored for the given key
+     * @param key
+     * @param dimensions
+     * @return
+     * @throws IOException
+     */
+    private Map<String, Classification> read(String key, int dimensions) throws IOException {
+
+        // Prepare
+        Map<String, Classification> result = new HashMap<String, Classification>();
+        File file = getFile(key);
+        if (!file.exists()) {
+            return result;
+        }
+
+        // Read
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != VERSION || in.readInt() != dimensions) {
+                return result;
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                int[] transformation = new int[dimensions];
+                for (int j = 0; j < dimensions; j++) {
+                    transformation[j] = in.readInt();
+                }
+                Classification classification = new Classification(transformation);
+                classification.anonymous = in.readInt();
+                classification.notAnonymous = in.readInt();
+                result.put(getIdentifier(transformation), classification);
+            }
+        } finally {
+            in.close();
+        }
+        return result;
+    }
+
+    /**
+     * Writes the classifications for the given key. The file is replaced atomically, if supported.
+     * @param key
+     * @param dimensions
+     * @param classifications
+     * @throws IOException
+     */
+    private void write(String key, int dimensions, Map<String, Classification> classifications) throws IOException {
+
+        // Write to temporary file
+        File file = getFile(key);
+        File temp = File.createTempFile(key, ".tmp", directory);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(VERSION);
+            out.writeInt(dimensions);
+            out.writeInt(classifications.size());
+            for (Classification classification : classifications.values()) {
+                for (int level : classification.transformation) {
+                    out.writeInt(level);
+                }
+                out.writeInt(classification.anonymous);
+                out.writeInt(classification.notAnonymous);
+            }
+        } finally {
+            out.close();
+        }
+
+        // Replace
+        if (!temp.renameTo(file)) {
+            file.delete();
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Cannot write file: " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Returns a key for the given input data and configuration. It covers the data, the types of all
+     * attributes, all hierarchies and the privacy models. Must be called before the configuration
+     * is initialized.
+     * 
+     * @param handle
+     * @param config
+     * @return
+     * @throws IOException
+     */
+    String getKey(DataHandle handle, ARXConfiguration config) throws IOException {
+
+        List<String[]> parameters = new ArrayList<String[]>();
+        
+        // Data
+        parameters.add(new String[] { "data", getSHA256Checksum(handle.iterator()) });
+        
+        // Attributes
+        DataDefinition definition = handle.getDefinition();
+        for (int column = 0; column < handle.getNumColumns(); column++) {
+            String attribute = handle.getAttributeName(column);
+            String[][] hierarchy = definition.getHierarchy(attribute);
+            parameters.add(new String[] { "attribute",
+                                          attribute,
+                                          String.valueOf(definition.getAttributeType(attribute)),
+                                          hierarchy == null ? "" : getSHA256Checksum(Arrays.asList(hierarchy).iterator()) });
+        }
+        
+        // Privacy models, in a defined order
+        List<String> models = new ArrayList<String>();
+        for (PrivacyCriterion model : config.getPrivacyModels()) {
+            models.add(getSHA256Checksum(model));
+        }
+        Collections.sort(models);
+        for (String model : models) {
+            parameters.add(new String[] { "model", model });
+        }
+        
+        // Done
+        return getSHA256Checksum(parameters.iterator());
+    }
+
+    /**
+     * Extends the given key with the research subset, which is only known after 
+     * the configuration has been initialized.
+     * 
+     * @param key
+     * @param subset
+     * @return
+     * @throws IOException 
+     */
+    String getKey(String key, DataSubset subset) throws IOException {
+        if (subset == null) {
+            return key;
+        }
+        return getSHA256Checksum(Arrays.asList(new String[] { key, getSHA256Checksum(subset.getArray()) }).iterator());
+    }
+
+    /**
+     * Classifies all transformations in the solution space, which are known to not be anonymous
+     * with the given suppression limit. Returns the number of such transformations.
+     * 
+     * @param key
+     * @param solutionSpace
+     * @param suppressionLimit
+     * @return
+     * @throws IOException
+     */
+    int seed(String key, SolutionSpace solutionSpace, int suppressionLimit) throws IOException {
+
+        int[] min = solutionSpace.getBottom().getGeneralization();
+        int[] max = solutionSpace.getTop().getGeneralization();
+        int count = 0;
+        
+        // For each transformation known to not be anonymous
+        outer: for (Classification classification : read(key, min.length).values()) {
+            if (classification.notAnonymous >= suppressionLimit) {
+                
+                // Ignore transformations outside of the solution space
+                for (int i = 0; i < min.length; i++) {
+                    if (classification.transformation[i] < min[i] || classification.transformation[i] > max[i]) {
+                        continue outer;
+                    }
+                }
+                solutionSpace.getTransformation(classification.transformation).setProperty(solutionSpace.getPropertyNotAnonymous());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stores the classification of all transformations which have been checked
+     * with the given suppression limit.
+     * 
+     * @param key
+     * @param solutionSpace
+     * @param suppressionLimit
+     * @throws IOException
+     */
+    void store(String key, SolutionSpace solutionSpace, int suppressionLimit) throws IOException {
+        
+        // Merge with existing classifications
+        int dimensions = solutionSpace.getBottom().getGeneralization().length;
+        Map<String, Classification> classifications = read(key, dimensions);
+        for (LongIterator iterator = solutionSpace.getMaterializedTransformations(); iterator.hasNext();) {
+            Transformation transformation = solutionSpace.getTransformation(iterator.next());
+            if (transformation.hasProperty(solutionSpace.getPropertyChecked())) {
+                
+                int[] generalization = transformation.getGeneralization();
+                Classification classification = classifications.get(getIdentifier(generalization));
+                if (classification == null) {
+                    classification = new Classification(generalization);
+                    classifications.put(getIdentifier(generalization), classification);
+                }
+                if (transformation.hasProperty(solutionSpace.getPropertyAnonymous())) {
+                    classification.anonymous = Math.min(classification.anonymous, suppressionLimit);
+                } else if (transformation.hasProperty(solutionSpace.getPropertyNotAnonymous())) {
+                    classification.notAnonymous = Math.max(classification.notAnonymous, suppressionLimit);
+                }
+            }
+        }
+        
+        // Write
+        write(key, dimensions, classifications);
+    }
+}
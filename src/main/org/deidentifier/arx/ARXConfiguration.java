@@ -1333,7 +1333,7 @@ public class ARXConfiguration implements Serializable, Cloneable {
         }
         
         // Requirements for microaggregation
-        if (manager.getDataAnalyzed().getArray() != null) {
+        if (manager.getDataAnalyzed().getHeader().length != 0) {
             this.requirements |= ARXConfiguration.REQUIREMENT_DISTRIBUTION;
         }
 
@@ -0,0 +1,297 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx;
+
+import org.deidentifier.arx.framework.check.NodeChecker;
+
+/**
+ * Statistics about the work performed by the anonymization engine. Counts are aggregated
+ * over all threads used for the search.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class ARXEngineStatistics {
+
+    /** Number of transformations which have been checked. */
+    private long checks;
+
+    /** Number of transitions which transformed all rows of the input. */
+    private long transitionsUnoptimized;
+
+    /** Number of transitions which rolled up the equivalence classes of a predecessor. */
+    private long transitionsRollup;
+
+    /** Number of transitions which used a snapshot from the history. */
+    private long transitionsSnapshot;
+
+    /** Number of transitions which were performed by generated transformers. */
+    private long transitionsGenerated;
+
+    /** Number of transformations which have been aborted early. */
+    private long aborted;
+
+    /** Number of rows, equivalence classes and snapshot entries processed. */
+    private long itemsScanned;
+
+    /** Number of equivalence classes produced. */
+    private long classesProduced;
+
+    /** Number of successful lookups in the history. */
+    private long historyHits;
+
+    /** Number of unsuccessful lookups in the history. */
+    private long historyMisses;
+
+    /** Number of snapshots stored in the history. */
+    private long historyStores;
+
+    /** Number of snapshots rejected by the history. */
+    private long historyRejections;
+
+    /** Number of snapshots evicted from the history. */
+    private long historyEvictions;
+
+    /** Time spent transforming data in nanoseconds. */
+    private long timeTransform;
+
+    /** Time spent analyzing groupings in nanoseconds. */
+    private long timeAnalyze;
+
+    /** Time spent evaluating the quality model in nanoseconds. */
+    private long timeMetric;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param checker
+     * @param workers
+     */
+    ARXEngineStatistics(NodeChecker checker, NodeChecker[] workers) {
+        add(checker.getStatistics());
+        for (NodeChecker worker : workers) {
+            add(worker.getStatistics());
+        }
+    }
+
+    /**
+     * Returns the number of transformations which have been aborted early, because
+     * the suppression limit was provably exceeded.
+     *
+     * @return
+     */
+    public long getNumberOfAbortedChecks() {
+        return aborted;
+    }
+
+    /**
+     * Returns the number of transformations which have been checked.
+     *
+     * @return
+     */
+    public long getNumberOfChecks() {
+        return checks;
+    }
+
+    /**
+     * Returns the overall number of equivalence classes produced.
+     *
+     * @return
+     */
+    public long getNumberOfClassesProduced() {
+        return classesProduced;
+    }
+
+    /**
+     * Returns the number of snapshots which have been evicted from the history.
+     *
+     * @return
+     */
+    public long getNumberOfHistoryEvictions() {
+        return historyEvictions;
+    }
+
+    /**
+     * Returns the number of lookups in the history which returned a snapshot.
+     *
+     * @return
+     */
+    public long getNumberOfHistoryHits() {
+        return historyHits;
+    }
+
+    /**
+     * Returns the number of lookups in the history which did not return a snapshot.
+     *
+     * @return
+     */
+    public long getNumberOfHistoryMisses() {
+        return historyMisses;
+    }
+
+    /**
+     * Returns the number of snapshots which have not been stored in the history, e.g.
+     * because they were too large.
+     *
+     * @return
+     */
+    public long getNumberOfHistoryRejections() {
+        return historyRejections;
+    }
+
+    /**
+     * Returns the number of snapshots which have been stored in the history.
+     *
+     * @return
+     */
+    public long getNumberOfHistoryStores() {
+        return historyStores;
+    }
+
+    /**
+     * Returns the overall number of rows, equivalence classes and snapshot entries
+     * which have been processed by transitions.
+     *
+     * @return
+     */
+    public long getNumberOfScannedItems() {
+        return itemsScanned;
+    }
+
+    /**
+     * Returns the number of transitions which rolled up the equivalence classes
+     * of the previously checked transformation.
+     *
+     * @return
+     */
+    public long getNumberOfRollupTransitions() {
+        return transitionsRollup;
+    }
+
+    /**
+     * Returns the number of transitions which used a snapshot from the history.
+     *
+     * @return
+     */
+    public long getNumberOfSnapshotTransitions() {
+        return transitionsSnapshot;
+    }
+
+    /**
+     * Returns the number of transitions which were performed by transformers generated
+     * at runtime for more than 15 quasi-identifiers.
+     *
+     * @return
+     */
+    public long getNumberOfGeneratedTransitions() {
+        return transitionsGenerated;
+    }
+
+    /**
+     * Returns the number of transitions which transformed the complete input.
+     *
+     * @return
+     */
+    public long getNumberOfUnoptimizedTransitions() {
+        return transitionsUnoptimized;
+    }
+
+    /**
+     * Returns the fraction of lookups in the history which returned a snapshot.
+     *
+     * @return
+     */
+    public double getHistoryHitRate() {
+        long lookups = historyHits + historyMisses;
+        return lookups == 0 ? 0d : (double) historyHits / (double) lookups;
+    }
+
+    /**
+     * Returns the time spent analyzing groupings in milliseconds.
+     *
+     * @return
+     */
+    public long getTimeAnalyze() {
+        return timeAnalyze / 1000000L;
+    }
+
+    /**
+     * Returns the time spent evaluating the quality model in milliseconds.
+     *
+     * @return
+     */
+    public long getTimeMetric() {
+        return timeMetric / 1000000L;
+    }
+
+    /**
+     * Returns the time spent transforming data in milliseconds.
+     *
+     * @return
+     */
+    public long getTimeTransform() {
+        return timeTransform / 1000000L;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ARXEngineStatistics {\n");
+        builder.append(" - Checks: ").append(checks).append(" (aborted: ").append(aborted).append(")\n");
+        builder.append(" - Transitions: unoptimized=").append(transitionsUnoptimized)
+               .append(", rollup=").append(transitionsRollup)
+               .append(", snapshot=").append(transitionsSnapshot)
+               .append(", generated=").append(transitionsGenerated).append("\n");
+        builder.append(" - Scanned items: ").append(itemsScanned).append("\n");
+        builder.append(" - Classes produced: ").append(classesProduced).append("\n");
+        builder.append(" - History: hits=").append(historyHits)
+               .append(", misses=").append(historyMisses)
+               .append(", stores=").append(historyStores)
+               .append(", rejections=").append(historyRejections)
+               .append(", evictions=").append(historyEvictions).append("\n");
+        builder.append(" - Time [ms]: transform=").append(getTimeTransform())
+               .append(", analyze=").append(getTimeAnalyze())
+               .append(", metric=").append(getTimeMetric()).append("\n");
+        builder.append("}");
+        return builder.toString();
+    }
+
+    /**
+     * Adds the given statistics.
+     *
+     * @param statistics
+     */
+    private void add(NodeChecker.Statistics statistics) {
+        this.checks += statistics.checks;
+        this.transitionsUnoptimized += statistics.transitionsUnoptimized;
+        this.transitionsRollup += statistics.transitionsRollup;
+        this.transitionsSnapshot += statistics.transitionsSnapshot;
+        this.transitionsGenerated += statistics.transitionsGenerated;
+        this.aborted += statistics.aborted;
+        this.itemsScanned += statistics.itemsScanned;
+        this.classesProduced += statistics.classesProduced;
+        this.historyHits += statistics.historyHits;
+        this.historyMisses += statistics.historyMisses;
+        this.historyStores += statistics.historyStores;
+        this.historyRejections += statistics.historyRejections;
+        this.historyEvictions += statistics.historyEvictions;
+        this.timeTransform += statistics.timeTransform;
+        this.timeAnalyze += statistics.timeAnalyze;
+        this.timeMetric += statistics.timeMetric;
+    }
+}
@@ -76,6 +76,9 @@ public class ARXResult {
     /** The registry. */
     private final SolutionSpace    solutionSpace;
 
+    /** Statistics about the search, if any. */
+    private final ARXEngineStatistics statistics;
+
     /**
      * Internal constructor for deserialization.
      *
@@ -122,9 +125,9 @@ public class ARXResult {
                                                     getAggregateFunctions(handle.getDefinition()));
 
         // Update handle
-        ((DataHandleInput)handle).update(manager.getDataGeneralized().getArray(), 
-                                         manager.getDataAnalyzed().getArray(),
-                                         manager.getDataStatic().getArray());
+        ((DataHandleInput)handle).update(manager.getDataGeneralized().getColumns(), 
+                                         manager.getDataAnalyzed().getColumns(),
+                                         manager.getDataStatic().getColumns());
         
         // Lock handle
         ((DataHandleInput)handle).setLocked(true);
@@ -154,6 +157,7 @@ public class ARXResult {
         this.optimalNode = lattice.getOptimum();
         this.duration = time;
         this.solutionSpace = solutionSpace;
+        this.statistics = null;
     }
     
     /**
@@ -167,6 +171,7 @@ public class ARXResult {
      * @param lattice
      * @param duration
      * @param solutionSpace
+     * @param statistics
      */
     protected ARXResult(DataRegistry registry,
                         DataManager manager,
@@ -175,7 +180,8 @@ public class ARXResult {
                         ARXConfiguration config,
                         ARXLattice lattice,
                         long duration,
-                        SolutionSpace solutionSpace) {
+                        SolutionSpace solutionSpace,
+                        ARXEngineStatistics statistics) {
 
         this.registry = registry;
         this.manager = manager;
@@ -186,6 +192,7 @@ public class ARXResult {
         this.optimalNode = lattice.getOptimum();
         this.duration = duration;
         this.solutionSpace = solutionSpace;
+        this.statistics = statistics;
     }
 
 
@@ -199,6 +206,17 @@ public class ARXResult {
         return config;
     }
 
+    /**
+     * Returns statistics about the work performed by the anonymization engine. Returns
+     * null if the result has not been created by an anonymization process, e.g. when it
+     * has been loaded from a project file.
+     *
+     * @return
+     */
+    public ARXEngineStatistics getEngineStatistics() {
+        return statistics;
+    }
+
     /**
      * Gets the global optimum.
      * 
@@ -577,6 +595,9 @@ public class ARXResult {
         int[][] newGeneralized = data.bufferGeneralized.getArray();
         int[][] newMicroaggregated = data.bufferMicroaggregated.getArray();
         
+        // Invalidate cached statistics
+        registry.incrementVersion();
+        
         try {
             
             int optimized = 0;
@@ -24,9 +24,13 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 
 import org.apache.poi.ss.formula.functions.T;
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.framework.data.Dictionary;
+import org.deidentifier.arx.io.BinaryDataInput;
 import org.deidentifier.arx.io.CSVDataInput;
 import org.deidentifier.arx.io.CSVSyntax;
 import org.deidentifier.arx.io.ImportAdapter;
@@ -117,6 +121,47 @@ public abstract class Data {
 
     }
 
+    /**
+     * A data object for pre-encoded data read from a binary file.
+     *
+     * @author Fabian Prasser
+     * @author Florian Kohlmayer
+     */
+    static class EncodedData extends Data {
+
+        /** The input. */
+        private final BinaryDataInput input;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param input the input
+         */
+        private EncodedData(final BinaryDataInput input) {
+            this.input = input;
+        }
+
+        @Override
+        protected DataHandleInput createHandle() {
+
+            // Copy the dictionary, as it may be modified by the handle
+            final String[][] mapping = new String[input.getDictionary().length][];
+            for (int i = 0; i < mapping.length; i++) {
+                mapping[i] = input.getDictionary()[i].clone();
+            }
+            try {
+                return new DataHandleInput(this, input.getHeader(), input.getData(), new Dictionary(mapping));
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        protected Iterator<String[]> iterator() {
+            return input.iterator();
+        }
+    }
+
     /**
      * A data object for iterators.
      *
@@ -152,6 +197,22 @@ public abstract class Data {
         return new DefaultData();
     }
 
+    /**
+     * Creates a new data object from a file written with {@link DataHandle#saveBinary(File)}. 
+     * The data is not parsed or encoded again. Hierarchies contained in the file are associated 
+     * with the according attributes, but the types of the attributes still need to be defined.
+     *
+     * @param input The binary input
+     * @return A Data object
+     */
+    public static Data create(final BinaryDataInput input) {
+        Data data = new EncodedData(input);
+        for (Entry<String, String[][]> entry : input.getHierarchies().entrySet()) {
+            data.getDefinition().setHierarchy(entry.getKey(), Hierarchy.create(entry.getValue()));
+        }
+        return data;
+    }
+
     /**
      * Creates a new data object from the given data source specification.
      *
@@ -498,13 +559,22 @@ public abstract class Data {
      */
     public DataHandle getHandle() {
         if (handle == null) {
-            handle = new DataHandleInput(this);
+            handle = createHandle();
         } else {
             handle.update(this);
         }
         return handle;
     }
 
+    /**
+     * Creates a new handle for this data object.
+     *
+     * @return the handle
+     */
+    protected DataHandleInput createHandle() {
+        return new DataHandleInput(this);
+    }
+
     /**
      * Iterator.
      *
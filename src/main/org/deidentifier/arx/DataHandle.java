@@ -20,6 +20,7 @@ package org.deidentifier.arx;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.sql.SQLException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -29,6 +30,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -42,9 +44,15 @@ import org.deidentifier.arx.DataType.ARXDecimal;
 import org.deidentifier.arx.DataType.ARXInteger;
 import org.deidentifier.arx.DataType.DataTypeDescription;
 import org.deidentifier.arx.aggregates.StatisticsBuilder;
+import org.deidentifier.arx.aggregates.StatisticsCache;
 import org.deidentifier.arx.certificate.elements.ElementData;
+import org.deidentifier.arx.framework.data.Dictionary;
+import org.deidentifier.arx.io.BinaryDataInput;
+import org.deidentifier.arx.io.BinaryDataOutput;
 import org.deidentifier.arx.io.CSVDataOutput;
 import org.deidentifier.arx.io.CSVSyntax;
+import org.deidentifier.arx.io.IEncodedData;
+import org.deidentifier.arx.io.JDBCDataOutput;
 import org.deidentifier.arx.risk.RiskEstimateBuilder;
 import org.deidentifier.arx.risk.RiskModelHistogram;
 
@@ -81,6 +89,9 @@ public abstract class DataHandle {
 
     /** The current research subset. */
     protected DataHandle        subset     = null;
+
+    /** Cached statistics. */
+    private final StatisticsCache statisticsCache = new StatisticsCache();
     
     /**
      * Returns the name of the specified column.
@@ -603,6 +614,7 @@ public abstract class DataHandle {
         if (registry != null) {
             registry.release(this);
         }
+        statisticsCache.clear();
     }
 
     /**
@@ -648,7 +660,7 @@ public abstract class DataHandle {
     public void save(final File file) throws IOException {
         checkRegistry();
         final CSVDataOutput output = new CSVDataOutput(file);
-        output.write(iterator());
+        write(output);
     }
 
     /**
@@ -661,7 +673,7 @@ public abstract class DataHandle {
     public void save(final File file, final char separator) throws IOException {
         checkRegistry();
         final CSVDataOutput output = new CSVDataOutput(file, separator);
-        output.write(iterator());
+        write(output);
     }
 
     /**
@@ -674,7 +686,7 @@ public abstract class DataHandle {
     public void save(final File file, final CSVSyntax config) throws IOException {
         checkRegistry();
         final CSVDataOutput output = new CSVDataOutput(file, config);
-        output.write(iterator());
+        write(output);
     }
 
     /**
@@ -686,7 +698,7 @@ public abstract class DataHandle {
     public void save(final OutputStream out) throws IOException {
         checkRegistry();
         final CSVDataOutput output = new CSVDataOutput(out);
-        output.write(iterator());
+        write(output);
     }
 
     /**
@@ -699,7 +711,7 @@ public abstract class DataHandle {
     public void save(final OutputStream out, final char separator) throws IOException {
         checkRegistry();
         final CSVDataOutput output = new CSVDataOutput(out, separator);
-        output.write(iterator());
+        write(output);
     }
 
     /**
@@ -712,7 +724,7 @@ public abstract class DataHandle {
     public void save(final OutputStream out, final CSVSyntax config) throws IOException {
         checkRegistry();
         final CSVDataOutput output = new CSVDataOutput(out, config);
-        output.write(iterator());
+        write(output);
     }
 
     /**
@@ -724,7 +736,7 @@ public abstract class DataHandle {
     public void save(final String path) throws IOException {
         checkRegistry();
         final CSVDataOutput output = new CSVDataOutput(path);
-        output.write(iterator());
+        write(output);
     }
 
     /**
@@ -737,7 +749,7 @@ public abstract class DataHandle {
     public void save(final String path, final char separator) throws IOException {
         checkRegistry();
         final CSVDataOutput output = new CSVDataOutput(path, separator);
-        output.write(iterator());
+        write(output);
     }
 
     /**
@@ -750,9 +762,99 @@ public abstract class DataHandle {
     public void save(final String path, final CSVSyntax config) throws IOException {
         checkRegistry();
         final CSVDataOutput output = new CSVDataOutput(path, config);
+        write(output);
+    }
+
+    /**
+     * Writes the data to a database table.
+     *
+     * @param output the output
+     * @throws SQLException Signals that a database error has occurred.
+     */
+    public void save(final JDBCDataOutput output) throws SQLException {
+        checkRegistry();
+        final DataType<?>[] types = new DataType<?>[getNumColumns()];
+        for (int column = 0; column < types.length; column++) {
+            types[column] = getDataType(getAttributeName(column));
+        }
+        output.write(getEncodedData(), types);
+    }
+
+    /**
+     * Returns a dictionary-encoded representation of the data. May be overridden by
+     * handles that already maintain an encoded representation.
+     *
+     * @return the encoded data
+     */
+    protected IEncodedData getEncodedData() {
+
+        // Encode
+        final Iterator<String[]> iterator = iterator();
+        final String[] header = iterator.next();
+        final Dictionary dictionary = new Dictionary(header.length);
+        final int[][] data = new int[getNumRows()][header.length];
+        for (int row = 0; iterator.hasNext(); row++) {
+            final String[] tuple = iterator.next();
+            for (int column = 0; column < header.length; column++) {
+                data[row][column] = dictionary.register(column, tuple[column]);
+            }
+        }
+        dictionary.finalizeAll();
+        final String[][] mapping = dictionary.getMapping();
+
+        // Wrap
+        return new IEncodedData() {
+            @Override
+            public int getCode(int row, int column) {
+                return data[row][column];
+            }
+            @Override
+            public String[] getDictionary(int column) {
+                return mapping[column];
+            }
+            @Override
+            public String[] getHeader() {
+                return header;
+            }
+            @Override
+            public int getNumRows() {
+                return data.length;
+            }
+        };
+    }
+
+    /**
+     * Writes the data to the given CSV output. May be overridden by handles that are 
+     * able to write their data more efficiently.
+     *
+     * @param output the output
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    protected void write(final CSVDataOutput output) throws IOException {
         output.write(iterator());
     }
 
+    /**
+     * Writes the dictionary-encoded data and the hierarchies of all attributes to a binary file,
+     * which can be opened with {@link Data#create(BinaryDataInput)} without parsing the data.
+     *
+     * @param file the file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void saveBinary(final File file) throws IOException {
+        checkRegistry();
+        final Map<String, String[][]> hierarchies = new LinkedHashMap<String, String[][]>();
+        for (int column = 0; column < getNumColumns(); column++) {
+            final String attribute = getAttributeName(column);
+            final String[][] hierarchy = getDefinition().getHierarchy(attribute);
+            if (hierarchy != null) {
+                hierarchies.put(attribute, hierarchy);
+            }
+        }
+        final BinaryDataOutput output = new BinaryDataOutput(file);
+        output.write(iterator(), hierarchies);
+    }
+
     /**
      * Sorts the dataset according to the given columns. Will sort input and
      * output analogously.
@@ -925,6 +1027,15 @@ public abstract class DataHandle {
         return registry;
     }
 
+    /**
+     * Returns the cache for statistics about this handle.
+     *
+     * @return
+     */
+    protected StatisticsCache getStatisticsCache() {
+        return statisticsCache;
+    }
+
     /**
      * A negative integer, zero, or a positive integer as the first argument is
      * less than, equal to, or greater than the second. It uses the specified
@@ -993,6 +1104,7 @@ public abstract class DataHandle {
      */
     protected void setRegistry(DataRegistry registry) {
         this.registry = registry;
+        this.statisticsCache.clear();
     }
 
     /**
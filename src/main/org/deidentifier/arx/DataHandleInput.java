@@ -24,7 +24,9 @@ import java.util.List;
 
 import org.deidentifier.arx.DataHandleInternal.InterruptHandler;
 import org.deidentifier.arx.aggregates.StatisticsBuilder;
+import org.deidentifier.arx.framework.data.DataColumns;
 import org.deidentifier.arx.framework.data.Dictionary;
+import org.deidentifier.arx.io.IEncodedData;
 
 /**
  * An implementation of the DataHandle interface for input data.
@@ -41,13 +43,13 @@ public class DataHandleInput extends DataHandle {
     protected Dictionary dictionary = null;
 
     /** The data. */
-    private int[][]      dataGH     = null;
+    private DataColumns  dataGH     = null;
 
     /** The data. */
-    private int[][]      dataDI     = null;
+    private DataColumns  dataDI     = null;
 
     /** The data. */
-    private int[][]      dataIS     = null;
+    private DataColumns  dataIS     = null;
     
     /** Is this handle locked?. */
     private boolean      locked     = false;
@@ -66,9 +68,7 @@ public class DataHandleInput extends DataHandle {
         }
 
         // Register
-        this.setRegistry(new DataRegistry());
-        this.getRegistry().updateInput(this);
-        this.definition = data.getDefinition().clone();
+        this.register(data);
 
         // Obtain header
         final String[] columns = iterator.next();
@@ -100,6 +100,33 @@ public class DataHandleInput extends DataHandle {
         this.dataTypes = getDataTypeArray();
     }
 
+    /**
+     * Creates a new data handle from pre-encoded data.
+     *
+     * @param data
+     * @param header
+     * @param codes
+     * @param dictionary A finalized dictionary
+     */
+    protected DataHandleInput(final Data data, final String[] header, final int[][] codes, final Dictionary dictionary) {
+
+        // Check
+        if (header.length != dictionary.getNumDimensions()) {
+            throw new IllegalArgumentException("Dictionary does not match the header");
+        }
+
+        // Register
+        this.register(data);
+
+        // Store
+        super.header = Arrays.copyOf(header, header.length);
+        this.data = codes;
+        this.dictionary = dictionary;
+
+        // Create datatype array
+        this.dataTypes = getDataTypeArray();
+    }
+
     @Override
     public String getAttributeName(final int column) {
         checkRegistry();
@@ -177,6 +204,17 @@ public class DataHandleInput extends DataHandle {
         };
     }
     
+    /**
+     * Registers this handle and obtains the data definition
+     * 
+     * @param data
+     */
+    private void register(final Data data) {
+        this.setRegistry(new DataRegistry());
+        this.getRegistry().updateInput(this);
+        this.definition = data.getDefinition().clone();
+    }
+
     /**
      * Swaps two rows.
      *
@@ -210,6 +248,30 @@ public class DataHandleInput extends DataHandle {
         return null;
     }
 
+    @Override
+    protected IEncodedData getEncodedData() {
+        checkRegistry();
+        final String[][] mapping = dictionary.getMapping();
+        return new IEncodedData() {
+            @Override
+            public int getCode(int row, int column) {
+                return data[row][column];
+            }
+            @Override
+            public String[] getDictionary(int column) {
+                return mapping[column];
+            }
+            @Override
+            public String[] getHeader() {
+                return header;
+            }
+            @Override
+            public int getNumRows() {
+                return data.length;
+            }
+        };
+    }
+
     @Override
     protected DataType<?>[][] getDataTypeArray() {
         checkRegistry();
@@ -243,7 +305,7 @@ public class DataHandleInput extends DataHandle {
      * Returns the input buffer
      * @return
      */
-    protected int[][] getInputBuffer() {
+    protected DataColumns getInputBuffer() {
         checkRegistry();
         return this.dataGH;
     }
@@ -283,9 +345,9 @@ public class DataHandleInput extends DataHandle {
 
         // Swap
         swap(row1, row2, data);
-        if (dataGH != null) swap(row1, row2, dataGH);
-        if (dataDI != null) swap(row1, row2, dataDI);
-        if (dataIS != null) swap(row1, row2, dataIS);
+        if (dataGH != null) dataGH.swap(row1, row2);
+        if (dataDI != null) dataDI.swap(row1, row2);
+        if (dataIS != null) dataIS.swap(row1, row2);
     }
 
     /**
@@ -336,7 +398,7 @@ public class DataHandleInput extends DataHandle {
      * @param dataDI
      * @param dataIS
      */
-    protected void update(int[][] dataGH, int[][] dataDI, int[][] dataIS) {
+    protected void update(DataColumns dataGH, DataColumns dataDI, DataColumns dataIS) {
         this.dataGH = dataGH;
         this.dataDI = dataDI;
         this.dataIS = dataIS;
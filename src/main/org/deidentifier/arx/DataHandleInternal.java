@@ -21,6 +21,8 @@ import java.text.ParseException;
 import java.util.Date;
 
 import org.deidentifier.arx.aggregates.StatisticsBuilder;
+import org.deidentifier.arx.aggregates.StatisticsCache;
+import org.deidentifier.arx.io.IEncodedData;
 
 /**
  * Wrapper class that provides information to StatisticsBuilder.
@@ -168,6 +170,15 @@ public class DataHandleInternal {
         return handle.getDouble(row, column);
     }
     
+    /**
+     * Returns a dictionary-encoded representation of the data, in which suppressed values
+     * are represented by dedicated codes
+     * @return
+     */
+    public IEncodedData getEncodedData() {
+        return handle.getEncodedData();
+    }
+    
     /**
      * Method
      * @param attribute
@@ -208,6 +219,22 @@ public class DataHandleInternal {
         return this.handle.getStatistics();
     }
 
+    /**
+     * Returns the cache for statistics about the handle
+     * @return
+     */
+    public StatisticsCache getStatisticsCache() {
+        return this.handle.getStatisticsCache();
+    }
+
+    /**
+     * Returns the version of the data, which changes whenever it is modified
+     * @return
+     */
+    public int getVersion() {
+        return this.handle.registry == null ? -1 : this.handle.registry.getVersion();
+    }
+
     /**
      * Returns the superset, if this handle is a subset
      * @return
@@ -17,6 +17,8 @@
 
 package org.deidentifier.arx;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -27,9 +29,12 @@ import org.deidentifier.arx.ARXLattice.Anonymity;
 import org.deidentifier.arx.DataHandleInternal.InterruptHandler;
 import org.deidentifier.arx.aggregates.StatisticsBuilder;
 import org.deidentifier.arx.framework.data.Data;
+import org.deidentifier.arx.framework.data.DataColumns;
 import org.deidentifier.arx.framework.data.DataManager;
 import org.deidentifier.arx.framework.data.DataManager.AttributeTypeInternal;
 import org.deidentifier.arx.framework.data.Dictionary;
+import org.deidentifier.arx.io.CSVDataOutput;
+import org.deidentifier.arx.io.IEncodedData;
 
 /**
  * An implementation of the class DataHandle for output data.
@@ -91,7 +96,7 @@ public class DataHandleOutput extends DataHandle {
     private Data         inputStatic;
 
     /** An inverse map to data arrays. */
-    private int[][][]    inverseData;
+    private Data[]       inverseData;
 
     /** An inverse map to dictionaries. */
     private Dictionary[] inverseDictionaries;
@@ -190,12 +195,12 @@ public class DataHandleOutput extends DataHandle {
         }
         
         // Build inverse data array
-        this.inverseData = new int[5][][];
-        this.inverseData[AttributeTypeInternal.INSENSITIVE] = this.inputStatic.getArray();
-        this.inverseData[AttributeTypeInternal.SENSITIVE] = this.inputAnalyzed.getArray();
-        this.inverseData[AttributeTypeInternal.QUASI_IDENTIFYING_GENERALIZED] = this.outputGeneralized.getArray();
+        this.inverseData = new Data[5];
+        this.inverseData[AttributeTypeInternal.INSENSITIVE] = this.inputStatic;
+        this.inverseData[AttributeTypeInternal.SENSITIVE] = this.inputAnalyzed;
+        this.inverseData[AttributeTypeInternal.QUASI_IDENTIFYING_GENERALIZED] = this.outputGeneralized;
         this.inverseData[AttributeTypeInternal.IDENTIFYING] = null;
-        this.inverseData[AttributeTypeInternal.QUASI_IDENTIFYING_MICROAGGREGATED] = this.outputMicroaggregated.getArray();
+        this.inverseData[AttributeTypeInternal.QUASI_IDENTIFYING_MICROAGGREGATED] = this.outputMicroaggregated;
         
         // Build inverse dictionary array
         this.inverseDictionaries = new Dictionary[5];
@@ -329,6 +334,10 @@ public class DataHandleOutput extends DataHandle {
                            Map<String, DataType<?>> types,
                            int[] outliers) {
 
+        // Invalidate cached statistics
+        if (registry != null) {
+            registry.incrementVersion();
+        }
         updateData(data, outputGeneralized, types, outliers);
         updateData(data, outputMicroaggregated, types, outliers);
         
@@ -558,7 +567,7 @@ public class DataHandleOutput extends DataHandle {
      * Returns the input buffer
      * @return
      */
-    protected int[][] getInputBuffer() {
+    protected DataColumns getInputBuffer() {
         checkRegistry();
         return registry.getInputHandle().getInputBuffer();
     }
@@ -653,14 +662,14 @@ public class DataHandleOutput extends DataHandle {
             return DataType.ANY_VALUE;
         default:
             final int index = inverseMap[key + 1];
-            final int[][] data = inverseData[type];
+            final Data data = inverseData[type];
             
             if (!ignoreSuppression && (suppressedAttributeTypes & (1 << type)) != 0 &&
                 ((outputGeneralized.getArray()[row][0] & Data.OUTLIER_MASK) != 0)) {
                 return DataType.ANY_VALUE;
             }
             
-            final int value = data[row][index] & Data.REMOVE_OUTLIER_MASK;
+            final int value = data.get(row, index) & Data.REMOVE_OUTLIER_MASK;
             final String[][] dictionary = inverseDictionaries[type].getMapping();
             return dictionary[index][value];
         }
@@ -742,6 +751,73 @@ public class DataHandleOutput extends DataHandle {
     }
     
 
+    /**
+     * Writes the output buffers and the dictionaries, without decoding individual records.
+     */
+    @Override
+    protected void write(final CSVDataOutput output) throws IOException {
+        output.write(getEncodedData());
+    }
+
+    /**
+     * Wraps the output buffers and the dictionaries. Suppressed and removed values are 
+     * mapped to an additional dictionary entry.
+     */
+    @Override
+    protected IEncodedData getEncodedData() {
+
+        // Prepare
+        final int columns = header.length;
+        final Data[] data = new Data[columns];
+        final int[] indices = new int[columns];
+        final String[][] dictionaries = new String[columns][];
+        final boolean[] suppressed = new boolean[columns];
+        for (int column = 0; column < columns; column++) {
+            final int type = inverseMap[column * 2];
+            if (type == AttributeTypeInternal.IDENTIFYING) {
+                dictionaries[column] = new String[] { DataType.ANY_VALUE };
+            } else {
+                data[column] = inverseData[type];
+                indices[column] = inverseMap[column * 2 + 1];
+                final String[] dictionary = inverseDictionaries[type].getMapping()[indices[column]];
+                dictionaries[column] = Arrays.copyOf(dictionary, dictionary.length + 1);
+                dictionaries[column][dictionary.length] = DataType.ANY_VALUE;
+                suppressed[column] = (suppressedAttributeTypes & (1 << type)) != 0;
+            }
+        }
+        final int[][] outliers = outputGeneralized.getArray();
+
+        // Wrap
+        return new IEncodedData() {
+
+            @Override
+            public int getCode(int row, int column) {
+                if (data[column] == null) {
+                    return 0;
+                } else if (suppressed[column] && (outliers[row][0] & Data.OUTLIER_MASK) != 0) {
+                    return dictionaries[column].length - 1;
+                } else {
+                    return data[column].get(row, indices[column]) & Data.REMOVE_OUTLIER_MASK;
+                }
+            }
+
+            @Override
+            public String[] getDictionary(int column) {
+                return dictionaries[column];
+            }
+
+            @Override
+            public String[] getHeader() {
+                return header;
+            }
+
+            @Override
+            public int getNumRows() {
+                return outliers.length;
+            }
+        };
+    }
+
     /**
      * Used to update data types after local recoding
      * @param transformation
@@ -22,6 +22,7 @@ import java.util.Set;
 
 import org.deidentifier.arx.DataHandleInternal.InterruptHandler;
 import org.deidentifier.arx.aggregates.StatisticsBuilder;
+import org.deidentifier.arx.io.IEncodedData;
 
 
 /**
@@ -169,6 +170,31 @@ public class DataHandleSubset extends DataHandle {
         return source.getConfiguration();
     }
 
+    @Override
+    protected IEncodedData getEncodedData() {
+        checkRegistry();
+        final IEncodedData data = source.getEncodedData();
+        final int[] rows = this.subset.getArray();
+        return new IEncodedData() {
+            @Override
+            public int getCode(int row, int column) {
+                return data.getCode(rows[row], column);
+            }
+            @Override
+            public String[] getDictionary(int column) {
+                return data.getDictionary(column);
+            }
+            @Override
+            public String[] getHeader() {
+                return data.getHeader();
+            }
+            @Override
+            public int getNumRows() {
+                return rows.length;
+            }
+        };
+    }
+
     @Override
     protected DataType<?>[][] getDataTypeArray() {
         return source.dataTypes;
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.deidentifier.arx.ARXLattice.ARXNode;
 
@@ -47,6 +48,9 @@ class DataRegistry {
     /** The output subset handle, if any. */
     private Map<ARXNode, DataHandleSubset> outputSubset = new HashMap<ARXNode, DataHandleSubset>();
 
+    /** The version of the data, incremented whenever it is modified. */
+    private final AtomicInteger version = new AtomicInteger();
+
     /**
      * Default constructor.
      */
@@ -62,6 +66,7 @@ class DataRegistry {
      * @return
      */
     public boolean replace(int column, String original, String replacement) {
+        incrementVersion();
         boolean replaced = false; 
         replaced |= input.internalReplace(column, original, replacement);
         if (!output.isEmpty()) {
@@ -272,6 +277,23 @@ class DataRegistry {
         return this.output.get(node);
     }
     
+    /**
+     * Returns the version of the data.
+     *
+     * @return
+     */
+    protected int getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Increments the version of the data, e.g. after it has been modified. This
+     * invalidates cached statistics of all associated handles.
+     */
+    protected void incrementVersion() {
+        version.incrementAndGet();
+    }
+
     /**
      * Implementation of {@link DataHandle#isOutlier(row)}.
      *
@@ -299,6 +321,8 @@ class DataRegistry {
      */
     protected void release(DataHandle handle) {
         
+        incrementVersion();
+        
         // Handle subsets
         if (handle instanceof DataHandleSubset) {
            return;
@@ -327,6 +351,7 @@ class DataRegistry {
      * Removes the association to all handles, but the input handle.
      */
     protected void reset() {
+        incrementVersion();
         while (!this.output.entrySet().isEmpty()) {
             Entry<ARXNode, DataHandleOutput> entry = this.output.entrySet().iterator().next();
             release(entry.getValue());
@@ -400,6 +425,7 @@ class DataRegistry {
         handle.checkColumns(columns);
         handle.checkRow(from, handle.getNumRows());
         handle.checkRow(to, handle.getNumRows());
+        incrementVersion();
         
         if (handle instanceof DataHandleSubset){
             sortSubset((DataHandleSubset)handle, swapper, from, to, ascending, columns);
@@ -416,6 +442,7 @@ class DataRegistry {
      * @param row2
      */
     protected void swap(DataHandle handle, int row1, int row2) {
+        incrementVersion();
         if (handle instanceof DataHandleSubset){
             swapSubset((DataHandleSubset)handle, row1, row2);
         } else {
@@ -460,4 +487,4 @@ class DataRegistry {
     protected void updateOutputSubset(ARXNode node, DataHandleSubset outputSubset){
         this.outputSubset.put(node, outputSubset);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -332,6 +332,38 @@ public class DataSource {
         }
     }
     
+    /**
+     * Sets the number of rows fetched per round trip. Only supported for JDBC sources.
+     *
+     * @param fetchSize
+     */
+    public void setFetchSize(int fetchSize) {
+        getJDBCConfiguration().setFetchSize(fetchSize);
+    }
+
+    /**
+     * Splits the table into the given number of ranges of the given numeric column,
+     * which are read concurrently. Only supported for JDBC sources.
+     *
+     * @param column
+     * @param partitions
+     */
+    public void setPartitioning(String column, int partitions) {
+        getJDBCConfiguration().setPartitioning(column, partitions);
+    }
+
+    /**
+     * Returns the configuration of a JDBC source.
+     *
+     * @return
+     */
+    private ImportConfigurationJDBC getJDBCConfiguration() {
+        if (!(config instanceof ImportConfigurationJDBC)) {
+            throw new IllegalStateException("Only supported for JDBC sources");
+        }
+        return (ImportConfigurationJDBC) config;
+    }
+
     /**
      * Returns the configuration.
      *
@@ -19,6 +19,8 @@ package org.deidentifier.arx.aggregates;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -26,11 +28,18 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.apache.commons.math3.stat.descriptive.moment.GeometricMean;
 import org.deidentifier.arx.ARXLogisticRegressionConfiguration;
+import org.deidentifier.arx.DataDefinition;
 import org.deidentifier.arx.DataHandleInternal;
 import org.deidentifier.arx.DataHandleInternal.InterruptHandler;
 import org.deidentifier.arx.DataScale;
@@ -38,18 +47,24 @@ import org.deidentifier.arx.DataType;
 import org.deidentifier.arx.DataType.ARXString;
 import org.deidentifier.arx.DataType.DataTypeWithRatioScale;
 import org.deidentifier.arx.aggregates.StatisticsContingencyTable.Entry;
+import org.deidentifier.arx.aggregates.StatisticsSummary.StatisticsSummaryNumeric;
 import org.deidentifier.arx.aggregates.StatisticsSummary.StatisticsSummaryOrdinal;
-import org.deidentifier.arx.common.Groupify;
-import org.deidentifier.arx.common.Groupify.Group;
-import org.deidentifier.arx.common.TupleWrapper;
 import org.deidentifier.arx.common.WrappedBoolean;
 import org.deidentifier.arx.common.WrappedInteger;
 import org.deidentifier.arx.exceptions.ComputationInterruptedException;
+import org.deidentifier.arx.io.IEncodedData;
 
 import cern.colt.GenericSorting;
 import cern.colt.Swapper;
 import cern.colt.function.IntComparator;
 
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongDoubleOpenHashMap;
+import com.carrotsearch.hppc.LongIntOpenHashMap;
+import com.carrotsearch.hppc.cursors.LongCursor;
+import com.carrotsearch.hppc.cursors.LongDoubleCursor;
+import com.carrotsearch.hppc.cursors.LongIntCursor;
+
 /**
  * A class offering basic descriptive statistics about data handles.
  *
@@ -57,6 +72,71 @@ import cern.colt.function.IntComparator;
  */
 public class StatisticsBuilder {
 
+    /**
+     * Frequencies of pairs of values, from which contingency tables are created
+     *
+     * @author Fabian Prasser
+     */
+    private static class ContingencyFrequencies {
+
+        /** The data values from the first column, sorted */
+        private final String[]            values1;
+        /** The data values from the second column, sorted */
+        private final String[]            values2;
+        /** The absolute frequencies of pairs of indexes, packed into longs */
+        private final LongIntOpenHashMap  entries;
+        /** The total number of entries */
+        private final int                 count;
+        /** The maximal absolute frequency */
+        private final int                 max;
+        /** The fraction of entries which have been counted */
+        private final double              fraction;
+
+        /**
+         * Creates a new instance
+         * @param values1
+         * @param values2
+         * @param entries
+         * @param count
+         * @param max
+         * @param fraction
+         */
+        ContingencyFrequencies(String[] values1, String[] values2, LongIntOpenHashMap entries, int count, int max, double fraction) {
+            this.values1 = values1;
+            this.values2 = values2;
+            this.entries = entries;
+            this.count = count;
+            this.max = max;
+            this.fraction = fraction;
+        }
+
+        /**
+         * Returns the relative frequency of the given absolute frequency
+         * @param value
+         * @return
+         */
+        double getFrequency(int value) {
+            return (double) value / fraction / (double) count;
+        }
+
+        /**
+         * Returns the estimated size in bytes, which is dominated by the arrays of the hash map
+         * @return
+         */
+        long getSize() {
+            return (long) entries.keys.length * (8L + 4L + 1L) + (long) (values1.length + values2.length) * 8L;
+        }
+    }
+
+    /** Minimal number of rows processed by each thread when counting frequencies */
+    private static final int        MIN_ROWS_PER_THREAD = 100000;
+
+    /** Seed for sampling records when building contingency tables */
+    private static final long       SEED                = 0xDEADBEEFL;
+
+    /** The maximal number of distinct pairs of values in a contingency table */
+    private int                     maxContingencyTableSize = 1 << 22;
+
     /** The handle. */
     private DataHandleInternal      handle;
 
@@ -243,7 +323,7 @@ public class StatisticsBuilder {
         }
         
         // Create entry set
-        final Map<Entry, Double> entries = new HashMap<Entry, Double>();
+        final LongDoubleOpenHashMap entries = new LongDoubleOpenHashMap();
         Iterator<Entry> iter = table.iterator;
         double max = 0d;
         while (iter.hasNext()) {
@@ -253,19 +333,15 @@ public class StatisticsBuilder {
             int index2 = (int) Math.round((double) old.value2 * factor2);
             index1 = index1 < size1 ? index1 : size1 - 1;
             index2 = index2 < size2 ? index2 : size2 - 1;
-            Entry entry = new Entry(index1, index2);
-            Double previous = entries.get(entry);
-            double value = previous != null ? previous + old.frequency : old.frequency;
+            double value = entries.putOrAdd(getKey(index1, index2), old.frequency, old.frequency);
             max = Math.max(value, max);
-            entries.put(entry, value);
         }
         
         // Create iterator
-        final Iterator<Entry> internal = entries.keySet().iterator();
+        final Iterator<LongDoubleCursor> internal = entries.iterator();
         final Iterator<Entry> iterator = new Iterator<Entry>() {
             
-            private Map<Entry, Double> _entries  = entries;
-            private Iterator<Entry>    _internal = internal;
+            private Iterator<LongDoubleCursor> _internal = internal;
             
             @Override
             public boolean hasNext() {
@@ -276,7 +352,6 @@ public class StatisticsBuilder {
                 // Try to release resources as early as possible
                 if (!result) {
                     _internal = null;
-                    _entries = null;
                 }
                 return result;
             }
@@ -284,8 +359,9 @@ public class StatisticsBuilder {
             @Override
             public Entry next() {
                 if (_internal == null) return null;
-                Entry e = _internal.next();
-                e.frequency = _entries.get(e);
+                LongDoubleCursor cursor = _internal.next();
+                Entry e = new Entry(getIndex1(cursor.key), getIndex2(cursor.key));
+                e.frequency = cursor.value;
                 return e;
             }
             
@@ -296,7 +372,7 @@ public class StatisticsBuilder {
         };
         
         // Result result
-        return new StatisticsContingencyTable(values1, values2, table.count, max, iterator);
+        return new StatisticsContingencyTable(values1, values2, table.count, max, table.fraction, iterator);
     }
     
     /**
@@ -317,43 +393,14 @@ public class StatisticsBuilder {
         // Reset stop flag
         interrupt.value = false;
         
-        // Init
-        String[] values1 = getDistinctValuesOrdered(column1, hierarchy1);
-        String[] values2 = getDistinctValuesOrdered(column2, hierarchy2);
-        
-        // Create maps of indexes
-        Map<String, Integer> indexes1 = new HashMap<String, Integer>();
-        for (int i = 0; i < values1.length; i++) {
-            checkInterrupt();
-            indexes1.put(values1[i], i);
-        }
-        Map<String, Integer> indexes2 = new HashMap<String, Integer>();
-        for (int i = 0; i < values2.length; i++) {
-            checkInterrupt();
-            indexes2.put(values2[i], i);
-        }
-        
-        // Create entry set
-        int max = Integer.MIN_VALUE;
-        final Map<Entry, Integer> entries = new HashMap<Entry, Integer>();
-        for (int row = 0; row < handle.getNumRows(); row++) {
-            checkInterrupt();
-            int index1 = indexes1.get(handle.getValue(row, column1));
-            int index2 = indexes2.get(handle.getValue(row, column2));
-            Entry entry = new Entry(index1, index2);
-            Integer previous = entries.get(entry);
-            int value = previous != null ? previous + 1 : 1;
-            max = Math.max(max, value);
-            entries.put(entry, value);
-        }
+        // Obtain frequencies
+        final ContingencyFrequencies frequencies = getContingencyFrequencies(column1, hierarchy1, column2, hierarchy2);
         
-        // Create iterator
-        final int count = handle.getNumRows();
-        final Iterator<Entry> internal = entries.keySet().iterator();
+        // Create iterator, which streams the entries
+        final Iterator<LongIntCursor> internal = frequencies.entries.iterator();
         final Iterator<Entry> iterator = new Iterator<Entry>() {
             
-            private Map<Entry, Integer> _entries  = entries;
-            private Iterator<Entry>     _internal = internal;
+            private Iterator<LongIntCursor> _internal = internal;
             
             @Override
             public boolean hasNext() {
@@ -364,7 +411,6 @@ public class StatisticsBuilder {
                 // Try to release resources as early as possible
                 if (!result) {
                     _internal = null;
-                    _entries = null;
                 }
                 return result;
             }
@@ -372,8 +418,9 @@ public class StatisticsBuilder {
             @Override
             public Entry next() {
                 if (_internal == null) return null;
-                Entry e = _internal.next();
-                e.frequency = (double) _entries.get(e) / (double) count;
+                LongIntCursor cursor = _internal.next();
+                Entry e = new Entry(getIndex1(cursor.key), getIndex2(cursor.key));
+                e.frequency = frequencies.getFrequency(cursor.value);
                 return e;
             }
             
@@ -384,7 +431,197 @@ public class StatisticsBuilder {
         };
         
         // Result result
-        return new StatisticsContingencyTable(values1, values2, count, (double) max / (double) count, iterator);
+        return new StatisticsContingencyTable(frequencies.values1.clone(),
+                                              frequencies.values2.clone(),
+                                              frequencies.count,
+                                              frequencies.getFrequency(frequencies.max),
+                                              frequencies.fraction,
+                                              iterator);
+    }
+
+    /**
+     * Returns a contingency table for the given columns, which contains only the n most frequent
+     * pairs of values. Entries are returned in descending order of frequency. This method assumes
+     * that the order of string data items will be derived from the hierarchies provided in the data
+     * definition (if any)
+     * 
+     * @param column1 The first column
+     * @param column2 The second column
+     * @param n The maximal number of entries
+     * @return
+     */
+    public StatisticsContingencyTable getContingencyTableTopN(int column1, int column2, int n) {
+        return getContingencyTableTopN(column1, true, column2, true, n);
+    }
+
+    /**
+     * Returns a contingency table for the given columns, which contains only the n most frequent
+     * pairs of values. Entries are returned in descending order of frequency.
+     *
+     * @param column1 The first column
+     * @param orderFromDefinition1 Indicates whether the order that should be assumed for string data items
+     *            can (and should) be derived from the hierarchy provided in the data
+     *            definition (if any)
+     * @param column2 The second column
+     * @param orderFromDefinition2 Indicates whether the order that should be assumed for string data items
+     *            can (and should) be derived from the hierarchy provided in the data
+     *            definition (if any)
+     * @param n The maximal number of entries
+     * @return
+     */
+    public StatisticsContingencyTable getContingencyTableTopN(int column1, boolean orderFromDefinition1,
+                                                              int column2, boolean orderFromDefinition2,
+                                                              int n) {
+        
+        // Reset stop flag
+        interrupt.value = false;
+        
+        // Check
+        if (n <= 0) {
+            throw new IllegalArgumentException("Number of entries must be > 0");
+        }
+        
+        // Obtain frequencies
+        ContingencyFrequencies frequencies = getContingencyFrequencies(column1, getHierarchy(column1, orderFromDefinition1),
+                                                                       column2, getHierarchy(column2, orderFromDefinition2));
+        
+        // Select the most frequent entries with a min-heap
+        Comparator<Entry> comparator = new Comparator<Entry>() {
+            @Override
+            public int compare(Entry o1, Entry o2) {
+                int cmp = Double.compare(o1.frequency, o2.frequency);
+                if (cmp == 0) {
+                    cmp = o2.value1 != o1.value1 ? (o2.value1 < o1.value1 ? -1 : 1) : 
+                                                   (o2.value2 < o1.value2 ? -1 : (o2.value2 == o1.value2 ? 0 : 1));
+                }
+                return cmp;
+            }
+        };
+        PriorityQueue<Entry> heap = new PriorityQueue<Entry>(Math.min(n, Math.max(1, frequencies.entries.size())), comparator);
+        for (LongIntCursor cursor : frequencies.entries) {
+            checkInterrupt();
+            Entry entry = new Entry(getIndex1(cursor.key), getIndex2(cursor.key));
+            entry.frequency = cursor.value;
+            heap.add(entry);
+            if (heap.size() > n) {
+                heap.poll();
+            }
+        }
+        
+        // Order by descending frequency
+        List<Entry> entries = new ArrayList<Entry>(heap);
+        Collections.sort(entries, Collections.reverseOrder(comparator));
+        for (Entry entry : entries) {
+            entry.frequency = frequencies.getFrequency((int) entry.frequency);
+        }
+        
+        // Result result
+        return new StatisticsContingencyTable(frequencies.values1.clone(),
+                                              frequencies.values2.clone(),
+                                              frequencies.count,
+                                              frequencies.getFrequency(frequencies.max),
+                                              frequencies.fraction,
+                                              entries.iterator());
+    }
+
+    /**
+     * Returns the maximal number of distinct pairs of values in contingency tables.
+     *
+     * @return
+     */
+    public int getMaxContingencyTableSize() {
+        return maxContingencyTableSize;
+    }
+
+    /**
+     * Sets the maximal number of distinct pairs of values in contingency tables. If it is
+     * exceeded, frequencies will be estimated from a sample of the records. The default is 2^22.
+     *
+     * @param size
+     */
+    public void setMaxContingencyTableSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be > 0");
+        }
+        this.maxContingencyTableSize = size;
+    }
+
+    /**
+     * Returns the frequencies of pairs of values from the given columns, using the cache.
+     * 
+     * @param column1 The first column
+     * @param hierarchy1 The hierarchy for the first column, may be null
+     * @param column2 The second column
+     * @param hierarchy2 The hierarchy for the second column, may be null
+     * @return
+     */
+    private ContingencyFrequencies getContingencyFrequencies(int column1,
+                                                             String[][] hierarchy1,
+                                                             int column2,
+                                                             String[][] hierarchy2) {
+        
+        int version = handle.getVersion();
+        int limit = maxContingencyTableSize;
+        ContingencyFrequencies frequencies = (ContingencyFrequencies) getCachedValue(version, "contingency", column1, hierarchy1, column2, hierarchy2, limit);
+        if (frequencies == null) {
+            frequencies = getContingencyFrequencies(column1, hierarchy1, column2, hierarchy2, limit);
+            putCachedValue(version, frequencies, frequencies.getSize(), "contingency", column1, hierarchy1, column2, hierarchy2, limit);
+        }
+        return frequencies;
+    }
+
+    /**
+     * Counts the frequencies of pairs of values from the given columns. The order for string data
+     * items is derived from the provided hierarchies. Pairs of indexes of values are packed into longs.
+     * If the number of distinct pairs exceeds the given limit, only a sample of the records is counted.
+     * The sample is halved whenever the limit is exceeded.
+     * 
+     * @param column1 The first column
+     * @param hierarchy1 The hierarchy for the first column, may be null
+     * @param column2 The second column
+     * @param hierarchy2 The hierarchy for the second column, may be null
+     * @param limit The maximal number of distinct pairs
+     * @return
+     */
+    private ContingencyFrequencies getContingencyFrequencies(int column1,
+                                                             String[][] hierarchy1,
+                                                             int column2,
+                                                             String[][] hierarchy2,
+                                                             int limit) {
+        
+        // Init
+        String[] values1 = getDistinctValuesOrdered(column1, hierarchy1);
+        String[] values2 = getDistinctValuesOrdered(column2, hierarchy2);
+        
+        // Map dictionary codes to indexes
+        IEncodedData data = handle.getEncodedData();
+        int[] indexes1 = getIndexes(data.getDictionary(column1), values1);
+        int[] indexes2 = getIndexes(data.getDictionary(column2), values2);
+        
+        // Count
+        Random random = new Random(SEED);
+        double fraction = 1d;
+        LongIntOpenHashMap entries = new LongIntOpenHashMap();
+        for (int row = 0; row < handle.getNumRows(); row++) {
+            checkInterrupt();
+            if (fraction < 1d && random.nextDouble() >= fraction) {
+                continue;
+            }
+            entries.putOrAdd(getKey(indexes1[data.getCode(row, column1)], indexes2[data.getCode(row, column2)]), 1, 1);
+            while (entries.size() > limit) {
+                fraction /= 2d;
+                reduceToSample(entries, random);
+            }
+        }
+        
+        // Determine maximum
+        int max = 0;
+        for (LongIntCursor cursor : entries) {
+            max = Math.max(max, cursor.value);
+        }
+        
+        // Return
+        return new ContingencyFrequencies(values1, values2, entries, handle.getNumRows(), max, fraction);
     }
     
     /**
@@ -514,6 +751,13 @@ public class StatisticsBuilder {
         // Reset stop flag
         interrupt.value = false;
 
+        // Check cache
+        int version = handle.getVersion();
+        StatisticsEquivalenceClasses cached = (StatisticsEquivalenceClasses) getCachedValue(version, "classes");
+        if (cached != null) {
+            return cached;
+        }
+
         // Prepare
         Set<String> attributes = handle.getDefinition().getQuasiIdentifyingAttributes();
         final int[] indices = new int[attributes.size()];
@@ -524,16 +768,34 @@ public class StatisticsBuilder {
             }
         }
 
-        // Calculate equivalence classes
-        int capacity = handle.getNumRows() / 10;
-        capacity = capacity > 10 ? capacity : 10;
-        Groupify<TupleWrapper> map = new Groupify<TupleWrapper>(capacity);
+        // Calculate equivalence classes on dictionary codes by refining the groups column by column
+        IEncodedData data = handle.getEncodedData();
         int numRows = handle.getNumRows();
+        int[] groups = new int[numRows];
+        int numGroups = numRows == 0 ? 0 : 1;
+        for (int column : indices) {
+            int[] codes = getCanonicalCodes(data.getDictionary(column));
+            LongIntOpenHashMap map = new LongIntOpenHashMap();
+            numGroups = 0;
+            for (int row = 0; row < numRows; row++) {
+                long key = (long) groups[row] * (long) codes.length + (long) codes[data.getCode(row, column)];
+                int group = map.get(key);
+                if (group == 0) {
+                    group = ++numGroups;
+                    map.put(key, group);
+                }
+                groups[row] = group - 1;
+                checkInterrupt();
+            }
+        }
+        
+        // Determine sizes. Like records, classes are suppressed if their first record is suppressed
+        int[] sizes = new int[numGroups];
+        boolean[] outliers = new boolean[numGroups];
         for (int row = 0; row < numRows; row++) {
-
-            TupleWrapper tuple = new TupleWrapper(handle, indices, row, false);
-            map.add(tuple);
-            checkInterrupt();
+            if (sizes[groups[row]]++ == 0) {
+                outliers[groups[row]] = handle.isOutlier(row);
+            }
         }
 
         // Now compute the following values
@@ -544,35 +806,33 @@ public class StatisticsBuilder {
         int minimalEquivalenceClassSize = Integer.MAX_VALUE;
         int minimalEquivalenceClassSizeIncludingOutliers = Integer.MAX_VALUE;
         int numberOfEquivalenceClasses = 0;
-        int numberOfEquivalenceClassesIncludingOutliers = map.size();
+        int numberOfEquivalenceClassesIncludingOutliers = numGroups;
         int numberOfTuples = 0;
         int numberOfOutlyingTuples = 0;
          
         // Let's do it
         boolean containsOutliers = false;
-        Group<TupleWrapper> element = map.first();
-        while (element != null) {
+        for (int group = 0; group < numGroups; group++) {
             
             checkInterrupt();
-            maximalEquivalenceClassSizeIncludingOutliers = Math.max(element.getCount(), maximalEquivalenceClassSizeIncludingOutliers);
-            minimalEquivalenceClassSizeIncludingOutliers = Math.min(element.getCount(), minimalEquivalenceClassSizeIncludingOutliers);
-            averageEquivalenceClassSizeIncludingOutliers += element.getCount();
-            numberOfTuples += element.getCount();
+            int count = sizes[group];
+            maximalEquivalenceClassSizeIncludingOutliers = Math.max(count, maximalEquivalenceClassSizeIncludingOutliers);
+            minimalEquivalenceClassSizeIncludingOutliers = Math.min(count, minimalEquivalenceClassSizeIncludingOutliers);
+            averageEquivalenceClassSizeIncludingOutliers += count;
+            numberOfTuples += count;
             
-            if (!element.getElement().isOutlier()) {
+            if (!outliers[group]) {
                 
-                maximalEquivalenceClassSize = Math.max(element.getCount(), maximalEquivalenceClassSize);
-                minimalEquivalenceClassSize = Math.min(element.getCount(), minimalEquivalenceClassSize);
-                averageEquivalenceClassSize += element.getCount();
+                maximalEquivalenceClassSize = Math.max(count, maximalEquivalenceClassSize);
+                minimalEquivalenceClassSize = Math.min(count, minimalEquivalenceClassSize);
+                averageEquivalenceClassSize += count;
                 
             } else {
                 
                 containsOutliers = true;
                 // All suppressed records will collapse into a single group, so we can use the "=" assignment operator here
-                numberOfOutlyingTuples = element.getCount();
+                numberOfOutlyingTuples = count;
             }
-            
-            element = element.next();
         }
         
         numberOfEquivalenceClasses = numberOfEquivalenceClassesIncludingOutliers;
@@ -591,16 +851,18 @@ public class StatisticsBuilder {
         }
 
         // And return
-        return new StatisticsEquivalenceClasses(averageEquivalenceClassSize,
-                                                averageEquivalenceClassSizeIncludingOutliers,
-                                                maximalEquivalenceClassSize,
-                                                maximalEquivalenceClassSizeIncludingOutliers,
-                                                minimalEquivalenceClassSize,
-                                                minimalEquivalenceClassSizeIncludingOutliers,
-                                                numberOfEquivalenceClasses,
-                                                numberOfEquivalenceClassesIncludingOutliers,
-                                                numberOfTuples,
-                                                numberOfOutlyingTuples);
+        StatisticsEquivalenceClasses result = new StatisticsEquivalenceClasses(averageEquivalenceClassSize,
+                                                                               averageEquivalenceClassSizeIncludingOutliers,
+                                                                               maximalEquivalenceClassSize,
+                                                                               maximalEquivalenceClassSizeIncludingOutliers,
+                                                                               minimalEquivalenceClassSize,
+                                                                               minimalEquivalenceClassSizeIncludingOutliers,
+                                                                               numberOfEquivalenceClasses,
+                                                                               numberOfEquivalenceClassesIncludingOutliers,
+                                                                               numberOfTuples,
+                                                                               numberOfOutlyingTuples);
+        putCachedValue(version, result, 0L, "classes");
+        return result;
     }
     
     /**
@@ -641,6 +903,27 @@ public class StatisticsBuilder {
         // Reset stop flag
         interrupt.value = false;
         
+        // Check cache
+        int version = handle.getVersion();
+        StatisticsFrequencyDistribution cached = (StatisticsFrequencyDistribution) getCachedValue(version, "frequencies", column, hierarchy);
+        if (cached == null) {
+            cached = getFrequencyDistributionUncached(column, hierarchy);
+            putCachedValue(version, cached, cached.values.length * 16L, "frequencies", column, hierarchy);
+        }
+        
+        // Return a copy
+        return new StatisticsFrequencyDistribution(cached.values.clone(), cached.frequency.clone(), cached.count);
+    }
+
+    /**
+     * Computes a frequency distribution for the values in the given column.
+     * 
+     * @param column The column
+     * @param hierarchy The hierarchy, may be null
+     * @return
+     */
+    private StatisticsFrequencyDistribution getFrequencyDistributionUncached(int column, String[][] hierarchy) {
+        
         // Init
         String[] values = getDistinctValuesOrdered(column, hierarchy);
         double[] frequencies = new double[values.length];
@@ -692,10 +975,30 @@ public class StatisticsBuilder {
         // Reset stop flag
         interrupt.value = false;
         
-        Map<String, DescriptiveStatistics> statistics = new HashMap<String, DescriptiveStatistics>();
+        // Check cache
+        int version = handle.getVersion();
+        Map<String, StatisticsSummary<?>> cached = (Map<String, StatisticsSummary<?>>) getCachedValue(version, "summary", listwiseDeletion);
+        if (cached == null) {
+            cached = getSummaryStatisticsUncached(listwiseDeletion);
+            putCachedValue(version, cached, 0L, "summary", listwiseDeletion);
+        }
+        
+        // Return a copy
+        return new HashMap<String, StatisticsSummary<?>>(cached);
+    }
+
+    /**
+     * Computes summary statistics for all attributes.
+     * 
+     * @param listwiseDeletion A flag enabling list-wise deletion
+     * @return
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private <T> Map<String, StatisticsSummary<?>> getSummaryStatisticsUncached(boolean listwiseDeletion) {
+        
+        Map<String, StatisticsSummaryNumeric> statistics = new HashMap<String, StatisticsSummaryNumeric>();
         Map<String, StatisticsSummaryOrdinal> ordinal = new HashMap<String, StatisticsSummaryOrdinal>();
         Map<String, DataScale> scales = new HashMap<String, DataScale>();
-        Map<String, GeometricMean> geomean = new HashMap<String, GeometricMean>();
         
         // Detect scales
         for (int col = 0; col < handle.getNumColumns(); col++) {
@@ -717,50 +1020,39 @@ public class StatisticsBuilder {
             
             // Store
             scales.put(attribute, scale);
-            statistics.put(attribute, new DescriptiveStatistics());
-            geomean.put(attribute, new GeometricMean());
+            statistics.put(attribute, new StatisticsSummaryNumeric());
             ordinal.put(attribute, getSummaryStatisticsOrdinal(handle.getGeneralization(attribute),
                                                                handle.getDataType(attribute),
                                                                handle.getBaseDataType(attribute),
                                                                getHierarchy(col, true)));
         }
         
-        // Compute summary statistics
-        for (int row = 0; row < handle.getNumRows(); row++) {
-            
-            // Check, if we should include this row
-            boolean include = true;
-            if (listwiseDeletion) {
-                for (int col = 0; col < handle.getNumColumns(); col++) {
-                    if (handle.isOutlier(row) || DataType.isNull(handle.getValue(row, col))) {
-                        include = false;
-                        break;
-                    }
-                }
-            }
+        // Count the frequencies of all values
+        IEncodedData data = handle.getEncodedData();
+        int[][] frequencies = getFrequencies(data, listwiseDeletion);
+        
+        // Compute summary statistics. Each distinct value is parsed only once and weighted by its frequency.
+        for (int col = 0; col < handle.getNumColumns(); col++) {
             
-            // Check
-            checkInterrupt();
+            // Meta
+            String[] dictionary = data.getDictionary(col);
+            String attribute = handle.getAttributeName(col);
+            DataType<?> type = handle.getDataType(attribute);
             
-            // If yes, add
-            if (include) {
+            // For each distinct value
+            for (int code = 0; code < dictionary.length; code++) {
                 
-                // For each column
-                for (int col = 0; col < handle.getNumColumns(); col++) {
-                    
-                    // Meta
-                    String value = handle.getValue(row, col);
-                    String attribute = handle.getAttributeName(col);
-                    DataType<?> type = handle.getDataType(attribute);
-                    
-                    // Analyze
-                    if (!DataType.isAny(value) && !DataType.isNull(value)) {
-                        ordinal.get(attribute).addValue(value);
-                        if (type instanceof DataTypeWithRatioScale) {
-                            double doubleValue = ((DataTypeWithRatioScale) type).toDouble(type.parse(value));
-                            statistics.get(attribute).addValue(doubleValue);
-                            geomean.get(attribute).increment(doubleValue + 1d);
-                        }
+                // Check
+                checkInterrupt();
+                
+                // Analyze
+                String value = dictionary[code];
+                int count = frequencies[col][code];
+                if (count != 0 && !DataType.isAny(value) && !DataType.isNull(value)) {
+                    ordinal.get(attribute).addValue(value, count);
+                    if (type instanceof DataTypeWithRatioScale) {
+                        double doubleValue = ((DataTypeWithRatioScale) type).toDouble(type.parse(value));
+                        statistics.get(attribute).addValue(doubleValue, count);
                     }
                 }
             }
@@ -778,6 +1070,7 @@ public class StatisticsBuilder {
             DataScale scale = scales.get(attribute);
             DataType<T> type = (DataType<T>) handle.getDataType(attribute);
             ordinal.get(attribute).analyze();
+            statistics.get(attribute).analyze();
             if (scale == DataScale.NOMINAL) {
                 StatisticsSummaryOrdinal stats = ordinal.get(attribute);
                 result.put(attribute, new StatisticsSummary<T>(DataScale.NOMINAL,
@@ -798,7 +1091,7 @@ public class StatisticsBuilder {
                                                                type.parse(stats.getMax())));
             } else if (scale == DataScale.INTERVAL) {
                 StatisticsSummaryOrdinal stats = ordinal.get(attribute);
-                DescriptiveStatistics stats2 = statistics.get(attribute);
+                StatisticsSummaryNumeric stats2 = statistics.get(attribute);
                 boolean isPeriod = type.getDescription().getWrappedClass() == Date.class;
                 
                 // TODO: Something is wrong with commons math's kurtosis
@@ -837,8 +1130,8 @@ public class StatisticsBuilder {
                                                                kurtosis));
             } else if (scale == DataScale.RATIO) {
                 StatisticsSummaryOrdinal stats = ordinal.get(attribute);
-                DescriptiveStatistics stats2 = statistics.get(attribute);
-                GeometricMean geo = geomean.get(attribute);
+                StatisticsSummaryNumeric stats2 = statistics.get(attribute);
+                double geometricMean = stats2.getGeometricMean(1d) - 1d;
                 
                 // TODO: Something is wrong with commons math's kurtosis
                 double kurtosis = stats2.getKurtosis();
@@ -874,9 +1167,9 @@ public class StatisticsBuilder {
                                                                toString(type, kurtosis, false, false),
                                                                toValue(type, kurtosis),
                                                                kurtosis,
-                                                               toString(type, geo.getResult() - 1d, false, false),
-                                                               toValue(type, geo.getResult() - 1d),
-                                                               stats2.getGeometricMean()));
+                                                               toString(type, geometricMean, false, false),
+                                                               toValue(type, geometricMean),
+                                                               stats2.getGeometricMean(0d)));
             }
         }
         
@@ -892,6 +1185,251 @@ public class StatisticsBuilder {
         }
     }
     
+    /**
+     * Returns a cached value, null if there is none. The key is extended by the data definition.
+     *
+     * @param version The version of the data
+     * @param key The name of the statistic and its parameters
+     * @return
+     */
+    private Object getCachedValue(int version, Object... key) {
+        return handle.getStatisticsCache().get(version, getCacheKey(key));
+    }
+
+    /**
+     * Returns the key for the cache, which is extended by the content of the data definition that
+     * statistics depend on, i.e. the data types, attribute types and hierarchies of all attributes.
+     * Hierarchies are copied, as they may be modified after the key has been created.
+     * 
+     * @param key
+     * @return
+     */
+    private Object[] getCacheKey(Object[] key) {
+        DataDefinition definition = handle.getDefinition();
+        Object[] result = Arrays.copyOf(key, key.length + handle.getNumColumns());
+        for (int column = 0; column < handle.getNumColumns(); column++) {
+            String attribute = handle.getAttributeName(column);
+            String[][] hierarchy = definition.getHierarchy(attribute);
+            if (hierarchy != null) {
+                hierarchy = hierarchy.clone();
+                for (int i = 0; i < hierarchy.length; i++) {
+                    hierarchy[i] = hierarchy[i].clone();
+                }
+            }
+            result[key.length + column] = new Object[] { attribute,
+                                                         handle.getDataType(attribute),
+                                                         handle.getBaseDataType(attribute),
+                                                         String.valueOf(definition.getAttributeType(attribute)),
+                                                         hierarchy };
+        }
+        return result;
+    }
+
+    /**
+     * Maps each entry of the given dictionary to the first entry with the same value. Dictionaries
+     * of output data may contain the same value twice, e.g. for suppressed and generalized values.
+     *
+     * @param dictionary
+     * @return
+     */
+    private int[] getCanonicalCodes(String[] dictionary) {
+        Map<String, Integer> first = new HashMap<String, Integer>();
+        int[] codes = new int[dictionary.length];
+        for (int code = 0; code < dictionary.length; code++) {
+            Integer existing = first.get(dictionary[code]);
+            if (existing == null) {
+                first.put(dictionary[code], code);
+                codes[code] = code;
+            } else {
+                codes[code] = existing;
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Counts the frequencies of the dictionary entries of all columns in a single pass over the rows.
+     * Large datasets are partitioned into ranges of rows which are processed in parallel.
+     *
+     * @param data
+     * @param listwiseDeletion
+     * @return
+     */
+    private int[][] getFrequencies(final IEncodedData data, final boolean listwiseDeletion) {
+
+        // Prepare
+        final int numRows = handle.getNumRows();
+        final int numColumns = handle.getNumColumns();
+        final boolean[][] nulls = new boolean[numColumns][];
+        for (int column = 0; column < numColumns; column++) {
+            String[] dictionary = data.getDictionary(column);
+            nulls[column] = new boolean[dictionary.length];
+            for (int code = 0; code < dictionary.length; code++) {
+                nulls[column][code] = DataType.isNull(dictionary[code]);
+            }
+        }
+        
+        // Single-threaded
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), numRows / MIN_ROWS_PER_THREAD);
+        if (threads <= 1) {
+            return getFrequencies(data, nulls, listwiseDeletion, 0, numRows);
+        }
+        
+        // Process ranges of rows in parallel
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ARX statistics worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<int[][]>> tasks = new ArrayList<Future<int[][]>>();
+            int step = (numRows + threads - 1) / threads;
+            for (int i = 0; i < threads; i++) {
+                final int from = Math.min(numRows, i * step);
+                final int to = Math.min(numRows, from + step);
+                tasks.add(pool.submit(new Callable<int[][]>() {
+                    @Override
+                    public int[][] call() {
+                        return getFrequencies(data, nulls, listwiseDeletion, from, to);
+                    }
+                }));
+            }
+            
+            // Merge
+            int[][] result = null;
+            for (Future<int[][]> task : tasks) {
+                int[][] frequencies = task.get();
+                if (result == null) {
+                    result = frequencies;
+                } else {
+                    for (int column = 0; column < numColumns; column++) {
+                        for (int code = 0; code < result[column].length; code++) {
+                            result[column][code] += frequencies[column][code];
+                        }
+                    }
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            } else {
+                throw new RuntimeException(e.getCause());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Counts the frequencies of the dictionary entries of all columns in the given range of rows.
+     *
+     * @param data
+     * @param nulls
+     * @param listwiseDeletion
+     * @param from
+     * @param to
+     * @return
+     */
+    private int[][] getFrequencies(IEncodedData data, boolean[][] nulls, boolean listwiseDeletion, int from, int to) {
+        
+        // Prepare
+        int numColumns = nulls.length;
+        int[][] frequencies = new int[numColumns][];
+        for (int column = 0; column < numColumns; column++) {
+            frequencies[column] = new int[nulls[column].length];
+        }
+        int[] codes = new int[numColumns];
+        
+        // For each row
+        for (int row = from; row < to; row++) {
+            
+            // Check
+            checkInterrupt();
+            
+            // Check, if we should include this row
+            if (listwiseDeletion && numColumns > 0 && handle.isOutlier(row)) {
+                continue;
+            }
+            boolean include = true;
+            for (int column = 0; column < numColumns; column++) {
+                codes[column] = data.getCode(row, column);
+                if (listwiseDeletion && nulls[column][codes[column]]) {
+                    include = false;
+                    break;
+                }
+            }
+            
+            // If yes, add
+            if (include) {
+                for (int column = 0; column < numColumns; column++) {
+                    frequencies[column][codes[column]]++;
+                }
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * Returns the first index packed into the given key
+     * 
+     * @param key
+     * @return
+     */
+    private int getIndex1(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * Returns the second index packed into the given key
+     * 
+     * @param key
+     * @return
+     */
+    private int getIndex2(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Maps the entries of the given dictionary to their indexes in the given array of values, -1 if not contained.
+     * 
+     * @param dictionary
+     * @param values
+     * @return
+     */
+    private int[] getIndexes(String[] dictionary, String[] values) {
+        Map<String, Integer> indexes = new HashMap<String, Integer>();
+        for (int i = 0; i < values.length; i++) {
+            checkInterrupt();
+            indexes.put(values[i], i);
+        }
+        int[] result = new int[dictionary.length];
+        for (int code = 0; code < dictionary.length; code++) {
+            Integer index = indexes.get(dictionary[code]);
+            result[code] = index == null ? -1 : index;
+        }
+        return result;
+    }
+
+    /**
+     * Packs the given pair of indexes into a key
+     * 
+     * @param index1
+     * @param index2
+     * @return
+     */
+    private long getKey(int index1, int index2) {
+        return ((long) index1 << 32) | (index2 & 0xFFFFFFFFL);
+    }
+
     /**
      * Returns the appropriate hierarchy, if any.
      *
@@ -914,6 +1452,33 @@ public class StatisticsBuilder {
         }
     }
     
+    /**
+     * Reduces the given absolute frequencies to a sample containing each record with probability 0.5.
+     * 
+     * @param entries
+     * @param random
+     */
+    private void reduceToSample(LongIntOpenHashMap entries, Random random) {
+        LongArrayList empty = new LongArrayList();
+        for (int slot = 0; slot < entries.allocated.length; slot++) {
+            if (entries.allocated[slot]) {
+                checkInterrupt();
+                int count = 0;
+                for (int remaining = entries.values[slot]; remaining > 0; remaining -= 32) {
+                    int bits = random.nextInt();
+                    count += Integer.bitCount(remaining >= 32 ? bits : bits & ((1 << remaining) - 1));
+                }
+                entries.values[slot] = count;
+                if (count == 0) {
+                    empty.add(entries.keys[slot]);
+                }
+            }
+        }
+        for (LongCursor cursor : empty) {
+            entries.remove(cursor.value);
+        }
+    }
+
     /**
      * Scales the given string array.
      *
@@ -1000,6 +1565,19 @@ public class StatisticsBuilder {
         }
     }
     
+    /**
+     * Stores a value in the cache. The size of values which do not depend on the number of
+     * records or distinct values is neglected.
+     *
+     * @param version The version of the data from which the value has been computed
+     * @param value The value
+     * @param size The estimated size of the value in bytes
+     * @param key The name of the statistic and its parameters
+     */
+    private void putCachedValue(int version, Object value, long size, Object... key) {
+        handle.getStatisticsCache().put(version, value, size, getCacheKey(key));
+    }
+
     /**
      * Orders the given array by data type.
      *
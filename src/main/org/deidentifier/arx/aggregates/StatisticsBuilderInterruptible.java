@@ -282,6 +282,44 @@ public class StatisticsBuilderInterruptible {
         }
     }
 
+    /**
+     * Returns a contingency table for the given columns, which contains only the n most
+     * frequent pairs of values. Entries are returned in descending order of frequency.
+     *
+     * @param column1 The first column
+     * @param orderFromDefinition1 Indicates whether the order that should be assumed for string
+     *            data items can (and should) be derived from the hierarchy
+     *            provided in the data definition (if any)
+     * @param column2 The second column
+     * @param orderFromDefinition2 Indicates whether the order that should be assumed for string
+     *            data items can (and should) be derived from the hierarchy
+     *            provided in the data definition (if any)
+     * @param n The maximal number of entries
+     * @return
+     * @throws InterruptedException
+     */
+    public StatisticsContingencyTable
+            getContingencyTableTopN(int column1,
+                                    boolean orderFromDefinition1,
+                                    int column2,
+                                    boolean orderFromDefinition2,
+                                    int n) throws InterruptedException {
+        try {
+            return builder.getContingencyTableTopN(column1,
+                                                   orderFromDefinition1,
+                                                   column2,
+                                                   orderFromDefinition2,
+                                                   n);
+        } catch (Exception e) {
+            if (e instanceof ComputationInterruptedException) {
+                throw new InterruptedException("Interrupted");
+            } else {
+                throw new InterruptedException("Interrupted by exception: " +
+                                               e.getMessage());
+            }
+        }
+    }
+
     /**
      * Returns the distinct set of data items from the given column.
      *
@@ -466,6 +504,15 @@ public class StatisticsBuilderInterruptible {
         }
     }
 
+    /**
+     * Returns the maximal number of distinct pairs of values in contingency tables.
+     *
+     * @return
+     */
+    public int getMaxContingencyTableSize() {
+        return builder.getMaxContingencyTableSize();
+    }
+
     /**
      * If supported by the according builder, this method will report a progress
      * value in [0,100]. Otherwise, it will always return 0
@@ -501,4 +548,14 @@ public class StatisticsBuilderInterruptible {
     public void interrupt() {
         builder.interrupt();
     }
+
+    /**
+     * Sets the maximal number of distinct pairs of values in contingency tables. If it is
+     * exceeded, frequencies will be estimated from a sample of the records.
+     *
+     * @param size
+     */
+    public void setMaxContingencyTableSize(int size) {
+        builder.setMaxContingencyTableSize(size);
+    }
 }
@@ -0,0 +1,218 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deidentifier.arx.aggregates;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache for statistics computed for a data handle. Entries are associated with
+ * the version of the underlying data and discarded as soon as a different version is requested.
+ * The cache is bounded by the number of entries and by their estimated size in bytes. Values
+ * which exceed the memory limit on their own are not cached at all.
+ *
+ * @author Fabian Prasser
+ */
+public class StatisticsCache {
+
+    /**
+     * Key consisting of the name of a statistic and its parameters
+     *
+     * @author Fabian Prasser
+     */
+    private static final class Key {
+
+        /** Elements, compared deeply */
+        private final Object[] elements;
+        /** Hash code */
+        private final int      hashCode;
+
+        /**
+         * Creates a new instance
+         * @param elements
+         */
+        Key(Object[] elements) {
+            this.elements = elements;
+            this.hashCode = Arrays.deepHashCode(elements);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null) return false;
+            if (getClass() != obj.getClass()) return false;
+            Key other = (Key) obj;
+            return hashCode == other.hashCode && Arrays.deepEquals(elements, other.elements);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * A cached value and its estimated size
+     *
+     * @author Fabian Prasser
+     */
+    private static final class Value {
+
+        /** The value */
+        private final Object value;
+        /** The estimated size in bytes */
+        private final long   size;
+
+        /**
+         * Creates a new instance
+         * @param value
+         * @param size
+         */
+        Value(Object value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    /** The default capacity */
+    private static final int        DEFAULT_CAPACITY     = 32;
+
+    /** The default memory limit in bytes */
+    private static final long       DEFAULT_MEMORY_LIMIT = 64L * 1024L * 1024L;
+
+    /** The entries, in access order */
+    private final Map<Key, Value>   entries              = new LinkedHashMap<Key, Value>(16, 0.75f, true);
+
+    /** The maximal number of entries */
+    private final int               capacity;
+
+    /** The maximal estimated size of all entries in bytes */
+    private final long              memoryLimit;
+
+    /** The estimated size of all entries in bytes */
+    private long                    memory               = 0L;
+
+    /** The version of the data, to which the entries belong */
+    private int                     version              = 0;
+
+    /**
+     * Creates a new cache with default capacity and memory limit
+     */
+    public StatisticsCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * Creates a new cache with the given capacity and the default memory limit
+     * @param capacity The maximal number of entries
+     */
+    public StatisticsCache(final int capacity) {
+        this(capacity, DEFAULT_MEMORY_LIMIT);
+    }
+
+    /**
+     * Creates a new cache with the given capacity and memory limit
+     * @param capacity The maximal number of entries
+     * @param memoryLimit The maximal estimated size of all entries in bytes
+     */
+    public StatisticsCache(final int capacity, final long memoryLimit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be > 0");
+        }
+        if (memoryLimit < 0) {
+            throw new IllegalArgumentException("Memory limit must be >= 0");
+        }
+        this.capacity = capacity;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.memory = 0L;
+    }
+
+    /**
+     * Returns the estimated size of all entries in bytes
+     * @return
+     */
+    public synchronized long getMemory() {
+        return this.memory;
+    }
+
+    /**
+     * Returns the number of entries
+     * @return
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns the cached value for the given key, null if there is none
+     * @param version The version of the data
+     * @param key The name of the statistic and its parameters
+     * @return
+     */
+    synchronized Object get(int version, Object... key) {
+        this.update(version);
+        Value value = this.entries.get(new Key(key));
+        return value == null ? null : value.value;
+    }
+
+    /**
+     * Stores the given value. Least recently used entries are evicted until the cache is within its bounds.
+     * @param version The version of the data from which the value has been computed, as passed to get()
+     * @param value The value
+     * @param size The estimated size of the value in bytes
+     * @param key The name of the statistic and its parameters
+     */
+    synchronized void put(int version, Object value, long size, Object... key) {
+        
+        // Values computed from outdated data and values exceeding the limit are ignored
+        if (this.version != version || size > memoryLimit) {
+            return;
+        }
+        
+        // Store
+        Value previous = this.entries.put(new Key(key), new Value(value, size));
+        this.memory += size - (previous == null ? 0L : previous.size);
+        
+        // Evict
+        Iterator<Value> iterator = this.entries.values().iterator();
+        while (this.entries.size() > capacity || this.memory > memoryLimit) {
+            this.memory -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Discards all entries, if the version has changed
+     * @param version
+     */
+    private void update(int version) {
+        if (this.version != version) {
+            this.entries.clear();
+            this.memory = 0L;
+            this.version = version;
+        }
+    }
+}
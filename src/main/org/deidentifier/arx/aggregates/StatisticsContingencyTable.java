@@ -85,6 +85,9 @@ public class StatisticsContingencyTable {
     /** Maximal frequency in the contingency table. */
     public final double          maxFrequency;
     
+    /** The fraction of records from which the frequencies have been estimated, 1 if they are exact. */
+    public final double          fraction;
+    
     /** An iterator over the elements in the contingency table. */
     public final Iterator<StatisticsContingencyTable.Entry> iterator;
 
@@ -99,10 +102,26 @@ public class StatisticsContingencyTable {
      */
     StatisticsContingencyTable(String[] value1, String[] value2, int count, 
                                double maxFrequency, Iterator<StatisticsContingencyTable.Entry> iterator) {
+        this(value1, value2, count, maxFrequency, 1d, iterator);
+    }
+    
+    /**
+     * Internal constructor.
+     *
+     * @param value1
+     * @param value2
+     * @param count
+     * @param maxFrequency
+     * @param fraction
+     * @param iterator
+     */
+    StatisticsContingencyTable(String[] value1, String[] value2, int count, 
+                               double maxFrequency, double fraction, Iterator<StatisticsContingencyTable.Entry> iterator) {
         this.values1 = value1;
         this.values2 = value2;
         this.count = count;
         this.maxFrequency = maxFrequency;
+        this.fraction = fraction;
         this.iterator = iterator;
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
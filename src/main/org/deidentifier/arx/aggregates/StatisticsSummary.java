@@ -18,9 +18,12 @@ package org.deidentifier.arx.aggregates;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.deidentifier.arx.DataScale;
 import org.deidentifier.arx.DataType;
@@ -42,8 +45,8 @@ public class StatisticsSummary<T> {
 
         /** Var */
         private final Comparator<String> comparator;
-        /** Var */
-        private final List<String>       values = new ArrayList<String>();
+        /** Distinct values and their frequencies */
+        private final Map<String, Integer> values = new HashMap<String, Integer>();
         /** Var */
         private String                   mode;
         /** Var */
@@ -89,7 +92,19 @@ public class StatisticsSummary<T> {
          * @param value
          */
         public void addValue(String value) {
-            this.values.add(value);
+            this.addValue(value, 1);
+        }
+        
+        /**
+         * Adds a value with the given frequency
+         * @param value
+         * @param count
+         */
+        public void addValue(String value, int count) {
+            if (count > 0) {
+                Integer previous = this.values.get(value);
+                this.values.put(value, previous == null ? count : previous + count);
+            }
         }
         
         /**
@@ -140,27 +155,38 @@ public class StatisticsSummary<T> {
         }
         
         /**
-         * Returns the index of the next element that does not equal the element at the given index
+         * Returns the element at the given position of the sorted sequence of all measures
          * @param index
          * @param values
+         * @param counts
          * @return
          */
-        private int moveWhileEqual(int index, List<String> values) {
-            String element = values.get(index);
-            // We can do == because of dictionary compression
-            while (index < values.size() && values.get(index) == element) { 
-                index++;
+        private String getValue(int index, List<String> values, int[] counts) {
+            for (int i = 0; i < counts.length; i++) {
+                if (index < counts[i]) {
+                    return values.get(i);
+                }
+                index -= counts[i];
             }
-            return index;
+            throw new IndexOutOfBoundsException("Index: " + index);
         }
 
         /**
          * Analyzes the data
          */
         <T> void analyze() {
+            
+            // Sort distinct values
+            List<String> values = new ArrayList<String>(this.values.keySet());
             Collections.sort(values, comparator);
+            int[] counts = new int[values.size()];
+            int size = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = this.values.get(values.get(i));
+                size += counts[i];
+            }
             
-            if (values.size() == 0) {
+            if (size == 0) {
                 min = DataType.NULL_VALUE;
                 max = DataType.NULL_VALUE;
                 mode = DataType.NULL_VALUE;
@@ -171,44 +197,193 @@ public class StatisticsSummary<T> {
                 // Determine simple things
                 min = values.get(0);
                 max = values.get(values.size() - 1);
-                if (values.size() % 2 == 1) {
-                    median = values.get(values.size() / 2);
+                if (size % 2 == 1) {
+                    median = getValue(size / 2, values, counts);
                 } else if (type != null && type instanceof DataTypeWithRatioScale<?>) {
                     @SuppressWarnings("unchecked")
                     DataType<T> dType = (DataType<T>)type;
                     @SuppressWarnings("unchecked")
                     DataTypeWithRatioScale<T> rType = (DataTypeWithRatioScale<T>)dType;
-                    double median1 = rType.toDouble(dType.parse(values.get(values.size() / 2 - 1)));
-                    double median2 = rType.toDouble(dType.parse(values.get(values.size() / 2)));
+                    double median1 = rType.toDouble(dType.parse(getValue(size / 2 - 1, values, counts)));
+                    double median2 = rType.toDouble(dType.parse(getValue(size / 2, values, counts)));
                     median = dType.format(rType.fromDouble((median1 + median2) / 2d));
                 } else {
-                    String median1 = values.get(values.size() / 2 - 1);
-                    String median2 = values.get(values.size() / 2);
+                    String median1 = getValue(size / 2 - 1, values, counts);
+                    String median2 = getValue(size / 2, values, counts);
                     if (median1 == median2) {
                         median = median1;
                     } else {
                         median = DataType.NULL_VALUE;
                     }
                 }
-                numberOfMeasures = values.size();
+                numberOfMeasures = size;
                 
                 // Determine mode
                 int count = 0;
-                int index = 0;
                 mode = values.get(0);
-                while (index < values.size()) {
-                    int nIndex = moveWhileEqual(index, values);
-                    int nCount = nIndex - index;
-                    if (nCount > count) {
-                        mode = values.get(index);
-                        count = nCount;
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > count) {
+                        mode = values.get(i);
+                        count = counts[i];
                     }
-                    index = nIndex;
                 }
             }
             
             // Clear
-            values.clear();
+            this.values.clear();
+        }
+    }
+
+    /**
+     * Summary statistics for variables with interval or ratio scale, which are computed from
+     * distinct values and their frequencies. Results are consistent with commons math's
+     * DescriptiveStatistics, but memory is linear in the number of distinct values.
+     * @author Fabian Prasser
+     *
+     */
+    static final class StatisticsSummaryNumeric {
+
+        /** Distinct values */
+        private double[] values = new double[16];
+        /** Frequencies of the distinct values */
+        private int[]    counts = new int[16];
+        /** Number of distinct values */
+        private int      size   = 0;
+        /** Number of measures */
+        private long     n      = 0;
+        /** Var */
+        private double   mean   = Double.NaN;
+        /** Sum of squared deviations from the mean */
+        private double   m2     = Double.NaN;
+        /** Sum of deviations from the mean raised to the power of four */
+        private double   m4     = Double.NaN;
+        /** Var */
+        private double   min    = Double.NaN;
+        /** Var */
+        private double   max    = Double.NaN;
+
+        /**
+         * Adds a value with the given frequency
+         * @param value
+         * @param count
+         */
+        public void addValue(double value, int count) {
+            if (count > 0) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                    counts = Arrays.copyOf(counts, size * 2);
+                }
+                values[size] = value;
+                counts[size] = count;
+                size++;
+            }
+        }
+
+        /**
+         * Returns the geometric mean of all values, each increased by the given offset
+         * @param offset
+         * @return
+         */
+        public double getGeometricMean(double offset) {
+            if (n == 0) {
+                return Double.NaN;
+            }
+            double sum = 0d;
+            for (int i = 0; i < size; i++) {
+                sum += counts[i] * Math.log(values[i] + offset);
+            }
+            return Math.exp(sum / n);
+        }
+
+        /**
+         * Returns the sample kurtosis
+         * @return
+         */
+        public double getKurtosis() {
+            if (n <= 3) {
+                return Double.NaN;
+            }
+            double variance = getVariance();
+            double n = this.n;
+            double coefficientOne = (n * (n + 1d)) / ((n - 1d) * (n - 2d) * (n - 3d));
+            double termTwo = (3d * (n - 1d) * (n - 1d)) / ((n - 2d) * (n - 3d));
+            return coefficientOne * (m4 / (variance * variance)) - termTwo;
+        }
+
+        /**
+         * Returns a summary
+         * @return
+         */
+        public double getMax() {
+            return max;
+        }
+
+        /**
+         * Returns a summary
+         * @return
+         */
+        public double getMean() {
+            return mean;
+        }
+
+        /**
+         * Returns a summary
+         * @return
+         */
+        public double getMin() {
+            return min;
+        }
+
+        /**
+         * Returns the population variance
+         * @return
+         */
+        public double getPopulationVariance() {
+            return n == 0 ? Double.NaN : m2 / n;
+        }
+
+        /**
+         * Returns the sample variance
+         * @return
+         */
+        public double getVariance() {
+            return n == 0 ? Double.NaN : (n == 1 ? 0d : m2 / (n - 1));
+        }
+
+        /**
+         * Analyzes the data
+         */
+        void analyze() {
+            
+            // Mean, min and max
+            n = 0;
+            double sum = 0d;
+            min = Double.NaN;
+            max = Double.NaN;
+            for (int i = 0; i < size; i++) {
+                n += counts[i];
+                sum += counts[i] * values[i];
+                min = i == 0 ? values[i] : Math.min(min, values[i]);
+                max = i == 0 ? values[i] : Math.max(max, values[i]);
+            }
+            if (n == 0) {
+                mean = m2 = m4 = Double.NaN;
+                return;
+            }
+            mean = sum / n;
+            
+            // Central moments, with the correction term used by commons math
+            double correction = 0d;
+            m2 = 0d;
+            m4 = 0d;
+            for (int i = 0; i < size; i++) {
+                double deviation = values[i] - mean;
+                double square = deviation * deviation;
+                correction += counts[i] * deviation;
+                m2 += counts[i] * square;
+                m4 += counts[i] * square * square;
+            }
+            m2 -= correction * correction / n;
         }
     }
 
@@ -47,6 +47,23 @@ public class FLASHAlgorithm {
     public static AbstractAlgorithm create(final SolutionSpace solutionSpace,
                                            final NodeChecker checker,
                                            final FLASHStrategy strategy) {
+        return create(solutionSpace, checker, new NodeChecker[0], strategy);
+    }
+
+    /**
+     * Creates a new instance of the FLASH algorithm, which uses the given additional
+     * checkers for checking transformations in the background.
+     *
+     * @param solutionSpace
+     * @param checker
+     * @param workers
+     * @param strategy
+     * @return
+     */
+    public static AbstractAlgorithm create(final SolutionSpace solutionSpace,
+                                           final NodeChecker checker,
+                                           final NodeChecker[] workers,
+                                           final FLASHStrategy strategy) {
 
         // Init
         ARXConfigurationInternal config = checker.getConfiguration();
@@ -57,42 +74,42 @@ public class FLASHAlgorithm {
         // CASE 1
         // ******************************
         if ((monotonicityOfPrivacy == Monotonicity.FULL) && (monotonicityOfUtility == Monotonicity.FULL)) {
-            return createFullFull(solutionSpace, checker, strategy);
+            return createFullFull(solutionSpace, checker, workers, strategy);
         }
 
         // ******************************
         // CASE 2
         // ******************************
         if ((monotonicityOfPrivacy == Monotonicity.FULL) && (monotonicityOfUtility == Monotonicity.NONE)) {
-            return createFullNone(solutionSpace, checker, strategy);
+            return createFullNone(solutionSpace, checker, workers, strategy);
         }
 
         // ******************************
         // CASE 3
         // ******************************
         if ((monotonicityOfPrivacy == Monotonicity.PARTIAL) && (monotonicityOfUtility == Monotonicity.FULL)) {
-            return createPartialFull(solutionSpace, checker, strategy);
+            return createPartialFull(solutionSpace, checker, workers, strategy);
         }
 
         // ******************************
         // CASE 4
         // ******************************
         if ((monotonicityOfPrivacy == Monotonicity.PARTIAL) && (monotonicityOfUtility == Monotonicity.NONE)) {
-            return createPartialNone(solutionSpace, checker, strategy);
+            return createPartialNone(solutionSpace, checker, workers, strategy);
         }
 
         // ******************************
         // CASE 5
         // ******************************
         if ((monotonicityOfPrivacy == Monotonicity.NONE) && (monotonicityOfUtility == Monotonicity.FULL)) {
-            return createNoneFull(solutionSpace, checker, strategy);
+            return createNoneFull(solutionSpace, checker, workers, strategy);
         }
 
         // ******************************
         // CASE 6
         // ******************************
         if ((monotonicityOfPrivacy == Monotonicity.NONE) && (monotonicityOfUtility == Monotonicity.NONE)) {
-            return createNoneNone(solutionSpace, checker, strategy);
+            return createNoneNone(solutionSpace, checker, workers, strategy);
         }
 
         throw new IllegalStateException("Oops");
@@ -103,11 +120,13 @@ public class FLASHAlgorithm {
      *
      * @param solutionSpace
      * @param checker
+     * @param workers
      * @param strategy
      * @return
      */
     private static AbstractAlgorithm createFullFull(final SolutionSpace solutionSpace,
                                                     final NodeChecker checker,
+                                                    final NodeChecker[] workers,
                                                     final FLASHStrategy strategy) {
 
         // We focus on the anonymity property
@@ -150,7 +169,7 @@ public class FLASHAlgorithm {
                                                                                       false,
                                                                                       true);
 
-        return new FLASHAlgorithmImpl(solutionSpace, checker, strategy, config);
+        return new FLASHAlgorithmImpl(solutionSpace, checker, workers, strategy, config);
     }
 
     /**
@@ -158,11 +177,13 @@ public class FLASHAlgorithm {
      *
      * @param solutionSpace
      * @param checker
+     * @param workers
      * @param strategy
      * @return
      */
     private static AbstractAlgorithm createFullNone(final SolutionSpace solutionSpace,
                                                     final NodeChecker checker,
+                                                    final NodeChecker[] workers,
                                                     final FLASHStrategy strategy) {
 
         /* *******************************
@@ -264,7 +285,7 @@ public class FLASHAlgorithm {
                                                                                    true,
                                                                                    true);
 
-        return new FLASHAlgorithmImpl(solutionSpace, checker, strategy, config);
+        return new FLASHAlgorithmImpl(solutionSpace, checker, workers, strategy, config);
     }
 
     /**
@@ -272,11 +293,13 @@ public class FLASHAlgorithm {
      *
      * @param solutionSpace
      * @param checker
+     * @param workers
      * @param strategy
      * @return
      */
     private static AbstractAlgorithm createNoneFull(final SolutionSpace solutionSpace,
                                                     final NodeChecker checker,
+                                                    final NodeChecker[] workers,
                                                     final FLASHStrategy strategy) {
 
         // We focus on the anonymity property
@@ -320,7 +343,7 @@ public class FLASHAlgorithm {
                                                                                       true,
                                                                                       false);
 
-        return new FLASHAlgorithmImpl(solutionSpace, checker, strategy, config);
+        return new FLASHAlgorithmImpl(solutionSpace, checker, workers, strategy, config);
     }
 
     /**
@@ -328,11 +351,13 @@ public class FLASHAlgorithm {
      *
      * @param solutionSpace
      * @param checker
+     * @param workers
      * @param strategy
      * @return
      */
     private static AbstractAlgorithm createNoneNone(final SolutionSpace solutionSpace,
                                                     NodeChecker checker,
+                                                    NodeChecker[] workers,
                                                     FLASHStrategy strategy) {
 
         // We focus on the anonymity property
@@ -362,7 +387,7 @@ public class FLASHAlgorithm {
                                                                                       true,
                                                                                       false);
 
-        return new FLASHAlgorithmImpl(solutionSpace, checker, strategy, config);
+        return new FLASHAlgorithmImpl(solutionSpace, checker, workers, strategy, config);
     }
 
     /**
@@ -370,11 +395,13 @@ public class FLASHAlgorithm {
      *
      * @param solutionSpace
      * @param checker
+     * @param workers
      * @param strategy
      * @return
      */
     private static AbstractAlgorithm createPartialFull(final SolutionSpace solutionSpace,
                                                        final NodeChecker checker,
+                                                       final NodeChecker[] workers,
                                                        final FLASHStrategy strategy) {
         /* *******************************
          * BINARY PHASE
@@ -479,7 +506,7 @@ public class FLASHAlgorithm {
                                                                                    true,
                                                                                    false);
 
-        return new FLASHAlgorithmImpl(solutionSpace, checker, strategy, config);
+        return new FLASHAlgorithmImpl(solutionSpace, checker, workers, strategy, config);
     }
 
     /**
@@ -487,11 +514,13 @@ public class FLASHAlgorithm {
      *
      * @param solutionSpace
      * @param checker
+     * @param workers
      * @param strategy
      * @return
      */
     private static AbstractAlgorithm createPartialNone(final SolutionSpace solutionSpace,
                                                        final NodeChecker checker,
+                                                       final NodeChecker[] workers,
                                                        final FLASHStrategy strategy) {
         /* *******************************
          * BINARY PHASE
@@ -584,6 +613,6 @@ public class FLASHAlgorithm {
                                                                                    true,
                                                                                    false);
 
-        return new FLASHAlgorithmImpl(solutionSpace, checker, strategy, config);
+        return new FLASHAlgorithmImpl(solutionSpace, checker, workers, strategy, config);
     }
 }
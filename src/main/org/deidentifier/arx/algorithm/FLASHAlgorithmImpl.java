@@ -25,6 +25,7 @@ import java.util.PriorityQueue;
 
 import org.deidentifier.arx.algorithm.FLASHPhaseConfiguration.PhaseAnonymityProperty;
 import org.deidentifier.arx.framework.check.NodeChecker;
+import org.deidentifier.arx.framework.check.NodeCheckerPool;
 import org.deidentifier.arx.framework.check.groupify.HashGroupify;
 import org.deidentifier.arx.framework.lattice.DependentAction;
 import org.deidentifier.arx.framework.lattice.SolutionSpace;
@@ -65,6 +66,12 @@ public class FLASHAlgorithmImpl extends AbstractAlgorithm {
     /** The number of checked transformations */
     private int                        checked = 0;
 
+    /** Additional checkers for checking transformations in the background. */
+    private final NodeChecker[]        workers;
+
+    /** The checkers used during traversal. */
+    private NodeCheckerPool            pool;
+
     /**
      * Creates a new instance.
      *
@@ -77,12 +84,33 @@ public class FLASHAlgorithmImpl extends AbstractAlgorithm {
                               NodeChecker checker,
                               FLASHStrategy strategy,
                               FLASHConfiguration config) {
+        this(solutionSpace, checker, new NodeChecker[0], strategy, config);
+    }
+
+    /**
+     * Creates a new instance. The additional checkers are used for checking independent
+     * transformations in parallel, i.e. the successors of a transformation during the linear
+     * phase and the next candidates on a path during the binary phase. The search itself
+     * remains sequential. Each checker must be used exclusively by this instance.
+     *
+     * @param solutionSpace
+     * @param checker
+     * @param workers
+     * @param strategy
+     * @param config
+     */
+    public FLASHAlgorithmImpl(SolutionSpace solutionSpace,
+                              NodeChecker checker,
+                              NodeChecker[] workers,
+                              FLASHStrategy strategy,
+                              FLASHConfiguration config) {
 
         super(solutionSpace, checker);
         if (solutionSpace.getSize() > Integer.MAX_VALUE) {
             throw new IllegalArgumentException();
         }
         this.checked = 0;
+        this.workers = workers;
         this.solutionSpace.setAnonymityPropertyPredictable(config.isAnonymityPropertyPredicable());
         this.strategy = strategy;
         this.sortedSuccessors = new int[(int)solutionSpace.getSize()][];
@@ -104,6 +132,9 @@ public class FLASHAlgorithmImpl extends AbstractAlgorithm {
 
         // Set some triggers
         checker.getHistory().setStorageStrategy(config.getSnapshotStorageStrategy());
+        for (NodeChecker worker : workers) {
+            worker.getHistory().setStorageStrategy(config.getSnapshotStorageStrategy());
+        }
 
         // Initialize
         PriorityQueue<Integer> queue = new PriorityQueue<Integer>(solutionSpace.getTop().getLevel() + 1, strategy);
@@ -116,17 +147,23 @@ public class FLASHAlgorithmImpl extends AbstractAlgorithm {
         bottom.setData(result);
 
         // For each node in the lattice
-        for (int level = bottom.getLevel(); level <= top.getLevel(); level++) {
-            for (int id : getSortedUnprocessedNodes(level, outerLoopConfiguration.getTriggerSkip())) {
-
-                // Run the correct phase
-                Transformation transformation = solutionSpace.getTransformation(id);
-                if (config.isBinaryPhaseRequired()) {
-                    binarySearch(transformation, queue);
-                } else {
-                    linearSearch(transformation);
+        pool = new NodeCheckerPool(checker, workers);
+        try {
+            for (int level = bottom.getLevel(); level <= top.getLevel(); level++) {
+                for (int id : getSortedUnprocessedNodes(level, outerLoopConfiguration.getTriggerSkip())) {
+    
+                    // Run the correct phase
+                    Transformation transformation = solutionSpace.getTransformation(id);
+                    if (config.isBinaryPhaseRequired()) {
+                        binarySearch(transformation, queue);
+                    } else {
+                        linearSearch(transformation);
+                    }
                 }
             }
+        } finally {
+            pool.shutdown();
+            pool = null;
         }
 
         // Potentially allows to better estimate utility in the lattice
@@ -187,14 +224,17 @@ public class FLASHAlgorithmImpl extends AbstractAlgorithm {
 
         // Check or evaluate
         if (configuration.getTriggerEvaluate().appliesTo(transformation)) {
-            InformationLossWithBound<?> loss = checker.getMetric().getInformationLoss(transformation, (HashGroupify)null);
-            transformation.setInformationLoss(loss.getInformationLoss());
-            transformation.setLowerBound(loss.getLowerBound());
-            if (loss.getLowerBound() == null) {
-                transformation.setLowerBound(checker.getMetric().getLowerBound(transformation));
+            // The metric may be in use by background checks
+            synchronized (checker.getMetric()) {
+                InformationLossWithBound<?> loss = checker.getMetric().getInformationLoss(transformation, (HashGroupify)null);
+                transformation.setInformationLoss(loss.getInformationLoss());
+                transformation.setLowerBound(loss.getLowerBound());
+                if (loss.getLowerBound() == null) {
+                    transformation.setLowerBound(checker.getMetric().getLowerBound(transformation));
+                }
             }
         } else if (configuration.getTriggerCheck().appliesTo(transformation)) {
-            transformation.setChecked(checker.check(transformation));
+            transformation.setChecked(pool.check(transformation));
             progress((double)++checked / (double)solutionSpace.getSize());
         }
 
@@ -237,6 +277,11 @@ public class FLASHAlgorithmImpl extends AbstractAlgorithm {
             // Skip
             if (!skip(triggerSkip, transformation)) {
 
+                // Check the next candidates in parallel
+                if (pool.isParallel()) {
+                    pool.check(getCandidates(path, low, high, config.getBinaryPhaseConfiguration()));
+                }
+
                 // Check and tag
                 checkAndTag(transformation, config.getBinaryPhaseConfiguration());
 
@@ -261,6 +306,8 @@ public class FLASHAlgorithmImpl extends AbstractAlgorithm {
             }
         }
         
+        // Discard results for transformations which have not been visited
+        pool.discard(path);
         return lastAnonymousTransformation;
     }
 
@@ -352,6 +399,19 @@ public class FLASHAlgorithmImpl extends AbstractAlgorithm {
             // Check and tag
             checkAndTag(transformation, config.getLinearPhaseConfiguration());
 
+            // Check successors in parallel
+            List<Transformation> children = null;
+            if (pool.isParallel()) {
+                children = new ArrayList<Transformation>();
+                for (final int child : getSortedSuccessors(transformation)) {
+                    Transformation childTransformation = solutionSpace.getTransformation(child);
+                    if (isCheckRequired(childTransformation, config.getLinearPhaseConfiguration())) {
+                        children.add(childTransformation);
+                    }
+                }
+                pool.check(children);
+            }
+
             // DFS
             for (final int child : getSortedSuccessors(transformation)) {
                 Transformation childTransformation = solutionSpace.getTransformation(child);
@@ -359,12 +419,60 @@ public class FLASHAlgorithmImpl extends AbstractAlgorithm {
                     linearSearch(childTransformation);
                 }
             }
+
+            // Discard results for successors which have not been visited
+            if (children != null) {
+                pool.discard(children);
+            }
         }
 
         // Mark as successors pruned
         transformation.setProperty(solutionSpace.getPropertySuccessorsPruned());
     }
 
+    /**
+     * Returns the transformations on the given part of a path which will be visited next by
+     * a binary search, in the order in which they would be visited. The number of
+     * transformations is limited by the parallelism of the pool.
+     *
+     * @param path
+     * @param low
+     * @param high
+     * @param configuration
+     * @return
+     */
+    private List<Transformation> getCandidates(List<Transformation> path, int low, int high, FLASHPhaseConfiguration configuration) {
+        List<Transformation> result = new ArrayList<Transformation>();
+        LinkedList<int[]> intervals = new LinkedList<int[]>();
+        intervals.add(new int[] { low, high });
+        while (!intervals.isEmpty() && result.size() < pool.getParallelism()) {
+            int[] interval = intervals.removeFirst();
+            if (interval[0] <= interval[1]) {
+                int mid = (interval[0] + interval[1]) / 2;
+                if (isCheckRequired(path.get(mid), configuration)) {
+                    result.add(path.get(mid));
+                }
+                intervals.add(new int[] { interval[0], mid - 1 });
+                intervals.add(new int[] { mid + 1, interval[1] });
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether a node would currently be checked. This does not modify the solution space.
+     *
+     * @param transformation
+     * @param configuration
+     * @return
+     */
+    private boolean isCheckRequired(Transformation transformation, FLASHPhaseConfiguration configuration) {
+        return !configuration.getTriggerSkip().appliesTo(transformation) &&
+               !configuration.getTriggerEvaluate().appliesTo(transformation) &&
+               configuration.getTriggerCheck().appliesTo(transformation) &&
+               !transformation.hasProperty(solutionSpace.getPropertyInsufficientUtility());
+    }
+
     /**
      * We may be able to prune some transformations based on weak lower bounds on
      * the monotonic share of a node's information loss.
@@ -470,7 +578,9 @@ public class FLASHAlgorithmImpl extends AbstractAlgorithm {
             // Check whether a lower bound exists
             InformationLoss<?> lowerBound = transformation.getLowerBound();
             if (lowerBound == null) {
-                lowerBound = checker.getMetric().getLowerBound(transformation);
+                synchronized (checker.getMetric()) {
+                    lowerBound = checker.getMetric().getLowerBound(transformation);
+                }
                 if (lowerBound != null) {
                     transformation.setLowerBound(lowerBound);
                 }
@@ -259,20 +259,24 @@ public class EntropyLDiversity extends LDiversity {
         final int total = entry.count;
         // Sum must stay smaller than this constant term
         final double C = total * (estimator.psi(total) - Math.log(l));
+        // Lower bound of the contribution of each remaining element. Only psi(1) may be negative.
+        final double minimum = Math.min(0d, estimator.psi(1));
         double sum1 = 0d;
+        int remaining = total;
 
         final int[] buckets = d.getBuckets();
         for (int i = 0; i < buckets.length; i += 2) {
             if (buckets[i] != -1) { // bucket not empty
                 final int frequency = buckets[i + 1];
                 sum1 += frequency * estimator.psi(frequency);
-                // If the sum grows over C, we can abort the loop earlier.
-                if (C < sum1) { return false; }
+                remaining -= frequency;
+                // If the sum grows over C, even if all remaining elements are unique, we can abort the loop earlier.
+                if (C < sum1 + remaining * minimum) { return false; }
             }
         }
 
         // If we reach this point, the loop did not return false.
-        return true;
+        return C >= sum1;
     }
 
     @Override
@@ -25,6 +25,7 @@ import org.deidentifier.arx.framework.check.distribution.IntArrayDictionary;
 import org.deidentifier.arx.framework.check.groupify.HashGroupify;
 import org.deidentifier.arx.framework.check.history.History;
 import org.deidentifier.arx.framework.data.Data;
+import org.deidentifier.arx.framework.data.DataColumns;
 import org.deidentifier.arx.framework.data.DataManager;
 import org.deidentifier.arx.framework.data.Dictionary;
 import org.deidentifier.arx.framework.lattice.SolutionSpace;
@@ -77,6 +78,84 @@ public class NodeChecker {
         }
     }
 
+    /**
+     * Statistics about the work performed by a checker.
+     */
+    public static class Statistics {
+
+        /** Number of transformations which have been checked. */
+        public final long checks;
+
+        /** Number of UNOPTIMIZED transitions. */
+        public final long transitionsUnoptimized;
+
+        /** Number of ROLLUP transitions. */
+        public final long transitionsRollup;
+
+        /** Number of SNAPSHOT transitions. */
+        public final long transitionsSnapshot;
+
+        /** Number of transitions performed by generated transformers. */
+        public final long transitionsGenerated;
+
+        /** Number of transformations which have been aborted early. */
+        public final long aborted;
+
+        /** Number of rows, equivalence classes and snapshot entries processed. */
+        public final long itemsScanned;
+
+        /** Number of equivalence classes produced. */
+        public final long classesProduced;
+
+        /** Number of successful lookups in the history. */
+        public final long historyHits;
+
+        /** Number of unsuccessful lookups in the history. */
+        public final long historyMisses;
+
+        /** Number of snapshots stored in the history. */
+        public final long historyStores;
+
+        /** Number of snapshots rejected by the history. */
+        public final long historyRejections;
+
+        /** Number of snapshots evicted from the history. */
+        public final long historyEvictions;
+
+        /** Time spent transforming data in nanoseconds. */
+        public final long timeTransform;
+
+        /** Time spent analyzing groupings in nanoseconds. */
+        public final long timeAnalyze;
+
+        /** Time spent evaluating the quality model in nanoseconds. */
+        public final long timeMetric;
+
+        /**
+         * Creates a new instance.
+         * 
+         * @param checker
+         */
+        Statistics(NodeChecker checker) {
+            this.checks = checker.checks;
+            this.transitionsUnoptimized = checker.transitionsUnoptimized;
+            this.transitionsRollup = checker.transitionsRollup;
+            this.transitionsSnapshot = checker.transitionsSnapshot;
+            this.transitionsGenerated = checker.transitionsGenerated;
+            this.aborted = checker.aborted;
+            this.itemsScanned = checker.transformer.getNumberOfScannedItems();
+            this.classesProduced = checker.classesProduced;
+            this.historyHits = checker.history.getHits();
+            this.historyMisses = checker.history.getMisses();
+            this.historyStores = checker.history.getStores();
+            this.historyRejections = checker.history.getRejections();
+            this.historyEvictions = checker.history.getEvictions();
+            this.timeTransform = checker.timeTransform;
+            this.timeAnalyze = checker.timeAnalyze;
+            this.timeMetric = checker.timeMetric;
+        }
+    }
+
     /** The config. */
     private final ARXConfigurationInternal        config;
 
@@ -122,6 +201,42 @@ public class NodeChecker {
     /** Is a minimal class size required */
     private final boolean                         minimalClassSizeRequired;
 
+    /** Whether transformations are aborted as soon as the suppression limit is provably exceeded */
+    private boolean                               fastFail                 = false;
+
+    /** Number of transformations which have been checked. */
+    private long                                  checks                   = 0L;
+
+    /** Number of UNOPTIMIZED transitions. */
+    private long                                  transitionsUnoptimized   = 0L;
+
+    /** Number of ROLLUP transitions. */
+    private long                                  transitionsRollup        = 0L;
+
+    /** Number of SNAPSHOT transitions. */
+    private long                                  transitionsSnapshot      = 0L;
+
+    /** Number of transitions performed by generated transformers. */
+    private long                                  transitionsGenerated     = 0L;
+
+    /** Number of transformations which have been aborted early. */
+    private long                                  aborted                  = 0L;
+
+    /** Number of equivalence classes produced. */
+    private long                                  classesProduced          = 0L;
+
+    /** Time spent transforming data in nanoseconds. */
+    private long                                  timeTransform            = 0L;
+
+    /** Time spent analyzing groupings in nanoseconds. */
+    private long                                  timeAnalyze              = 0L;
+
+    /** Time spent evaluating the quality model in nanoseconds. */
+    private long                                  timeMetric               = 0L;
+
+    /** Statistics published after each check, guarded by the metric. */
+    private Statistics                            statistics;
+
     /**
      * Creates a new NodeChecker instance.
      * 
@@ -140,6 +255,29 @@ public class NodeChecker {
                        final double snapshotSizeDataset,
                        final double snapshotSizeSnapshot,
                        final SolutionSpace solutionSpace) {
+        this(manager, metric, config, historyMaxSize, snapshotSizeDataset, snapshotSizeSnapshot, solutionSpace, 1);
+    }
+    
+    /**
+     * Creates a new NodeChecker instance.
+     * 
+     * @param manager The manager
+     * @param metric The metric
+     * @param config The configuration
+     * @param historyMaxSize The history max size
+     * @param snapshotSizeDataset A history threshold
+     * @param snapshotSizeSnapshot A history threshold
+     * @param solutionSpace
+     * @param threads The number of threads used for transforming data
+     */
+    public NodeChecker(final DataManager manager,
+                       final Metric<?> metric,
+                       final ARXConfigurationInternal config,
+                       final int historyMaxSize,
+                       final double snapshotSizeDataset,
+                       final double snapshotSizeSnapshot,
+                       final SolutionSpace solutionSpace,
+                       final int threads) {
         
         // Initialize all operators
         this.metric = metric;
@@ -165,7 +303,7 @@ public class NodeChecker {
             dictionarySensFreq = new IntArrayDictionary(0);
         }
         
-        this.history = new History(manager.getDataGeneralized().getArray().length,
+        this.history = new History(manager.getDataGeneralized().getDataLength(),
                                    historyMaxSize,
                                    snapshotSizeDataset,
                                    snapshotSizeSnapshot,
@@ -177,12 +315,14 @@ public class NodeChecker {
         this.stateMachine = new StateMachine(history);
         this.currentGroupify = new HashGroupify(initialSize, config);
         this.lastGroupify = new HashGroupify(initialSize, config);
-        this.transformer = new Transformer(manager.getDataGeneralized().getArray(),
-                                           manager.getDataAnalyzed().getArray(),
+        this.transformer = new Transformer(manager.getDataGeneralized().getColumns(),
+                                           manager.getDataAnalyzed().getColumns(),
                                            manager.getHierarchies(),
                                            config,
                                            dictionarySensValue,
-                                           dictionarySensFreq);
+                                           dictionarySensFreq,
+                                           threads);
+        this.statistics = new Statistics(this);
     }
 
     
@@ -209,6 +349,7 @@ public class NodeChecker {
         microaggregationDictionary.definalizeAll();
         
         // Apply transition and groupify
+        currentGroupify.stateFastFail(false, 0);
         currentGroupify = transformer.apply(0L, transformation.getGeneralization(), currentGroupify);
         currentGroupify.stateAnalyze(transformation, true);
         if (!currentGroupify.isPrivacyModelFulfilled() && !config.isSuppressionAlwaysEnabled()) {
@@ -283,36 +424,102 @@ public class NodeChecker {
         lastGroupify = currentGroupify;
         currentGroupify = temp;
         
+        // Configure early abort
+        currentGroupify.stateFastFail(fastFail && !forceMeasureInfoLoss,
+                                      config.getSubset() != null ? config.getSubset().getSize() : dataGeneralized.getDataLength());
+        
         // Apply transition
+        long time = System.nanoTime();
+        checks++;
         switch (transition.type) {
         case UNOPTIMIZED:
+            transitionsUnoptimized++;
             currentGroupify = transformer.apply(transition.projection, node.getGeneralization(), currentGroupify);
             break;
         case ROLLUP:
+            transitionsRollup++;
             currentGroupify = transformer.applyRollup(transition.projection, node.getGeneralization(), lastGroupify, currentGroupify);
             break;
         case SNAPSHOT:
+            transitionsSnapshot++;
             currentGroupify = transformer.applySnapshot(transition.projection, node.getGeneralization(), currentGroupify, transition.snapshot);
             break;
         }
-        
-        // We are done with transforming and adding
-        currentGroupify.stateAnalyze(node, forceMeasureInfoLoss);
-        if (forceMeasureInfoLoss && !currentGroupify.isPrivacyModelFulfilled() && !config.isSuppressionAlwaysEnabled()) {
-            currentGroupify.stateResetSuppression();
+        timeTransform += System.nanoTime() - time;
+        if (transformer.isGeneratedTransformerUsed(transition.projection)) {
+            transitionsGenerated++;
         }
         
-        // Compute information loss and lower bound
-        InformationLossWithBound<?> result = (currentGroupify.isPrivacyModelFulfilled() || forceMeasureInfoLoss) ?
-                metric.getInformationLoss(node, currentGroupify) : null;
-        InformationLoss<?> loss = result != null ? result.getInformationLoss() : null;
-        InformationLoss<?> bound = result != null ? result.getLowerBound() : metric.getLowerBound(node, currentGroupify);
+        // The transformation has been aborted, because it cannot fulfill the minimal class size.
+        // The incomplete groupify must neither be stored in the history nor be rolled up.
+        if (currentGroupify.isAborted()) {
+            aborted++;
+            stateMachine.reset();
+            synchronized (metric) {
+                statistics = new Statistics(this);
+                return new NodeChecker.Result(false,
+                                              minimalClassSizeRequired ? false : null,
+                                              null,
+                                              metric.getLowerBound(node));
+            }
+        }
         
-        // Return result;
-        return new NodeChecker.Result(currentGroupify.isPrivacyModelFulfilled(),
-                                      minimalClassSizeRequired ? currentGroupify.isMinimalClassSizeFulfilled() : null,
-                                      loss,
-                                      bound);
+        // Privacy models and quality models are shared between checkers and are not
+        // thread-safe. Their evaluation is therefore serialized on the metric.
+        synchronized (metric) {
+            
+            // We are done with transforming and adding
+            time = System.nanoTime();
+            classesProduced += currentGroupify.getNumberOfEquivalenceClasses();
+            currentGroupify.stateAnalyze(node, forceMeasureInfoLoss);
+            if (forceMeasureInfoLoss && !currentGroupify.isPrivacyModelFulfilled() && !config.isSuppressionAlwaysEnabled()) {
+                currentGroupify.stateResetSuppression();
+            }
+            timeAnalyze += System.nanoTime() - time;
+            
+            // Compute information loss and lower bound
+            time = System.nanoTime();
+            InformationLossWithBound<?> result = (currentGroupify.isPrivacyModelFulfilled() || forceMeasureInfoLoss) ?
+                    metric.getInformationLoss(node, currentGroupify) : null;
+            InformationLoss<?> loss = result != null ? result.getInformationLoss() : null;
+            InformationLoss<?> bound = result != null ? result.getLowerBound() : metric.getLowerBound(node, currentGroupify);
+            timeMetric += System.nanoTime() - time;
+            statistics = new Statistics(this);
+            
+            // Return result;
+            return new NodeChecker.Result(currentGroupify.isPrivacyModelFulfilled(),
+                                          minimalClassSizeRequired ? currentGroupify.isMinimalClassSizeFulfilled() : null,
+                                          loss,
+                                          bound);
+        }
+    }
+    
+    /**
+     * Returns whether transformations are aborted as soon as the suppression limit is provably exceeded
+     * @return
+     */
+    public boolean isFastFailEnabled() {
+        return fastFail;
+    }
+    
+    /**
+     * Enables or disables aborting transformations as soon as the suppression limit is provably exceeded
+     * by the number of records in equivalence classes that are smaller than the minimal class size. For aborted
+     * transformations, only the lower bound that does not depend on the transformed data is computed. This is
+     * only applied to checks for which the information loss is not enforced.
+     * @param fastFail
+     */
+    public void setFastFailEnabled(boolean fastFail) {
+        this.fastFail = fastFail;
+    }
+    
+    /**
+     * Enables or disables transformers generated at runtime for more than 15 quasi-identifiers.
+     * They are compiled in the background and used as soon as they are available.
+     * @param enabled
+     */
+    public void setGeneratedTransformersEnabled(boolean enabled) {
+        this.transformer.setGeneratedTransformersEnabled(enabled);
     }
     
     /**
@@ -332,12 +539,24 @@ public class NodeChecker {
         return history;
     }
     
+    /**
+     * Returns statistics about the work performed by this checker up to the last completed check.
+     * The snapshot is published under the lock on the metric, so that it may also be obtained
+     * while the checker is in use by another thread.
+     * @return
+     */
+    public Statistics getStatistics() {
+        synchronized (metric) {
+            return statistics;
+        }
+    }
+    
     /**
      * Returns the input buffer
      * @return
      */
-    public int[][] getInputBuffer() {
-        return this.dataGeneralized.getArray();
+    public DataColumns getInputBuffer() {
+        return this.dataGeneralized.getColumns();
     }
     
     /**
@@ -347,4 +566,12 @@ public class NodeChecker {
     public Metric<?> getMetric() {
         return metric;
     }
+
+    /**
+     * Terminates the threads used for transforming data, if any. The checker remains usable,
+     * but transforms data on the calling thread afterwards.
+     */
+    public void shutdown() {
+        transformer.shutdown();
+    }
 }
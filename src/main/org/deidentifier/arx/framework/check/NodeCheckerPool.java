@@ -0,0 +1,205 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.framework.check;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deidentifier.arx.framework.lattice.Transformation;
+
+/**
+ * A pool of node checkers, which checks batches of transformations in parallel. Each
+ * worker uses its own checker, including its own history, transformer and groupifies.
+ * A batch is distributed among the search thread, which uses the primary checker, and
+ * the workers. The search thread waits until the batch has been processed, so that no
+ * checks are pending afterwards. Results are consumed via check(), which returns exactly
+ * the result that the primary checker would have returned, as the result of checking a
+ * transformation does not depend on the transformations checked before.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class NodeCheckerPool {
+
+    /** The primary checker. */
+    private final NodeChecker                   checker;
+
+    /** The worker checkers. */
+    private final NodeChecker[]                 workers;
+
+    /** Results of batches which have not yet been consumed, by transformation identifier. */
+    private final Map<Long, NodeChecker.Result> results = new ConcurrentHashMap<Long, NodeChecker.Result>();
+
+    /** The threads used by the workers, if any. */
+    private final ThreadPoolExecutor            workerPool;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param checker The primary checker, used by the search thread
+     * @param workers Checkers for background threads, one per thread. May be empty.
+     */
+    public NodeCheckerPool(final NodeChecker checker, final NodeChecker[] workers) {
+        this.checker = checker;
+        this.workers = workers;
+        if (workers.length > 0) {
+            this.workerPool = new ThreadPoolExecutor(workers.length, workers.length,
+                                                     60L, TimeUnit.SECONDS,
+                                                     new LinkedBlockingQueue<Runnable>(),
+                                                     new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ARX search worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            this.workerPool = null;
+        }
+    }
+
+    /**
+     * Checks the given transformations in parallel and keeps the results until they are
+     * consumed via check() or discarded via discard(). Transformations with known results
+     * are ignored. Returns after all transformations have been checked.
+     *
+     * @param transformations
+     */
+    public void check(final List<Transformation> transformations) {
+
+        // Collect transformations without results
+        final List<Transformation> batch = new ArrayList<Transformation>();
+        for (Transformation transformation : transformations) {
+            if (!results.containsKey(transformation.getIdentifier()) &&
+                !(transformation.getData() instanceof NodeChecker.Result)) {
+                batch.add(transformation);
+            }
+        }
+
+        // A single transformation is checked when it is requested
+        if (workerPool == null || batch.size() < 2) {
+            return;
+        }
+
+        // Distribute among workers and the search thread
+        final AtomicInteger next = new AtomicInteger(0);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < workers.length && i < batch.size() - 1; i++) {
+            final NodeChecker worker = workers[i];
+            futures.add(workerPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    check(worker, batch, next);
+                }
+            }));
+        }
+        check(checker, batch, next);
+
+        // Await workers
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while checking transformations", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error while checking transformations", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Returns the result of checking the given transformation. If it has been checked as
+     * part of a batch, the result is removed from the pool. Otherwise the transformation
+     * is checked with the primary checker.
+     *
+     * @param transformation
+     * @return
+     */
+    public NodeChecker.Result check(final Transformation transformation) {
+        NodeChecker.Result result = results.remove(transformation.getIdentifier());
+        return result != null ? result : checker.check(transformation);
+    }
+
+    /**
+     * Discards the results for the given transformations, e.g. because they will not be
+     * requested anymore.
+     *
+     * @param transformations
+     */
+    public void discard(final List<Transformation> transformations) {
+        if (results.isEmpty()) {
+            return;
+        }
+        for (Transformation transformation : transformations) {
+            results.remove(transformation.getIdentifier());
+        }
+    }
+
+    /**
+     * Returns the number of transformations which may be checked in parallel.
+     *
+     * @return
+     */
+    public int getParallelism() {
+        return workers.length + 1;
+    }
+
+    /**
+     * Returns whether background workers are available.
+     *
+     * @return
+     */
+    public boolean isParallel() {
+        return workerPool != null;
+    }
+
+    /**
+     * Discards all results and terminates the workers.
+     */
+    public void shutdown() {
+        results.clear();
+        if (workerPool != null) {
+            workerPool.shutdown();
+        }
+    }
+
+    /**
+     * Checks transformations of the batch with the given checker, until all have been claimed.
+     *
+     * @param checker
+     * @param batch
+     * @param next
+     */
+    private void check(final NodeChecker checker, final List<Transformation> batch, final AtomicInteger next) {
+        for (int index = next.getAndIncrement(); index < batch.size(); index = next.getAndIncrement()) {
+            Transformation transformation = batch.get(index);
+            results.put(transformation.getIdentifier(), checker.check(transformation));
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package org.deidentifier.arx.framework.check;
 
 import org.deidentifier.arx.framework.check.history.History;
+import org.deidentifier.arx.framework.check.history.Snapshot;
 
 /**
  * This class implements a state machine, which determines which optimizations
@@ -41,7 +42,7 @@ public class StateMachine {
         public long           projection;
 
         /** Snapshot, if available. */
-        public int[]          snapshot;
+        public Snapshot       snapshot;
 
         /** The actual type of the transition. */
         public TransitionType type;
@@ -75,7 +76,7 @@ public class StateMachine {
     private Transition lastTransition;
 
     /** The current snapshot, if any. */
-    private int[]      snapshot = null;
+    private Snapshot   snapshot = null;
 
     /** The node for the current snapshot. */
     private int[]      snapshotNode;
@@ -129,11 +130,16 @@ public class StateMachine {
 
         final Transition result = new Transition();
 
-        // First transition
+        // First transition, e.g. after a reset
         if (lastTransition == null) {
-            result.type = TransitionType.UNOPTIMIZED;
             result.projection = 0L;
-            result.snapshot = null;
+            if (isPossibleSnapshot(currentNode)) {
+                result.type = TransitionType.SNAPSHOT;
+                result.snapshot = snapshot;
+            } else {
+                result.type = TransitionType.UNOPTIMIZED;
+                result.snapshot = null;
+            }
         } else {
             switch (lastTransition.type) {
             case UNOPTIMIZED:
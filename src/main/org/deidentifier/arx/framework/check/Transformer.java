@@ -17,11 +17,23 @@
 
 package org.deidentifier.arx.framework.check;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.deidentifier.arx.ARXConfiguration.ARXConfigurationInternal;
 import org.deidentifier.arx.framework.check.StateMachine.TransitionType;
 import org.deidentifier.arx.framework.check.distribution.IntArrayDictionary;
 import org.deidentifier.arx.framework.check.groupify.HashGroupifyEntry;
 import org.deidentifier.arx.framework.check.groupify.HashGroupify;
+import org.deidentifier.arx.framework.check.history.Snapshot;
 import org.deidentifier.arx.framework.check.transformer.AbstractTransformer;
 import org.deidentifier.arx.framework.check.transformer.Transformer01;
 import org.deidentifier.arx.framework.check.transformer.Transformer02;
@@ -39,6 +51,8 @@ import org.deidentifier.arx.framework.check.transformer.Transformer13;
 import org.deidentifier.arx.framework.check.transformer.Transformer14;
 import org.deidentifier.arx.framework.check.transformer.Transformer15;
 import org.deidentifier.arx.framework.check.transformer.TransformerAll;
+import org.deidentifier.arx.framework.check.transformer.TransformerGenerator;
+import org.deidentifier.arx.framework.data.DataColumns;
 import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
 
 /**
@@ -49,6 +63,12 @@ import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
  */
 public class Transformer {
 
+    /** Number of rows processed between checks of the suppression limit in fast-fail mode. */
+    private static final int                   FAST_FAIL_BLOCK_SIZE          = 1024;
+
+    /** Minimal number of rows or snapshot entries per worker for parallel processing. */
+    private static final int                   PARALLEL_MIN_ITEMS_PER_THREAD = 5000;
+
     /** The config. */
     protected final ARXConfigurationInternal   config;
 
@@ -65,10 +85,10 @@ public class Transformer {
     protected final GeneralizationHierarchy[]  hierarchies;
 
     /** Other attribute values. */
-    protected int[][]                          inputAnalyzed;
+    protected DataColumns                      inputAnalyzed;
 
     /** The data. */
-    protected final int[][]                    inputGeneralized;
+    protected final DataColumns                inputGeneralized;
 
     /** The instances. */
     protected final AbstractTransformer[]      instances;
@@ -76,6 +96,30 @@ public class Transformer {
     /** The buffer. */
     protected int[][]                          outputGeneralized;
 
+    /** Buffer for decoding snapshots. */
+    protected final int[]                      snapshotBuffer;
+
+    /** The number of threads. */
+    protected final int                        threads;
+
+    /** The instances used by additional workers, if any. */
+    protected final AbstractTransformer[][]    workerInstances;
+
+    /** The private groupify operators of additional workers, if any. */
+    protected final HashGroupify[]             workerGroupifies;
+
+    /** Buffers for decoding snapshots used by additional workers, if any. */
+    protected final int[][]                    workerSnapshotBuffers;
+
+    /** The worker pool, if any. */
+    protected final ThreadPoolExecutor         workerPool;
+
+    /** Classes of the transformers generated for more than 15 columns, if requested. */
+    private volatile Future<List<Class<? extends AbstractTransformer>>> generated;
+
+    /** The number of rows, equivalence classes and snapshot entries processed so far. */
+    private final AtomicLong                   scanned                       = new AtomicLong();
+
     /**
      * Instantiates a new transformer.
      *
@@ -86,29 +130,85 @@ public class Transformer {
      * @param dictionarySensValue
      * @param dictionarySensFreq
      */
-    public Transformer(final int[][] inputGeneralized,
-                       final int[][] inputAnalyzed,
+    public Transformer(final DataColumns inputGeneralized,
+                       final DataColumns inputAnalyzed,
                        final GeneralizationHierarchy[] hierarchies,
                        final ARXConfigurationInternal config,
                        final IntArrayDictionary dictionarySensValue,
                        final IntArrayDictionary dictionarySensFreq) {
+        this(inputGeneralized, inputAnalyzed, hierarchies, config, dictionarySensValue, dictionarySensFreq, 1);
+    }
 
+    /**
+     * Instantiates a new transformer, which splits transitions over
+     * the given number of threads.
+     *
+     * @param inputGeneralized
+     * @param inputAnalyzed
+     * @param hierarchies
+     * @param config
+     * @param dictionarySensValue
+     * @param dictionarySensFreq
+     * @param threads
+     */
+    public Transformer(final DataColumns inputGeneralized,
+                       final DataColumns inputAnalyzed,
+                       final GeneralizationHierarchy[] hierarchies,
+                       final ARXConfigurationInternal config,
+                       final IntArrayDictionary dictionarySensValue,
+                       final IntArrayDictionary dictionarySensFreq,
+                       final int threads) {
+
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be >= 1");
+        }
+        
         this.config = config;
         this.inputGeneralized = inputGeneralized;
         this.hierarchies = hierarchies;
-        this.instances = new AbstractTransformer[16];
-        this.outputGeneralized = new int[inputGeneralized.length][];
+        this.outputGeneralized = new int[inputGeneralized.getNumRows()][];
         
-        for (int i = 0; i < inputGeneralized.length; i++) {
-            outputGeneralized[i] = new int[inputGeneralized[0].length];
+        for (int i = 0; i < outputGeneralized.length; i++) {
+            outputGeneralized[i] = new int[inputGeneralized.getNumColumns()];
         }
 
-        this.dimensions = inputGeneralized[0].length;
+        this.dimensions = inputGeneralized.getNumColumns();
         this.dictionarySensValue = dictionarySensValue;
         this.dictionarySensFreq = dictionarySensFreq;
         this.inputAnalyzed = inputAnalyzed;
+        this.threads = threads;
 
-        buildApplicators();
+        this.instances = buildApplicators();
+        this.snapshotBuffer = new int[Snapshot.BLOCK_SIZE * config.getSnapshotLength()];
+        
+        // Prepare additional workers
+        if (threads > 1) {
+            int initialSize = (int) (inputGeneralized.getNumRows() * 0.01d / threads);
+            this.workerInstances = new AbstractTransformer[threads - 1][];
+            this.workerGroupifies = new HashGroupify[threads - 1];
+            this.workerSnapshotBuffers = new int[threads - 1][];
+            for (int i = 0; i < threads - 1; i++) {
+                this.workerInstances[i] = buildApplicators();
+                this.workerGroupifies[i] = new HashGroupify(initialSize, config);
+                this.workerSnapshotBuffers[i] = new int[Snapshot.BLOCK_SIZE * config.getSnapshotLength()];
+            }
+            this.workerPool = new ThreadPoolExecutor(threads - 1, threads - 1, 
+                                                     60L, TimeUnit.SECONDS, 
+                                                     new LinkedBlockingQueue<Runnable>(), 
+                                                     new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ARX transformer worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            this.workerInstances = null;
+            this.workerGroupifies = null;
+            this.workerSnapshotBuffers = null;
+            this.workerPool = null;
+        }
     }
 
     /**
@@ -129,7 +229,6 @@ public class Transformer {
                              transformation,
                              null,
                              target,
-                             null,
                              TransitionType.UNOPTIMIZED);
     }
 
@@ -154,12 +253,11 @@ public class Transformer {
                              state,
                              source,
                              target,
-                             null,
                              TransitionType.ROLLUP);
     }
 
     /**
-     * Apply snapshot.
+     * Apply snapshot. The snapshot is decoded block by block.
      * 
      * @param projection
      *            the projection
@@ -174,13 +272,14 @@ public class Transformer {
     public HashGroupify applySnapshot(final long projection,
                                        final int[] state,
                                        final HashGroupify target,
-                                       final int[] snapshot) {
-        return applyInternal(projection,
-                             state,
-                             null,
-                             target,
-                             snapshot,
-                             TransitionType.SNAPSHOT);
+                                       final Snapshot snapshot) {
+
+        // Split the blocks over all workers, if there is enough work
+        if (isParallel() && snapshot.getNumberOfBlocks() >= threads &&
+            snapshot.getSize() >= threads * PARALLEL_MIN_ITEMS_PER_THREAD) {
+            return applySnapshotParallel(projection, state, target, snapshot);
+        }
+        return applySnapshot(instances, snapshotBuffer, projection, state, target, snapshot, 0, snapshot.getNumberOfBlocks(), target.isFastFailEnabled());
     }
 
     /**
@@ -193,9 +292,68 @@ public class Transformer {
     }
 
     /**
-     * Builds the applicators.
+     * Returns the number of rows, equivalence classes and snapshot entries which have
+     * been processed by this transformer so far.
+     * 
+     * @return
+     */
+    public long getNumberOfScannedItems() {
+        return scanned.get();
+    }
+
+    /**
+     * Returns the number of threads used by this transformer.
+     * 
+     * @return
      */
-    private void buildApplicators() {
+    public int getNumberOfThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns whether transitions with the given projection are currently performed
+     * by a generated transformer.
+     * 
+     * @param projection
+     * @return
+     */
+    public boolean isGeneratedTransformerUsed(final long projection) {
+        final int index = dimensions - Long.bitCount(projection);
+        return index >= TransformerGenerator.MIN_COLUMNS && getApplicator(projection) != instances[0];
+    }
+
+    /**
+     * Enables or disables transformers generated for more than 15 columns. When enabled, the classes
+     * are compiled in the background and the generic transformer is used until they are available.
+     * 
+     * @param enabled
+     */
+    public void setGeneratedTransformersEnabled(final boolean enabled) {
+        if (!enabled) {
+            generated = null;
+        } else if (generated == null && dimensions >= TransformerGenerator.MIN_COLUMNS) {
+            generated = TransformerGenerator.compile(instances[0], TransformerGenerator.MIN_COLUMNS, dimensions);
+        }
+    }
+
+    /**
+     * Terminates the workers, if any. Afterwards, all transitions are performed
+     * on the calling thread.
+     */
+    public void shutdown() {
+        if (workerPool != null) {
+            workerPool.shutdown();
+        }
+    }
+
+    /**
+     * Builds the applicators. Slots for more than 15 columns are filled with generated
+     * applicators once they are available. Until then, the generic applicator is used.
+     * 
+     * @return the applicators
+     */
+    private AbstractTransformer[] buildApplicators() {
+        AbstractTransformer[] instances = new AbstractTransformer[Math.max(TransformerGenerator.MIN_COLUMNS, dimensions + 1)];
         instances[15] = new Transformer15(inputGeneralized,
                                           hierarchies,
                                           inputAnalyzed,
@@ -292,6 +450,7 @@ public class Transformer {
                                           dictionarySensValue,
                                           dictionarySensFreq,
                                           config);
+        return instances;
     }
 
     /**
@@ -305,8 +464,6 @@ public class Transformer {
      *            the source
      * @param target
      *            the target
-     * @param snapshot
-     *            the snapshot
      * @param transition
      *            the transition
      * @return the hash groupify
@@ -315,7 +472,6 @@ public class Transformer {
                                           final int[] state,
                                           final HashGroupify source,
                                           final HashGroupify target,
-                                          final int[] snapshot,
                                           final TransitionType transition) {
 
         int startIndex = 0;
@@ -327,7 +483,7 @@ public class Transformer {
         switch (transition) {
         case UNOPTIMIZED:
             startIndex = 0;
-            stopIndex = inputGeneralized.length;
+            stopIndex = inputGeneralized.getNumRows();
             break;
         case ROLLUP:
             startIndex = 0;
@@ -335,22 +491,52 @@ public class Transformer {
             bucket = 0;
             element = source.getFirstEquivalenceClass();
             break;
-        case SNAPSHOT:
-            startIndex = 0;
-            stopIndex = snapshot.length /
-                        config.getSnapshotLength();
-            break;
+        default:
+            throw new IllegalArgumentException("Unsupported transition: " + transition);
+        }
+
+        // Split the range over all workers, if there is enough work
+        if (isParallel() && transition == TransitionType.UNOPTIMIZED &&
+            stopIndex - startIndex >= threads * PARALLEL_MIN_ITEMS_PER_THREAD) {
+            scanned.addAndGet(stopIndex - startIndex);
+            return applyParallel(projection, state, target, startIndex, stopIndex);
         }
 
         AbstractTransformer app = null;
 
         app = getApplicator(projection);
         
+        // Process in blocks and abort as soon as the suppression limit is provably exceeded
+        if (transition == TransitionType.UNOPTIMIZED && target.isFastFailEnabled()) {
+            target.stateClear();
+            for (int start = startIndex; start < stopIndex; start += FAST_FAIL_BLOCK_SIZE) {
+                final int stop = Math.min(stopIndex, start + FAST_FAIL_BLOCK_SIZE);
+                app.init(projection,
+                         state,
+                         target,
+                         null,
+                         null,
+                         transition,
+                         start,
+                         stop,
+                         0,
+                         null,
+                         outputGeneralized);
+                app.process();
+                scanned.addAndGet(stop - start);
+                if (target.isSuppressionLimitExceeded()) {
+                    target.stateAbort();
+                    break;
+                }
+            }
+            return target;
+        }
+        
         app.init(projection,
                  state,
                  target,
                  source,
-                 snapshot,
+                 null,
                  transition,
                  startIndex,
                  stopIndex,
@@ -358,9 +544,199 @@ public class Transformer {
                  element,
                  outputGeneralized);
 
+        scanned.addAndGet(stopIndex - startIndex);
         return app.call();
     }
 
+    /**
+     * Applies an UNOPTIMIZED transition in parallel. The range is split into
+     * consecutive chunks. Each additional worker groups its chunk into a private groupify
+     * operator, while the first chunk is processed by the calling thread. The partial results
+     * are then merged into the target in the order of the chunks, which preserves the
+     * order of classes and their representatives.
+     * 
+     * @param projection
+     * @param state
+     * @param target
+     * @param startIndex
+     * @param stopIndex
+     * @return the hash groupify
+     */
+    private HashGroupify applyParallel(final long projection,
+                                       final int[] state,
+                                       final HashGroupify target,
+                                       final int startIndex,
+                                       final int stopIndex) {
+        
+        // Prepare chunks
+        final int chunk = (stopIndex - startIndex) / threads;
+        final HashGroupify[] partials = new HashGroupify[threads];
+        final List<Future<HashGroupify>> futures = new ArrayList<Future<HashGroupify>>(threads - 1);
+        
+        // Submit chunks to additional workers
+        for (int i = 1; i < threads; i++) {
+            final int start = startIndex + i * chunk;
+            final int stop = (i == threads - 1) ? stopIndex : start + chunk;
+            final AbstractTransformer app = getApplicator(workerInstances[i - 1], projection);
+            app.init(projection,
+                     state,
+                     workerGroupifies[i - 1],
+                     null,
+                     null,
+                     TransitionType.UNOPTIMIZED,
+                     start,
+                     stop,
+                     0,
+                     null,
+                     outputGeneralized);
+            futures.add(workerPool.submit((Callable<HashGroupify>) app));
+        }
+        
+        // Process the first chunk on the calling thread
+        final AbstractTransformer app = getApplicator(projection);
+        app.init(projection,
+                 state,
+                 target,
+                 null,
+                 null,
+                 TransitionType.UNOPTIMIZED,
+                 startIndex,
+                 startIndex + chunk,
+                 0,
+                 null,
+                 outputGeneralized);
+        partials[0] = app.call();
+        
+        // Collect and merge
+        return merge(target, partials, futures);
+    }
+
+    /**
+     * Applies the given blocks of a snapshot using the given instances and decoding buffer.
+     * 
+     * @param instances
+     * @param buffer
+     * @param projection
+     * @param state
+     * @param target
+     * @param snapshot
+     * @param fromBlock
+     * @param toBlock
+     * @param fastFail Whether to abort as soon as the suppression limit is provably exceeded
+     * @return the hash groupify
+     */
+    private HashGroupify applySnapshot(final AbstractTransformer[] instances,
+                                       final int[] buffer,
+                                       final long projection,
+                                       final int[] state,
+                                       final HashGroupify target,
+                                       final Snapshot snapshot,
+                                       final int fromBlock,
+                                       final int toBlock,
+                                       final boolean fastFail) {
+
+        target.stateClear();
+        final AbstractTransformer app = getApplicator(instances, projection);
+        for (int block = fromBlock; block < toBlock; block++) {
+            final int entries = snapshot.decode(block, buffer);
+            app.init(projection,
+                     state,
+                     target,
+                     null,
+                     buffer,
+                     TransitionType.SNAPSHOT,
+                     0,
+                     entries,
+                     0,
+                     null,
+                     outputGeneralized);
+            app.process();
+            scanned.addAndGet(entries);
+            if (fastFail && target.isSuppressionLimitExceeded()) {
+                target.stateAbort();
+                break;
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Applies a SNAPSHOT transition in parallel. The blocks of the snapshot are split into
+     * consecutive ranges, which are processed and merged analogously to applyParallel().
+     * 
+     * @param projection
+     * @param state
+     * @param target
+     * @param snapshot
+     * @return the hash groupify
+     */
+    private HashGroupify applySnapshotParallel(final long projection,
+                                               final int[] state,
+                                               final HashGroupify target,
+                                               final Snapshot snapshot) {
+
+        // Prepare chunks
+        final int chunk = snapshot.getNumberOfBlocks() / threads;
+        final HashGroupify[] partials = new HashGroupify[threads];
+        final List<Future<HashGroupify>> futures = new ArrayList<Future<HashGroupify>>(threads - 1);
+
+        // Submit chunks to additional workers
+        for (int i = 1; i < threads; i++) {
+            final int worker = i - 1;
+            final int start = i * chunk;
+            final int stop = (i == threads - 1) ? snapshot.getNumberOfBlocks() : start + chunk;
+            futures.add(workerPool.submit(new Callable<HashGroupify>() {
+                @Override
+                public HashGroupify call() {
+                    return applySnapshot(workerInstances[worker], workerSnapshotBuffers[worker], projection, state,
+                                         workerGroupifies[worker], snapshot, start, stop, false);
+                }
+            }));
+        }
+
+        // Process the first chunk on the calling thread
+        partials[0] = applySnapshot(instances, snapshotBuffer, projection, state, target, snapshot, 0, chunk, false);
+
+        // Collect and merge
+        return merge(target, partials, futures);
+    }
+
+    /**
+     * Collects the results of additional workers and merges them into the target, which already
+     * contains the result of the first chunk.
+     * 
+     * @param target
+     * @param partials
+     * @param futures
+     * @return the hash groupify
+     */
+    private HashGroupify merge(final HashGroupify target,
+                               final HashGroupify[] partials,
+                               final List<Future<HashGroupify>> futures) {
+        
+        // Collect
+        try {
+            for (int i = 1; i < threads; i++) {
+                partials[i] = futures.get(i - 1).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while transforming data", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error while transforming data", e.getCause());
+        }
+        
+        // Merge
+        for (int i = 1; i < threads; i++) {
+            HashGroupifyEntry entry = partials[i].getFirstEquivalenceClass();
+            while (entry != null) {
+                target.addFromGroupify(entry.key, entry.distributions, entry.representative, entry.count, entry.pcount);
+                entry = entry.nextOrdered;
+            }
+        }
+        return target;
+    }
+
     /**
      * Gets the applicator.
      * 
@@ -368,11 +744,70 @@ public class Transformer {
      * @return the applicator
      */
     protected AbstractTransformer getApplicator(final long projection) {
+        return getApplicator(instances, projection);
+    }
+
+    /**
+     * Returns whether transitions can be split over additional workers.
+     * 
+     * @return
+     */
+    private boolean isParallel() {
+        return workerPool != null && !workerPool.isShutdown();
+    }
+
+    /**
+     * Gets the applicator from the given set of instances.
+     * 
+     * @param instances the instances
+     * @param projection the projection
+     * @return the applicator
+     */
+    private AbstractTransformer getApplicator(final AbstractTransformer[] instances, final long projection) {
         final int index = dimensions - Long.bitCount(projection);
-        if (index > (instances.length - 1)) {
-            return instances[0];
-        } else {
+        if (index < TransformerGenerator.MIN_COLUMNS) {
             return instances[index];
         }
+        if (generated == null) {
+            return instances[0];
+        }
+        if (instances[index] == null) {
+            loadGeneratedApplicators(instances);
+        }
+        return instances[index] != null ? instances[index] : instances[0];
+    }
+
+    /**
+     * Fills the slots for more than 15 columns of the given set of instances with generated
+     * applicators, if their classes have been compiled. Falls back to the generic applicator
+     * for good if compilation has failed.
+     * 
+     * @param instances
+     */
+    private void loadGeneratedApplicators(final AbstractTransformer[] instances) {
+        
+        // Check if compiled
+        final Future<List<Class<? extends AbstractTransformer>>> future = this.generated;
+        if (future == null || !future.isDone()) {
+            return;
+        }
+        
+        // Instantiate
+        AbstractTransformer[] result = null;
+        try {
+            List<Class<? extends AbstractTransformer>> classes = future.get();
+            if (classes != null) {
+                result = TransformerGenerator.createTransformers(instances[0], classes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Ignore
+        }
+        if (result == null) {
+            this.generated = null;
+            return;
+        }
+        System.arraycopy(result, 0, instances, TransformerGenerator.MIN_COLUMNS, result.length);
     }
 }
@@ -14,7 +14,6 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package org.deidentifier.arx.framework.check.distribution;
 
 import java.util.Arrays;
@@ -22,16 +21,36 @@ import java.util.Arrays;
 import org.deidentifier.arx.framework.check.groupify.HashTableUtil;
 
 /**
- * This class can be utilized to track the distributions of values. It is backed by a hash table
- * implementing open addressing with linear probing.
+ * This class can be utilized to track the distributions of values. It has two representations:<br>
+ * <br>
+ * 1. A hash table implementing open addressing with linear probing, which is used when elements are
+ * added one by one. When a distribution is reset, the table is retained, but only a prefix of its buckets
+ * is used, which grows like the table of a newly created instance. The order of the buckets therefore only
+ * depends on the sequence of elements added since the last reset, which criteria that aggregate
+ * floating-point values over the buckets rely on. Buckets beyond the prefix are always empty.<br>
+ * <br>
+ * 2. Arrays of elements and frequencies sorted by element, which are used when distributions from
+ * snapshots or from other groupings are merged during ROLLUP and SNAPSHOT transitions. Sorted arrays
+ * are merged linearly. Merges are deferred until the content is accessed, and all pending arrays are
+ * then merged pairwise in rounds. Sorted arrays are never modified, so that they can be shared with
+ * the history. When the buckets are accessed, the hash table is rebuilt by inserting the elements in
+ * sorted order, so that the order of the buckets still only depends on the content.<br>
+ * <br>
+ * Packing a distribution yields sorted arrays, which are reused as long as the content does not change.
  * 
  * @author Fabian Prasser
  * @author Florian Kohlmayer
  */
 public class Distribution {
 
+    /** Empty array. */
+    private static final int[]  EMPTY            = new int[0];
+
     /** The size. */
     private int                 size;
+
+    /** The number of buckets in use. */
+    private int                 capacity;
     
     /** The threshold used for rehashing. */
     private int                 threshold;
@@ -39,18 +58,36 @@ public class Distribution {
     /** The elements. Even index contains value, odd index contains frequency */
     private int[]               elements;
     
-    /** The sorted element array - used for history entries only. */
+    /** The sorted element array. */
     private int[]               packedElements;
     
-    /** The sorted frequency array - used for history entries only. */
+    /** The sorted frequency array. */
     private int[]               packedFrequencies;
 
+    /** Whether the hash table represents the content. Otherwise, the sorted arrays and pending merges do. */
+    private boolean             hashed           = true;
+
+    /** Whether the sorted arrays represent the content of the hash table. */
+    private boolean             packed           = false;
+
+    /** Sorted element arrays to be merged. */
+    private int[][]             pendingElements  = new int[2][];
+
+    /** Sorted frequency arrays to be merged. */
+    private int[][]             pendingFrequencies = new int[2][];
+
+    /** The number of pending merges. */
+    private int                 pending          = 0;
+
     /** The loadfactor. */
     private final static float  LOADFACTOR       = 0.75f;
 
     /** The initial default capacity of the hashtable. */
     private static final int    DEFAULT_CAPACITY = 8;          // power of two
 
+    /** Buffer for rehashing retained tables, per thread. */
+    private static final ThreadLocal<int[]> BUFFER = new ThreadLocal<int[]>();
+
     /**
      * Default constructor.
      */
@@ -65,12 +102,8 @@ public class Distribution {
      * @param frequency
      */
     public Distribution(final int[] element, final int[] frequency) {
-        this(element.length);
-        for (int i = 0; i < element.length; i++) {
-            if (element[i] != -1) {
-                this.add(element[i], frequency[i]);
-            }
-        }
+        this(DEFAULT_CAPACITY);
+        this.reset(element, frequency);
     }
 
     /**
@@ -80,11 +113,86 @@ public class Distribution {
      * @param capacity
      */
     private Distribution(int capacity) {
-        capacity = HashTableUtil.calculateCapacity(capacity);
-        size = 0;
-        elements = new int[capacity << 1];
-        Arrays.fill(elements, -1);
-        threshold = HashTableUtil.calculateThreshold(capacity, LOADFACTOR);
+        initialize(capacity);
+    }
+
+    /**
+     * Returns whether the given elements are sorted strictly ascending and do not contain empty entries.
+     *
+     * @param elements
+     * @return
+     */
+    private static boolean isSorted(final int[] elements) {
+        int previous = -1;
+        for (int element : elements) {
+            if (element <= previous) {
+                return false;
+            }
+            previous = element;
+        }
+        return true;
+    }
+
+    /**
+     * Merges two pairs of sorted arrays. The input arrays are not modified.
+     *
+     * @param elements1
+     * @param frequencies1
+     * @param elements2
+     * @param frequencies2
+     * @param result Array in which the merged elements and frequencies are returned
+     */
+    private static void merge(final int[] elements1, final int[] frequencies1,
+                              final int[] elements2, final int[] frequencies2,
+                              final int[][] result) {
+
+        // Trivial cases
+        if (elements2.length == 0) {
+            result[0] = elements1;
+            result[1] = frequencies1;
+            return;
+        } else if (elements1.length == 0) {
+            result[0] = elements2;
+            result[1] = frequencies2;
+            return;
+        }
+
+        // Merge
+        int[] elements = new int[elements1.length + elements2.length];
+        int[] frequencies = new int[elements.length];
+        int index1 = 0;
+        int index2 = 0;
+        int count = 0;
+        while (index1 < elements1.length && index2 < elements2.length) {
+            int element1 = elements1[index1];
+            int element2 = elements2[index2];
+            if (element1 < element2) {
+                elements[count] = element1;
+                frequencies[count++] = frequencies1[index1++];
+            } else if (element2 < element1) {
+                elements[count] = element2;
+                frequencies[count++] = frequencies2[index2++];
+            } else {
+                elements[count] = element1;
+                frequencies[count++] = frequencies1[index1++] + frequencies2[index2++];
+            }
+        }
+        while (index1 < elements1.length) {
+            elements[count] = elements1[index1];
+            frequencies[count++] = frequencies1[index1++];
+        }
+        while (index2 < elements2.length) {
+            elements[count] = elements2[index2];
+            frequencies[count++] = frequencies2[index2++];
+        }
+
+        // Trim
+        if (count < elements.length) {
+            elements = Arrays.copyOf(elements, count);
+            frequencies = Arrays.copyOf(frequencies, count);
+        }
+        result[0] = elements;
+        result[1] = frequencies;
     }
 
     /**
@@ -100,16 +208,56 @@ public class Distribution {
      * Clears the table.
      */
     public void clear() {
-        Arrays.fill(elements, -1);
+        Arrays.fill(elements, 0, capacity << 1, -1);
         size = 0;
+        hashed = true;
+        packed = false;
+        clearPending();
     }
-    
+
+    /**
+     * Resets this distribution to the state of a newly created instance, so that it can be reused.
+     * The table is retained.
+     */
+    public void reset() {
+        initialize(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Resets this distribution to the state of an instance created from a history entry.
+     * Sorted arrays are used without being copied.
+     *
+     * @param element
+     * @param frequency
+     */
+    public void reset(final int[] element, final int[] frequency) {
+        if (isSorted(element)) {
+            clearPending();
+            this.packedElements = element;
+            this.packedFrequencies = frequency;
+            this.size = element.length;
+            this.hashed = false;
+            this.packed = true;
+        } else {
+            initialize(element.length);
+            for (int i = 0; i < element.length; i++) {
+                if (element[i] != -1) {
+                    this.add(element[i], frequency[i]);
+                }
+            }
+        }
+    }
+
     /**
-     * Gets all buckets of the hash table.
+     * Gets all buckets of the hash table. The array may contain additional empty buckets. If the
+     * content is represented by sorted arrays, the hash table is rebuilt from them first.
      *
      * @return
      */
     public int[] getBuckets() {
+        if (!hashed) {
+            toHashTable();
+        }
         return elements;
     }
 
@@ -137,8 +285,23 @@ public class Distribution {
      * @param other
      */
     public void merge(final Distribution other) {
+        
+        // Nothing to merge
+        if (other.size() == 0) {
+            return;
+        }
+        
+        // Merge sorted arrays
+        if (!hashed || !other.hashed || other.packed) {
+            other.pack();
+            this.merge(other.packedElements, other.packedFrequencies);
+            return;
+        }
+        
+        // Merge hash tables
         final int[] otherElements = other.elements;
-        for (int i = 0; i < otherElements.length; i += 2) {
+        final int otherLength = other.capacity << 1;
+        for (int i = 0; i < otherLength; i += 2) {
             if (otherElements[i] != -1) {
                 this.add(otherElements[i], otherElements[i + 1]);
             }
@@ -146,12 +309,33 @@ public class Distribution {
     }
 
     /**
-     * Merge a frequency set with a history entry.
+     * Merge a frequency set with a history entry. Sorted arrays are merged linearly, if this
+     * distribution is empty or already available as sorted arrays.
      *
      * @param elements
      * @param frequency
      */
     public void merge(final int[] elements, final int[] frequency) {
+
+        // Merge sorted arrays
+        if ((!hashed || packed || size == 0) && isSorted(elements)) {
+            if (hashed) {
+                if (!packed) {
+                    packedElements = EMPTY;
+                    packedFrequencies = EMPTY;
+                }
+                hashed = false;
+            }
+            if (pending == pendingElements.length) {
+                pendingElements = Arrays.copyOf(pendingElements, pending << 1);
+                pendingFrequencies = Arrays.copyOf(pendingFrequencies, pending << 1);
+            }
+            pendingElements[pending] = elements;
+            pendingFrequencies[pending++] = frequency;
+            return;
+        }
+
+        // Merge into hash table
         for (int i = 0; i < elements.length; i++) {
             if (elements[i] != -1) {
                 this.add(elements[i], frequency[i]);
@@ -160,27 +344,46 @@ public class Distribution {
     }
 
     /**
-     * Packs the frequency table; removes null values and generates
-     * sortedElements and sortedFrequency arrays. In case a collission occured
-     * this method also sorts the elements.
+     * Packs the frequency table; removes null values and generates arrays of elements
+     * and frequencies, which are sorted by element. If the content has not changed since
+     * the last call, the arrays are reused.
      */
     public void pack() {
-        final int[] sortedelements = new int[size];
-        final int[] sortedfrequency = new int[size];
+        
+        // Sorted arrays
+        if (!hashed) {
+            merge();
+            return;
+        }
+        
+        // Nothing changed since the last call
+        if (packed) {
+            return;
+        }
+        
+        // Compress and sort. Elements are non-negative and therefore sorted by the upper bits.
+        final long[] buffer = new long[size];
         if (size > 0) {
-            // compress & copy
             int count = 0;
-            for (int i = 0; i < elements.length; i += 2) {
+            final int length = capacity << 1;
+            for (int i = 0; i < length; i += 2) {
                 if (elements[i] != -1) { // bucket not empty
-                    sortedelements[count] = elements[i];
-                    sortedfrequency[count] = elements[i + 1];
-                    count++;
+                    buffer[count++] = ((long) elements[i] << 32) | (elements[i + 1] & 0xffffffffL);
                 }
             }
+            Arrays.sort(buffer);
+        }
+        
+        // Copy
+        final int[] sortedelements = new int[size];
+        final int[] sortedfrequency = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedelements[i] = (int) (buffer[i] >>> 32);
+            sortedfrequency[i] = (int) buffer[i];
         }
         this.packedElements = sortedelements;
         this.packedFrequencies = sortedfrequency;
-
+        this.packed = true;
     }
 
     /**
@@ -189,18 +392,64 @@ public class Distribution {
      * @return
      */
     public int size() {
+        if (!hashed) {
+            merge();
+        }
         return size;
     }
 
+    /**
+     * Exchanges the content of this distribution with the content of the given distribution,
+     * including the tables. This transfers content between distributions without copying it.
+     * 
+     * @param other
+     */
+    public void swap(final Distribution other) {
+        final int size = this.size;
+        final int capacity = this.capacity;
+        final int threshold = this.threshold;
+        final int[] elements = this.elements;
+        final int[] packedElements = this.packedElements;
+        final int[] packedFrequencies = this.packedFrequencies;
+        final boolean hashed = this.hashed;
+        final boolean packed = this.packed;
+        final int[][] pendingElements = this.pendingElements;
+        final int[][] pendingFrequencies = this.pendingFrequencies;
+        final int pending = this.pending;
+        this.size = other.size;
+        this.capacity = other.capacity;
+        this.threshold = other.threshold;
+        this.elements = other.elements;
+        this.packedElements = other.packedElements;
+        this.packedFrequencies = other.packedFrequencies;
+        this.hashed = other.hashed;
+        this.packed = other.packed;
+        this.pendingElements = other.pendingElements;
+        this.pendingFrequencies = other.pendingFrequencies;
+        this.pending = other.pending;
+        other.size = size;
+        other.capacity = capacity;
+        other.threshold = threshold;
+        other.elements = elements;
+        other.packedElements = packedElements;
+        other.packedFrequencies = packedFrequencies;
+        other.hashed = hashed;
+        other.packed = packed;
+        other.pendingElements = pendingElements;
+        other.pendingFrequencies = pendingFrequencies;
+        other.pending = pending;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
         builder.append("Distribution [");
         boolean first = true;
-        for (int i=0; i<elements.length; i+=2) {
-            if (elements[i] != -1) {
+        int[] buckets = getBuckets();
+        for (int i=0; i<capacity << 1; i+=2) {
+            if (buckets[i] != -1) {
                 builder.append(first ? "" : ",");
-                builder.append(elements[i]).append("=").append(elements[i+1]);
+                builder.append(buckets[i]).append("=").append(buckets[i+1]);
                 first = false;
             }
         }
@@ -216,8 +465,14 @@ public class Distribution {
      */
     private void add(final int element, final int value) {
 
-        final int mask = (elements.length - 1);
-        int index = (element & ((elements.length >> 1) - 1)) << 1; // start at home bucket
+        // Switch to hash table
+        if (!hashed) {
+            toHashTable();
+        }
+        packed = false;
+
+        final int mask = ((capacity << 1) - 1);
+        int index = (element & (capacity - 1)) << 1; // start at home bucket
         while (true) {
             if (elements[index] == -1) { // empty bucket, not found
 
@@ -239,23 +494,132 @@ public class Distribution {
     }
 
     /**
-     * Rehashes the frequency set table.
+     * Removes all pending merges.
+     */
+    private void clearPending() {
+        Arrays.fill(pendingElements, 0, pending, null);
+        Arrays.fill(pendingFrequencies, 0, pending, null);
+        pending = 0;
+    }
+
+    /**
+     * Returns a buffer of the given minimal length for the current thread.
+     *
+     * @param length
+     * @return
+     */
+    private static int[] getBuffer(final int length) {
+        int[] buffer = BUFFER.get();
+        if (buffer == null || buffer.length < length) {
+            buffer = new int[length];
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Initializes an empty table using the next power of two starting at capacity as capacity.
+     * The current table is reused, if it is large enough.
+     *
+     * @param capacity
+     */
+    private void initialize(int capacity) {
+        capacity = HashTableUtil.calculateCapacity(capacity);
+        if (elements == null || elements.length < capacity << 1) {
+            elements = new int[capacity << 1];
+            Arrays.fill(elements, -1);
+        } else {
+            Arrays.fill(elements, 0, this.capacity << 1, -1);
+        }
+        this.capacity = capacity;
+        size = 0;
+        threshold = HashTableUtil.calculateThreshold(capacity, LOADFACTOR);
+        hashed = true;
+        packed = false;
+        clearPending();
+    }
+
+    /**
+     * Merges all pending sorted arrays with the current sorted arrays. Arrays are merged
+     * pairwise in rounds, so that each entry is copied a logarithmic number of times.
+     */
+    private void merge() {
+        if (pending == 0) {
+            return;
+        }
+        
+        // Prepare
+        int count = pending + 1;
+        int[][] elements = new int[count][];
+        int[][] frequencies = new int[count][];
+        elements[0] = packedElements;
+        frequencies[0] = packedFrequencies;
+        System.arraycopy(pendingElements, 0, elements, 1, pending);
+        System.arraycopy(pendingFrequencies, 0, frequencies, 1, pending);
+        clearPending();
+        
+        // Merge in rounds
+        int[][] result = new int[2][];
+        while (count > 1) {
+            int next = 0;
+            for (int i = 0; i < count; i += 2) {
+                if (i + 1 < count) {
+                    merge(elements[i], frequencies[i], elements[i + 1], frequencies[i + 1], result);
+                    elements[next] = result[0];
+                    frequencies[next] = result[1];
+                } else {
+                    elements[next] = elements[i];
+                    frequencies[next] = frequencies[i];
+                }
+                next++;
+            }
+            count = next;
+        }
+        
+        // Store
+        packedElements = elements[0];
+        packedFrequencies = frequencies[0];
+        size = packedElements.length;
+    }
+
+    /**
+     * Rehashes the frequency set table. Elements are inserted into the new table in the order
+     * of the old buckets. If the current table is large enough, it is reused.
      */
     private void rehash() {
-        final int capacity = HashTableUtil.calculateCapacity(elements.length);
+        final int length = capacity << 1;
+        final int capacity = HashTableUtil.calculateCapacity(length);
 
-        final int[] newelements = new int[capacity << 1];
-        Arrays.fill(newelements, -1);
+        // Prepare source and target
+        final int[] source;
+        final int sourceLength;
+        if (elements.length >= capacity << 1) {
+            source = getBuffer(size << 1);
+            sourceLength = size << 1;
+            int count = 0;
+            for (int i = 0; i < length; i += 2) {
+                if (elements[i] != -1) { // bucket not empty
+                    source[count++] = elements[i];
+                    source[count++] = elements[i + 1];
+                    elements[i] = -1;
+                }
+            }
+        } else {
+            source = elements;
+            sourceLength = length;
+            elements = new int[capacity << 1];
+            Arrays.fill(elements, -1);
+        }
 
-        final int mask = (newelements.length - 1);
-        for (int i = 0; i < elements.length; i += 2) {
-            if (elements[i] != -1) { // bucket not empty
+        final int mask = ((capacity << 1) - 1);
+        for (int i = 0; i < sourceLength; i += 2) {
+            if (source[i] != -1) { // bucket not empty
 
-                int index = (elements[i] & ((newelements.length >> 1) - 1)) << 1;
+                int index = (source[i] & (capacity - 1)) << 1;
                 while (true) {
-                    if (newelements[index] == -1) { // empty bucket, not found
-                        newelements[index] = elements[i];
-                        newelements[index + 1] = elements[i + 1];
+                    if (elements[index] == -1) { // empty bucket, not found
+                        elements[index] = source[i];
+                        elements[index + 1] = source[i + 1];
                         break;
                     }
                     index = (index + 2) & mask; // next bucket
@@ -264,6 +628,22 @@ public class Distribution {
         }
 
         threshold = (int) (capacity * LOADFACTOR);
-        elements = newelements;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Converts sorted arrays into a hash table. Elements are inserted in sorted order.
+     */
+    private void toHashTable() {
+        merge();
+        final int[] sortedElements = packedElements;
+        final int[] sortedFrequencies = packedFrequencies;
+        initialize(sortedElements.length);
+        for (int i = 0; i < sortedElements.length; i++) {
+            add(sortedElements[i], sortedFrequencies[i]);
+        }
+        packedElements = sortedElements;
+        packedFrequencies = sortedFrequencies;
+        packed = true;
     }
 }
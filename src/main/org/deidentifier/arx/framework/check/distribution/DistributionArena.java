@@ -0,0 +1,85 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.framework.check.distribution;
+
+import java.util.Arrays;
+
+/**
+ * A slab allocator for the distributions of sensitive values maintained per equivalence class.
+ * Allocated arrays of distributions are retained when the arena is reset and handed out again,
+ * after being reset, for subsequent transformations. Distributions retain their tables when being
+ * reset. Objects are therefore only allocated when the number of classes exceeds the number of
+ * classes of previous transformations, or when a table must grow beyond its previous size.
+ * 
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class DistributionArena {
+
+    /** The initial number of slots. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The slab. Only the first used slots are handed out. */
+    private Distribution[][] slab             = new Distribution[INITIAL_CAPACITY][];
+
+    /** The number of slots handed out since the last reset. */
+    private int              used             = 0;
+
+    /**
+     * Returns an array of the given number of empty distributions, which remains valid until the
+     * arena is reset.
+     * 
+     * @param length
+     * @return
+     */
+    public Distribution[] allocate(final int length) {
+        if (used == slab.length) {
+            slab = Arrays.copyOf(slab, used << 1);
+        }
+        Distribution[] result = slab[used];
+        if (result == null || result.length != length) {
+            result = new Distribution[length];
+            for (int i = 0; i < length; i++) {
+                result[i] = new Distribution();
+            }
+            slab[used] = result;
+        } else {
+            for (int i = 0; i < length; i++) {
+                result[i].reset();
+            }
+        }
+        used++;
+        return result;
+    }
+
+    /**
+     * Returns the number of arrays handed out since the last reset.
+     * 
+     * @return
+     */
+    public int size() {
+        return used;
+    }
+
+    /**
+     * Makes all arrays available again. Previously allocated arrays must not be used anymore.
+     */
+    public void reset() {
+        used = 0;
+    }
+}
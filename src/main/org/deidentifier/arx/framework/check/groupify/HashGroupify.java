@@ -17,6 +17,8 @@
 
 package org.deidentifier.arx.framework.check.groupify;
 
+import java.util.Arrays;
+
 import org.deidentifier.arx.ARXConfiguration.ARXConfigurationInternal;
 import org.deidentifier.arx.RowSet;
 import org.deidentifier.arx.criteria.DPresence;
@@ -24,6 +26,7 @@ import org.deidentifier.arx.criteria.Inclusion;
 import org.deidentifier.arx.criteria.PrivacyCriterion;
 import org.deidentifier.arx.criteria.SampleBasedCriterion;
 import org.deidentifier.arx.framework.check.distribution.Distribution;
+import org.deidentifier.arx.framework.check.distribution.DistributionArena;
 import org.deidentifier.arx.framework.check.distribution.DistributionAggregateFunction;
 import org.deidentifier.arx.framework.data.Data;
 import org.deidentifier.arx.framework.data.Dictionary;
@@ -33,8 +36,10 @@ import org.deidentifier.arx.metric.Metric;
 import com.carrotsearch.hppc.ObjectIntOpenHashMap;
 
 /**
- * A hash groupify operator. It implements a hash table with chaining and keeps
- * track of additional properties per equivalence class
+ * A hash groupify operator. It implements a hash table with open addressing and keeps
+ * track of additional properties per equivalence class. The table itself consists of
+ * primitive arrays holding hash codes and indices into a pool of entries, which is ordered
+ * by insertion and reused across calls to stateClear().
  * 
  * @author Fabian Prasser
  * @author Florian Kohlmayer
@@ -47,20 +52,38 @@ public class HashGroupify {
     /** The current number of outliers. */
     private int                          currentNumOutliers;
     
-    /** The entry array. */
-    private HashGroupifyEntry[]          hashTableBuckets;
+    /** The current number of records, maintained in fast-fail mode. */
+    private int                          currentNumRecords;
     
-    /** Current number of elements. */
-    private int                          hashTableElementCount;
+    /** Whether adding records has been aborted, leaving the table incomplete. */
+    private boolean                      aborted;
+    
+    /** Whether a lower bound on the number of outliers is maintained while adding records. */
+    private boolean                      fastFail;
+    
+    /** The number of classes per size below the minimal class size, maintained in fast-fail mode. */
+    private int[]                        fastFailClassSizes;
+    
+    /** The total number of records that will be added, used in fast-fail mode. */
+    private int                          fastFailNumRecords;
     
-    /** The first entry. */
-    private HashGroupifyEntry            hashTableFirstEntry;
+    /** The slots of the table: index of the entry plus one, zero if the slot is empty. */
+    private int[]                        hashTableSlots;
     
-    /** The last entry. */
-    private HashGroupifyEntry            hashTableLastEntry;
+    /** The hash codes of the entries stored in the slots. */
+    private int[]                        hashTableSlotHashcodes;
+    
+    /** The pool of entries, ordered by insertion. Only the first hashTableElementCount entries are in use. */
+    private HashGroupifyEntry[]          hashTableEntries;
+    
+    /** Current number of elements. */
+    private int                          hashTableElementCount;
+
+    /** The arena from which the distributions of sensitive values are allocated. */
+    private final DistributionArena      distributionArena = new DistributionArena();
     
     /** Load factor. */
-    private final float                  hashTableLoadFactor = 0.75f;
+    private final float                  hashTableLoadFactor = 0.5f;
     
     /** Maximum number of elements that can be put in this map before having to rehash. */
     private int                          hashTableThreshold;
@@ -103,8 +126,10 @@ public class HashGroupify {
         // Set capacity
         capacity = HashTableUtil.calculateCapacity(capacity);
         this.hashTableElementCount = 0;
-        this.hashTableBuckets = new HashGroupifyEntry[capacity];
-        this.hashTableThreshold = HashTableUtil.calculateThreshold(hashTableBuckets.length, hashTableLoadFactor);
+        this.hashTableSlots = new int[capacity];
+        this.hashTableSlotHashcodes = new int[capacity];
+        this.hashTableThreshold = HashTableUtil.calculateThreshold(hashTableSlots.length, hashTableLoadFactor);
+        this.hashTableEntries = new HashGroupifyEntry[hashTableThreshold + 1];
         
         // Set params
         this.currentNumOutliers = 0;
@@ -153,18 +178,11 @@ public class HashGroupify {
         // Is a other attribute provided
         if (other != null) {
             if (entry.distributions == null) {
-                entry.distributions = new Distribution[other.length];
-                
-                // TODO: Improve!
-                for (int i = 0; i < entry.distributions.length; i++) {
-                    entry.distributions[i] = new Distribution();
-                }
+                entry.distributions = distributionArena.allocate(other.length);
             }
             
             // Only add other value if in research subset
             if (privacyModelDefinesSubset == null || privacyModelDefinesSubset.contains(representative)) {
-                
-                // TODO: Improve!
                 for (int i = 0; i < entry.distributions.length; i++) {
                     entry.distributions[i].add(other[i]);
                 }
@@ -173,7 +191,9 @@ public class HashGroupify {
     }
     
     /**
-     * Adds an entry from another groupify operator
+     * Adds an entry from another groupify operator. The content of the given distributions may be
+     * moved to this operator, which leaves them empty. The other operator must thus be cleared
+     * before being used again.
      * @param generalized
      * @param distributions
      * @param representative
@@ -186,13 +206,15 @@ public class HashGroupify {
         final int hash = HashTableUtil.hashcode(generalized);
         final HashGroupifyEntry entry = addInternal(generalized, hash, representative, count, pcount);
         
-        // Is a distribution provided
+        // Is a distribution provided. The distributions are owned by the arena of the other
+        // operator, which is not used anymore. Their content is therefore moved, not copied.
         if (distributions != null) {
             if (entry.distributions == null) {
-                entry.distributions = distributions;
+                entry.distributions = distributionArena.allocate(distributions.length);
+                for (int i = 0; i < entry.distributions.length; i++) {
+                    entry.distributions[i].swap(distributions[i]);
+                }
             } else {
-                
-                // TODO: Improve!
                 for (int i = 0; i < entry.distributions.length; i++) {
                     entry.distributions[i].merge(distributions[i]);
                 }
@@ -218,16 +240,11 @@ public class HashGroupify {
         // Is a distribution provided
         if (elements != null) {
             if (entry.distributions == null) {
-                
-                entry.distributions = new Distribution[elements.length];
-                
-                // TODO: Improve!
+                entry.distributions = distributionArena.allocate(elements.length);
                 for (int i = 0; i < entry.distributions.length; i++) {
-                    entry.distributions[i] = new Distribution(elements[i], frequencies[i]);
+                    entry.distributions[i].reset(elements[i], frequencies[i]);
                 }
             } else {
-                
-                // TODO: Improve!
                 for (int i = 0; i < entry.distributions.length; i++) {
                     entry.distributions[i].merge(elements[i], frequencies[i]);
                 }
@@ -242,8 +259,7 @@ public class HashGroupify {
      */
     public HashGroupifyEntry getEntry(int[] tuple) {
         final int hash = HashTableUtil.hashcode(tuple);
-        int index = hash & (hashTableBuckets.length - 1);
-        return findEntry(tuple, index, hash);
+        return findEntry(tuple, hash);
     }
     
     /**
@@ -251,7 +267,7 @@ public class HashGroupify {
      * @return
      */
     public HashGroupifyEntry getFirstEquivalenceClass() {
-        return hashTableFirstEntry;
+        return hashTableElementCount == 0 ? null : hashTableEntries[0];
     }
     
     /**
@@ -262,6 +278,23 @@ public class HashGroupify {
         return hashTableElementCount;
     }
     
+    /**
+     * Returns whether adding records has been aborted, because the suppression limit was
+     * provably exceeded. In this case, the content of this operator is incomplete.
+     * @return
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+    
+    /**
+     * Returns whether fast-fail mode is enabled
+     * @return
+     */
+    public boolean isFastFailEnabled() {
+        return fastFail;
+    }
+    
     /**
      * Returns whether the current state of the dataset fulfills the minimal class-size property
      * @return
@@ -278,6 +311,38 @@ public class HashGroupify {
         return privacyModelFulfilled;
     }
     
+    /**
+     * Returns whether the number of outliers regarding the minimal class size will exceed the
+     * suppression limit, no matter how the remaining records are distributed. This is the case
+     * if it is exceeded even if the remaining records complete the largest classes that are too
+     * small first. Always returns false if fast-fail mode is not enabled.
+     * @return
+     */
+    public boolean isSuppressionLimitExceeded() {
+        
+        // Check
+        if (!fastFail) {
+            return false;
+        }
+        
+        // Complete classes greedily, starting with the largest
+        int budget = fastFailNumRecords - currentNumRecords;
+        int outliers = currentNumOutliers;
+        for (int size = fastFailClassSizes.length - 1; size > 0 && budget > 0; size--) {
+            int classes = fastFailClassSizes[size];
+            if (classes != 0) {
+                int missing = minimalClassSize - size;
+                int completed = Math.min(classes, budget / missing);
+                outliers -= completed * size;
+                budget -= completed * missing;
+                if (completed < classes) {
+                    break;
+                }
+            }
+        }
+        return outliers > suppressionLimit;
+    }
+    
     /**
      * Microaggregates all according attributes
      * @param data
@@ -305,12 +370,7 @@ public class HashGroupify {
         for (int row = 0; row < data.length; row++) {
             if (privacyModelDefinesSubset == null || privacyModelDefinesSubset.contains(row)) {
                 final int[] key = data[row];
-                final int hash = HashTableUtil.hashcode(key);
-                final int index = hash & (hashTableBuckets.length - 1);
-                HashGroupifyEntry m = hashTableBuckets[index];
-                while ((m != null) && ((m.hashcode != hash) || !equalsIgnoringOutliers(key, m.key))) {
-                    m = m.next;
-                }
+                final HashGroupifyEntry m = findEntryIgnoringOutliers(key, HashTableUtil.hashcode(key));
                 if (m == null) { throw new RuntimeException("Invalid state! Groupify the data before microaggregation!"); }
                 int dimension = 0;
                 result.getArray()[row] = new int[num];
@@ -342,12 +402,7 @@ public class HashGroupify {
         for (int row = 0; row < data.length; row++) {
             final int[] key = data[row];
             if (privacyModelDefinesSubset == null || privacyModelDefinesSubset.contains(row)) {
-                final int hash = HashTableUtil.hashcode(key);
-                final int index = hash & (hashTableBuckets.length - 1);
-                HashGroupifyEntry m = hashTableBuckets[index];
-                while ((m != null) && ((m.hashcode != hash) || !equalsIgnoringOutliers(key, m.key))) {
-                    m = m.next;
-                }
+                final HashGroupifyEntry m = findEntryIgnoringOutliers(key, HashTableUtil.hashcode(key));
                 if (m == null) {
                     throw new RuntimeException("Invalid state! Groupify the data before marking outliers!");
                 }
@@ -360,6 +415,13 @@ public class HashGroupify {
         }
     }
 
+    /**
+     * Marks this operator as incomplete, because adding records has been aborted
+     */
+    public void stateAbort() {
+        this.aborted = true;
+    }
+    
     /**
      * Analyzes the current state
      * @param transformation
@@ -375,11 +437,39 @@ public class HashGroupify {
      */
     public void stateClear() {
         if (hashTableElementCount > 0) {
+            // Release references held by pooled entries
+            for (int i = 0; i < hashTableElementCount; i++) {
+                hashTableEntries[i].distributions = null;
+            }
             this.hashTableElementCount = 0;
             this.currentNumOutliers = 0;
-            this.hashTableFirstEntry = null;
-            this.hashTableLastEntry = null;
-            HashTableUtil.nullifyArray(hashTableBuckets);
+            Arrays.fill(hashTableSlots, 0);
+        }
+        distributionArena.reset();
+        if (fastFail) {
+            Arrays.fill(fastFailClassSizes, 0);
+        }
+        this.currentNumRecords = 0;
+        this.aborted = false;
+    }
+    
+    /**
+     * Enables or disables fast-fail mode for subsequent operations, which is only supported if the privacy
+     * model defines a minimal class size. In this mode, a lower bound on the number of outliers is maintained
+     * while records are added, which allows transformers to abort as soon as the suppression limit is provably
+     * exceeded. Must be called before the operator is cleared.
+     * 
+     * @param enabled
+     * @param numRecords The total number of records that will be added, i.e. the size of the dataset or research subset
+     */
+    public void stateFastFail(boolean enabled, int numRecords) {
+        this.fastFail = enabled && minimalClassSize != Integer.MAX_VALUE;
+        if (this.fastFail) {
+            int length = (int) Math.min(minimalClassSize, (long) numRecords + 1);
+            if (fastFailClassSizes == null || fastFailClassSizes.length != length) {
+                fastFailClassSizes = new int[length];
+            }
+            this.fastFailNumRecords = numRecords;
         }
     }
     
@@ -387,7 +477,7 @@ public class HashGroupify {
      * This method will reset all flags that indicate that equivalence classes are suppressed.
      */
     public void stateResetSuppression() {
-        HashGroupifyEntry entry = hashTableFirstEntry;
+        HashGroupifyEntry entry = getFirstEquivalenceClass();
         while (entry != null) {
             entry.isNotOutlier = true;
             entry = entry.nextOrdered;
@@ -408,14 +498,22 @@ public class HashGroupify {
     private HashGroupifyEntry addInternal(final int[] generalized, final int hash, final int representative, int count, final int pcount) {
         
         // Find or create entry
-        int index = hash & (hashTableBuckets.length - 1);
-        HashGroupifyEntry entry = findEntry(generalized, index, hash);
+        final int mask = hashTableSlots.length - 1;
+        int index = HashTableUtil.mix(hash) & mask;
+        HashGroupifyEntry entry = null;
+        int slot;
+        while ((slot = hashTableSlots[index]) != 0) {
+            if (hashTableSlotHashcodes[index] == hash && HashTableUtil.equals(generalized, hashTableEntries[slot - 1].key)) {
+                entry = hashTableEntries[slot - 1];
+                break;
+            }
+            index = (index + 1) & mask;
+        }
         if (entry == null) {
-            if (++hashTableElementCount > hashTableThreshold) {
+            entry = createEntry(generalized, index, hash, representative);
+            if (hashTableElementCount > hashTableThreshold) {
                 rehash();
-                index = hash & (hashTableBuckets.length - 1);
             }
-            entry = createEntry(generalized, index, hash, representative);
         }
         
         // If we enforce d-presence and the tuple is not contained in the research subset: set its count to zero
@@ -453,6 +551,18 @@ public class HashGroupify {
             entry.representative = (count > 0 && (entry.count == count || entry.representative < representative)) ? representative : entry.representative;
         }
         
+        // Maintain a lower bound on the number of outliers
+        if (fastFail && count > 0) {
+            currentNumRecords += count;
+            final int previous = entry.count - count;
+            if (previous > 0 && previous < minimalClassSize) {
+                fastFailClassSizes[previous]--;
+            }
+            if (entry.count < minimalClassSize) {
+                fastFailClassSizes[entry.count]++;
+            }
+        }
+        
         // Compute current total number of outliers, if k-anonymity is contained in the set of criteria
         // TODO: Replace with conditional moves
         if (entry.count >= minimalClassSize) {
@@ -480,7 +590,7 @@ public class HashGroupify {
         // Iterate over all classes
         boolean dpresent = true;
         currentNumOutliers = 0;
-        HashGroupifyEntry entry = hashTableFirstEntry;
+        HashGroupifyEntry entry = getFirstEquivalenceClass();
         while (entry != null) {
             
             // Check for anonymity
@@ -528,7 +638,7 @@ public class HashGroupify {
         // Build a distribution
         HashGroupifyDistribution distribution = new HashGroupifyDistribution(heuristicForSampleBasedCriteria ? null : utilityMeasure,
                                                                              transformation,
-                                                                             this.hashTableFirstEntry);
+                                                                             getFirstEquivalenceClass());
         
         // For each criterion
         for (SampleBasedCriterion criterion : this.sampleBasedCriteria) {
@@ -569,7 +679,7 @@ public class HashGroupify {
         
         // Iterate over all classes
         currentNumOutliers = 0;
-        HashGroupifyEntry entry = hashTableFirstEntry;
+        HashGroupifyEntry entry = getFirstEquivalenceClass();
         while (entry != null) {
             
             // Check for anonymity
@@ -612,12 +722,12 @@ public class HashGroupify {
     }
     
     /**
-     * Creates a new entry.
+     * Creates a new entry, reusing a pooled instance, if possible.
      * 
      * @param key
      *            the key
      * @param index
-     *            the index
+     *            the empty slot
      * @param hash
      *            the hash
      * @param line
@@ -625,17 +735,30 @@ public class HashGroupify {
      * @return the hash groupify entry
      */
     private HashGroupifyEntry createEntry(final int[] key, final int index, final int hash, final int line) {
-        final HashGroupifyEntry entry = new HashGroupifyEntry(key, hash);
-        entry.next = hashTableBuckets[index];
-        entry.representative = line;
-        hashTableBuckets[index] = entry;
-        if (hashTableFirstEntry == null) {
-            hashTableFirstEntry = entry;
-            hashTableLastEntry = entry;
+        
+        // Grow pool
+        if (hashTableElementCount == hashTableEntries.length) {
+            hashTableEntries = Arrays.copyOf(hashTableEntries, hashTableEntries.length << 1);
+        }
+        
+        // Obtain entry
+        HashGroupifyEntry entry = hashTableEntries[hashTableElementCount];
+        if (entry == null) {
+            entry = new HashGroupifyEntry(key, hash);
+            hashTableEntries[hashTableElementCount] = entry;
         } else {
-            hashTableLastEntry.nextOrdered = entry;
-            hashTableLastEntry = entry;
+            entry.reset(key, hash);
+        }
+        entry.representative = line;
+        
+        // Maintain order
+        if (hashTableElementCount > 0) {
+            hashTableEntries[hashTableElementCount - 1].nextOrdered = entry;
         }
+        
+        // Store
+        hashTableSlots[index] = ++hashTableElementCount;
+        hashTableSlotHashcodes[index] = hash;
         return entry;
     }
     
@@ -660,18 +783,43 @@ public class HashGroupify {
      * 
      * @param key
      *            the key
-     * @param index
-     *            the index
      * @param keyHash
      *            the key hash
      * @return the hash groupify entry
      */
-    private HashGroupifyEntry findEntry(final int[] key, final int index, final int keyHash) {
-        HashGroupifyEntry m = hashTableBuckets[index];
-        while ((m != null) && ((m.hashcode != keyHash) || !HashTableUtil.equals(key, m.key))) {
-            m = m.next;
+    private HashGroupifyEntry findEntry(final int[] key, final int keyHash) {
+        final int mask = hashTableSlots.length - 1;
+        int index = HashTableUtil.mix(keyHash) & mask;
+        int slot;
+        while ((slot = hashTableSlots[index]) != 0) {
+            if (hashTableSlotHashcodes[index] == keyHash && HashTableUtil.equals(key, hashTableEntries[slot - 1].key)) {
+                return hashTableEntries[slot - 1];
+            }
+            index = (index + 1) & mask;
         }
-        return m;
+        return null;
+    }
+    
+    /**
+     * Returns the according entry, ignoring outlier flags in the keys of entries.
+     * 
+     * @param key
+     *            the key
+     * @param keyHash
+     *            the key hash
+     * @return the hash groupify entry
+     */
+    private HashGroupifyEntry findEntryIgnoringOutliers(final int[] key, final int keyHash) {
+        final int mask = hashTableSlots.length - 1;
+        int index = HashTableUtil.mix(keyHash) & mask;
+        int slot;
+        while ((slot = hashTableSlots[index]) != 0) {
+            if (hashTableSlotHashcodes[index] == keyHash && equalsIgnoringOutliers(key, hashTableEntries[slot - 1].key)) {
+                return hashTableEntries[slot - 1];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
     }
         
     /**
@@ -704,16 +852,21 @@ public class HashGroupify {
      */
     private void rehash() {
         
-        final int length = HashTableUtil.calculateCapacity((hashTableBuckets.length == 0 ? 1 : hashTableBuckets.length << 1));
-        final HashGroupifyEntry[] newData = new HashGroupifyEntry[length];
-        HashGroupifyEntry entry = hashTableFirstEntry;
-        while (entry != null) {
-            final int index = entry.hashcode & (length - 1);
-            entry.next = newData[index];
-            newData[index] = entry;
-            entry = entry.nextOrdered;
+        final int length = HashTableUtil.calculateCapacity((hashTableSlots.length == 0 ? 1 : hashTableSlots.length << 1));
+        final int mask = length - 1;
+        final int[] slots = new int[length];
+        final int[] hashcodes = new int[length];
+        for (int i = 0; i < hashTableElementCount; i++) {
+            final int hash = hashTableEntries[i].hashcode;
+            int index = HashTableUtil.mix(hash) & mask;
+            while (slots[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            slots[index] = i + 1;
+            hashcodes[index] = hash;
         }
-        hashTableBuckets = newData;
-        hashTableThreshold = HashTableUtil.calculateThreshold(hashTableBuckets.length, hashTableLoadFactor);
+        hashTableSlots = slots;
+        hashTableSlotHashcodes = hashcodes;
+        hashTableThreshold = HashTableUtil.calculateThreshold(hashTableSlots.length, hashTableLoadFactor);
     }
 }
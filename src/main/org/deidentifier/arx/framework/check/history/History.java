@@ -50,6 +50,27 @@ public class History {
     /** The actual buffer. */
     private MRUCache<MRUCacheEntryMetadata> cache                         = null;
 
+    /** Index over the entries of the buffer. */
+    private final HistoryIndex              index                         = new HistoryIndex();
+
+    /** Logical clock for tracking accesses. */
+    private long                            clock                         = 0L;
+
+    /** Number of successful lookups. */
+    private long                            hits                          = 0L;
+
+    /** Number of unsuccessful lookups. */
+    private long                            misses                        = 0L;
+
+    /** Number of snapshots stored. */
+    private long                            stores                        = 0L;
+
+    /** Number of snapshots which have been rejected. */
+    private long                            rejections                    = 0L;
+
+    /** Number of snapshots which have been evicted. */
+    private long                            evictions                     = 0L;
+
     /** Current configuration. */
     private final ARXConfigurationInternal  config;
 
@@ -60,7 +81,16 @@ public class History {
     private final IntArrayDictionary        dictionarySensValue;
 
     /** A map from nodes to snapshots. */
-    private HashMap<Long, int[]>            nodeToSnapshot                = null;
+    private HashMap<Long, Snapshot>         nodeToSnapshot                = null;
+
+    /** Buffer for decoding snapshots. */
+    private int[]                           buffer                        = null;
+
+    /** Maximal number of bytes occupied by snapshots. */
+    private long                            memoryLimit                   = Long.MAX_VALUE;
+
+    /** Current number of bytes occupied by snapshots. */
+    private long                            memoryUsed                    = 0L;
 
     /** The current requirements. */
     private final int                       requirements;
@@ -123,7 +153,7 @@ public class History {
         this.snapshotSizeDataset = (long) (rowCount * snapshotSizeDataset);
         this.snapshotSizeSnapshot = snapshotSizeSnapshot;
         this.cache = new MRUCache<MRUCacheEntryMetadata>(size);
-        this.nodeToSnapshot = new HashMap<Long, int[]>(size);
+        this.nodeToSnapshot = new HashMap<Long, Snapshot>(size);
         this.size = size;
         this.dictionarySensFreq = dictionarySensFreq;
         this.dictionarySensValue = dictionarySensValue;
@@ -139,32 +169,20 @@ public class History {
      * @param transformation
      * @return snapshot
      */
-    public int[] get(final int[] transformation) {
-
-        // Init
-        int[] resultSnapshot = null;
-        MRUCacheEntryMetadata resultMetadata = null;
-        int level = solutionSpace.getLevel(transformation);
+    public Snapshot get(final int[] transformation) {
 
         // Search
-        MRUCacheEntry<MRUCacheEntryMetadata> entry = cache.getHead();
-        while (entry != null) {
-            MRUCacheEntryMetadata currentMetadata = entry.data;
-            if (currentMetadata.level < level) {
-                final int[] currentSnapshot = nodeToSnapshot.get(currentMetadata.id);
-                if ((resultMetadata == null) || (currentSnapshot.length < resultSnapshot.length)) {
-                    if (solutionSpace.isParentChildOrEqual(transformation, currentMetadata.transformation)) {
-                        resultMetadata = currentMetadata;
-                        resultSnapshot = currentSnapshot;
-                    }
-                }
-            }
-            entry = entry.next;
-        }
+        MRUCacheEntryMetadata resultMetadata = index.get(transformation, solutionSpace.getLevel(transformation));
+        Snapshot resultSnapshot = null;
 
         // Manager
         if (resultMetadata != null) {
+            resultSnapshot = nodeToSnapshot.get(resultMetadata.id);
+            resultMetadata.stamp = ++clock;
             cache.touch(resultMetadata);
+            hits++;
+        } else {
+            misses++;
         }
         this.resultMetadata = resultMetadata;
 
@@ -190,6 +208,70 @@ public class History {
         return dictionarySensValue;
     }
 
+    /**
+     * Returns the number of snapshots which have been removed from the history, either
+     * because of LRU eviction or because all of their successors have been pruned.
+     *
+     * @return
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of lookups which returned a snapshot.
+     *
+     * @return
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the maximal number of bytes occupied by snapshots.
+     *
+     * @return
+     */
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * Returns the number of bytes currently occupied by snapshots.
+     *
+     * @return
+     */
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * Returns the number of lookups which did not return a snapshot.
+     *
+     * @return
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of snapshots which have not been stored.
+     *
+     * @return
+     */
+    public long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Returns the number of snapshots which have been stored.
+     *
+     * @return
+     */
+    public long getStores() {
+        return stores;
+    }
+
     /**
      * Returns the current storage strategy.
      *
@@ -217,10 +299,21 @@ public class History {
      */
     public void reset() {
         this.cache.clear();
+        this.index.clear();
         this.nodeToSnapshot.clear();
         this.dictionarySensFreq.clear();
         this.dictionarySensValue.clear();
         this.resultMetadata = null;
+        this.memoryUsed = 0L;
+    }
+
+    /**
+     * Sets the maximal number of bytes occupied by snapshots.
+     *
+     * @param memoryLimit
+     */
+    public void setMemoryLimit(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
     }
 
     /**
@@ -262,7 +355,40 @@ public class History {
      * @param snapshot The snapshot that was previously used, if any
      * @return
      */
-    public boolean store(final Transformation transformation, final HashGroupify groupify, final int[] snapshot) {
+    public boolean store(final Transformation transformation, final HashGroupify groupify, final Snapshot snapshot) {
+        if (storeInternal(transformation, groupify, snapshot)) {
+            stores++;
+            return true;
+        } else {
+            rejections++;
+            return false;
+        }
+    }
+
+    /**
+     * Remove pruned entries from the cache.
+     */
+    private final void cleanUpHistory() {
+
+        final Iterator<MRUCacheEntryMetadata> metadata = cache.iterator();
+        while (metadata.hasNext()) {
+            final MRUCacheEntryMetadata node = metadata.next();
+            if (solutionSpace.hasProperty(node.transformation, solutionSpace.getPropertySuccessorsPruned())) {
+                metadata.remove();
+                removeHistoryEntry(node);
+            }
+        }
+    }
+
+    /**
+     * Stores a snapshot in the buffer.
+     *
+     * @param transformation The transformation
+     * @param groupify The groupify operator
+     * @param snapshot The snapshot that was previously used, if any
+     * @return Whether the snapshot has been stored
+     */
+    private boolean storeInternal(final Transformation transformation, final HashGroupify groupify, final Snapshot snapshot) {
 
         // Early abort if too large, or no space
         if (size == 0 || groupify.getNumberOfEquivalenceClasses() > snapshotSizeDataset) {
@@ -271,7 +397,7 @@ public class History {
 
         // Early abort if too large
         if (snapshot != null) {
-            final double relativeSize = (groupify.getNumberOfEquivalenceClasses() / ((double) snapshot.length / config.getSnapshotLength()));
+            final double relativeSize = (groupify.getNumberOfEquivalenceClasses() / (double) snapshot.getSize());
             if (relativeSize > snapshotSizeSnapshot) { return false; }
         }
         
@@ -280,71 +406,69 @@ public class History {
             (transformation.hasProperty(solutionSpace.getPropertySuccessorsPruned()) || !storageTrigger.appliesTo(transformation))) {
             return false;
         }
-        
+
+        // Early abort if already stored
+        if (nodeToSnapshot.containsKey(transformation.getIdentifier())) {
+            return false;
+        }
+
         // Clear the cache
         cleanUpHistory();
 
+        // Create the snapshot
+        final Snapshot data = createSnapshot(groupify);
+        
+        // Early abort if it will never fit
+        if (data.getByteSize() > memoryLimit) {
+            releaseSnapshot(data);
+            return false;
+        }
+
         // Perform LRU eviction, if still too large
-        if (cache.size() >= size) {
+        while (cache.size() >= size || memoryUsed + data.getByteSize() > memoryLimit) {
             removeHistoryEntry(cache.removeHead());
         }
-        
-        // Create the snapshot
-        final int[] data = createSnapshot(groupify);
-
 
         // assign snapshot and keep reference for cache
+        MRUCacheEntryMetadata metadata = new MRUCacheEntryMetadata(transformation, data.getSize());
+        metadata.stamp = ++clock;
         nodeToSnapshot.put(transformation.getIdentifier(), data);
-        cache.append(new MRUCacheEntryMetadata(transformation));
+        cache.append(metadata);
+        index.add(metadata);
+        memoryUsed += data.getByteSize();
 
         return true;
     }
-
-    /**
-     * Remove pruned entries from the cache.
-     */
-    private final void cleanUpHistory() {
-
-        final Iterator<MRUCacheEntryMetadata> metadata = cache.iterator();
-        while (metadata.hasNext()) {
-            final MRUCacheEntryMetadata node = metadata.next();
-            if (solutionSpace.hasProperty(node.transformation, solutionSpace.getPropertySuccessorsPruned())) {
-                metadata.remove();
-                removeHistoryEntry(node);
-            }
-        }
-    }
     
     /**
      * Creates a generic snapshot for all criteria.
      *
      * @param g the g
-     * @return the int[]
+     * @return the snapshot
      */
-    private final int[] createSnapshot(final HashGroupify g) {
+    private final Snapshot createSnapshot(final HashGroupify g) {
 
-        final int[] data = new int[g.getNumberOfEquivalenceClasses() * config.getSnapshotLength()];
-        int index = 0;
+        final Snapshot.Builder data = new Snapshot.Builder(config.getSnapshotLength(), g.getNumberOfEquivalenceClasses());
         HashGroupifyEntry m = g.getFirstEquivalenceClass();
         while (m != null) {
             // Store element
-            data[index] = m.representative;
-            data[index + 1] = m.count;
+            data.start(m.representative);
+            data.add(m.count);
             // Add data for different requirements
             switch (requirements) {
             case ARXConfiguration.REQUIREMENT_COUNTER:
                 // do nothing
                 break;
             case ARXConfiguration.REQUIREMENT_COUNTER | ARXConfiguration.REQUIREMENT_SECONDARY_COUNTER:
-                data[index + 2] = m.pcount;
+                data.add(m.pcount);
                 break;
             case ARXConfiguration.REQUIREMENT_COUNTER | ARXConfiguration.REQUIREMENT_SECONDARY_COUNTER | ARXConfiguration.REQUIREMENT_DISTRIBUTION:
-                data[index + 2] = m.pcount;
+                data.add(m.pcount);
                 for (int i=0; i<m.distributions.length; i++) {
                     Distribution distribution = m.distributions[i];
                     distribution.pack();
-                    data[index + 3 + i * 2] = dictionarySensValue.probe(distribution.getPackedElements());
-                    data[index + 4 + i * 2] = dictionarySensFreq.probe(distribution.getPackedFrequency());
+                    data.add(dictionarySensValue.probe(distribution.getPackedElements()));
+                    data.add(dictionarySensFreq.probe(distribution.getPackedFrequency()));
                 }
                 break;
             // TODO: If we only need a distribution, we should get rid of the primary counter
@@ -353,18 +477,17 @@ public class History {
                 for (int i=0; i<m.distributions.length; i++) {
                     Distribution distribution = m.distributions[i];
                     distribution.pack();
-                    data[index + 2 + i * 2] = dictionarySensValue.probe(distribution.getPackedElements());
-                    data[index + 3 + i * 2] = dictionarySensFreq.probe(distribution.getPackedFrequency());
+                    data.add(dictionarySensValue.probe(distribution.getPackedElements()));
+                    data.add(dictionarySensFreq.probe(distribution.getPackedFrequency()));
                 }
                 break;
             default:
                 throw new RuntimeException("Invalid requirements: " + requirements);
             }
-            index += config.getSnapshotLength();
             // Next element
             m = m.nextOrdered;
         }
-        return data;
+        return data.build();
     }
 
     /**
@@ -373,24 +496,46 @@ public class History {
      * @param metadata
      */
     private final void removeHistoryEntry(final MRUCacheEntryMetadata metadata) {
-        final int[] snapshot = nodeToSnapshot.remove(metadata.id);
+        final Snapshot snapshot = nodeToSnapshot.remove(metadata.id);
+        index.remove(metadata);
+        memoryUsed -= snapshot.getByteSize();
+        evictions++;
+        releaseSnapshot(snapshot);
+    }
+
+    /**
+     * Releases the references from a snapshot to the dictionaries.
+     *
+     * @param snapshot
+     */
+    private final void releaseSnapshot(final Snapshot snapshot) {
 
+        // Determine offset of references
+        final int offset;
         switch (requirements) {
         case ARXConfiguration.REQUIREMENT_COUNTER | ARXConfiguration.REQUIREMENT_SECONDARY_COUNTER | ARXConfiguration.REQUIREMENT_DISTRIBUTION:
-            for (int i = 0; i < snapshot.length; i += config.getSnapshotLength()) {
-                for (int j = i + 3; j < i + config.getSnapshotLength() - 1; j += 2) {
-                    dictionarySensValue.decrementRefCount(snapshot[j]);
-                    dictionarySensFreq.decrementRefCount(snapshot[j+1]);
-                }
-            }
+            offset = 3;
             break;
         // TODO: If we only need a distribution, we should get rid of the primary counter
         case ARXConfiguration.REQUIREMENT_COUNTER | ARXConfiguration.REQUIREMENT_DISTRIBUTION:
         case ARXConfiguration.REQUIREMENT_DISTRIBUTION:
-            for (int i = 0; i < snapshot.length; i += config.getSnapshotLength()) {
-                for (int j = i + 2; j < i + config.getSnapshotLength() - 1; j += 2) {
-                    dictionarySensValue.decrementRefCount(snapshot[j]);
-                    dictionarySensFreq.decrementRefCount(snapshot[j+1]);
+            offset = 2;
+            break;
+        default:
+            return;
+        }
+
+        // Decode and release
+        final int length = config.getSnapshotLength();
+        if (buffer == null) {
+            buffer = new int[Snapshot.BLOCK_SIZE * length];
+        }
+        for (int block = 0; block < snapshot.getNumberOfBlocks(); block++) {
+            final int entries = snapshot.decode(block, buffer);
+            for (int i = 0; i < entries * length; i += length) {
+                for (int j = i + offset; j < i + length - 1; j += 2) {
+                    dictionarySensValue.decrementRefCount(buffer[j]);
+                    dictionarySensFreq.decrementRefCount(buffer[j+1]);
                 }
             }
         }
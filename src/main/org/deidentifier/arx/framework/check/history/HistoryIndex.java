@@ -0,0 +1,154 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deidentifier.arx.framework.check.history;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An index over the entries of the history, which supports searching for the smallest
+ * snapshot of a predecessor of a given transformation. Entries are bucketed by level.
+ * For each bucket, lower bounds of the generalization levels and of the sizes of the
+ * snapshots are maintained, which are used to skip buckets that cannot contain a better
+ * result. Bounds are not tightened when entries are removed, which keeps them valid.
+ * 
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+class HistoryIndex {
+
+    /**
+     * A bucket of entries on the same level.
+     * 
+     * @author Fabian Prasser
+     * @author Florian Kohlmayer
+     */
+    private static class Bucket {
+
+        /** Entries */
+        private final List<MRUCacheEntryMetadata> entries = new ArrayList<MRUCacheEntryMetadata>();
+        /** Lower bounds of generalization levels */
+        private int[]                             minLevels;
+        /** Lower bound of snapshot sizes */
+        private int                               minSize;
+    }
+
+    /** Buckets, indexed by level. */
+    private final List<Bucket> buckets = new ArrayList<Bucket>();
+
+    /**
+     * Adds an entry.
+     * 
+     * @param metadata
+     */
+    public void add(MRUCacheEntryMetadata metadata) {
+
+        // Find bucket
+        while (buckets.size() <= metadata.level) {
+            buckets.add(new Bucket());
+        }
+        Bucket bucket = buckets.get(metadata.level);
+
+        // Update bounds
+        if (bucket.entries.isEmpty()) {
+            bucket.minLevels = metadata.transformation.clone();
+            bucket.minSize = metadata.size;
+        } else {
+            for (int i = 0; i < bucket.minLevels.length; i++) {
+                bucket.minLevels[i] = Math.min(bucket.minLevels[i], metadata.transformation[i]);
+            }
+            bucket.minSize = Math.min(bucket.minSize, metadata.size);
+        }
+
+        // Add
+        bucket.entries.add(metadata);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        buckets.clear();
+    }
+
+    /**
+     * Returns the entry with the smallest snapshot of all entries on a lower level than the given
+     * transformation which are predecessors of the transformation or null, if there is no such entry.
+     * Ties are resolved in favor of the least recently used entry.
+     * 
+     * @param transformation
+     * @param level
+     * @return
+     */
+    public MRUCacheEntryMetadata get(int[] transformation, int level) {
+
+        MRUCacheEntryMetadata result = null;
+        for (int i = 0, max = Math.min(level, buckets.size()); i < max; i++) {
+            Bucket bucket = buckets.get(i);
+
+            // Prune
+            if (bucket.entries.isEmpty() || (result != null && bucket.minSize > result.size) ||
+                !isPredecessor(bucket.minLevels, transformation)) {
+                continue;
+            }
+
+            // Search
+            for (MRUCacheEntryMetadata current : bucket.entries) {
+                if (result == null || current.size < result.size ||
+                    (current.size == result.size && current.stamp < result.stamp)) {
+                    if (isPredecessor(current.transformation, transformation)) {
+                        result = current;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes an entry.
+     * 
+     * @param metadata
+     */
+    public void remove(MRUCacheEntryMetadata metadata) {
+        if (metadata.level < buckets.size()) {
+            List<MRUCacheEntryMetadata> entries = buckets.get(metadata.level).entries;
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i) == metadata) {
+                    entries.remove(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the first transformation is a predecessor of or equal to the second transformation.
+     * 
+     * @param predecessor
+     * @param transformation
+     * @return
+     */
+    private boolean isPredecessor(int[] predecessor, int[] transformation) {
+        for (int i = 0; i < transformation.length; i++) {
+            if (predecessor[i] > transformation[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
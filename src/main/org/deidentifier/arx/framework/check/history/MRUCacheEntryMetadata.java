@@ -31,14 +31,20 @@ public class MRUCacheEntryMetadata {
     public final int   level;
     /** Id */
     public final long  id;
+    /** Number of entries in the snapshot */
+    public final int   size;
+    /** Time of last access, increasing from least to most recently used */
+    public long        stamp;
 
     /**
      * 
      * @param transformation
+     * @param size
      */
-    public MRUCacheEntryMetadata(Transformation transformation) {
+    public MRUCacheEntryMetadata(Transformation transformation, int size) {
         this.transformation = transformation.getGeneralization().clone();
         this.level = transformation.getLevel();
         this.id = transformation.getIdentifier();
+        this.size = size;
     }
 }
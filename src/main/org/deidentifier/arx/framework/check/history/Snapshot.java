@@ -0,0 +1,228 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.framework.check.history;
+
+import java.util.Arrays;
+
+/**
+ * A compressed snapshot of the equivalence classes of a transformation. Each entry consists
+ * of a fixed number of integers, i.e. the representative, the count, an optional secondary count and
+ * references to distributions. Entries are organized in blocks which can be decoded independently
+ * of each other. Within a block, representatives are delta-encoded and all values are stored as
+ * variable-length integers.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class Snapshot {
+
+    /**
+     * Builds a snapshot entry by entry.
+     *
+     * @author Fabian Prasser
+     * @author Florian Kohlmayer
+     */
+    public static class Builder {
+
+        /** The encoded data. */
+        private byte[] data;
+
+        /** The number of bytes written. */
+        private int    length;
+
+        /** The number of integers per entry. */
+        private final int entryLength;
+
+        /** The offsets of the blocks. */
+        private int[]  offsets;
+
+        /** The previous representative in the current block. */
+        private int    previous;
+
+        /** The number of entries. */
+        private int    size;
+
+        /**
+         * Creates a new builder.
+         *
+         * @param entryLength The number of integers per entry
+         * @param expectedSize The expected number of entries
+         */
+        public Builder(final int entryLength, final int expectedSize) {
+            this.entryLength = entryLength;
+            this.data = new byte[Math.max(16, expectedSize * (entryLength + 1))];
+            this.offsets = new int[expectedSize / BLOCK_SIZE + 1];
+        }
+
+        /**
+         * Adds a further value of the current entry.
+         *
+         * @param value
+         */
+        public void add(int value) {
+            ensureCapacity();
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        /**
+         * Returns the snapshot.
+         *
+         * @return
+         */
+        public Snapshot build() {
+            int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            return new Snapshot(Arrays.copyOf(data, length), Arrays.copyOf(offsets, blocks), size, entryLength);
+        }
+
+        /**
+         * Starts a new entry with the given representative.
+         *
+         * @param representative
+         */
+        public void start(final int representative) {
+            if (size % BLOCK_SIZE == 0) {
+                int block = size / BLOCK_SIZE;
+                if (block == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[block] = length;
+                previous = 0;
+            }
+            int delta = representative - previous;
+            add((delta << 1) ^ (delta >> 31));
+            previous = representative;
+            size++;
+        }
+
+        /**
+         * Makes sure that at least one further variable-length integer can be written.
+         */
+        private void ensureCapacity() {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+        }
+    }
+
+    /** The number of entries per block. */
+    public static final int BLOCK_SIZE = 1024;
+
+    /** The encoded data. */
+    private final byte[]    data;
+
+    /** The number of integers per entry. */
+    private final int       entryLength;
+
+    /** The offsets of the blocks. */
+    private final int[]     offsets;
+
+    /** The number of entries. */
+    private final int       size;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param data
+     * @param offsets
+     * @param size
+     * @param entryLength
+     */
+    private Snapshot(final byte[] data, final int[] offsets, final int size, final int entryLength) {
+        this.data = data;
+        this.offsets = offsets;
+        this.size = size;
+        this.entryLength = entryLength;
+    }
+
+    /**
+     * Decodes the given block into the given array, which must provide space for
+     * BLOCK_SIZE entries. Returns the number of entries decoded.
+     *
+     * @param block
+     * @param target
+     * @return
+     */
+    public int decode(final int block, final int[] target) {
+
+        final int entries = Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+        final int values = entries * entryLength;
+        int offset = offsets[block];
+        int previous = 0;
+
+        for (int i = 0; i < values; i++) {
+
+            // Decode variable-length integer
+            int value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = data[offset++];
+                value |= (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+
+            // Decode representative
+            if (i % entryLength == 0) {
+                previous += (value >>> 1) ^ -(value & 1);
+                value = previous;
+            }
+            target[i] = value;
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the approximate size of this snapshot in bytes.
+     *
+     * @return
+     */
+    public long getByteSize() {
+        return 32L + data.length + 4L * offsets.length;
+    }
+
+    /**
+     * Returns the number of integers per entry.
+     *
+     * @return
+     */
+    public int getEntryLength() {
+        return entryLength;
+    }
+
+    /**
+     * Returns the number of blocks.
+     *
+     * @return
+     */
+    public int getNumberOfBlocks() {
+        return offsets.length;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return
+     */
+    public int getSize() {
+        return size;
+    }
+}
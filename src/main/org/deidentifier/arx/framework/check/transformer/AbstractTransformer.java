@@ -25,6 +25,7 @@ import org.deidentifier.arx.framework.check.StateMachine.TransitionType;
 import org.deidentifier.arx.framework.check.distribution.IntArrayDictionary;
 import org.deidentifier.arx.framework.check.groupify.HashGroupifyEntry;
 import org.deidentifier.arx.framework.check.groupify.HashGroupify;
+import org.deidentifier.arx.framework.data.DataColumns;
 import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
 
 /**
@@ -35,6 +36,9 @@ import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
  */
 public abstract class AbstractTransformer implements Callable<HashGroupify> {
 
+    /** The number of rows which are decoded at once when processing all rows. */
+    private static final int BLOCK_SIZE = 256;
+
     /**
      * Implementation of the delegate for Requirements.COUNTER
      * @author Kohlmayer, Prasser
@@ -65,7 +69,8 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         
         @Override
         public final void callAll(final int[] outtuple, final int i) {
-            groupify.addFromBuffer(outtuple, otherData[i], i, 1, -1);
+            otherData.getRow(i, othertuple);
+            groupify.addFromBuffer(outtuple, othertuple, i, 1, -1);
         }
 
         @Override
@@ -77,8 +82,8 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         public final void callSnapshot(final int[] outtuple, final int[] snapshot, final int i) {
             
             // TODO: Improve!
-            int[][] values = new int[otherData[0].length][];
-            int[][] frequencies = new int[otherData[0].length][];
+            int[][] values = new int[otherData.getNumColumns()][];
+            int[][] frequencies = new int[otherData.getNumColumns()][];
             int index = 0;
             int offset = i + 2;
             int length = config.getSnapshotLength() - 1 - 2;
@@ -122,7 +127,8 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         
         @Override
         public final void callAll(final int[] outtuple, final int i) {
-            groupify.addFromBuffer(outtuple, otherData[i], i, 1, 1);
+            otherData.getRow(i, othertuple);
+            groupify.addFromBuffer(outtuple, othertuple, i, 1, 1);
         }
 
         @Override
@@ -134,8 +140,8 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         public final void callSnapshot(final int[] outtuple, final int[] snapshot, final int i) {
 
             // TODO: Improve!
-            int[][] values = new int[otherData[0].length][];
-            int[][] frequencies = new int[otherData[0].length][];
+            int[][] values = new int[otherData.getNumColumns()][];
+            int[][] frequencies = new int[otherData.getNumColumns()][];
             int index = 0;
             int offset = i + 3;
             int length = config.getSnapshotLength() - 1 - 3;
@@ -157,7 +163,8 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         
         @Override
         public final void callAll(final int[] outtuple, final int i) {
-            groupify.addFromBuffer(outtuple, otherData[i], i, 1, -1);
+            otherData.getRow(i, othertuple);
+            groupify.addFromBuffer(outtuple, othertuple, i, 1, -1);
         }
 
         @Override
@@ -169,8 +176,8 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         public final void callSnapshot(final int[] outtuple, final int[] snapshot, final int i) {
 
             // TODO: Improve!
-            int[][] values = new int[otherData[0].length][];
-            int[][] frequencies = new int[otherData[0].length][];
+            int[][] values = new int[otherData.getNumColumns()][];
+            int[][] frequencies = new int[otherData.getNumColumns()][];
             int index = 0;
             int offset = i + 2;
             int length = config.getSnapshotLength() - 1 - 2;
@@ -235,7 +242,7 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
     protected final ARXConfigurationInternal  config;
     
     /** The data. */
-    protected final int[][]                   data;
+    protected final DataColumns               data;
     
     /** The delegate. */
     protected final IGroupify                 delegate;
@@ -263,6 +270,10 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
                                               index8, index9, index10, index11, index12, index13, index14;
     /** The intuple. */
     protected int[]                           intuple;
+
+    /** The generalized columns of the current block. */
+    protected int[]                           column0, column1, column2, column3, column4, column5, column6, column7,
+                                              column8, column9, column10, column11, column12, column13, column14;
     
     /** The generalization hierarchies. */
     protected int[][][]                       map;
@@ -299,7 +310,19 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
     /** The outtuple. */
     protected int[]                           outtuple;
     /** The sensitive values. */
-    protected final int[][]                   otherData;
+    protected final DataColumns               otherData;
+    /** The tuple, into which rows of the sensitive values are decoded. */
+    protected final int[]                     othertuple;
+    /** The generalized rows of the current block, column by column. */
+    protected final int[][]                   block;
+    /** The generalization of the values of each column. */
+    private final int[][]                     levels;
+    /** The first row of the current block. */
+    private int                               blockStart;
+    /** The row after the last row of the current block. */
+    private int                               blockEnd;
+    /** The tuple, into which single rows of the data are decoded. */
+    private final int[]                       tuple;
     /** The snapshot. */
     protected int[]                           snapshot;
     
@@ -372,9 +395,9 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
      * @param dictionarySensFreq
      * @param config
      */
-    public AbstractTransformer(final int[][] data,
+    public AbstractTransformer(final DataColumns data,
                                final GeneralizationHierarchy[] hierarchies,
-                               final int[][] otherData,
+                               final DataColumns otherData,
                                final IntArrayDictionary dictionarySensValue,
                                final IntArrayDictionary dictionarySensFreq,
                                final ARXConfigurationInternal config) {
@@ -387,7 +410,11 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         this.ssStepWidth = config.getSnapshotLength();
 
         // Init arrays
-        this.dimensions = data[0].length;
+        this.dimensions = data.getNumColumns();
+        this.tuple = new int[dimensions];
+        this.othertuple = new int[otherData.getNumColumns()];
+        this.block = new int[dimensions][BLOCK_SIZE];
+        this.levels = new int[dimensions][];
         int arraySizes = 15;
         if (this.dimensions > arraySizes) {
             arraySizes = this.dimensions;
@@ -432,9 +459,21 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
     public HashGroupify call() {
         // clear local groupify
         groupify.stateClear();
+        return process();
+    }
+
+    /**
+     * Processes the current range and adds the results to the groupify operator,
+     * without clearing it first.
+     *
+     * @return the hash groupify
+     */
+    public HashGroupify process() {
 
         switch (transition) {
         case UNOPTIMIZED:
+            blockStart = 0;
+            blockEnd = 0;
             processAll();
             break;
         case ROLLUP:
@@ -500,6 +539,7 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
 
         int index = 0;
         for (int i = 0; i < dimensions; i++) {
+            levels[i] = hierarchies[i].getLevel(state[i]);
             if ((projection & (1L << i)) == 0) {
                 generalizationIndexArray[index] = state[i];
                 columnIndexArray[index] = i;
@@ -583,6 +623,23 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         idindex13 = columnMapArray[13];
         idindex14 = columnMapArray[14];
 
+        // Store values
+        column0 = block[columnIndexArray[0]];
+        column1 = block[columnIndexArray[1]];
+        column2 = block[columnIndexArray[2]];
+        column3 = block[columnIndexArray[3]];
+        column4 = block[columnIndexArray[4]];
+        column5 = block[columnIndexArray[5]];
+        column6 = block[columnIndexArray[6]];
+        column7 = block[columnIndexArray[7]];
+        column8 = block[columnIndexArray[8]];
+        column9 = block[columnIndexArray[9]];
+        column10 = block[columnIndexArray[10]];
+        column11 = block[columnIndexArray[11]];
+        column12 = block[columnIndexArray[12]];
+        column13 = block[columnIndexArray[13]];
+        column14 = block[columnIndexArray[14]];
+
     }
 
     /**
@@ -622,6 +679,36 @@ public abstract class AbstractTransformer implements Callable<HashGroupify> {
         outindex14 = outindices2[14];
     }
 
+    /**
+     * Decodes the given row of the data, for rows that are accessed in random order.
+     *
+     * @param row
+     * @return
+     */
+    protected final int[] getRow(final int row) {
+        data.getRow(row, tuple);
+        return tuple;
+    }
+
+    /**
+     * Generalizes the block containing the given row of the data column by column, if required, and
+     * returns the offset of the row in the block. The generalized values are provided in <code>block</code>
+     * and in <code>column0</code> to <code>column14</code>. Rows must be accessed in ascending order.
+     *
+     * @param row
+     * @return
+     */
+    protected final int getOffset(final int row) {
+        if (row >= blockEnd || row < blockStart) {
+            blockStart = row;
+            blockEnd = Math.min(row + BLOCK_SIZE, stopIndex);
+            for (int column = 0; column < dimensions; column++) {
+                data.getColumn(blockStart, blockEnd, column, levels[column], block[column]);
+            }
+        }
+        return row - blockStart;
+    }
+
     /**
      * Process complete input dataset.
      */
@@ -19,6 +19,7 @@ package org.deidentifier.arx.framework.check.transformer;
 
 import org.deidentifier.arx.ARXConfiguration.ARXConfigurationInternal;
 import org.deidentifier.arx.framework.check.distribution.IntArrayDictionary;
+import org.deidentifier.arx.framework.data.DataColumns;
 import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
 
 /**
@@ -39,9 +40,9 @@ public class Transformer01 extends AbstractTransformer {
      * @param dictionarySensFreq
      * @param config
      */
-    public Transformer01(final int[][] data,
+    public Transformer01(final DataColumns data,
                          final GeneralizationHierarchy[] hierarchies,
-                         final int[][] otherValues,
+                         final DataColumns otherValues,
                          final IntArrayDictionary dictionarySensValue,
                          final IntArrayDictionary dictionarySensFreq,
                          final ARXConfigurationInternal config) {
@@ -59,9 +60,9 @@ public class Transformer01 extends AbstractTransformer {
         for (int i = startIndex; i < stopIndex; i++) {
 
             // Transform
-            intuple = data[i];
+            final int offset = getOffset(i);
             outtuple = buffer[i];
-            outtuple[outindex0] = idindex0[intuple[index0]][generalizationindex0];
+            outtuple[outindex0] = column0[offset];
 
             // Call
             delegate.callAll(outtuple, i);
@@ -79,7 +80,7 @@ public class Transformer01 extends AbstractTransformer {
 
         while (element != null) {
 
-            intuple = data[element.representative];
+            intuple = getRow(element.representative);
             outtuple = buffer[element.representative];
             outtuple[outindex0] = idindex0[intuple[index0]][generalizationindex0];
 
@@ -105,7 +106,7 @@ public class Transformer01 extends AbstractTransformer {
         stopIndex *= ssStepWidth;
 
         for (int i = startIndex; i < stopIndex; i += ssStepWidth) {
-            intuple = data[snapshot[i]];
+            intuple = getRow(snapshot[i]);
             outtuple = buffer[snapshot[i]];
             outtuple[outindex0] = idindex0[intuple[index0]][generalizationindex0];
 
@@ -19,6 +19,7 @@ package org.deidentifier.arx.framework.check.transformer;
 
 import org.deidentifier.arx.ARXConfiguration.ARXConfigurationInternal;
 import org.deidentifier.arx.framework.check.distribution.IntArrayDictionary;
+import org.deidentifier.arx.framework.data.DataColumns;
 import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
 
 /**
@@ -39,9 +40,9 @@ public class Transformer02 extends AbstractTransformer {
      * @param dictionarySensFreq
      * @param config
      */
-    public Transformer02(final int[][] data,
+    public Transformer02(final DataColumns data,
                          final GeneralizationHierarchy[] hierarchies,
-                         final int[][] otherValues,
+                         final DataColumns otherValues,
                          final IntArrayDictionary dictionarySensValue,
                          final IntArrayDictionary dictionarySensFreq,
                          final ARXConfigurationInternal config) {
@@ -57,10 +58,10 @@ public class Transformer02 extends AbstractTransformer {
     @Override
     protected void processAll() {
         for (int i = startIndex; i < stopIndex; i++) {
-            intuple = data[i];
+            final int offset = getOffset(i);
             outtuple = buffer[i];
-            outtuple[outindex0] = idindex0[intuple[index0]][generalizationindex0];
-            outtuple[outindex1] = idindex1[intuple[index1]][generalizationindex1];
+            outtuple[outindex0] = column0[offset];
+            outtuple[outindex1] = column1[offset];
 
             // Call
             delegate.callAll(outtuple, i);
@@ -78,7 +79,7 @@ public class Transformer02 extends AbstractTransformer {
 
         while (element != null) {
 
-            intuple = data[element.representative];
+            intuple = getRow(element.representative);
             outtuple = buffer[element.representative];
             outtuple[outindex0] = idindex0[intuple[index0]][generalizationindex0];
             outtuple[outindex1] = idindex1[intuple[index1]][generalizationindex1];
@@ -104,7 +105,7 @@ public class Transformer02 extends AbstractTransformer {
         stopIndex *= ssStepWidth;
 
         for (int i = startIndex; i < stopIndex; i += ssStepWidth) {
-            intuple = data[snapshot[i]];
+            intuple = getRow(snapshot[i]);
             outtuple = buffer[snapshot[i]];
             outtuple[outindex0] = idindex0[intuple[index0]][generalizationindex0];
             outtuple[outindex1] = idindex1[intuple[index1]][generalizationindex1];
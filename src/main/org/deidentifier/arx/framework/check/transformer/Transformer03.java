@@ -19,6 +19,7 @@ package org.deidentifier.arx.framework.check.transformer;
 
 import org.deidentifier.arx.ARXConfiguration.ARXConfigurationInternal;
 import org.deidentifier.arx.framework.check.distribution.IntArrayDictionary;
+import org.deidentifier.arx.framework.data.DataColumns;
 import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
 
 /**
@@ -39,9 +40,9 @@ public class Transformer03 extends AbstractTransformer {
      * @param dictionarySensFreq
      * @param config
      */
-    public Transformer03(final int[][] data,
+    public Transformer03(final DataColumns data,
                          final GeneralizationHierarchy[] hierarchies,
-                         final int[][] otherValues,
+                         final DataColumns otherValues,
                          final IntArrayDictionary dictionarySensValue,
                          final IntArrayDictionary dictionarySensFreq,
                          final ARXConfigurationInternal config) {
@@ -57,11 +58,11 @@ public class Transformer03 extends AbstractTransformer {
     @Override
     protected void processAll() {
         for (int i = startIndex; i < stopIndex; i++) {
-            intuple = data[i];
+            final int offset = getOffset(i);
             outtuple = buffer[i];
-            outtuple[outindex0] = idindex0[intuple[index0]][generalizationindex0];
-            outtuple[outindex1] = idindex1[intuple[index1]][generalizationindex1];
-            outtuple[outindex2] = idindex2[intuple[index2]][generalizationindex2];
+            outtuple[outindex0] = column0[offset];
+            outtuple[outindex1] = column1[offset];
+            outtuple[outindex2] = column2[offset];
 
             // Call
             delegate.callAll(outtuple, i);
@@ -79,7 +80,7 @@ public class Transformer03 extends AbstractTransformer {
 
         while (element != null) {
 
-            intuple = data[element.representative];
+            intuple = getRow(element.representative);
             outtuple = buffer[element.representative];
             outtuple[outindex0] = idindex0[intuple[index0]][generalizationindex0];
             outtuple[outindex1] = idindex1[intuple[index1]][generalizationindex1];
@@ -106,7 +107,7 @@ public class Transformer03 extends AbstractTransformer {
         stopIndex *= ssStepWidth;
 
         for (int i = startIndex; i < stopIndex; i += ssStepWidth) {
-            intuple = data[snapshot[i]];
+            intuple = getRow(snapshot[i]);
             outtuple = buffer[snapshot[i]];
             outtuple[outindex0] = idindex0[intuple[index0]][generalizationindex0];
             outtuple[outindex1] = idindex1[intuple[index1]][generalizationindex1];
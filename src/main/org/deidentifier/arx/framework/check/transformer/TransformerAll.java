@@ -19,6 +19,7 @@ package org.deidentifier.arx.framework.check.transformer;
 
 import org.deidentifier.arx.ARXConfiguration.ARXConfigurationInternal;
 import org.deidentifier.arx.framework.check.distribution.IntArrayDictionary;
+import org.deidentifier.arx.framework.data.DataColumns;
 import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
 
 /**
@@ -39,9 +40,9 @@ public class TransformerAll extends AbstractTransformer {
      * @param dictionarySensFreq
      * @param config
      */
-    public TransformerAll(final int[][] data,
+    public TransformerAll(final DataColumns data,
                           final GeneralizationHierarchy[] hierarchies,
-                          final int[][] otherValues,
+                          final DataColumns otherValues,
                           final IntArrayDictionary dictionarySensValue,
                           final IntArrayDictionary dictionarySensFreq,
                           final ARXConfigurationInternal config) {
@@ -56,13 +57,11 @@ public class TransformerAll extends AbstractTransformer {
      */
     @Override
     protected void processAll() {
-        final int dimensions = data[0].length;
         for (int i = startIndex; i < stopIndex; i++) {
-            intuple = data[i];
+            final int offset = getOffset(i);
             outtuple = buffer[i];
             for (int d = 0; d < dimensions; d++) {
-                final int state = generalization[d];
-                outtuple[d] = map[d][intuple[d]][state];
+                outtuple[d] = block[d][offset];
             }
 
             // Call
@@ -80,7 +79,7 @@ public class TransformerAll extends AbstractTransformer {
     protected void processGroupify() {
         while (element != null) {
 
-            intuple = data[element.representative];
+            intuple = getRow(element.representative);
             outtuple = buffer[element.representative];
             for (int d = 0; d < dimensions; d++) {
                 final int state = generalization[d];
@@ -108,7 +107,7 @@ public class TransformerAll extends AbstractTransformer {
         stopIndex *= ssStepWidth;
 
         for (int i = startIndex; i < stopIndex; i += ssStepWidth) {
-            intuple = data[snapshot[i]];
+            intuple = getRow(snapshot[i]);
             outtuple = buffer[snapshot[i]];
             for (int d = 0; d < dimensions; d++) {
                 final int state = generalization[d];
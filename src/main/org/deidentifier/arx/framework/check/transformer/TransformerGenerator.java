@@ -0,0 +1,446 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.framework.check.transformer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.deidentifier.arx.ARXConfiguration.ARXConfigurationInternal;
+import org.deidentifier.arx.framework.check.distribution.IntArrayDictionary;
+import org.deidentifier.arx.framework.data.DataColumns;
+import org.deidentifier.arx.framework.data.GeneralizationHierarchy;
+
+/**
+ * Generates transformers for more than 15 columns at runtime. The generated classes are
+ * unrolled for a specific number of columns and call a specific groupify delegate, analogously
+ * to Transformer01 to Transformer15. Sources are compiled with the system Java compiler, which
+ * takes several seconds. Compilation is therefore performed asynchronously by a background thread,
+ * while callers continue to use the generic TransformerAll. If the compiler is not available, e.g.
+ * when running on a JRE, or compilation fails, TransformerAll remains in use. Generated classes are cached.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class TransformerGenerator {
+
+    /**
+     * A class loader for generated classes.
+     */
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        /** Byte code of the generated classes. */
+        private final Map<String, byte[]> classes;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param parent
+         * @param classes
+         */
+        private GeneratedClassLoader(ClassLoader parent, Map<String, byte[]> classes) {
+            super(parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] code = classes.get(name);
+            if (code == null) {
+                return super.findClass(name);
+            }
+            return defineClass(name, code, 0, code.length);
+        }
+    }
+
+    /**
+     * Collects the byte code emitted by the compiler in memory.
+     */
+    private static class GeneratedFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        /** Byte code of the generated classes. */
+        private final Map<String, ByteArrayOutputStream> classes = new HashMap<String, ByteArrayOutputStream>();
+
+        /**
+         * Creates a new instance.
+         *
+         * @param manager
+         */
+        private GeneratedFileManager(JavaFileManager manager) {
+            super(manager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location,
+                                                   final String name,
+                                                   Kind kind,
+                                                   FileObject sibling) throws IOException {
+            return new SimpleJavaFileObject(URI.create("memory:///" + name.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                    classes.put(name, stream);
+                    return stream;
+                }
+            };
+        }
+
+        /**
+         * Returns the byte code of the generated classes.
+         *
+         * @return
+         */
+        private Map<String, byte[]> getClasses() {
+            Map<String, byte[]> result = new HashMap<String, byte[]>();
+            for (Map.Entry<String, ByteArrayOutputStream> entry : classes.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().toByteArray());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The source of a generated class.
+     */
+    private static class GeneratedSource extends SimpleJavaFileObject {
+
+        /** The source code. */
+        private final String code;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param name
+         * @param code
+         */
+        private GeneratedSource(String name, String code) {
+            super(URI.create("string:///" + name.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    /** Minimal number of columns for which transformers are generated. */
+    public static final int                                                MIN_COLUMNS = 16;
+
+    /** The package of the generated classes. */
+    private static final String                                            PACKAGE     = TransformerGenerator.class.getPackage().getName();
+
+    /** Cached classes, by name. A value of null indicates that compilation has failed. */
+    private static final Map<String, Class<? extends AbstractTransformer>> CACHE       = new HashMap<String, Class<? extends AbstractTransformer>>();
+
+    /** The thread compiling classes. It is terminated when idle. */
+    private static final ThreadPoolExecutor                                COMPILER    = new ThreadPoolExecutor(0, 1,
+                                                                                                                60L, TimeUnit.SECONDS,
+                                                                                                                new LinkedBlockingQueue<Runnable>(),
+                                                                                                                new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ARX transformer compiler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Generates the classes of transformers for the given range of column counts, which use the groupify
+     * delegate of the given prototype, in the background. The classes are returned in the order of
+     * the column counts. The result of the future is null if the classes cannot be generated.
+     *
+     * @param prototype
+     * @param minColumns Inclusive
+     * @param maxColumns Inclusive
+     * @return
+     */
+    public static Future<List<Class<? extends AbstractTransformer>>> compile(AbstractTransformer prototype,
+                                                                             final int minColumns,
+                                                                             final int maxColumns) {
+        final Class<?> delegate = prototype.delegate.getClass();
+        return COMPILER.submit(new Callable<List<Class<? extends AbstractTransformer>>>() {
+            @Override
+            public List<Class<? extends AbstractTransformer>> call() {
+                return getClasses(delegate, minColumns, maxColumns);
+            }
+        });
+    }
+
+    /**
+     * Creates instances of the given generated classes, which use the data, configuration
+     * and groupify delegate of the given prototype. Returns null if they cannot be instantiated.
+     *
+     * @param prototype
+     * @param classes
+     * @return An array with an instance of each class, or null
+     */
+    public static AbstractTransformer[] createTransformers(AbstractTransformer prototype,
+                                                           List<Class<? extends AbstractTransformer>> classes) {
+
+        // Instantiate
+        AbstractTransformer[] result = new AbstractTransformer[classes.size()];
+        try {
+            for (int i = 0; i < result.length; i++) {
+                Constructor<? extends AbstractTransformer> constructor = classes.get(i).getConstructor(DataColumns.class,
+                                                                                                       GeneralizationHierarchy[].class,
+                                                                                                       DataColumns.class,
+                                                                                                       IntArrayDictionary.class,
+                                                                                                       IntArrayDictionary.class,
+                                                                                                       ARXConfigurationInternal.class);
+                result[i] = constructor.newInstance(prototype.data,
+                                                    prototype.hierarchies,
+                                                    prototype.otherData,
+                                                    prototype.dictionarySensValue,
+                                                    prototype.dictionarySensFreq,
+                                                    prototype.config);
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the source code of a transformer for the given number of columns and delegate.
+     *
+     * @param name
+     * @param columns
+     * @param delegate
+     * @return
+     */
+    static String getSource(String name, int columns, Class<?> delegate) {
+
+        // Prepare
+        StringBuilder fields = new StringBuilder();
+        StringBuilder init = new StringBuilder();
+        StringBuilder transform = new StringBuilder();
+        StringBuilder transformAll = new StringBuilder();
+        for (int i = 0; i < columns; i++) {
+            fields.append("    private int[][] idindex_").append(i).append(";\n");
+            fields.append("    private int index_").append(i).append(";\n");
+            fields.append("    private int generalizationindex_").append(i).append(";\n");
+            fields.append("    private int[] column_").append(i).append(";\n");
+            init.append("        idindex_").append(i).append(" = columnMapArray[").append(i).append("];\n");
+            init.append("        index_").append(i).append(" = columnIndexArray[").append(i).append("];\n");
+            init.append("        generalizationindex_").append(i).append(" = generalizationIndexArray[").append(i).append("];\n");
+            init.append("        column_").append(i).append(" = block[columnIndexArray[").append(i).append("]];\n");
+            transform.append("            outtuple[index_").append(i).append("] = idindex_").append(i)
+                     .append("[intuple[index_").append(i).append("]][generalizationindex_").append(i).append("];\n");
+            transformAll.append("            outtuple[index_").append(i).append("] = column_").append(i).append("[offset];\n");
+        }
+        String type = delegate.getSimpleName();
+
+        // Generate
+        StringBuilder code = new StringBuilder();
+        code.append("package ").append(PACKAGE).append(";\n");
+        code.append("public final class ").append(name).append(" extends AbstractTransformer {\n");
+        code.append(fields);
+        code.append("    public ").append(name).append("(final org.deidentifier.arx.framework.data.DataColumns data, final org.deidentifier.arx.framework.data.GeneralizationHierarchy[] hierarchies, final org.deidentifier.arx.framework.data.DataColumns otherValues, final org.deidentifier.arx.framework.check.distribution.IntArrayDictionary dictionarySensValue, final org.deidentifier.arx.framework.check.distribution.IntArrayDictionary dictionarySensFreq, final org.deidentifier.arx.ARXConfiguration.ARXConfigurationInternal config) {\n");
+        code.append("        super(data, hierarchies, otherValues, dictionarySensValue, dictionarySensFreq, config);\n");
+        code.append("    }\n");
+        code.append("    @Override\n");
+        code.append("    public void init(final long projection, final int[] state, final org.deidentifier.arx.framework.check.groupify.HashGroupify groupify, final org.deidentifier.arx.framework.check.groupify.HashGroupify source, final int[] snapshot, final org.deidentifier.arx.framework.check.StateMachine.TransitionType transition, final int startIndex, final int stopIndex, final int bucket, final org.deidentifier.arx.framework.check.groupify.HashGroupifyEntry element, final int[][] buffer) {\n");
+        code.append("        super.init(projection, state, groupify, source, snapshot, transition, startIndex, stopIndex, bucket, element, buffer);\n");
+        code.append(init);
+        code.append("    }\n");
+        code.append("    @Override\n");
+        code.append("    protected void processAll() {\n");
+        code.append("        final ").append(type).append(" delegate = (").append(type).append(") this.delegate;\n");
+        code.append("        for (int i = startIndex; i < stopIndex; i++) {\n");
+        code.append("            final int offset = getOffset(i);\n");
+        code.append("            outtuple = buffer[i];\n");
+        code.append(transformAll);
+        code.append("            delegate.callAll(outtuple, i);\n");
+        code.append("        }\n");
+        code.append("    }\n");
+        code.append("    @Override\n");
+        code.append("    protected void processGroupify() {\n");
+        code.append("        final ").append(type).append(" delegate = (").append(type).append(") this.delegate;\n");
+        code.append("        while (element != null) {\n");
+        code.append("            intuple = getRow(element.representative);\n");
+        code.append("            outtuple = buffer[element.representative];\n");
+        code.append(transform);
+        code.append("            delegate.callGroupify(outtuple, element);\n");
+        code.append("            element = element.nextOrdered;\n");
+        code.append("        }\n");
+        code.append("    }\n");
+        code.append("    @Override\n");
+        code.append("    protected void processSnapshot() {\n");
+        code.append("        final ").append(type).append(" delegate = (").append(type).append(") this.delegate;\n");
+        code.append("        startIndex *= ssStepWidth;\n");
+        code.append("        stopIndex *= ssStepWidth;\n");
+        code.append("        for (int i = startIndex; i < stopIndex; i += ssStepWidth) {\n");
+        code.append("            intuple = getRow(snapshot[i]);\n");
+        code.append("            outtuple = buffer[snapshot[i]];\n");
+        code.append(transform);
+        code.append("            delegate.callSnapshot(outtuple, snapshot, i);\n");
+        code.append("        }\n");
+        code.append("    }\n");
+        code.append("}\n");
+        return code.toString();
+    }
+
+    /**
+     * Compiles the given sources and loads the resulting classes. Returns null if compilation fails.
+     *
+     * @param sources
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Class<? extends AbstractTransformer>> compile(Map<String, String> sources) {
+
+        // Check
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return null;
+        }
+
+        // Prepare
+        List<JavaFileObject> units = new ArrayList<JavaFileObject>();
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            units.add(new GeneratedSource(PACKAGE + "." + entry.getKey(), entry.getValue()));
+        }
+        List<String> options = Arrays.asList("-g:none", "-nowarn", "-classpath", getClassPath());
+
+        // Compile
+        GeneratedFileManager manager = new GeneratedFileManager(compiler.getStandardFileManager(null, null, null));
+        try {
+            Boolean success = compiler.getTask(null, manager, null, options, null, units).call();
+            if (success == null || !success) {
+                return null;
+            }
+        } catch (RuntimeException e) {
+            return null;
+        } finally {
+            try {
+                manager.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+
+        // Load
+        ClassLoader loader = new GeneratedClassLoader(AbstractTransformer.class.getClassLoader(), manager.getClasses());
+        Map<String, Class<? extends AbstractTransformer>> result = new HashMap<String, Class<? extends AbstractTransformer>>();
+        try {
+            for (String name : sources.keySet()) {
+                result.put(name, (Class<? extends AbstractTransformer>) loader.loadClass(PACKAGE + "." + name));
+            }
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the generated classes for the given delegate and range of column counts.
+     * Returns null if the classes cannot be generated.
+     *
+     * @param delegate
+     * @param minColumns Inclusive
+     * @param maxColumns Inclusive
+     * @return
+     */
+    private static synchronized List<Class<? extends AbstractTransformer>> getClasses(Class<?> delegate,
+                                                                                      int minColumns,
+                                                                                      int maxColumns) {
+
+        // Collect missing classes
+        Map<String, String> sources = new HashMap<String, String>();
+        for (int columns = minColumns; columns <= maxColumns; columns++) {
+            String name = getName(columns, delegate);
+            if (!CACHE.containsKey(name)) {
+                sources.put(name, getSource(name, columns, delegate));
+            }
+        }
+
+        // Compile them in one batch
+        if (!sources.isEmpty()) {
+            Map<String, Class<? extends AbstractTransformer>> compiled = compile(sources);
+            for (String name : sources.keySet()) {
+                CACHE.put(name, compiled == null ? null : compiled.get(name));
+            }
+        }
+
+        // Collect
+        List<Class<? extends AbstractTransformer>> result = new ArrayList<Class<? extends AbstractTransformer>>();
+        for (int columns = minColumns; columns <= maxColumns; columns++) {
+            Class<? extends AbstractTransformer> clazz = CACHE.get(getName(columns, delegate));
+            if (clazz == null) {
+                return null;
+            }
+            result.add(clazz);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the class path for compiling generated classes, which includes the location of this class.
+     *
+     * @return
+     */
+    private static String getClassPath() {
+        StringBuilder path = new StringBuilder(System.getProperty("java.class.path", ""));
+        try {
+            CodeSource source = AbstractTransformer.class.getProtectionDomain().getCodeSource();
+            if (source != null && source.getLocation() != null) {
+                path.append(File.pathSeparator).append(new File(source.getLocation().toURI()).getPath());
+            }
+        } catch (Exception e) {
+            // Ignore
+        }
+        return path.toString();
+    }
+
+    /**
+     * Returns the name of the generated class for the given number of columns and delegate.
+     *
+     * @param columns
+     * @param delegate
+     * @return
+     */
+    private static String getName(int columns, Class<?> delegate) {
+        return "TransformerGenerated" + columns + delegate.getSimpleName();
+    }
+}
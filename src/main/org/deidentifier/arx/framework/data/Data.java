@@ -26,7 +26,9 @@ import org.deidentifier.arx.RowSet;
 /**
  * Encodes a data object consisting of a dictionary encoded two-dimensional
  * array, an associated dictionary, a header and a mapping to the columns in the
- * input data set.
+ * input data set. The array is either stored row by row, which is used for buffers
+ * that are written during anonymization, or packed column by column, which is used
+ * for the input data.
  *
  * @author Fabian Prasser
  * @author Florian Kohlmayer
@@ -42,6 +44,9 @@ public class Data implements Cloneable{
     /** Row, Dimension. */
     private final int[][]    data;
 
+    /** The packed columns. */
+    private final DataColumns columns;
+
     /** The header. */
     private final String[]   header;
 
@@ -68,6 +73,30 @@ public class Data implements Cloneable{
                 final int[] map,
                 final Dictionary dictionary) {
         this.data = data;
+        this.columns = null;
+        this.header = header;
+        this.dictionary = dictionary;
+        this.map = map;
+    }
+
+    /**
+     * Creates a new data object, which is stored column by column.
+     * 
+     * @param columns
+     *            The packed columns
+     * @param header
+     *            The header
+     * @param map
+     *            The map
+     * @param dictionary
+     *            The dictionary
+     */
+    public Data(final DataColumns columns,
+                final String[] header,
+                final int[] map,
+                final Dictionary dictionary) {
+        this.data = null;
+        this.columns = columns;
         this.header = header;
         this.dictionary = dictionary;
         this.map = map;
@@ -75,6 +104,9 @@ public class Data implements Cloneable{
 
     @Override
     public Data clone(){
+        if (columns != null) {
+            return new Data(columns.clone(), header, map, dictionary);
+        }
         int[][] newData = new int[data.length][];
         for (int i=0; i < data.length; i++){
             newData[i] = Arrays.copyOf(data[i], header.length);
@@ -82,21 +114,46 @@ public class Data implements Cloneable{
         return new Data(newData, header, map, dictionary);
     }
 
+    /**
+     * Returns the code at the given position.
+     *
+     * @param row
+     * @param column
+     * @return
+     */
+    public int get(final int row, final int column) {
+        return columns != null ? columns.get(row, column) : data[row][column];
+    }
+
     /**
      * Returns the data array.
      *
      * @return
      */
     public int[][] getArray() {
+        checkRows();
         return data;
     }
 
+    /**
+     * Returns the packed columns.
+     *
+     * @return
+     */
+    public DataColumns getColumns() {
+        if (columns == null) {
+            throw new IllegalStateException("Data is stored row by row");
+        }
+        return columns;
+    }
+
     /**
      * Returns the data.
      *
      * @return
      */
     public int[][] getData() {
+        checkRows();
         return data;
     }
 
@@ -106,7 +163,7 @@ public class Data implements Cloneable{
      * @return the data length
      */
     public int getDataLength() {
-        return data.length;
+        return columns != null ? columns.getNumRows() : data.length;
     }
 
     /**
@@ -142,6 +199,9 @@ public class Data implements Cloneable{
      * @return
      */
     public Data getSubsetInstance(RowSet rowset) {
+        if (columns != null) {
+            return new Data(columns.getSubsetInstance(rowset), header, map, dictionary);
+        }
         int[][] array = null;
         if (this.data != null) {
             List<int[]> newdata = new ArrayList<int[]>();
@@ -157,4 +217,13 @@ public class Data implements Cloneable{
         }
         return new Data(array, header, map, dictionary);
     }
+
+    /**
+     * Checks whether the data is stored row by row.
+     */
+    private void checkRows() {
+        if (columns != null) {
+            throw new IllegalStateException("Data is stored column by column");
+        }
+    }
 }
@@ -0,0 +1,305 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.deidentifier.arx.framework.data;
+
+import org.deidentifier.arx.RowSet;
+
+/**
+ * Stores a dictionary encoded two-dimensional array column by column. Each column is stored in a
+ * contiguous array of the smallest primitive type which can represent all codes of the column,
+ * i.e. with 8, 16 or 32 bits per code. Codes can thus be read without decoding bits, and different
+ * rows can be written concurrently.
+ * 
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class DataColumns {
+
+    /**
+     * Returns the number of bits used for the codes of columns with the given domain sizes.
+     *
+     * @param domainSizes
+     * @return
+     */
+    private static int[] getBits(int[] domainSizes) {
+        final int[] bits = new int[domainSizes.length];
+        for (int column = 0; column < bits.length; column++) {
+            if (domainSizes[column] <= (1 << 8)) {
+                bits[column] = 8;
+            } else if (domainSizes[column] <= (1 << 16)) {
+                bits[column] = 16;
+            } else {
+                bits[column] = 32;
+            }
+        }
+        return bits;
+    }
+
+    /** The columns with 8 bits per code. */
+    private final byte[][] columns8;
+
+    /** The columns with 16 bits per code. */
+    private final char[][] columns16;
+
+    /** The columns with 32 bits per code. */
+    private final int[][]  columns32;
+
+    /** The number of bits per code, per column. */
+    private final int[]    bits;
+
+    /** The number of rows. */
+    private final int      rows;
+
+    /**
+     * Creates a new instance for the given number of rows, in which all codes are zero.
+     *
+     * @param rows
+     * @param domainSizes The number of distinct codes per column
+     */
+    public DataColumns(final int rows, final int[] domainSizes) {
+        this(getBits(domainSizes), rows);
+    }
+
+    /**
+     * Creates a new instance for the given number of rows and bits per code, in which all codes are zero.
+     *
+     * @param bits
+     * @param rows
+     */
+    private DataColumns(final int[] bits, final int rows) {
+        this.rows = rows;
+        this.bits = bits;
+        this.columns8 = new byte[bits.length][];
+        this.columns16 = new char[bits.length][];
+        this.columns32 = new int[bits.length][];
+        for (int column = 0; column < bits.length; column++) {
+            switch (bits[column]) {
+            case 8:
+                this.columns8[column] = new byte[rows];
+                break;
+            case 16:
+                this.columns16[column] = new char[rows];
+                break;
+            default:
+                this.columns32[column] = new int[rows];
+                break;
+            }
+        }
+    }
+
+    /**
+     * Creates a new instance from the given columns.
+     *
+     * @param columns8
+     * @param columns16
+     * @param columns32
+     * @param bits
+     * @param rows
+     */
+    private DataColumns(final byte[][] columns8,
+                        final char[][] columns16,
+                        final int[][] columns32,
+                        final int[] bits,
+                        final int rows) {
+        this.columns8 = columns8;
+        this.columns16 = columns16;
+        this.columns32 = columns32;
+        this.bits = bits;
+        this.rows = rows;
+    }
+
+    @Override
+    public DataColumns clone() {
+        final DataColumns result = new DataColumns(new byte[bits.length][], new char[bits.length][], new int[bits.length][], bits, rows);
+        for (int column = 0; column < bits.length; column++) {
+            switch (bits[column]) {
+            case 8:
+                result.columns8[column] = columns8[column].clone();
+                break;
+            case 16:
+                result.columns16[column] = columns16[column].clone();
+                break;
+            default:
+                result.columns32[column] = columns32[column].clone();
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the code at the given position.
+     *
+     * @param row
+     * @param column
+     * @return
+     */
+    public int get(final int row, final int column) {
+        switch (bits[column]) {
+        case 8:
+            return columns8[column][row] & 0xff;
+        case 16:
+            return columns16[column][row];
+        default:
+            return columns32[column][row];
+        }
+    }
+
+    /**
+     * Returns the number of bits used per code in the given column.
+     *
+     * @param column
+     * @return
+     */
+    public int getBitsPerValue(final int column) {
+        return bits[column];
+    }
+
+    /**
+     * Maps the codes of the given column in the given range of rows with the given array. The
+     * result for row <code>from + i</code> is stored at index <code>i</code> of the target.
+     *
+     * @param from The first row
+     * @param to The row after the last row
+     * @param column
+     * @param map Code->result
+     * @param target
+     */
+    public void getColumn(final int from, final int to, final int column, final int[] map, final int[] target) {
+        switch (bits[column]) {
+        case 8:
+            final byte[] column8 = columns8[column];
+            for (int row = from; row < to; row++) {
+                target[row - from] = map[column8[row] & 0xff];
+            }
+            break;
+        case 16:
+            final char[] column16 = columns16[column];
+            for (int row = from; row < to; row++) {
+                target[row - from] = map[column16[row]];
+            }
+            break;
+        default:
+            final int[] column32 = columns32[column];
+            for (int row = from; row < to; row++) {
+                target[row - from] = map[column32[row]];
+            }
+            break;
+        }
+    }
+
+    /**
+     * Returns the number of bytes occupied by the columns.
+     *
+     * @return
+     */
+    public long getByteSize() {
+        long size = 0;
+        for (int column = 0; column < bits.length; column++) {
+            size += (long) rows * (bits[column] / 8);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return
+     */
+    public int getNumColumns() {
+        return bits.length;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return
+     */
+    public int getNumRows() {
+        return rows;
+    }
+
+    /**
+     * Decodes the given row into the given array.
+     *
+     * @param row
+     * @param target
+     */
+    public void getRow(final int row, final int[] target) {
+        for (int column = 0; column < bits.length; column++) {
+            target[column] = get(row, column);
+        }
+    }
+
+    /**
+     * Returns a new instance containing the rows in the given subset.
+     *
+     * @param rowset
+     * @return
+     */
+    public DataColumns getSubsetInstance(final RowSet rowset) {
+        final DataColumns result = new DataColumns(bits, rowset.size());
+        for (int column = 0; column < bits.length; column++) {
+            int index = 0;
+            for (int row = 0; row < rows; row++) {
+                if (rowset.contains(row)) {
+                    result.set(index++, column, get(row, column));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the code at the given position.
+     *
+     * @param row
+     * @param column
+     * @param value
+     */
+    public void set(final int row, final int column, final int value) {
+        final int bits = this.bits[column];
+        if (value < 0 || (bits < 32 && value >= (1 << bits))) {
+            throw new IllegalArgumentException("Code (" + value + ") out of range for column (" + column + ")");
+        }
+        switch (bits) {
+        case 8:
+            columns8[column][row] = (byte) value;
+            break;
+        case 16:
+            columns16[column][row] = (char) value;
+            break;
+        default:
+            columns32[column][row] = value;
+            break;
+        }
+    }
+
+    /**
+     * Swaps the given rows.
+     *
+     * @param row1
+     * @param row2
+     */
+    public void swap(final int row1, final int row2) {
+        for (int column = 0; column < bits.length; column++) {
+            final int value = get(row1, column);
+            set(row1, column, get(row2, column));
+            set(row2, column, value);
+        }
+    }
+}
@@ -20,8 +20,18 @@ package org.deidentifier.arx.framework.data;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.deidentifier.arx.DataDefinition;
 import org.deidentifier.arx.DataGeneralizationScheme;
@@ -151,6 +161,29 @@ public class DataManager {
                        final DataDefinition definition,
                        final Set<PrivacyCriterion> criteria,
                        final Map<String, DistributionAggregateFunction> functions) {
+        this(header, data, dictionary, definition, criteria, functions, 1);
+    }
+
+    /**
+     * Creates a new data manager from pre-encoded data. If more than one thread is specified,
+     * the dictionaries and hierarchies of the attributes are built concurrently, one attribute
+     * per task, and the records are encoded in ranges.
+     * 
+     * @param header
+     * @param data
+     * @param dictionary
+     * @param definition
+     * @param criteria
+     * @param function
+     * @param threads
+     */
+    public DataManager(final String[] header,
+                       final int[][] data,
+                       final Dictionary dictionary,
+                       final DataDefinition definition,
+                       final Set<PrivacyCriterion> criteria,
+                       final Map<String, DistributionAggregateFunction> functions,
+                       final int threads) {
 
         // Store columns for reordering the output
         this.header = header;
@@ -190,61 +223,101 @@ public class DataManager {
         this.microaggregationHeader = new String[attributesMicroaggregated.size()];
         this.dataTypesSensitive = new HashMap<>();
 
-        for (final String column : header) {
-            final int idx = counter * 2;
-            if (attributesGeneralized.contains(column)) {
-                map[idx] = AttributeTypeInternal.QUASI_IDENTIFYING_GENERALIZED;
-                map[idx + 1] = indexGeneralized;
-                mapGeneralized[indexGeneralized] = counter;
-                dictionaryGeneralized.registerAll(indexGeneralized, dictionary, counter);
-                headerGH[indexGeneralized] = header[counter];
-                indexGeneralized++;
-            } else if (attributesMicroaggregated.contains(column)) {
-                map[idx] = AttributeTypeInternal.QUASI_IDENTIFYING_MICROAGGREGATED;
-                map[idx + 1] = indexMicroaggregated;
-                mapAnalyzed[indexMicroaggregated] = counter;
-                dictionaryAnalyzed.registerAll(indexMicroaggregated, dictionary, counter);
-                headerDI[indexMicroaggregated] = header[counter];
-                indexMicroaggregated++;
-                microaggregationMap[indexAnalyzed] = counter;
-                microaggregationHeader[indexAnalyzed] = header[counter];
-                indexAnalyzed++;
-            } else if (attributesInsensitive.contains(column)) {
-                map[idx] = AttributeTypeInternal.INSENSITIVE;
-                map[idx + 1] = indexStatic;
-                mapStatic[indexStatic] = counter;
-                dictionaryStatic.registerAll(indexStatic, dictionary, counter);
-                headerIS[indexStatic] = header[counter];
-                indexStatic++;
-            } else if (attributesSensitive.contains(column)) {
-                map[idx] = AttributeTypeInternal.SENSITIVE;
-                map[idx + 1] = indexSensitive;
-                mapAnalyzed[indexSensitive] = counter;
-                dictionaryAnalyzed.registerAll(indexSensitive, dictionary, counter);
-                headerDI[indexSensitive] = header[counter];
-                indexSensitive++;
-                dataTypesSensitive.put(column, definition.getDataType(column));
-            } else {
-                // TODO: CHECK: Changed default? - now all undefined attributes
-                // are identifying! Previously they were considered sensitive?
-                map[idx] = AttributeTypeInternal.IDENTIFYING;
-                map[idx + 1] = -1;
+        // Build map with hierarchies for sensitive attributes
+        Map<String, String[][]> sensitiveHierarchies = new HashMap<String, String[][]>();
+        for (PrivacyCriterion c : criteria) {
+            if (c instanceof HierarchicalDistanceTCloseness) {
+                HierarchicalDistanceTCloseness t = (HierarchicalDistanceTCloseness) c;
+                sensitiveHierarchies.put(t.getAttribute(), t.getHierarchy().getHierarchy());
+            }
+        }
+
+        // Build map with hierarchies for microaggregated attributes
+        Map<String, String[][]> maHierarchies = new HashMap<String, String[][]>();
+        for (String attribute : functions.keySet()) {
+            if (functions.get(attribute) instanceof DistributionAggregateFunctionGeneralization) {
+                maHierarchies.put(attribute, definition.getHierarchy(attribute));
             }
-            counter++;
         }
 
-        // encode Data
-        final Data[] ddata = encode(data,
-                                    map,
-                                    mapGeneralized,
-                                    mapAnalyzed,
-                                    mapStatic,
-                                    dictionaryGeneralized,
-                                    dictionaryAnalyzed,
-                                    dictionaryStatic,
-                                    headerGH,
-                                    headerDI,
-                                    headerIS);
+        // Tasks building the dictionary and the hierarchy of each attribute
+        final ExecutorService pool = threads > 1 ? getPool(threads) : null;
+        final GeneralizationHierarchy[] hierarchies = new GeneralizationHierarchy[header.length];
+        final Data[] ddata;
+        try {
+            final List<Future<GeneralizationHierarchy>> tasks = new ArrayList<Future<GeneralizationHierarchy>>(header.length);
+            for (final String column : header) {
+                final int idx = counter * 2;
+                Future<GeneralizationHierarchy> task = null;
+                if (attributesGeneralized.contains(column)) {
+                    map[idx] = AttributeTypeInternal.QUASI_IDENTIFYING_GENERALIZED;
+                    map[idx + 1] = indexGeneralized;
+                    mapGeneralized[indexGeneralized] = counter;
+                    task = encode(pool, column, definition.getHierarchy(column), true, dictionaryGeneralized, indexGeneralized, dictionary, counter);
+                    headerGH[indexGeneralized] = header[counter];
+                    indexGeneralized++;
+                } else if (attributesMicroaggregated.contains(column)) {
+                    map[idx] = AttributeTypeInternal.QUASI_IDENTIFYING_MICROAGGREGATED;
+                    map[idx + 1] = indexMicroaggregated;
+                    mapAnalyzed[indexMicroaggregated] = counter;
+                    task = encode(pool, column, maHierarchies.get(column), false, dictionaryAnalyzed, indexMicroaggregated, dictionary, counter);
+                    headerDI[indexMicroaggregated] = header[counter];
+                    indexMicroaggregated++;
+                    microaggregationMap[indexAnalyzed] = counter;
+                    microaggregationHeader[indexAnalyzed] = header[counter];
+                    indexAnalyzed++;
+                } else if (attributesInsensitive.contains(column)) {
+                    map[idx] = AttributeTypeInternal.INSENSITIVE;
+                    map[idx + 1] = indexStatic;
+                    mapStatic[indexStatic] = counter;
+                    task = encode(pool, column, null, false, dictionaryStatic, indexStatic, dictionary, counter);
+                    headerIS[indexStatic] = header[counter];
+                    indexStatic++;
+                } else if (attributesSensitive.contains(column)) {
+                    map[idx] = AttributeTypeInternal.SENSITIVE;
+                    map[idx + 1] = indexSensitive;
+                    mapAnalyzed[indexSensitive] = counter;
+                    task = encode(pool, column, sensitiveHierarchies.get(column), false, dictionaryAnalyzed, indexSensitive, dictionary, counter);
+                    headerDI[indexSensitive] = header[counter];
+                    indexSensitive++;
+                    dataTypesSensitive.put(column, definition.getDataType(column));
+                } else {
+                    // TODO: CHECK: Changed default? - now all undefined attributes
+                    // are identifying! Previously they were considered sensitive?
+                    map[idx] = AttributeTypeInternal.IDENTIFYING;
+                    map[idx + 1] = -1;
+                }
+                tasks.add(task);
+                counter++;
+            }
+
+            // encode Data
+            ddata = encode(pool,
+                                  threads,
+                                  data,
+                                  dictionary,
+                                  map,
+                                  mapGeneralized,
+                                  mapAnalyzed,
+                                  mapStatic,
+                                  dictionaryGeneralized,
+                                  dictionaryAnalyzed,
+                                  dictionaryStatic,
+                                  headerGH,
+                                  headerDI,
+                                  headerIS);
+
+            // Wait for all tasks
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i) != null) {
+                    hierarchies[i] = getResult(tasks.get(i));
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
         dataGeneralized = ddata[0];
         dataAnalyzed = ddata[1];
         dataStatic = ddata[2];
@@ -262,14 +335,7 @@ public class DataManager {
                 map[idx] == AttributeTypeInternal.QUASI_IDENTIFYING_GENERALIZED) {
                 final int dictionaryIndex = map[idx + 1];
                 final String name = header[i];
-                if (definition.getHierarchy(name) != null) {
-                    hierarchiesGeneralized[dictionaryIndex] = new GeneralizationHierarchy(name,
-                                                                                          definition.getHierarchy(name),
-                                                                                          dictionaryIndex,
-                                                                                          dictionaryGeneralized);
-                } else {
-                    throw new IllegalStateException("No hierarchy available for attribute (" + header[i] + ")");
-                }
+                hierarchiesGeneralized[dictionaryIndex] = hierarchies[i];
                 // Initialize hierarchy height and minimum / maximum
                 // generalization
                 hierarchiesHeights[dictionaryIndex] = hierarchiesGeneralized[dictionaryIndex].getArray()[0].length;
@@ -296,15 +362,6 @@ public class DataManager {
             }
         }
 
-        // Build map with hierarchies for sensitive attributes
-        Map<String, String[][]> sensitiveHierarchies = new HashMap<String, String[][]>();
-        for (PrivacyCriterion c : criteria) {
-            if (c instanceof HierarchicalDistanceTCloseness) {
-                HierarchicalDistanceTCloseness t = (HierarchicalDistanceTCloseness) c;
-                sensitiveHierarchies.put(t.getAttribute(), t.getHierarchy().getHierarchy());
-            }
-        }
-
         // Build generalization hierarchies for sensitive attributes
         hierarchiesSensitive = new HashMap<String, GeneralizationHierarchy>();
         indexesSensitive = new HashMap<String, Integer>();
@@ -314,13 +371,9 @@ public class DataManager {
             final int idx = i * 2;
             if (sensitiveHierarchies.containsKey(name) &&
                 map[idx] == AttributeTypeInternal.SENSITIVE) {
-                final int dictionaryIndex = map[idx + 1];
-                final String[][] hiers = sensitiveHierarchies.get(name);
-                if (hiers != null) {
-                    hierarchiesSensitive.put(name, new GeneralizationHierarchy(name,
-                                                                               hiers,
-                                                                               dictionaryIndex,
-                                                                               dictionaryAnalyzed));
+                final GeneralizationHierarchy hierarchy = hierarchies[i];
+                if (hierarchy != null) {
+                    hierarchiesSensitive.put(name, hierarchy);
                 }
             }
 
@@ -331,14 +384,6 @@ public class DataManager {
             }
         }
 
-        // Build map with hierarchies for microaggregated attributes
-        Map<String, String[][]> maHierarchies = new HashMap<String, String[][]>();
-        for (String attribute : functions.keySet()) {
-            if (functions.get(attribute) instanceof DistributionAggregateFunctionGeneralization) {
-                maHierarchies.put(attribute, definition.getHierarchy(attribute));
-            }
-        }
-
         // Build generalization hierarchies for microaggregated attributes
         Map<String, int[][]> hierarchiesMA = new HashMap<String, int[][]>();
         index = 0;
@@ -347,13 +392,9 @@ public class DataManager {
             final int idx = i * 2;
             if (maHierarchies.containsKey(name) &&
                 map[idx] == AttributeTypeInternal.QUASI_IDENTIFYING_MICROAGGREGATED) {
-                final int dictionaryIndex = map[idx + 1];
-                final String[][] hiers = maHierarchies.get(name);
-                if (hiers != null) {
-                    hierarchiesMA.put(name, new GeneralizationHierarchy(name,
-                                                                        hiers,
-                                                                        dictionaryIndex,
-                                                                        dictionaryAnalyzed).map);
+                final GeneralizationHierarchy hierarchy = hierarchies[i];
+                if (hierarchy != null) {
+                    hierarchiesMA.put(name, hierarchy.map);
                 }
             }
         }
@@ -499,18 +540,19 @@ public class DataManager {
      * @param distinctValues
      * @return
      */
-    public double[] getDistribution(int[][] data, int index, int distinctValues) {
+    public double[] getDistribution(DataColumns data, int index, int distinctValues) {
 
         // Initialize counts: iterate over all rows or the subset
         final int[] cardinalities = new int[distinctValues];
-        for (int i = 0; i < data.length; i++) {
+        final int rows = data.getNumRows();
+        for (int i = 0; i < rows; i++) {
             if (subset == null || subset.contains(i)) {
-                cardinalities[data[i][index]]++;
+                cardinalities[data.get(i, index)]++;
             }
         }
 
         // compute distribution
-        final double total = subset == null ? data.length : subsetSize;
+        final double total = subset == null ? rows : subsetSize;
         final double[] distribution = new double[cardinalities.length];
         for (int i = 0; i < distribution.length; i++) {
             distribution[i] = (double) cardinalities[i] / total;
@@ -535,7 +577,7 @@ public class DataManager {
         // Prepare
         int index = indexesSensitive.get(attribute);
         int distinctValues = dataAnalyzed.getDictionary().getMapping()[index].length;
-        int[][] data = dataAnalyzed.getArray();
+        DataColumns data = dataAnalyzed.getColumns();
         
         // Calculate and return
         return getDistribution(data, index, distinctValues);
@@ -760,11 +802,12 @@ public class DataManager {
      * @param hierarchy
      * @return tree
      */
-    public int[] getTree(int[][] data,
+    public int[] getTree(DataColumns data,
                          int index,
                          int[][] hierarchy) {
 
-        final int totalElementsP = subset == null ? data.length : subsetSize;
+        final int rows = data.getNumRows();
+        final int totalElementsP = subset == null ? rows : subsetSize;
         final int height = hierarchy[0].length - 1;
         final int numLeafs = hierarchy.length;
 
@@ -781,11 +824,12 @@ public class DataManager {
 
         // Count frequencies
         final int offsetLeafs = 3;
-        for (int i = 0; i < data.length; i++) {
+        for (int i = 0; i < rows; i++) {
             if (subset == null || subset.contains(i)) {
-                int previousFreq = treeList.get(data[i][index] + offsetLeafs);
+                final int value = data.get(i, index);
+                int previousFreq = treeList.get(value + offsetLeafs);
                 previousFreq++;
-                treeList.set(data[i][index] + offsetLeafs, previousFreq);
+                treeList.set(value + offsetLeafs, previousFreq);
             }
         }
 
@@ -878,15 +922,18 @@ public class DataManager {
         if (!hierarchiesSensitive.containsKey(attribute)) {
             throw new IllegalArgumentException("Attribute " + attribute + " is not sensitive");
         }
-        final int[][] data = dataAnalyzed.getArray();
+        final DataColumns data = dataAnalyzed.getColumns();
         final int index = indexesSensitive.get(attribute);
         return getTree(data, index, hierarchiesSensitive.get(attribute).map);
     }
     
     /**
-     * Encodes the data.
+     * Encodes the data into columns.
      * 
+     * @param pool
+     * @param threads
      * @param data
+     * @param dictionary
      * @param map
      * @param mapGeneralized
      * @param mapAnalyzed
@@ -899,7 +946,10 @@ public class DataManager {
      * @param headerStatic
      * @return
      */
-    private Data[] encode(final int[][] data,
+    private Data[] encode(final ExecutorService pool,
+                          final int threads,
+                          final int[][] data,
+                          final Dictionary dictionary,
                           final int[] map,
                           final int[] mapGeneralized,
                           final int[] mapAnalyzed,
@@ -911,55 +961,199 @@ public class DataManager {
                           final String[] headerAnalyzed,
                           final String[] headerStatic) {
 
+        // Codes are taken over from the dictionary of the input
+        final int[] domainsGH = new int[headerGeneralized.length];
+        final int[] domainsDI = new int[headerAnalyzed.length];
+        final int[] domainsIS = new int[headerStatic.length];
+        for (int i = 0; i < map.length; i += 2) {
+            final int domain = dictionary.getMapping()[i / 2].length;
+            switch (map[i]) {
+            case AttributeTypeInternal.QUASI_IDENTIFYING_GENERALIZED:
+                domainsGH[map[i + 1]] = domain;
+                break;
+            case AttributeTypeInternal.INSENSITIVE:
+                domainsIS[map[i + 1]] = domain;
+                break;
+            case AttributeTypeInternal.QUASI_IDENTIFYING_MICROAGGREGATED:
+            case AttributeTypeInternal.SENSITIVE:
+                domainsDI[map[i + 1]] = domain;
+                break;
+            }
+        }
+
         // Parse the dataset
-        final int[][] valsGH = headerGeneralized.length == 0 ? null : new int[data.length][];
-        final int[][] valsDI = headerAnalyzed.length == 0 ? null : new int[data.length][];
-        final int[][] valsIS = headerStatic.length == 0 ? null : new int[data.length][];
+        final DataColumns valsGH = new DataColumns(data.length, domainsGH);
+        final DataColumns valsDI = new DataColumns(data.length, domainsDI);
+        final DataColumns valsIS = new DataColumns(data.length, domainsIS);
+
+        if (pool == null) {
+            encode(data, 0, data.length, map, valsGH, valsDI, valsIS);
+        } else {
+
+            // Encode ranges of records concurrently
+            final List<Future<GeneralizationHierarchy>> tasks = new ArrayList<Future<GeneralizationHierarchy>>(threads);
+            final int step = (data.length + threads - 1) / threads;
+            for (int i = 0; i < threads; i++) {
+                final int from = Math.min(data.length, i * step);
+                final int to = Math.min(data.length, from + step);
+                tasks.add(pool.submit(new Callable<GeneralizationHierarchy>() {
+                    @Override
+                    public GeneralizationHierarchy call() {
+                        encode(data, from, to, map, valsGH, valsDI, valsIS);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<GeneralizationHierarchy> task : tasks) {
+                getResult(task);
+            }
+        }
 
-        int index = 0;
-        for (final int[] tuple : data) {
+        // Build data object
+        final Data[] result = { new Data(valsGH,
+                                         headerGeneralized,
+                                         mapGeneralized,
+                                         dictionaryGeneralized),
+                new Data(valsDI, headerAnalyzed, mapAnalyzed, dictionaryAnalyzed),
+                new Data(valsIS, headerStatic, mapStatic, dictionaryStatic) };
+        return result;
+    }
 
-            // Process a tuple
-            final int[] tupleGH = headerGeneralized.length == 0 ? null : new int[headerGeneralized.length];
-            final int[] tupleDI = headerAnalyzed.length == 0 ? null : new int[headerAnalyzed.length];
-            final int[] tupleIS = headerStatic.length == 0 ? null : new int[headerStatic.length];
+    /**
+     * Encodes the given range of records.
+     * 
+     * @param data
+     * @param from
+     * @param to
+     * @param map
+     * @param valsGH
+     * @param valsDI
+     * @param valsIS
+     */
+    private void encode(final int[][] data,
+                        final int from,
+                        final int to,
+                        final int[] map,
+                        final DataColumns valsGH,
+                        final DataColumns valsDI,
+                        final DataColumns valsIS) {
+
+        for (int index = from; index < to; index++) {
 
+            // Process a tuple
+            final int[] tuple = data[index];
             for (int i = 0; i < tuple.length; i++) {
                 final int idx = i * 2;
                 int aType = map[idx];
                 final int iPos = map[idx + 1];
                 switch (aType) {
                 case AttributeTypeInternal.QUASI_IDENTIFYING_GENERALIZED:
-                    tupleGH[iPos] = tuple[i];
+                    valsGH.set(index, iPos, tuple[i]);
                     break;
                 case AttributeTypeInternal.IDENTIFYING:
                     // Ignore
                     break;
                 case AttributeTypeInternal.INSENSITIVE:
-                    tupleIS[iPos] = tuple[i];
+                    valsIS.set(index, iPos, tuple[i]);
                     break;
                 case AttributeTypeInternal.QUASI_IDENTIFYING_MICROAGGREGATED:
-                    tupleDI[iPos] = tuple[i];
+                    valsDI.set(index, iPos, tuple[i]);
                     break;
                 case AttributeTypeInternal.SENSITIVE:
-                    tupleDI[iPos] = tuple[i];
+                    valsDI.set(index, iPos, tuple[i]);
                     break;
                 }
             }
-            if (valsGH != null) valsGH[index] = tupleGH;
-            if (valsIS != null) valsIS[index] = tupleIS;
-            if (valsDI != null) valsDI[index] = tupleDI;
-            index++;
         }
+    }
 
-        // Build data object
-        final Data[] result = { new Data(valsGH,
-                                         headerGeneralized,
-                                         mapGeneralized,
-                                         dictionaryGeneralized),
-                new Data(valsDI, headerAnalyzed, mapAnalyzed, dictionaryAnalyzed),
-                new Data(valsIS, headerStatic, mapStatic, dictionaryStatic) };
-        return result;
+    /**
+     * Creates a task which registers the values of an attribute in the target dictionary and
+     * builds its hierarchy, if any. The task is executed immediately, if no pool is given.
+     * 
+     * @param pool
+     * @param attribute
+     * @param hierarchy
+     * @param required Whether a hierarchy is required
+     * @param target
+     * @param targetDimension
+     * @param source
+     * @param sourceDimension
+     * @return
+     */
+    private Future<GeneralizationHierarchy> encode(final ExecutorService pool,
+                                                   final String attribute,
+                                                   final String[][] hierarchy,
+                                                   final boolean required,
+                                                   final Dictionary target,
+                                                   final int targetDimension,
+                                                   final Dictionary source,
+                                                   final int sourceDimension) {
+        
+        // Each task only accesses a single dimension of the target dictionary
+        FutureTask<GeneralizationHierarchy> task = new FutureTask<GeneralizationHierarchy>(new Callable<GeneralizationHierarchy>() {
+            @Override
+            public GeneralizationHierarchy call() {
+                target.registerAll(targetDimension, source, sourceDimension);
+                if (hierarchy != null) {
+                    return new GeneralizationHierarchy(attribute, hierarchy, targetDimension, target);
+                } else if (required) {
+                    throw new IllegalStateException("No hierarchy available for attribute (" + attribute + ")");
+                } else {
+                    return null;
+                }
+            }
+        });
+        if (pool == null) {
+            task.run();
+        } else {
+            pool.execute(task);
+        }
+        return task;
+    }
+
+    /**
+     * Returns the result of the given task. Exceptions are propagated.
+     * 
+     * @param task
+     * @return
+     */
+    private GeneralizationHierarchy getResult(final Future<GeneralizationHierarchy> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            } else {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Returns a pool with the given number of threads
+     * 
+     * @param threads
+     * @return
+     */
+    private ExecutorService getPool(final int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                                                         60L, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(),
+                                                         new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ARX encoding worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        return pool;
     }
 
     /**
@@ -66,11 +66,11 @@ public class DataManagerSubset extends DataManager {
                                 int[] microaggregationMap,
                                 int[] microaggregationDomainSizes,
                                 int microaggregationNumAttributes,
-                                int microaggregationStartIndex,
+                                int microaggregationStartIndex,
                                 int[] minLevels,
                                 Map<String, DataType<?>> dataTypesSensitive) {
         super(source.getDataDefinition(),
-              dataAnalyzed,
+              dataAnalyzed,
               dataGeneralized,
               dataStatic,
               header,
@@ -92,7 +92,7 @@ public class DataManagerSubset extends DataManager {
     }
 
     @Override
-    public double[] getDistribution(int[][] data, int index, int distinctValues) {
+    public double[] getDistribution(DataColumns data, int index, int distinctValues) {
         // Delegate to source
         return source.getDistribution(data, index, distinctValues);
     }
@@ -110,7 +110,7 @@ public class DataManagerSubset extends DataManager {
     }
 
     @Override
-    public int[] getTree(int[][] data, int index, int[][] hierarchy) {
+    public int[] getTree(DataColumns data, int index, int[][] hierarchy) {
         // Delegate to source
         return source.getTree(data, index, hierarchy);
     }
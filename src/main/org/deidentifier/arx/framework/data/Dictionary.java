@@ -48,6 +48,17 @@ public class Dictionary {
         }
     }
 
+    /**
+     * Instantiates a finalized dictionary with the given mapping.
+     * 
+     * @param mapping
+     *            the mapping dimension->integer->string
+     */
+    public Dictionary(final String[][] mapping) {
+        this.mapping = mapping;
+        this.maps = null;
+    }
+
     /**
      * Definalizes the dictionary
      */
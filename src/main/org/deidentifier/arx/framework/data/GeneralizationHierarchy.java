@@ -34,6 +34,9 @@ public class GeneralizationHierarchy {
     /** Input->level->output. */
     protected final int[][] map;
 
+    /** Level->input->output. */
+    protected final int[][] levels;
+
     /** Name. */
     protected final String  attribute;
 
@@ -93,6 +96,9 @@ public class GeneralizationHierarchy {
         if (distinctValues[0] < uniqueIn) {
             throw new IllegalArgumentException("Attribute '" + name + "': hierarchy misses some values or contains duplicates"); 
         }
+        
+        // Transpose
+        this.levels = getLevels(map);
     }
 
     /**
@@ -108,6 +114,7 @@ public class GeneralizationHierarchy {
         this.attribute = name;
         this.map = map;
         this.distinctValues = distinctValues;
+        this.levels = getLevels(map);
     }
     
     /**
@@ -200,6 +207,16 @@ public class GeneralizationHierarchy {
         return result;
     }
 
+    /**
+     * Returns the generalization of all input values to the given level.
+     *
+     * @param level
+     * @return Input->output
+     */
+    public int[] getLevel(final int level) {
+        return levels[level];
+    }
+
     /**
      * Returns the height of the hierarchy.
      *
@@ -217,4 +234,20 @@ public class GeneralizationHierarchy {
     public String getName() {
         return attribute;
     }
+
+    /**
+     * Transposes the given map.
+     *
+     * @param map Input->level->output
+     * @return Level->input->output
+     */
+    private int[][] getLevels(final int[][] map) {
+        final int[][] levels = new int[map.length == 0 ? 0 : map[0].length][map.length];
+        for (int i = 0; i < map.length; i++) {
+            for (int level = 0; level < levels.length; level++) {
+                levels[level][i] = map[i][level];
+            }
+        }
+        return levels;
+    }
 }
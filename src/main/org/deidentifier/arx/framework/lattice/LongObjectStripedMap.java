@@ -0,0 +1,90 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.framework.lattice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.carrotsearch.hppc.LongObjectOpenHashMap;
+
+/**
+ * A thread-safe map from transformation identifiers to objects. The key space is
+ * partitioned into stripes, each of which is backed by a hash map guarded by its
+ * own lock. Threads accessing different transformations thus rarely contend.
+ *
+ * @author Fabian Prasser
+ * @param <T>
+ */
+class LongObjectStripedMap<T> {
+
+    /** The number of bits used for addressing stripes. */
+    private static final int                 STRIPE_BITS = 6;
+
+    /** The number of stripes. */
+    private static final int                 STRIPES     = 1 << STRIPE_BITS;
+
+    /** The stripes. */
+    private final List<LongObjectOpenHashMap<T>> stripes;
+
+    /**
+     * Creates a new instance.
+     */
+    LongObjectStripedMap() {
+        this.stripes = new ArrayList<LongObjectOpenHashMap<T>>(STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes.add(new LongObjectOpenHashMap<T>());
+        }
+    }
+
+    /**
+     * Returns the value associated with the given identifier, or null.
+     *
+     * @param identifier
+     * @return
+     */
+    T get(long identifier) {
+        LongObjectOpenHashMap<T> stripe = getStripe(identifier);
+        synchronized (stripe) {
+            return stripe.getOrDefault(identifier, null);
+        }
+    }
+
+    /**
+     * Associates the given value with the given identifier.
+     *
+     * @param identifier
+     * @param value
+     */
+    void put(long identifier, T value) {
+        LongObjectOpenHashMap<T> stripe = getStripe(identifier);
+        synchronized (stripe) {
+            stripe.put(identifier, value);
+        }
+    }
+
+    /**
+     * Returns the stripe responsible for the given identifier.
+     *
+     * @param identifier
+     * @return
+     */
+    private LongObjectOpenHashMap<T> getStripe(long identifier) {
+        long hash = identifier * 0x9E3779B97F4A7C15L;
+        return stripes.get((int) (hash >>> (64 - STRIPE_BITS)));
+    }
+}
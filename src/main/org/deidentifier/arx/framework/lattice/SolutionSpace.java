@@ -17,6 +17,9 @@
 
 package org.deidentifier.arx.framework.lattice;
 
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 import org.deidentifier.arx.ARXConfiguration;
 import org.deidentifier.arx.ARXConfiguration.Monotonicity;
 import org.deidentifier.arx.ARXLattice;
@@ -24,7 +27,7 @@ import org.deidentifier.arx.ARXLattice.ARXNode;
 import org.deidentifier.arx.ARXLattice.Anonymity;
 import org.deidentifier.arx.metric.InformationLoss;
 
-import com.carrotsearch.hppc.LongObjectOpenHashMap;
+import cern.colt.list.LongArrayList;
 
 import de.linearbits.jhpl.JHPLIterator.LongIterator;
 import de.linearbits.jhpl.Lattice;
@@ -32,17 +35,21 @@ import de.linearbits.jhpl.PredictiveProperty;
 import de.linearbits.jhpl.PredictiveProperty.Direction;
 
 /**
- * A class representing the solution space
+ * A class representing the solution space. Properties and data associated with
+ * transformations may be accessed concurrently, e.g. by algorithms checking transformations
+ * in parallel. Data, information loss and lower bounds are kept in lock-striped maps.
+ * Properties are guarded by a read-write lock, which makes tagging a transformation,
+ * including the predictive propagation of properties in the lattice, atomic.
  * @author Fabian Prasser
  */
 public class SolutionSpace {
 
     /** Information loss */
-    private LongObjectOpenHashMap<Object>             data                        = new LongObjectOpenHashMap<Object>();
+    private final LongObjectStripedMap<Object>        data                        = new LongObjectStripedMap<Object>();
     /** The backing JHPL lattice */
     private final Lattice<Integer, Integer>           lattice;
     /** Information loss */
-    private LongObjectOpenHashMap<InformationLoss<?>> lowerBound                  = new LongObjectOpenHashMap<InformationLoss<?>>();
+    private final LongObjectStripedMap<InformationLoss<?>> lowerBound             = new LongObjectStripedMap<InformationLoss<?>>();
     /** The offsets for indices */
     private final int[]                               offsetIndices;
     /** The offset the level */
@@ -82,7 +89,10 @@ public class SolutionSpace {
                                                                                                            Direction.NONE);
 
     /** Information loss */
-    private LongObjectOpenHashMap<InformationLoss<?>> utility                     = new LongObjectOpenHashMap<InformationLoss<?>>();
+    private final LongObjectStripedMap<InformationLoss<?>> utility                = new LongObjectStripedMap<InformationLoss<?>>();
+
+    /** Lock guarding the properties stored in the lattice */
+    private final ReadWriteLock                       propertyLock                = new ReentrantReadWriteLock();
 
     /**
      * For de-serialization
@@ -160,7 +170,8 @@ public class SolutionSpace {
     }
     
     /**
-     * Returns all materialized transformations
+     * Returns all materialized transformations. The iterator must not be used while
+     * properties are being modified concurrently.
      * @return
      */
     public LongIterator getMaterializedTransformations() {
@@ -315,7 +326,7 @@ public class SolutionSpace {
      * @return
      */
     public InformationLoss<?> getUtility(long identifier) {
-        return utility.getOrDefault(identifier, null);
+        return utility.get(identifier);
     }
     
     /**
@@ -326,8 +337,7 @@ public class SolutionSpace {
      */
     public boolean hasProperty(int[] transformation, PredictiveProperty property) {
         int[] index = toJHPL(transformation);
-        int level = getLevel(index);
-        return lattice.hasProperty(index, level, property);
+        return hasProperty(index, getLevel(index), property);
     }
 
     /**
@@ -443,7 +453,7 @@ public class SolutionSpace {
      * @return
      */
     protected Object getData(long id) {
-        return data.getOrDefault(id, null);
+        return data.get(id);
     }
     
 
@@ -453,7 +463,7 @@ public class SolutionSpace {
      * @return
      */
     protected InformationLoss<?> getInformationLoss(long identifier) {
-        return utility.getOrDefault(identifier, null);
+        return utility.get(identifier);
     }
     
     /**
@@ -462,7 +472,61 @@ public class SolutionSpace {
      * @return
      */
     protected InformationLoss<?> getLowerBound(long identifier) {
-        return lowerBound.getOrDefault(identifier, null);
+        return lowerBound.get(identifier);
+    }
+
+    /**
+     * Returns the identifiers of all direct predecessors of a transformation
+     * @param transformationJHPL
+     * @param identifier
+     * @return
+     */
+    protected LongArrayList getPredecessors(int[] transformationJHPL, long identifier) {
+        propertyLock.readLock().lock();
+        try {
+            LongArrayList result = new LongArrayList();
+            for (LongIterator iter = lattice.nodes().listPredecessorsAsIdentifiers(transformationJHPL, identifier); iter.hasNext();) {
+                result.add(iter.next());
+            }
+            return result;
+        } finally {
+            propertyLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the identifiers of all direct successors of a transformation
+     * @param transformationJHPL
+     * @param identifier
+     * @return
+     */
+    protected LongArrayList getSuccessors(int[] transformationJHPL, long identifier) {
+        propertyLock.readLock().lock();
+        try {
+            LongArrayList result = new LongArrayList();
+            for (LongIterator iter = lattice.nodes().listSuccessorsAsIdentifiers(transformationJHPL, identifier); iter.hasNext();) {
+                result.add(iter.next());
+            }
+            return result;
+        } finally {
+            propertyLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether a transformation has a given property
+     * @param transformationJHPL
+     * @param levelJHPL
+     * @param property
+     * @return
+     */
+    protected boolean hasProperty(int[] transformationJHPL, int levelJHPL, PredictiveProperty property) {
+        propertyLock.readLock().lock();
+        try {
+            return lattice.hasProperty(transformationJHPL, levelJHPL, property);
+        } finally {
+            propertyLock.readLock().unlock();
+        }
     }
 
     /**
@@ -492,6 +556,75 @@ public class SolutionSpace {
         lowerBound.put(identifier, loss);
     }
 
+    /**
+     * Atomically sets the given properties of a transformation
+     * @param transformationJHPL
+     * @param levelJHPL
+     * @param properties
+     */
+    protected void setProperties(int[] transformationJHPL, int levelJHPL, PredictiveProperty... properties) {
+        propertyLock.writeLock().lock();
+        try {
+            for (PredictiveProperty property : properties) {
+                lattice.putProperty(transformationJHPL, levelJHPL, property);
+            }
+        } finally {
+            propertyLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets a property of a transformation
+     * @param transformationJHPL
+     * @param levelJHPL
+     * @param property
+     */
+    protected void setProperty(int[] transformationJHPL, int levelJHPL, PredictiveProperty property) {
+        propertyLock.writeLock().lock();
+        try {
+            lattice.putProperty(transformationJHPL, levelJHPL, property);
+        } finally {
+            propertyLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Atomically sets a property of all direct successors or predecessors of a transformation,
+     * depending on the direction of the property
+     * @param transformationJHPL
+     * @param identifier
+     * @param property
+     */
+    protected void setPropertyToNeighbours(int[] transformationJHPL, long identifier, PredictiveProperty property) {
+        
+        // Check
+        if (property.getDirection() != Direction.UP && property.getDirection() != Direction.DOWN) {
+            return;
+        }
+        
+        // Collect neighbours and tag
+        propertyLock.writeLock().lock();
+        try {
+            LongIterator neighbors;
+            if (property.getDirection() == Direction.UP) {
+                neighbors = lattice.nodes().listSuccessorsAsIdentifiers(transformationJHPL, identifier);
+            } else {
+                neighbors = lattice.nodes().listPredecessorsAsIdentifiers(transformationJHPL, identifier);
+            }
+            LongArrayList list = new LongArrayList();
+            for (;neighbors.hasNext();) {
+                list.add(neighbors.next());
+            }
+            for (int i=0; i<list.size(); i++) {
+                int[] index = lattice.space().toIndex(list.getQuick(i));
+                int level = lattice.nodes().getLevel(index);
+                lattice.putProperty(index, level, property);
+            }
+        } finally {
+            propertyLock.writeLock().unlock();
+        }
+    }
+
     /**
      * Internal method that subtracts the offset
      * @param level
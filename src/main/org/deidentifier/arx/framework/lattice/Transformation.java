@@ -23,10 +23,8 @@ import org.deidentifier.arx.framework.check.NodeChecker;
 import org.deidentifier.arx.metric.InformationLoss;
 
 import cern.colt.list.LongArrayList;
-import de.linearbits.jhpl.JHPLIterator.LongIterator;
 import de.linearbits.jhpl.Lattice;
 import de.linearbits.jhpl.PredictiveProperty;
-import de.linearbits.jhpl.PredictiveProperty.Direction;
 
 /**
  * The class Transformation.
@@ -38,9 +36,6 @@ public class Transformation {
     /** The id. */
     private final long                      identifier;
 
-    /** The lattice */
-    private final Lattice<Integer, Integer> lattice;
-
     /** The level */
     private int                             levelARX          = -1;
 
@@ -63,7 +58,6 @@ public class Transformation {
      * @param solutionSpace 
      */
     public Transformation(int[] transformation, Lattice<Integer, Integer> lattice, SolutionSpace solutionSpace) {
-        this.lattice = lattice;
         this.solutionSpace = solutionSpace;
         this.transformationARX = transformation;
         this.transformationJHPL = solutionSpace.toJHPL(transformation);
@@ -81,7 +75,6 @@ public class Transformation {
                           long identifier,
                           Lattice<Integer, Integer> lattice,
                           SolutionSpace solutionSpace) {
-        this.lattice = lattice;
         this.solutionSpace = solutionSpace;
         this.transformationJHPL = transformationJHPL;
         this.identifier = identifier;
@@ -148,12 +141,7 @@ public class Transformation {
      * @return
      */
     public LongArrayList getPredecessors() {
-        
-        LongArrayList result = new LongArrayList();
-        for (LongIterator iter = lattice.nodes().listPredecessorsAsIdentifiers(transformationJHPL, identifier); iter.hasNext();) {
-            result.add(iter.next());
-        }
-        return result;
+        return solutionSpace.getPredecessors(transformationJHPL, identifier);
     }
 
     /**
@@ -161,10 +149,7 @@ public class Transformation {
      * @return
      */
     public LongArrayList getSuccessors() {
-        cern.colt.list.LongArrayList result = new cern.colt.list.LongArrayList();
-        for (LongIterator iter = lattice.nodes().listSuccessorsAsIdentifiers(transformationJHPL, identifier); iter.hasNext();) {
-            result.add(iter.next());
-        }
+        LongArrayList result = solutionSpace.getSuccessors(transformationJHPL, identifier);
         int lower = 0;
         int upper = result.size() - 1;
         while (lower < upper) {
@@ -184,7 +169,7 @@ public class Transformation {
      */
     public boolean hasProperty(PredictiveProperty property) {
         getLevel();
-        return this.lattice.hasProperty(this.transformationJHPL, this.levelJHPL, property);
+        return this.solutionSpace.hasProperty(this.transformationJHPL, this.levelJHPL, property);
     }
 
     /**
@@ -195,23 +180,17 @@ public class Transformation {
      */
     public void setChecked(NodeChecker.Result result) {
         
-        // Set checked
-        this.setProperty(solutionSpace.getPropertyChecked());
-        
-        // Anonymous
-        if (result.privacyModelFulfilled){
-            this.setProperty(solutionSpace.getPropertyAnonymous());
-        } else {
-            this.setProperty(solutionSpace.getPropertyNotAnonymous());
-        }
-
-        // k-Anonymous
+        // Set checked, anonymous and k-anonymous atomically
+        getLevel();
+        PredictiveProperty checked = solutionSpace.getPropertyChecked();
+        PredictiveProperty anonymous = result.privacyModelFulfilled ? solutionSpace.getPropertyAnonymous() :
+                                                                      solutionSpace.getPropertyNotAnonymous();
         if (result.minimalClassSizeFulfilled != null) {
-            if (result.minimalClassSizeFulfilled){
-                this.setProperty(solutionSpace.getPropertyKAnonymous());
-            } else {
-                this.setProperty(solutionSpace.getPropertyNotKAnonymous());
-            }
+            PredictiveProperty kAnonymous = result.minimalClassSizeFulfilled ? solutionSpace.getPropertyKAnonymous() :
+                                                                               solutionSpace.getPropertyNotKAnonymous();
+            this.solutionSpace.setProperties(this.transformationJHPL, this.levelJHPL, checked, anonymous, kAnonymous);
+        } else {
+            this.solutionSpace.setProperties(this.transformationJHPL, this.levelJHPL, checked, anonymous);
         }
 
         // Infoloss
@@ -250,7 +229,7 @@ public class Transformation {
      */
     public void setProperty(PredictiveProperty property) {
         getLevel();
-        this.lattice.putProperty(this.transformationJHPL, this.levelJHPL, property);
+        this.solutionSpace.setProperty(this.transformationJHPL, this.levelJHPL, property);
     }
     
     /**
@@ -258,23 +237,7 @@ public class Transformation {
      * @param property
      */
     public void setPropertyToNeighbours(PredictiveProperty property) {
-        LongIterator neighbors;
-        if (property.getDirection() == Direction.UP) {
-            neighbors = lattice.nodes().listSuccessorsAsIdentifiers(transformationJHPL, identifier);
-        } else if (property.getDirection() == Direction.DOWN) {
-            neighbors = lattice.nodes().listPredecessorsAsIdentifiers(transformationJHPL, identifier);
-        } else {
-            return;
-        }
-        LongArrayList list = new LongArrayList();
-        for (;neighbors.hasNext();) {
-            list.add(neighbors.next());
-        }
-        for (int i=0; i<list.size(); i++) {
-            int[] index = lattice.space().toIndex(list.getQuick(i));
-            int level = lattice.nodes().getLevel(index);
-            lattice.putProperty(index, level, property);
-        }
+        this.solutionSpace.setPropertyToNeighbours(this.transformationJHPL, this.identifier, property);
     }
 
     /**
@@ -289,31 +252,31 @@ public class Transformation {
         builder.append(" - Generalization: ").append(Arrays.toString(getGeneralization())).append("\n");
         builder.append(" - Level: ").append(getLevel()).append("\n");
         builder.append(" - Properties:\n");
-        if (lattice.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyAnonymous())) {
+        if (solutionSpace.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyAnonymous())) {
             builder.append("   * ANONYMOUS: ").append(solutionSpace.getPropertyAnonymous().getDirection()).append("\n");    
         }
-        if (lattice.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyNotAnonymous())) {
+        if (solutionSpace.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyNotAnonymous())) {
             builder.append("   * NOT_ANONYMOUS: ").append(solutionSpace.getPropertyNotAnonymous().getDirection()).append("\n");
         }
-        if (lattice.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyKAnonymous())) {
+        if (solutionSpace.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyKAnonymous())) {
             builder.append("   * K_ANONYMOUS: ").append(solutionSpace.getPropertyKAnonymous().getDirection()).append("\n");
         }
-        if (lattice.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyNotKAnonymous())) {
+        if (solutionSpace.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyNotKAnonymous())) {
             builder.append("   * NOT_K_ANONYMOUS: ").append(solutionSpace.getPropertyNotKAnonymous().getDirection()).append("\n");
         }
-        if (lattice.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyChecked())) {
+        if (solutionSpace.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyChecked())) {
             builder.append("   * CHECKED: ").append(solutionSpace.getPropertyChecked().getDirection()).append("\n");    
         }
-        if (lattice.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyForceSnapshot())) {
+        if (solutionSpace.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyForceSnapshot())) {
             builder.append("   * FORCE_SNAPSHOT: ").append(solutionSpace.getPropertyForceSnapshot().getDirection()).append("\n");
         }
-        if (lattice.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyInsufficientUtility())) {
+        if (solutionSpace.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyInsufficientUtility())) {
             builder.append("   * INSUFFICIENT_UTILITY: ").append(solutionSpace.getPropertyInsufficientUtility().getDirection()).append("\n");
         }
-        if (lattice.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertySuccessorsPruned())) {
+        if (solutionSpace.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertySuccessorsPruned())) {
             builder.append("   * SUCCESSORS_PRUNED: ").append(solutionSpace.getPropertySuccessorsPruned().getDirection()).append("\n");
         }
-        if (lattice.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyVisited())) {
+        if (solutionSpace.hasProperty(transformationJHPL, this.levelJHPL, solutionSpace.getPropertyVisited())) {
             builder.append("   * VISITED: ").append(solutionSpace.getPropertyVisited().getDirection()).append("\n");
         }
         builder.append("}");
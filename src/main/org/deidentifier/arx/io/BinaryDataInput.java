@@ -0,0 +1,294 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Provides methods for reading dictionary-encoded data written by {@link BinaryDataOutput}.
+ * The file is memory-mapped. The dictionaries and hierarchies are decoded when the file is
+ * opened, while the codes of the records remain in the mapped regions. They are accessed
+ * directly by {@link #getCodes(int)} and {@link #iterator()}, and copied once into one
+ * array per record by {@link #getData()}.
+ * 
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class BinaryDataInput {
+
+    /** The attribute names */
+    private final String[]                header;
+
+    /** The dictionary of each attribute */
+    private final String[][]              dictionary;
+
+    /** The hierarchies */
+    private final Map<String, String[][]> hierarchies;
+
+    /** The codes of each attribute */
+    private final IntBuffer[]             columns;
+
+    /** The number of records */
+    private final int                     rows;
+
+    /**
+     * Instantiate.
+     *
+     * @param file the file
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public BinaryDataInput(final File file) throws IOException {
+        
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel();
+        try {
+
+            // Header
+            if (channel.size() < BinaryDataOutput.HEADER_SIZE) {
+                throw new IOException("Not a binary data file: " + file.getAbsolutePath());
+            }
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, BinaryDataOutput.HEADER_SIZE);
+            if (buffer.getInt() != BinaryDataOutput.MAGIC) {
+                throw new IOException("Not a binary data file: " + file.getAbsolutePath());
+            }
+            if (buffer.getInt() != BinaryDataOutput.VERSION) {
+                throw new IOException("Unsupported version of binary data file: " + file.getAbsolutePath());
+            }
+            int numColumns = buffer.getInt();
+            this.rows = buffer.getInt();
+            long offset = buffer.getLong();
+            if (numColumns < 0 || rows < 0 || offset < BinaryDataOutput.HEADER_SIZE || 
+                offset + (long) numColumns * rows * 4L != channel.size()) {
+                throw new IOException("Corrupt binary data file: " + file.getAbsolutePath());
+            }
+
+            // Metadata
+            try {
+                buffer = channel.map(MapMode.READ_ONLY, BinaryDataOutput.HEADER_SIZE, offset - BinaryDataOutput.HEADER_SIZE);
+                
+                // Each attribute stores at least the length of its name and the size of its dictionary
+                checkSize(buffer, numColumns, 8L, file);
+                this.header = new String[numColumns];
+                this.dictionary = new String[numColumns][];
+                for (int column = 0; column < numColumns; column++) {
+                    header[column] = readString(buffer, file);
+                    int size = buffer.getInt();
+                    checkSize(buffer, size, 4L, file);
+                    dictionary[column] = new String[size];
+                    for (int i = 0; i < dictionary[column].length; i++) {
+                        dictionary[column][i] = readString(buffer, file);
+                    }
+                }
+                this.hierarchies = new LinkedHashMap<String, String[][]>();
+                int numHierarchies = buffer.getInt();
+                for (int i = 0; i < numHierarchies; i++) {
+                    String attribute = readString(buffer, file);
+                    int height = buffer.getInt();
+                    int width = buffer.getInt();
+                    checkSize(buffer, width, 4L, file);
+                    checkSize(buffer, height, Math.max(width, 1) * 4L, file);
+                    String[][] hierarchy = new String[height][width];
+                    for (String[] row : hierarchy) {
+                        for (int j = 0; j < row.length; j++) {
+                            row[j] = readString(buffer, file);
+                        }
+                    }
+                    hierarchies.put(attribute, hierarchy);
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Corrupt binary data file: " + file.getAbsolutePath(), e);
+            }
+
+            // Codes, one region per column. Mappings remain valid after the channel is closed.
+            this.columns = new IntBuffer[numColumns];
+            for (int column = 0; column < numColumns; column++) {
+                columns[column] = channel.map(MapMode.READ_ONLY, offset + (long) column * rows * 4L, rows * 4L).asIntBuffer();
+            }
+            
+        } finally {
+            channel.close();
+            raf.close();
+        }
+    }
+
+    /**
+     * Instantiate.
+     *
+     * @param path the path
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public BinaryDataInput(final String path) throws IOException {
+        this(new File(path));
+    }
+
+    /**
+     * Returns a read-only view on the codes of the given attribute, which references 
+     * the mapped file.
+     *
+     * @param column the column
+     * @return the codes
+     */
+    public IntBuffer getCodes(final int column) {
+        return columns[column].asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a copy of the codes of all records, row-wise, as required by the anonymization engine.
+     *
+     * @return the data
+     * @throws IOException If the file contains invalid codes
+     */
+    public int[][] getData() throws IOException {
+        int[][] data = new int[rows][];
+        for (int row = 0; row < rows; row++) {
+            int[] record = new int[header.length];
+            for (int column = 0; column < record.length; column++) {
+                int code = columns[column].get(row);
+                if (code < 0 || code >= dictionary[column].length) {
+                    throw new IOException("Corrupt binary data file: invalid code in column " + column);
+                }
+                record[column] = code;
+            }
+            data[row] = record;
+        }
+        return data;
+    }
+
+    /**
+     * Returns the dictionary of each attribute.
+     *
+     * @return the dictionary
+     */
+    public String[][] getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the attribute names.
+     *
+     * @return the header
+     */
+    public String[] getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns the hierarchies, indexed by attribute name.
+     *
+     * @return the hierarchies
+     */
+    public Map<String, String[][]> getHierarchies() {
+        return hierarchies;
+    }
+
+    /**
+     * Returns the number of records.
+     *
+     * @return the number of records
+     */
+    public int getNumRows() {
+        return rows;
+    }
+
+    /**
+     * Returns an iterator over the decoded data. The first row contains the attribute names.
+     *
+     * @return the iterator
+     */
+    public Iterator<String[]> iterator() {
+        return new Iterator<String[]>() {
+
+            private int index = -1;
+
+            @Override
+            public boolean hasNext() {
+                return index < rows;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String[] result;
+                if (index == -1) {
+                    result = header.clone();
+                } else {
+                    result = new String[header.length];
+                    for (int column = 0; column < result.length; column++) {
+                        result[column] = dictionary[column][columns[column].get(index)];
+                    }
+                }
+                index++;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Remove is not supported by this iterator");
+            }
+        };
+    }
+
+    /**
+     * Checks whether the given number of elements, each occupying at least the given
+     * number of bytes, may be read from the remaining metadata. This is performed before 
+     * allocating memory for the elements.
+     *
+     * @param buffer
+     * @param count
+     * @param bytesPerElement
+     * @param file
+     * @throws IOException
+     */
+    private void checkSize(MappedByteBuffer buffer, int count, long bytesPerElement, File file) throws IOException {
+        if (count < 0 || count > buffer.remaining() / bytesPerElement) {
+            throw new IOException("Corrupt binary data file: " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param buffer
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    private String readString(MappedByteBuffer buffer, File file) throws IOException {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        checkSize(buffer, length, 1L, file);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, BinaryDataOutput.CHARSET);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.deidentifier.arx.framework.data.Dictionary;
+
+/**
+ * Provides methods for writing dictionary-encoded data in a binary format, which can be
+ * read with {@link BinaryDataInput}. The file consists of a fixed-size header, the
+ * attribute names, the dictionary of each attribute, the hierarchies and the codes of the 
+ * records, which are stored column-wise. All numbers are stored in big-endian byte order 
+ * and all strings are UTF-8 encoded.
+ * 
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class BinaryDataOutput {
+
+    /** Magic number identifying the format */
+    static final int         MAGIC       = 0x41525842;
+
+    /** Version of the format */
+    static final int         VERSION     = 1;
+
+    /** Size of the header in bytes */
+    static final int         HEADER_SIZE = 24;
+
+    /** Charset used for strings */
+    static final Charset     CHARSET     = Charset.forName("UTF-8");
+
+    /** Number of codes written at once */
+    private static final int BUFFER_SIZE = 1 << 14;
+
+    /** The file */
+    private final File       file;
+
+    /**
+     * Instantiate.
+     *
+     * @param file the file
+     */
+    public BinaryDataOutput(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Instantiate.
+     *
+     * @param path the path
+     */
+    public BinaryDataOutput(final String path) {
+        this(new File(path));
+    }
+
+    /**
+     * Encodes and writes the given data. The first row must contain the attribute names.
+     *
+     * @param iterator the iterator
+     * @param hierarchies the hierarchies, indexed by attribute name
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void write(final Iterator<String[]> iterator, final Map<String, String[][]> hierarchies) throws IOException {
+
+        // Header
+        if (!iterator.hasNext()) {
+            throw new IllegalArgumentException("Data object is empty!");
+        }
+        final String[] header = iterator.next();
+        final String[] columns = Arrays.copyOf(header, header.length);
+        
+        // Encode in the same manner as when data is loaded from other sources
+        final Dictionary dictionary = new Dictionary(columns.length);
+        final List<int[]> rows = new ArrayList<int[]>();
+        while (iterator.hasNext()) {
+            final String[] strings = iterator.next();
+            final int[] tuple = new int[columns.length];
+            for (int i = 0; i < strings.length; i++) {
+                tuple[i] = dictionary.register(i, strings[i]);
+            }
+            rows.add(tuple);
+        }
+        dictionary.finalizeAll();
+        
+        // Write
+        write(columns, dictionary.getMapping(), rows.toArray(new int[rows.size()][]), hierarchies);
+    }
+
+    /**
+     * Writes the given dictionary-encoded data.
+     *
+     * @param header the attribute names
+     * @param dictionary the dictionary of each attribute
+     * @param data the codes of the records
+     * @param hierarchies the hierarchies, indexed by attribute name
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void write(final String[] header,
+                      final String[][] dictionary,
+                      final int[][] data,
+                      final Map<String, String[][]> hierarchies) throws IOException {
+
+        // Prepare metadata
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream metadata = new DataOutputStream(bytes);
+        for (int column = 0; column < header.length; column++) {
+            writeString(metadata, header[column]);
+            metadata.writeInt(dictionary[column].length);
+            for (String value : dictionary[column]) {
+                writeString(metadata, value);
+            }
+        }
+        metadata.writeInt(hierarchies.size());
+        for (Entry<String, String[][]> entry : hierarchies.entrySet()) {
+            String[][] hierarchy = entry.getValue();
+            writeString(metadata, entry.getKey());
+            metadata.writeInt(hierarchy.length);
+            metadata.writeInt(hierarchy.length == 0 ? 0 : hierarchy[0].length);
+            for (String[] row : hierarchy) {
+                for (String value : row) {
+                    writeString(metadata, value);
+                }
+            }
+        }
+        metadata.close();
+
+        // Write
+        FileOutputStream stream = new FileOutputStream(file);
+        FileChannel channel = stream.getChannel();
+        try {
+            
+            // Header and metadata
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(header.length);
+            buffer.putInt(data.length);
+            buffer.putLong(HEADER_SIZE + bytes.size());
+            buffer.flip();
+            write(channel, buffer);
+            write(channel, ByteBuffer.wrap(bytes.toByteArray()));
+
+            // Codes, column-wise
+            buffer = ByteBuffer.allocate(BUFFER_SIZE * 4);
+            for (int column = 0; column < header.length; column++) {
+                for (int row = 0; row < data.length; row++) {
+                    if (!buffer.hasRemaining()) {
+                        buffer.flip();
+                        write(channel, buffer);
+                        buffer.clear();
+                    }
+                    buffer.putInt(data[row][column]);
+                }
+            }
+            buffer.flip();
+            write(channel, buffer);
+        } finally {
+            channel.close();
+            stream.close();
+        }
+    }
+
+    /**
+     * Writes the buffer completely.
+     *
+     * @param channel
+     * @param buffer
+     * @throws IOException
+     */
+    private void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(CHARSET);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
@@ -18,11 +18,16 @@
 package org.deidentifier.arx.io;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.Iterator;
 
 import com.univocity.parsers.csv.CsvFormat;
@@ -46,6 +51,15 @@ public class CSVDataOutput {
     /** Should the writer be closed. */
     private boolean           close;
 
+    /** The underlying stream, if known. */
+    private OutputStream      stream;
+
+    /** The charset used by the writer, if the stream is known. */
+    private Charset           charset;
+
+    /** Number of bytes written at once */
+    private static final int  BUFFER_SIZE = 1 << 16;
+
     /**
      * Instantiate.
      *
@@ -103,7 +117,8 @@ public class CSVDataOutput {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public CSVDataOutput(final File file, final char delimiter, final char quote, final char escape, final char[] linebreak) throws IOException {
-        this(new FileWriter(file), delimiter, quote, escape, linebreak);
+        this(new FileOutputStream(file), delimiter, quote, escape, linebreak);
+        close = true;
     }
 
     /**
@@ -175,7 +190,9 @@ public class CSVDataOutput {
      */
     public CSVDataOutput(final OutputStream stream, final char delimiter, final char quote, final char escape, final char[] linebreak) throws IOException {
         this(new OutputStreamWriter(stream), delimiter, quote, escape, linebreak);
-        close = false;
+        this.close = false;
+        this.stream = stream;
+        this.charset = Charset.forName(((OutputStreamWriter) writer).getEncoding());
     }
 
     /**
@@ -296,6 +313,84 @@ public class CSVDataOutput {
         }
     }
 
+    /**
+     * Writes dictionary-encoded data. Each value in the dictionaries is escaped and encoded 
+     * only once. If the underlying stream is known, records are written directly to a
+     * buffered byte channel. The output is identical to writing the decoded records.
+     *
+     * @param data the data
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void write(final IEncodedData data) throws IOException {
+
+        // Escape
+        final String[] header = data.getHeader();
+        final String[] escapedHeader = escape(header);
+        final String[][] escaped = new String[header.length][];
+        for (int column = 0; column < header.length; column++) {
+            escaped[column] = escape(data.getDictionary(column));
+        }
+        final String delimiter = String.valueOf(settings.getFormat().getDelimiter());
+        final String linebreak = new String(settings.getFormat().getLineSeparator());
+        final int rows = data.getNumRows();
+
+        // Write characters
+        if (stream == null) {
+            write(escapedHeader, delimiter, linebreak);
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < escaped.length; column++) {
+                    if (column != 0) {
+                        writer.write(delimiter);
+                    }
+                    writer.write(escaped[column][data.getCode(row, column)]);
+                }
+                writer.write(linebreak);
+            }
+            if (close) {
+                writer.close();
+            } else {
+                writer.flush();
+            }
+            return;
+        }
+
+        // Encode
+        final byte[][][] encoded = new byte[header.length][][];
+        for (int column = 0; column < header.length; column++) {
+            encoded[column] = new byte[escaped[column].length][];
+            for (int i = 0; i < escaped[column].length; i++) {
+                encoded[column][i] = escaped[column][i].getBytes(charset);
+            }
+        }
+        final byte[] delimiterBytes = delimiter.getBytes(charset);
+        final byte[] linebreakBytes = linebreak.getBytes(charset);
+
+        // Write bytes
+        writer.flush();
+        write(escapedHeader, delimiter, linebreak);
+        writer.flush();
+        final WritableByteChannel channel = Channels.newChannel(stream);
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < encoded.length; column++) {
+                if (column != 0) {
+                    write(channel, buffer, delimiterBytes);
+                }
+                write(channel, buffer, encoded[column][data.getCode(row, column)]);
+            }
+            write(channel, buffer, linebreakBytes);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (close) {
+            writer.close();
+        } else {
+            stream.flush();
+        }
+    }
+
     /**
      * Write.
      *
@@ -315,6 +410,74 @@ public class CSVDataOutput {
         }
     }
 
+    /**
+     * Escapes the given values, as if each value would be written as a field.
+     *
+     * @param values the values
+     * @return the escaped values
+     */
+    private String[] escape(final String[] values) {
+        
+        // Write each value as a row
+        final StringWriter buffer = new StringWriter();
+        final CsvWriter csvwriter = new CsvWriter(buffer, settings);
+        final int linebreak = settings.getFormat().getLineSeparator().length;
+        final String[] result = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            csvwriter.writeRow(new Object[] { values[i] });
+            csvwriter.flush();
+            final String value = buffer.toString();
+            result[i] = value.substring(0, value.length() - linebreak);
+            buffer.getBuffer().setLength(0);
+        }
+        csvwriter.close();
+        return result;
+    }
+
+    /**
+     * Writes the given bytes to the buffer, which is written to the channel when full.
+     *
+     * @param channel the channel
+     * @param buffer the buffer
+     * @param bytes the bytes
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void write(final WritableByteChannel channel, final ByteBuffer buffer, final byte[] bytes) throws IOException {
+        if (buffer.remaining() < bytes.length) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            if (bytes.length > buffer.capacity()) {
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+                return;
+            }
+        }
+        buffer.put(bytes);
+    }
+
+    /**
+     * Writes a row of escaped values to the writer.
+     *
+     * @param values the values
+     * @param delimiter the delimiter
+     * @param linebreak the linebreak
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void write(final String[] values, final String delimiter, final String linebreak) throws IOException {
+        for (int column = 0; column < values.length; column++) {
+            if (column != 0) {
+                writer.write(delimiter);
+            }
+            writer.write(values[column]);
+        }
+        writer.write(linebreak);
+    }
+
     /**
      * Creates the settings.
      *
@@ -0,0 +1,59 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+/**
+ * Interface to be implemented by dictionary-encoded data, which can be written 
+ * without decoding individual records.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public interface IEncodedData {
+
+    /**
+     * Returns the code of the value in the given cell.
+     *
+     * @param row
+     * @param column
+     * @return
+     */
+    public int getCode(int row, int column);
+
+    /**
+     * Returns the dictionary of the given column.
+     *
+     * @param column
+     * @return
+     */
+    public String[] getDictionary(int column);
+
+    /**
+     * Returns the attribute names.
+     *
+     * @return
+     */
+    public String[] getHeader();
+
+    /**
+     * Returns the number of records.
+     *
+     * @return
+     */
+    public int getNumRows();
+}
@@ -53,7 +53,11 @@ abstract public class ImportAdapter implements Iterator<String[]> {
         if (config instanceof ImportConfigurationCSV) {
             return new ImportAdapterCSV((ImportConfigurationCSV) config);
         } else if (config instanceof ImportConfigurationExcel) {
-            return new ImportAdapterExcel((ImportConfigurationExcel) config);
+            ImportConfigurationExcel excel = (ImportConfigurationExcel) config;
+            if (excel.isStreaming() && excel.getExcelFileType() == ImportConfigurationExcel.ExcelFileTypes.XLSX) {
+                return new ImportAdapterExcelStreaming(excel);
+            }
+            return new ImportAdapterExcel(excel);
         } else if (config instanceof ImportConfigurationJDBC) {
             return new ImportAdapterJDBC((ImportConfigurationJDBC) config);
         } else {
@@ -0,0 +1,518 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationship;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.deidentifier.arx.DataType;
+import org.xml.sax.SAXException;
+
+/**
+ * Streaming import adapter for XLSX files
+ * 
+ * This adapter reads the XML of a sheet row by row, as rows are requested
+ * via the iterator. Only the table of shared strings is held in memory, which
+ * is used to look up the values of string cells. Cells are converted to strings
+ * like {@link ImportAdapterExcel} does for the in-memory model. Parts are located
+ * via the relationships of the package, so that the XML schemas of POI are not
+ * required.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class ImportAdapterExcelStreaming extends ImportAdapter {
+
+    /** Type of the relationship between a workbook and its shared strings. */
+    private static final String        RELATIONSHIP_SHARED_STRINGS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings";
+
+    /** The configuration describing the Excel file. */
+    private ImportConfigurationExcel   config;
+
+    /** The package. */
+    private OPCPackage                 pkg;
+
+    /** The XML of the sheet. */
+    private InputStream                input;
+
+    /** The reader. */
+    private XMLStreamReader            reader;
+
+    /** The shared strings. */
+    private ReadOnlySharedStringsTable strings;
+
+    /**
+     * Contains the cells of the last row read from the sheet, <code>null</code>
+     * if there are no more rows.
+     */
+    private String[]                   row;
+
+    /** Indicates whether the first row has already been returned. */
+    private boolean                    headerReturned = false;
+
+    /** Number of rows within the specified sheet, as declared by its dimension. */
+    private int                        totalRows;
+
+    /** Number of the row {@link #row} is referencing. */
+    private int                        currentRow     = 0;
+
+    /**
+     * Creates a new instance of this object with given configuration.
+     *
+     * @param config {@link #config}
+     * @throws IOException In case file doesn't contain actual data
+     */
+    protected ImportAdapterExcelStreaming(ImportConfigurationExcel config) throws IOException {
+
+        super(config);
+        this.config = config;
+
+        try {
+
+            /* Open workbook */
+            pkg = OPCPackage.open(config.getFileLocation(), PackageAccess.READ);
+            PackageRelationshipCollection relationships = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+            if (relationships.size() == 0) {
+                closeResources();
+                throw new IOException("File contains no workbook");
+            }
+            PackagePart workbook = pkg.getPart(relationships.getRelationship(0));
+
+            /* Load shared strings */
+            relationships = workbook.getRelationshipsByType(RELATIONSHIP_SHARED_STRINGS);
+            if (relationships.size() != 0) {
+                strings = new ReadOnlySharedStringsTable(workbook.getRelatedPart(relationships.getRelationship(0)), null);
+            }
+
+            /* Open sheet */
+            PackageRelationship sheet = getSheet(workbook, config.getSheetIndex());
+            if (sheet == null) {
+                closeResources();
+                throw new IllegalArgumentException("Sheet index (" + config.getSheetIndex() + ") is out of range");
+            }
+            input = workbook.getRelatedPart(sheet).getInputStream();
+            reader = getFactory().createXMLStreamReader(input);
+
+            /* Check whether there is actual data within the file */
+            row = readRow();
+
+        } catch (OpenXML4JException | SAXException | XMLStreamException e) {
+            closeResources();
+            throw new IOException(e.getMessage(), e);
+        }
+
+        if (row == null) {
+            closeResources();
+            throw new IOException("File contains no data");
+        }
+
+        // Create header
+        header = createHeader();
+        if (row == null) {
+            throw new IOException("File contains nothing but header");
+        }
+    }
+
+    /**
+     * Returns the percentage of data that has already been returned.
+     *
+     * @return
+     */
+    @Override
+    public int getProgress() {
+        if (totalRows == 0) {
+            return 0;
+        }
+        return (int) (((double) currentRow / (double) totalRows) * 100d);
+    }
+
+    /**
+     * Indicates whether there is another element to return.
+     *
+     * @return
+     */
+    @Override
+    public boolean hasNext() {
+        return row != null;
+    }
+
+    /**
+     * Returns the next row.
+     *
+     * @return
+     */
+    @Override
+    public String[] next() {
+
+        /* Check whether header was already returned */
+        if (!headerReturned) {
+            headerReturned = true;
+            return header;
+        }
+
+        /* Create regular row */
+        String[] result = new String[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+
+            result[i] = IOUtil.trim(getCell(indexes[i]));
+
+            if (!dataTypes[i].isValid(result[i])) {
+                if (config.columns.get(i).isCleansing()) {
+                    result[i] = DataType.NULL_VALUE;
+                } else {
+                    closeResources();
+                    throw new IllegalArgumentException("Data value does not match data type");
+                }
+            }
+        }
+
+        /* Fetches the next row, which will be used in next iteration */
+        advance();
+
+        /* Return resulting row */
+        return result;
+    }
+
+    /**
+     * Dummy.
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Reads the next row and closes all resources after the last row.
+     */
+    private void advance() {
+        try {
+            row = readRow();
+        } catch (XMLStreamException e) {
+            closeResources();
+            throw new RuntimeException("Couldn't read data from file", e);
+        }
+        if (row == null) {
+            currentRow = totalRows;
+            closeResources();
+        }
+    }
+
+    /**
+     * Closes all resources.
+     */
+    private void closeResources() {
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+        } catch (Exception e) {
+            /* Die silently */
+        }
+        try {
+            if (input != null) {
+                input.close();
+            }
+        } catch (Exception e) {
+            /* Die silently */
+        }
+        if (pkg != null) {
+            pkg.revert();
+        }
+    }
+
+    /**
+     * Creates the header row.
+     *
+     * @return
+     */
+    private String[] createHeader() {
+
+        /* Preparation work */
+        if (config.getContainsHeader()) {
+            config.prepare(row);
+        }
+        indexes = getIndexesToImport();
+        dataTypes = getColumnDatatypes();
+
+        /* Initialization */
+        String[] header = new String[config.getColumns().size()];
+        List<ImportColumn> columns = config.getColumns();
+
+        /* Create header */
+        for (int i = 0, len = columns.size(); i < len; i++) {
+
+            ImportColumn column = columns.get(i);
+            String name = IOUtil.trim(getCell(((ImportColumnExcel) column).getIndex()));
+
+            if (config.getContainsHeader() && !name.equals("")) {
+                /* Assign name of file itself */
+                header[i] = name;
+            } else {
+                /* Nothing defined in header (or empty), build name manually */
+                header[i] = "Column #" + ((ImportColumnExcel) column).getIndex();
+            }
+
+            if (column.getAliasName() != null) {
+                /* Name has been assigned explicitly */
+                header[i] = column.getAliasName();
+            }
+
+            column.setAliasName(header[i]);
+        }
+
+        /* Fetch next row in preparation for next iteration */
+        if (config.getContainsHeader()) {
+            advance();
+        }
+
+        /* Return header */
+        return header;
+    }
+
+    /**
+     * Returns a factory for readers that do not resolve external entities.
+     *
+     * @return
+     */
+    private XMLInputFactory getFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Returns the relationship to the sheet with the given index, in the order in which
+     * sheets are listed by the workbook.
+     *
+     * @param workbook
+     * @param index
+     * @return The relationship, <code>null</code> if there is no such sheet
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private PackageRelationship getSheet(PackagePart workbook, int index) throws IOException, XMLStreamException {
+        InputStream stream = workbook.getInputStream();
+        XMLStreamReader reader = getFactory().createXMLStreamReader(stream);
+        try {
+            int sheet = 0;
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("sheet")) {
+                    if (sheet++ == index) {
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            if (reader.getAttributeLocalName(i).equals("id")) {
+                                return workbook.getRelationship(reader.getAttributeValue(i));
+                            }
+                        }
+                        return null;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            reader.close();
+            stream.close();
+        }
+    }
+
+    /**
+     * Returns the value of the given cell of the current row. Missing cells are blank.
+     *
+     * @param index
+     * @return
+     */
+    private String getCell(int index) {
+        return index < row.length && row[index] != null ? row[index] : "";
+    }
+
+    /**
+     * Returns the index of the column referenced by the given cell reference, e.g. "AB12".
+     *
+     * @param reference
+     * @return
+     */
+    private int getColumnIndex(String reference) {
+        int index = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            index = index * 26 + (c - 'A' + 1);
+        }
+        return index - 1;
+    }
+
+    /**
+     * Returns the value of a cell as a string.
+     *
+     * @param type The type attribute of the cell
+     * @param value The raw value of the cell
+     * @return
+     */
+    private String getValue(String type, String value) {
+        if (value == null) {
+            return "";
+        } else if ("s".equals(type)) {
+            if (strings == null) {
+                throw new IllegalArgumentException("Workbook contains no shared strings");
+            }
+            return strings.getEntryAt(Integer.parseInt(value.trim()));
+        } else if ("b".equals(type)) {
+            return "1".equals(value.trim()) ? "TRUE" : "FALSE";
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Reads the text of an inline string, consisting of one or more runs.
+     *
+     * @return
+     * @throws XMLStreamException
+     */
+    private String readInlineString() throws XMLStreamException {
+        StringBuilder builder = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (reader.getLocalName().equals("t")) {
+                    builder.append(reader.getElementText());
+                } else if (reader.getLocalName().equals("rPh")) {
+                    skipElement();
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Reads the next row from the sheet.
+     *
+     * @return The cells of the row, <code>null</code> if there is no further row
+     * @throws XMLStreamException
+     */
+    private String[] readRow() throws XMLStreamException {
+
+        List<String> cells = null;
+        int column = -1;
+        String type = null;
+        String value = null;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if (name.equals("dimension")) {
+                    String reference = reader.getAttributeValue(null, "ref");
+                    if (reference != null) {
+                        String last = reference.substring(reference.indexOf(':') + 1);
+                        String number = last.replaceAll("[^0-9]", "");
+                        totalRows = number.isEmpty() ? 0 : Integer.parseInt(number);
+                    }
+                } else if (name.equals("row")) {
+                    cells = new ArrayList<String>();
+                    column = -1;
+                    String number = reader.getAttributeValue(null, "r");
+                    currentRow = number != null ? Integer.parseInt(number) : currentRow + 1;
+                } else if (name.equals("c")) {
+                    String reference = reader.getAttributeValue(null, "r");
+                    column = reference != null ? getColumnIndex(reference) : column + 1;
+                    type = reader.getAttributeValue(null, "t");
+                    value = null;
+                } else if (name.equals("v")) {
+                    value = reader.getElementText();
+                } else if (name.equals("is")) {
+                    value = readInlineString();
+                } else if (name.equals("f")) {
+                    skipElement();
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                String name = reader.getLocalName();
+                if (name.equals("c")) {
+                    while (cells.size() <= column) {
+                        cells.add(null);
+                    }
+                    cells.set(column, getValue(type, value));
+                } else if (name.equals("row")) {
+                    return cells.toArray(new String[cells.size()]);
+                } else if (name.equals("sheetData")) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Skips the current element including its children.
+     *
+     * @throws XMLStreamException
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Returns an array with indexes of columns that should be imported.
+     *
+     * @return Array containing indexes of columns that should be imported
+     */
+    protected int[] getIndexesToImport() {
+
+        /* Get indexes to import from */
+        ArrayList<Integer> indexes = new ArrayList<Integer>();
+        for (ImportColumn column : config.getColumns()) {
+            indexes.add(((ImportColumnExcel) column).getIndex());
+        }
+
+        int[] result = new int[indexes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexes.get(i);
+        }
+        return result;
+    }
+}
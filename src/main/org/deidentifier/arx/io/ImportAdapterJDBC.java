@@ -17,12 +17,19 @@
 
 package org.deidentifier.arx.io;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.deidentifier.arx.DataType;
 
@@ -32,10 +39,220 @@ import org.deidentifier.arx.DataType;
  * This adapter can import data from JDBC sources. The source itself is
  * described by an appropriate {@link ImportConfigurationJDBC} object.
  * 
+ * If a partitioning has been configured, disjoint ranges of the partition
+ * column are read in the background and handed over in batches. Rows are
+ * returned ordered by partition. Only a few batches are buffered per partition.
+ * Reading stops and all resources are released when the last row has been
+ * returned, when an error occurs, when {@link #close()} is called or when the
+ * adapter is no longer referenced.
+ * 
  * @author Karol Babioch
  * @author Fabian Prasser
  */
-public class ImportAdapterJDBC extends ImportAdapter {
+public class ImportAdapterJDBC extends ImportAdapter implements Closeable {
+    
+    /**
+     * A batch of rows read from a partition.
+     */
+    private static class Batch {
+        
+        /** Rows */
+        private final List<String[]> rows;
+        
+        /** Error */
+        private final Throwable      error;
+        
+        /**
+         * Creates a new instance
+         * @param rows
+         * @param error
+         */
+        private Batch(List<String[]> rows, Throwable error) {
+            this.rows = rows;
+            this.error = error;
+        }
+    }
+    
+    /**
+     * A range of the partition column.
+     */
+    private static class Partition {
+        
+        /** Query */
+        private final String              query;
+        
+        /** Parameters */
+        private final double[]            parameters;
+        
+        /** Batches read from the partition */
+        private final BlockingQueue<Batch> batches = new LinkedBlockingQueue<Batch>(BATCHES);
+        
+        /**
+         * Creates a new instance
+         * @param query
+         * @param parameters
+         */
+        private Partition(String query, double... parameters) {
+            this.query = query;
+            this.parameters = parameters;
+        }
+    }
+    
+    /**
+     * Reads partitions in the background. Workers only weakly reference the adapter,
+     * which allows them to stop if the adapter is abandoned before all rows have been returned.
+     */
+    private static class Worker implements Runnable {
+
+        /** The adapter */
+        private final WeakReference<ImportAdapterJDBC> adapter;
+
+        /** Configuration */
+        private final ImportConfigurationJDBC          config;
+
+        /** Indexes of the columns to import */
+        private final int[]                            indexes;
+
+        /** Data types of the columns to import */
+        private final DataType<?>[]                    dataTypes;
+
+        /** Partitions */
+        private final Partition[]                      partitions;
+
+        /** The first partition read by this worker */
+        private final int                              first;
+
+        /** The distance between partitions read by this worker */
+        private final int                              step;
+
+        /**
+         * Creates a new instance
+         * @param adapter
+         * @param first
+         * @param step
+         */
+        private Worker(ImportAdapterJDBC adapter, int first, int step) {
+            this.adapter = new WeakReference<ImportAdapterJDBC>(adapter);
+            this.config = adapter.config;
+            this.indexes = adapter.indexes;
+            this.dataTypes = adapter.dataTypes;
+            this.partitions = adapter.partitions;
+            this.first = first;
+            this.step = step;
+        }
+
+        @Override
+        public void run() {
+            Connection connection = null;
+            boolean own = false;
+            int current = first;
+            try {
+                connection = config.createConnection();
+                own = connection != null;
+                if (!own) {
+                    connection = config.getConnection();
+                }
+                for (; current < partitions.length && !isClosed(); current += step) {
+                    read(connection, partitions[current]);
+                }
+            } catch (InterruptedException e) {
+                /* Stop silently */
+            } catch (Throwable e) {
+                try {
+                    put(partitions[current], new Batch(null, e));
+                } catch (InterruptedException e1) {
+                    /* Stop silently */
+                }
+            } finally {
+                try {
+                    if (own) {
+                        connection.close();
+                    }
+                } catch (Exception e) {
+                    /* Ignore silently */
+                }
+            }
+        }
+
+        /**
+         * Returns whether the adapter has been closed or is no longer referenced.
+         *
+         * @return
+         */
+        private boolean isClosed() {
+            ImportAdapterJDBC adapter = this.adapter.get();
+            return adapter == null || adapter.closed;
+        }
+
+        /**
+         * Hands over the given batch. Blocks while the buffer of the partition is full.
+         *
+         * @param partition
+         * @param batch
+         * @return Whether the batch has been handed over, <code>false</code> if reading has been stopped
+         * @throws InterruptedException
+         */
+        private boolean put(Partition partition, Batch batch) throws InterruptedException {
+            while (!isClosed()) {
+                if (partition.batches.offer(batch, WAIT, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Reads the given partition and hands over its rows in batches.
+         *
+         * @param connection
+         * @param partition
+         * @throws SQLException
+         * @throws InterruptedException
+         */
+        private void read(Connection connection, Partition partition) throws SQLException, InterruptedException {
+
+            PreparedStatement statement = null;
+            ResultSet resultSet = null;
+            try {
+                statement = connection.prepareStatement(partition.query);
+                statement.setFetchSize(config.getFetchSize());
+                for (int i = 0; i < partition.parameters.length; i++) {
+                    statement.setDouble(i + 1, partition.parameters[i]);
+                }
+                resultSet = statement.executeQuery();
+                List<String[]> rows = new ArrayList<String[]>(config.getFetchSize());
+                while (resultSet.next()) {
+                    rows.add(createRow(resultSet, config, indexes, dataTypes));
+                    if (rows.size() == config.getFetchSize()) {
+                        if (!put(partition, new Batch(rows, null))) {
+                            return;
+                        }
+                        rows = new ArrayList<String[]>(config.getFetchSize());
+                    }
+                }
+                if (!rows.isEmpty() && !put(partition, new Batch(rows, null))) {
+                    return;
+                }
+                put(partition, END);
+            } finally {
+                if (resultSet != null) {
+                    resultSet.close();
+                }
+                if (statement != null) {
+                    statement.close();
+                }
+            }
+        }
+    }
+
+    /** The number of batches buffered per partition. */
+    private static final int        BATCHES = 4;
+
+    /** Time in milliseconds after which blocked workers check whether to stop. */
+    private static final long       WAIT    = 100L;
+
+    /** Marks the end of a partition. */
+    private static final Batch      END     = new Batch(null, null);
     
     /** The configuration describing the CSV file being used. */
     private ImportConfigurationJDBC config;
@@ -69,6 +286,28 @@ public class ImportAdapterJDBC extends ImportAdapter {
      */
     private int                     totalRows;
     
+    /**
+     * Number of rows that have already been returned.
+     *
+     * @see {@link #getProgress()}
+     */
+    private volatile int            returnedRows;
+    
+    /** Partitions, if the table is read in the background. */
+    private Partition[]             partitions;
+    
+    /** The partition currently being returned. */
+    private int                     partition;
+    
+    /** The batch currently being returned. */
+    private List<String[]>          batch;
+    
+    /** Offset into the current batch. */
+    private int                     offset;
+    
+    /** Indicates whether the resources have been closed. */
+    private volatile boolean        closed;
+    
     /**
      * Creates a new instance of this object with given configuration.
      *
@@ -84,13 +323,17 @@ public class ImportAdapterJDBC extends ImportAdapter {
         /* Preparation work */
         indexes = getIndexesToImport();
         dataTypes = getColumnDatatypes();
+        String column = config.getPartitionColumn();
+        boolean partitioned = column != null && config.getPartitions() > 1;
         
         try {
             
-            /* Used to keep track of progress */
+            /* Used to keep track of progress and to determine the ranges of partitions */
             statement = config.getConnection().createStatement();
-            statement.execute("SELECT COUNT(*) FROM " + config.getTable());
+            statement.execute("SELECT COUNT(*)" + (partitioned ? ", MIN(" + column + "), MAX(" + column + ")" : "") + " FROM " + config.getTable());
             resultSet = statement.getResultSet();
+            double min = 0d;
+            double max = 0d;
             
             if (resultSet.next()) {
                 
@@ -99,44 +342,59 @@ public class ImportAdapterJDBC extends ImportAdapter {
                     closeResources();
                     throw new IOException("Table doesn't contain any rows");
                 }
+                if (partitioned) {
+                    min = resultSet.getDouble(2);
+                    max = resultSet.getDouble(3);
+                }
                 
             } else {
                 closeResources();
                 throw new IOException("Couldn't determine number of rows");
             }
+            closeStatement();
             
-            /* Query for actual data */
-            statement = config.getConnection().createStatement();
-            statement.execute("SELECT * FROM " + config.getTable());
-            resultSet = statement.getResultSet();
-            hasNext = resultSet.next();
+            if (!partitioned) {
+                
+                /* Query for actual data */
+                statement = config.getConnection().createStatement();
+                statement.setFetchSize(config.getFetchSize());
+                statement.execute("SELECT * FROM " + config.getTable());
+                resultSet = statement.getResultSet();
+                header = createHeader();
+                hasNext = resultSet.next();
+                
+            } else {
+                
+                /* Query for metadata */
+                statement = config.getConnection().createStatement();
+                statement.execute("SELECT * FROM " + config.getTable() + " WHERE 1 = 0");
+                resultSet = statement.getResultSet();
+                header = createHeader();
+                closeStatement();
+                
+                /* Read partitions in the background */
+                partitions = getPartitions(column, config.getPartitions(), min, max);
+                start();
+                hasNext = advance();
+            }
             
         } catch (SQLException e) {
             closeResources();
             throw new IOException(e.getMessage());
         }
-        
-        // Create header
-        header = createHeader();
     }
     
     /**
      * Returns the percentage of data that has already been returned
      * 
      * This divides the number of rows that have already been returned by the
-     * number of total rows and casts the result into a percentage. In case of
-     * an {@link SQLException} 0 will be returned.
+     * number of total rows and casts the result into a percentage.
      *
      * @return
      */
     @Override
     public int getProgress() {
-        
-        try {
-            return (int) (((double) resultSet.getRow() / (double) totalRows) * 100d);
-        } catch (SQLException e) {
-            return 0;
-        }
+        return (int) (((double) returnedRows / (double) totalRows) * 100d);
     }
     
     /**
@@ -165,22 +423,23 @@ public class ImportAdapterJDBC extends ImportAdapter {
             return header;
         }
         
+        /* Return row read in the background */
+        if (partitions != null) {
+            String[] result = batch.get(offset);
+            batch.set(offset++, null);
+            returnedRows++;
+            hasNext = advance();
+            if (!hasNext) {
+                closeResources();
+            }
+            return result;
+        }
+        
         try {
             
             /* Create regular row */
-            String[] result = new String[indexes.length];
-            for (int i = 0; i < indexes.length; i++) {
-                
-                result[i] = IOUtil.trim(resultSet.getString(indexes[i]));
-                if (!dataTypes[i].isValid(result[i])) {
-                    if (config.columns.get(i).isCleansing()) {
-                        result[i] = DataType.NULL_VALUE;
-                    } else {
-                        closeResources();
-                        throw new IllegalArgumentException("Data value does not match data type");
-                    }
-                }
-            }
+            String[] result = createRow(resultSet, config, indexes, dataTypes);
+            returnedRows++;
             
             /* Move cursor forward and assign result to {@link #hasNext} */
             hasNext = resultSet.next();
@@ -194,6 +453,20 @@ public class ImportAdapterJDBC extends ImportAdapter {
         } catch (SQLException e) {
             closeResources();
             throw new RuntimeException("Couldn't retrieve data from database");
+        } catch (IllegalArgumentException e) {
+            closeResources();
+            throw e;
+        }
+    }
+    
+    /**
+     * Stops reading and releases all resources. This is done automatically when the last
+     * row has been returned or an error has occurred.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closeResources();
         }
     }
     
@@ -205,10 +478,64 @@ public class ImportAdapterJDBC extends ImportAdapter {
         throw new UnsupportedOperationException();
     }
     
+    /**
+     * Moves to the next row read in the background.
+     *
+     * @return Whether there is another row
+     */
+    private boolean advance() {
+        
+        while (batch == null || offset == batch.size()) {
+            
+            if (partition == partitions.length) {
+                return false;
+            }
+            
+            Batch next;
+            try {
+                next = partitions[partition].batches.take();
+            } catch (InterruptedException e) {
+                closeResources();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while retrieving data from database");
+            }
+            
+            if (next.error != null) {
+                closeResources();
+                if (next.error instanceof RuntimeException) {
+                    throw (RuntimeException) next.error;
+                }
+                throw new RuntimeException("Couldn't retrieve data from database");
+            } else if (next == END) {
+                partition++;
+                batch = null;
+            } else {
+                batch = next.rows;
+                offset = 0;
+            }
+        }
+        return true;
+    }
+    
     /**
      * Closes the JDBC resources.
      */
     private void closeResources() {
+        closed = true;
+        closeStatement();
+        try {
+            if (config.isManageConnection()) {
+                config.getConnection().close();
+            }
+        } catch (Exception e) {
+            /* Die silently */
+        }
+    }
+    
+    /**
+     * Closes the current result set and statement.
+     */
+    private void closeStatement() {
         try {
             if (resultSet != null) {
                 resultSet.close();
@@ -223,13 +550,8 @@ public class ImportAdapterJDBC extends ImportAdapter {
         } catch (Exception e) {
             /* Ignore silently */
         }
-        try {
-            if (config.isManageConnection()) {
-                config.getConnection().close();
-            }
-        } catch (Exception e) {
-            /* Die silently */
-        }
+        resultSet = null;
+        statement = null;
     }
     
     /**
@@ -277,6 +599,75 @@ public class ImportAdapterJDBC extends ImportAdapter {
         
     }
     
+    /**
+     * Creates a row from the current position of the given result set.
+     *
+     * @param resultSet
+     * @param config
+     * @param indexes
+     * @param dataTypes
+     * @return
+     * @throws SQLException
+     */
+    private static String[] createRow(ResultSet resultSet, ImportConfigurationJDBC config, int[] indexes, DataType<?>[] dataTypes) throws SQLException {
+        
+        String[] result = new String[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            
+            result[i] = IOUtil.trim(resultSet.getString(indexes[i]));
+            if (!dataTypes[i].isValid(result[i])) {
+                if (config.columns.get(i).isCleansing()) {
+                    result[i] = DataType.NULL_VALUE;
+                } else {
+                    throw new IllegalArgumentException("Data value does not match data type");
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Splits the range of the given column into partitions of equal width. Rows with
+     * <code>NULL</code> values are assigned to the first partition.
+     *
+     * @param column
+     * @param count
+     * @param min
+     * @param max
+     * @return
+     */
+    private Partition[] getPartitions(String column, int count, double min, double max) {
+        
+        String query = "SELECT * FROM " + config.getTable() + " WHERE ";
+        double[] bounds = new double[count - 1];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = min + (max - min) * (i + 1) / count;
+        }
+        
+        Partition[] result = new Partition[count];
+        result[0] = new Partition(query + column + " < ? OR " + column + " IS NULL", bounds[0]);
+        for (int i = 1; i < count - 1; i++) {
+            result[i] = new Partition(query + column + " >= ? AND " + column + " < ?", bounds[i - 1], bounds[i]);
+        }
+        result[count - 1] = new Partition(query + column + " >= ?", bounds[count - 2]);
+        return result;
+    }
+    
+    /**
+     * Starts reading the partitions in the background. If additional connections
+     * can be created, each worker uses its own connection. Otherwise, a single worker
+     * reads all partitions via the configured connection.
+     */
+    private void start() {
+        
+        final int workers = !config.isManageConnection() ? 1 : Math.min(partitions.length, Runtime.getRuntime().availableProcessors());
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(new Worker(this, i, workers), "ARX JDBC import worker");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+    
     /**
      * Returns an array with indexes of columns that should be imported
      * 
@@ -69,6 +69,13 @@ public class ImportConfigurationExcel extends ImportConfigurationFile implements
      */
     private boolean        containsHeader;
 
+    /**
+     * Indicates whether XLSX files should be streamed instead of being loaded into memory.
+     *
+     * @see {@link #setStreaming(boolean)}
+     */
+    private boolean        streaming      = false;
+
     /**
      * Creates a new instance of this object.
      *
@@ -188,6 +195,15 @@ public class ImportConfigurationExcel extends ImportConfigurationFile implements
         return sheetIndex;
     }
 
+    /**
+     * Returns whether XLSX files are streamed.
+     *
+     * @return {@link #streaming}
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
     /**
      * Sets the indexes based on the header.
      *
@@ -195,13 +211,27 @@ public class ImportConfigurationExcel extends ImportConfigurationFile implements
      */
     public void prepare(Row row) {
 
+        String[] cells = new String[row.getPhysicalNumberOfCells()];
+        for (int i = 0; i < cells.length; i++) {
+            row.getCell(i).setCellType(Cell.CELL_TYPE_STRING);
+            cells[i] = row.getCell(i).getStringCellValue();
+        }
+        prepare(cells);
+    }
+
+    /**
+     * Sets the indexes based on the header.
+     *
+     * @param row The cells of the header
+     */
+    public void prepare(String[] row) {
+
         for (ImportColumn c : super.getColumns()) {
             ImportColumnExcel column = (ImportColumnExcel) c;
             if (!column.isIndexSpecified()) {
                 boolean found = false;
-                for (int i = 0; i < row.getPhysicalNumberOfCells(); i++) {
-                    row.getCell(i).setCellType(Cell.CELL_TYPE_STRING);
-                    if (row.getCell(i).getStringCellValue().equals(column.getName())) {
+                for (int i = 0; i < row.length; i++) {
+                    if (row[i] != null && row[i].equals(column.getName())) {
                         found = true;
                         column.setIndex(i);
                     }
@@ -231,6 +261,17 @@ public class ImportConfigurationExcel extends ImportConfigurationFile implements
     }
 
 
+    /**
+     * Sets whether XLSX files should be streamed from the file row by row, instead of
+     * loading the complete workbook into memory. Has no effect on XLS files.
+     *
+     * @param streaming
+     *            {@link #streaming}
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     /**
      * @param sheetIndex
      *            {@link #sheetIndex}
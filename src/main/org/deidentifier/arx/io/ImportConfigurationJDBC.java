@@ -52,6 +52,27 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
      */
     private final boolean manageConnection;
     
+    /** The default number of rows fetched per round trip. */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    
+    /** URL, if connections can be created by ARX. */
+    private final String  url;
+    
+    /** User, if connections can be created by ARX. */
+    private final String  user;
+    
+    /** Password, if connections can be created by ARX. */
+    private final String  password;
+    
+    /** Number of rows fetched per round trip. */
+    private int           fetchSize = DEFAULT_FETCH_SIZE;
+    
+    /** Numeric column used for range partitioning. */
+    private String        partitionColumn;
+    
+    /** Number of partitions. */
+    private int           partitions = 1;
+    
     /**
      * Creates a new instance of this object.
      *
@@ -62,6 +83,9 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
         this.connection = connection;
         this.table = table;
         this.manageConnection = false;
+        this.url = null;
+        this.user = null;
+        this.password = null;
     }
     
     /**
@@ -75,6 +99,9 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
         this.connection = DriverManager.getConnection(url);
         this.table = table;
         this.manageConnection = true;
+        this.url = url;
+        this.user = null;
+        this.password = null;
     }
     
     /**
@@ -90,6 +117,9 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
         this.connection = DriverManager.getConnection(url, user, password);
         this.table = table;
         this.manageConnection = true;
+        this.url = url;
+        this.user = user;
+        this.password = password;
     }
     
     /**
@@ -138,6 +168,66 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
         }
     }
     
+    /**
+     * Returns the number of rows fetched per round trip.
+     *
+     * @return
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+    
+    /**
+     * Returns the numeric column used for range partitioning, <code>null</code> if none.
+     *
+     * @return
+     */
+    public String getPartitionColumn() {
+        return partitionColumn;
+    }
+    
+    /**
+     * Returns the number of partitions.
+     *
+     * @return
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+    
+    /**
+     * Sets the number of rows fetched per round trip. Rows are also handed over
+     * from partitions read in the background in batches of this size.
+     *
+     * @param fetchSize
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive");
+        }
+        this.fetchSize = fetchSize;
+    }
+    
+    /**
+     * Splits the table into the given number of ranges of the given numeric column.
+     * If this configuration has been created from a URL, the partitions are read
+     * concurrently via separate connections. Otherwise, they are read one after
+     * another in the background. Rows are returned ordered by partition.
+     *
+     * @param column
+     * @param partitions
+     */
+    public void setPartitioning(String column, int partitions) {
+        if (column == null) {
+            throw new IllegalArgumentException("Column must not be null");
+        }
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be positive");
+        }
+        this.partitionColumn = column;
+        this.partitions = partitions;
+    }
+    
     /**
      * 
      *
@@ -181,6 +271,22 @@ public class ImportConfigurationJDBC extends ImportConfiguration {
         
     }
     
+    /**
+     * Creates an additional connection, if this is supported by this configuration.
+     *
+     * @return The connection or <code>null</code>, if connections are managed by the caller
+     * @throws SQLException
+     */
+    protected Connection createConnection() throws SQLException {
+        if (url == null) {
+            return null;
+        } else if (user == null) {
+            return DriverManager.getConnection(url);
+        } else {
+            return DriverManager.getConnection(url, user, password);
+        }
+    }
+    
     /**
      * @return {@link #connection}
      */
@@ -0,0 +1,513 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.io;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.DataType.ARXDate;
+import org.deidentifier.arx.DataType.ARXDecimal;
+import org.deidentifier.arx.DataType.ARXInteger;
+
+/**
+ * Provides methods for writing dictionary-encoded data to a database table
+ * via batched prepared statements.
+ * 
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class JDBCDataOutput {
+
+    /** The default number of rows per batch. */
+    public static final int DEFAULT_BATCH_SIZE      = 1000;
+
+    /** The default number of rows per transaction. */
+    public static final int DEFAULT_COMMIT_INTERVAL = 10000;
+
+    /** Connection, if provided by the caller. */
+    private final Connection connection;
+
+    /** Table. */
+    private final String     table;
+
+    /** URL, if connections can be created by ARX. */
+    private final String     url;
+
+    /** User, if connections can be created by ARX. */
+    private final String     user;
+
+    /** Password, if connections can be created by ARX. */
+    private final String     password;
+
+    /** Number of rows per batch. */
+    private int              batchSize      = DEFAULT_BATCH_SIZE;
+
+    /** Number of rows per transaction. */
+    private int              commitInterval = DEFAULT_COMMIT_INTERVAL;
+
+    /** Number of concurrent writers. */
+    private int              threads        = 1;
+
+    /** Should the table be created. */
+    private boolean          createTable    = false;
+
+    /**
+     * Creates a new instance writing to the given table via the given connection.
+     * The connection will not be closed.
+     *
+     * @param connection
+     * @param table
+     */
+    public JDBCDataOutput(final Connection connection, final String table) {
+        this.connection = connection;
+        this.table = table;
+        this.url = null;
+        this.user = null;
+        this.password = null;
+    }
+
+    /**
+     * Creates a new instance writing to the given table. A new connection is opened
+     * for each write and closed afterwards.
+     *
+     * @param url
+     * @param table
+     * @throws SQLException If no driver accepts the URL
+     */
+    public JDBCDataOutput(final String url, final String table) throws SQLException {
+        DriverManager.getDriver(url);
+        this.connection = null;
+        this.table = table;
+        this.url = url;
+        this.user = null;
+        this.password = null;
+    }
+
+    /**
+     * Creates a new instance writing to the given table. A new connection is opened
+     * for each write and closed afterwards.
+     *
+     * @param url
+     * @param user
+     * @param password
+     * @param table
+     * @throws SQLException If no driver accepts the URL
+     */
+    public JDBCDataOutput(final String url, final String user, final String password, final String table) throws SQLException {
+        DriverManager.getDriver(url);
+        this.connection = null;
+        this.table = table;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    /**
+     * Returns the number of rows per batch.
+     *
+     * @return
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the number of rows per transaction.
+     *
+     * @return
+     */
+    public int getCommitInterval() {
+        return commitInterval;
+    }
+
+    /**
+     * Returns the number of concurrent writers.
+     *
+     * @return
+     */
+    public int getNumberOfThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns whether the table will be created.
+     *
+     * @return
+     */
+    public boolean isCreateTable() {
+        return createTable;
+    }
+
+    /**
+     * Sets the number of rows per batch.
+     *
+     * @param batchSize
+     */
+    public void setBatchSize(final int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the number of rows per transaction.
+     *
+     * @param commitInterval
+     */
+    public void setCommitInterval(final int commitInterval) {
+        if (commitInterval <= 0) {
+            throw new IllegalArgumentException("Commit interval must be positive");
+        }
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Sets whether the table should be created. Columns of type integer, decimal and date
+     * are created with according SQL types, if all of their values are valid. All other
+     * columns are created as VARCHAR.
+     *
+     * @param createTable
+     */
+    public void setCreateTable(final boolean createTable) {
+        this.createTable = createTable;
+    }
+
+    /**
+     * Sets the number of concurrent writers, each of which inserts a range of rows
+     * via a separate connection. Only supported if this instance has been created from a URL.
+     * Each writer commits its rows independently. If a writer fails, the rows committed by
+     * the other writers remain in the table and must be removed by the caller.
+     *
+     * @param threads
+     */
+    public void setNumberOfThreads(final int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        } else if (threads > 1 && url == null) {
+            throw new IllegalArgumentException("Concurrent writers require a URL to create connections");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Writes the given data to the table. Values are converted once per dictionary entry.
+     * Rows are committed in transactions of the configured size. If writing fails, only the
+     * current transaction of each writer is rolled back, which may leave a partially written table.
+     *
+     * @param data
+     * @param types The data types of the columns
+     * @throws SQLException
+     */
+    public void write(final IEncodedData data, final DataType<?>[] types) throws SQLException {
+
+        final Connection connection = this.connection != null ? this.connection : createConnection();
+        try {
+
+            // Prepare
+            final String[] header = data.getHeader();
+            final int[] sqlTypes = new int[header.length];
+            final Object[][] values = new Object[header.length][];
+            for (int column = 0; column < header.length; column++) {
+                sqlTypes[column] = getSQLType(types[column], data.getDictionary(column));
+                values[column] = getValues(types[column], sqlTypes[column], data.getDictionary(column));
+            }
+
+            // Create table. Falls back to the quote of standard SQL, if the driver does not report one.
+            String quote = connection.getMetaData().getIdentifierQuoteString();
+            quote = quote == null || quote.trim().isEmpty() ? "\"" : quote.trim();
+            if (createTable) {
+                createTable(connection, header, sqlTypes, values, quote);
+            }
+
+            // Prepare insert
+            final StringBuilder builder = new StringBuilder();
+            builder.append("INSERT INTO ").append(table).append(" (");
+            for (int column = 0; column < header.length; column++) {
+                builder.append(column == 0 ? "" : ", ").append(quote(header[column], quote));
+            }
+            builder.append(") VALUES (");
+            for (int column = 0; column < header.length; column++) {
+                builder.append(column == 0 ? "?" : ", ?");
+            }
+            builder.append(")");
+            final String insert = builder.toString();
+
+            // Write single range
+            final int rows = data.getNumRows();
+            final int workers = Math.max(1, Math.min(threads, rows / batchSize));
+            if (workers == 1) {
+                write(connection, insert, data, sqlTypes, values, 0, rows);
+                return;
+            }
+
+            // Write ranges concurrently
+            final Thread[] writers = new Thread[workers];
+            final SQLException[] errors = new SQLException[workers];
+            for (int i = 0; i < workers; i++) {
+                final int worker = i;
+                final int from = (int) ((long) rows * i / workers);
+                final int to = (int) ((long) rows * (i + 1) / workers);
+                writers[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Connection connection = null;
+                        try {
+                            connection = createConnection();
+                            write(connection, insert, data, sqlTypes, values, from, to);
+                        } catch (SQLException e) {
+                            errors[worker] = e;
+                        } finally {
+                            close(connection);
+                        }
+                    }
+                }, "ARX JDBC export worker");
+                writers[i].setDaemon(true);
+                writers[i].start();
+            }
+            for (int i = 0; i < workers; i++) {
+                try {
+                    writers[i].join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while writing data to database", e);
+                }
+            }
+            for (SQLException error : errors) {
+                if (error != null) {
+                    throw error;
+                }
+            }
+
+        } finally {
+            if (connection != this.connection) {
+                close(connection);
+            }
+        }
+    }
+
+    /**
+     * Closes the given connection silently.
+     *
+     * @param connection
+     */
+    private void close(final Connection connection) {
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (Exception e) {
+            /* Ignore silently */
+        }
+    }
+
+    /**
+     * Creates a connection.
+     *
+     * @return
+     * @throws SQLException
+     */
+    private Connection createConnection() throws SQLException {
+        if (user == null) {
+            return DriverManager.getConnection(url);
+        } else {
+            return DriverManager.getConnection(url, user, password);
+        }
+    }
+
+    /**
+     * Creates the table.
+     *
+     * @param connection
+     * @param header
+     * @param sqlTypes
+     * @param values
+     * @param quote
+     * @throws SQLException
+     */
+    private void createTable(final Connection connection, final String[] header, final int[] sqlTypes, final Object[][] values, final String quote) throws SQLException {
+
+        final StringBuilder builder = new StringBuilder();
+        builder.append("CREATE TABLE ").append(table).append(" (");
+        for (int column = 0; column < header.length; column++) {
+            builder.append(column == 0 ? "" : ", ").append(quote(header[column], quote)).append(" ");
+            switch (sqlTypes[column]) {
+            case Types.BIGINT:
+                builder.append("BIGINT");
+                break;
+            case Types.DOUBLE:
+                builder.append("DOUBLE PRECISION");
+                break;
+            case Types.TIMESTAMP:
+                builder.append("TIMESTAMP");
+                break;
+            default:
+                int length = 1;
+                for (Object value : values[column]) {
+                    length = Math.max(length, ((String) value).length());
+                }
+                builder.append("VARCHAR(").append(length).append(")");
+            }
+        }
+        builder.append(")");
+
+        final Statement statement = connection.createStatement();
+        try {
+            statement.execute(builder.toString());
+        } finally {
+            statement.close();
+        }
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    /**
+     * Returns the SQL type of the given column. Falls back to VARCHAR if a value is not valid.
+     *
+     * @param type
+     * @param dictionary
+     * @return
+     */
+    private int getSQLType(final DataType<?> type, final String[] dictionary) {
+        final int sqlType;
+        if (type instanceof ARXInteger) {
+            sqlType = Types.BIGINT;
+        } else if (type instanceof ARXDecimal) {
+            sqlType = Types.DOUBLE;
+        } else if (type instanceof ARXDate) {
+            sqlType = Types.TIMESTAMP;
+        } else {
+            return Types.VARCHAR;
+        }
+        for (String value : dictionary) {
+            if (!type.isValid(value)) {
+                return Types.VARCHAR;
+            }
+        }
+        return sqlType;
+    }
+
+    /**
+     * Converts the dictionary of the given column into the values to be bound.
+     *
+     * @param type
+     * @param sqlType
+     * @param dictionary
+     * @return
+     */
+    private Object[] getValues(final DataType<?> type, final int sqlType, final String[] dictionary) {
+        final Object[] values = new Object[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++) {
+            if (sqlType == Types.VARCHAR) {
+                values[i] = dictionary[i];
+            } else {
+                Object value = type.parse(dictionary[i]);
+                if (value instanceof Date) {
+                    value = new Timestamp(((Date) value).getTime());
+                }
+                values[i] = value;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Quotes the given identifier. Quote strings contained in the identifier are doubled.
+     *
+     * @param identifier
+     * @param quote
+     * @return
+     */
+    private String quote(final String identifier, final String quote) {
+        return quote + identifier.replace(quote, quote + quote) + quote;
+    }
+
+    /**
+     * Inserts the given range of rows via batches. Commits after the configured number of rows.
+     *
+     * @param connection
+     * @param insert
+     * @param data
+     * @param sqlTypes
+     * @param values
+     * @param from
+     * @param to
+     * @throws SQLException
+     */
+    private void write(final Connection connection,
+                       final String insert,
+                       final IEncodedData data,
+                       final int[] sqlTypes,
+                       final Object[][] values,
+                       final int from,
+                       final int to) throws SQLException {
+
+        final boolean autoCommit = connection.getAutoCommit();
+        final PreparedStatement statement = connection.prepareStatement(insert);
+        try {
+            connection.setAutoCommit(false);
+            int batch = 0;
+            int transaction = 0;
+            for (int row = from; row < to; row++) {
+                for (int column = 0; column < sqlTypes.length; column++) {
+                    final Object value = values[column][data.getCode(row, column)];
+                    if (value == null) {
+                        statement.setNull(column + 1, sqlTypes[column]);
+                    } else {
+                        statement.setObject(column + 1, value, sqlTypes[column]);
+                    }
+                }
+                statement.addBatch();
+                if (++batch == batchSize) {
+                    statement.executeBatch();
+                    batch = 0;
+                }
+                if (++transaction == commitInterval) {
+                    if (batch != 0) {
+                        statement.executeBatch();
+                        batch = 0;
+                    }
+                    connection.commit();
+                    transaction = 0;
+                }
+            }
+            if (batch != 0) {
+                statement.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException e2) {
+                /* Ignore silently */
+            }
+            throw e;
+        } finally {
+            statement.close();
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -189,26 +189,24 @@ public class MetricEntropy extends MetricDefault {
         RowSet rSubset = super.getSubset(config);
 
         // Create reference to the hierarchies
-        final int[][] data = input.getArray();
-        hierarchies = new int[data[0].length][][];
+        hierarchies = new int[input.getHeader().length][][];
         for (int i = 0; i < ahierarchies.length; i++) {
             hierarchies[i] = ahierarchies[i].getArray();
             // Column -> Id -> Level -> Output
         }
 
         // Initialize counts
-        cardinalities = new int[data[0].length][][];
+        cardinalities = new int[hierarchies.length][][];
         for (int i = 0; i < cardinalities.length; i++) {
             cardinalities[i] = new int[dictionary.getMapping()[i].length][ahierarchies[i].getArray()[0].length];
             // Column -> Id -> Level -> Count
         }
 
-		for (int i = 0; i < data.length; i++) { 
-			// only use the rows contained in the research subset
-			if (rSubset == null || rSubset.contains(i)) {
-				final int[] row = data[i];
-				for (int column = 0; column < row.length; column++) {
-					cardinalities[column][row[column]][0]++;
+		for (int column = 0; column < cardinalities.length; column++) {
+			for (int i = 0; i < input.getDataLength(); i++) { 
+				// only use the rows contained in the research subset
+				if (rSubset == null || rSubset.contains(i)) {
+					cardinalities[column][input.get(i, column)][0]++;
 				}
 			}
 		}
@@ -48,21 +48,19 @@ public class Cardinalities implements Serializable {
      */
     public Cardinalities(Data data, RowSet subset, GeneralizationHierarchy[] hierarchies){
 
-        int[][] array = data.getArray();
         Dictionary dictionary = data.getDictionary();
         
         // Initialize counts
-        cardinalities = new int[array[0].length][][];
+        cardinalities = new int[data.getHeader().length][][];
         for (int i = 0; i < cardinalities.length; i++) {
             cardinalities[i] = new int[dictionary.getMapping()[i].length][hierarchies[i].getArray()[0].length];
         }
 
         // Compute counts
-        for (int i = 0; i < array.length; i++) { 
-            if (subset == null || subset.contains(i)) {
-                final int[] row = array[i];
-                for (int column = 0; column < row.length; column++) {
-                    cardinalities[column][row[column]][0]++;
+        for (int column = 0; column < cardinalities.length; column++) {
+            for (int i = 0; i < data.getDataLength(); i++) { 
+                if (subset == null || subset.contains(i)) {
+                    cardinalities[column][data.get(i, column)][0]++;
                 }
             }
         }
@@ -253,8 +253,16 @@ public class MetricSDNMKLDivergence extends AbstractMetricSingleDimensional {
         this.tuples = (double)super.getNumRecords(config, input);
         RowSet subset = super.getSubset(config);
         
+        // Decode the input, as the tuple matcher references its rows
+        final int[][] array = new int[input.getDataLength()][hierarchies.length];
+        for (int row = 0; row < array.length; row++) {
+            for (int column = 0; column < hierarchies.length; column++) {
+                array[row][column] = input.get(row, column);
+            }
+        }
+        
         // Tuple matcher
-        this.matcher = new TupleMatcher(hierarchies, input.getArray());
+        this.matcher = new TupleMatcher(hierarchies, array);
        
         // Areamax
         this.maximalArea = 1d;
@@ -266,7 +274,7 @@ public class MetricSDNMKLDivergence extends AbstractMetricSingleDimensional {
        Map<TupleWrapper, Integer> groupify = new HashMap<TupleWrapper, Integer>();
        for (int row = 0; row < input.getDataLength(); row++) {
            if (subset == null || subset.contains(row)) {
-               TupleWrapper wrapper = new TupleWrapper(input.getArray()[row]);
+               TupleWrapper wrapper = new TupleWrapper(array[row]);
                Integer count = groupify.get(wrapper);
                count = count == null ? 1 : count + 1;
                groupify.put(wrapper, count);
@@ -275,10 +283,10 @@ public class MetricSDNMKLDivergence extends AbstractMetricSingleDimensional {
        
        // Build input distribution and compute max
        this.max = 0d;
-       this.inputDistribution = new double[input.getArray().length];
+       this.inputDistribution = new double[array.length];
        for (int row = 0; row < input.getDataLength(); row++) {
            if (subset == null || subset.contains(row)) {
-               TupleWrapper wrapper = new TupleWrapper(input.getArray()[row]);
+               TupleWrapper wrapper = new TupleWrapper(array[row]);
                double frequency = groupify.get(wrapper).doubleValue() / this.tuples;
                this.inputDistribution[row] = frequency ;
                this.max += frequency * log2(frequency * maximalArea);
@@ -174,7 +174,23 @@ public class RiskEstimateBuilder {
      */
     public RiskModelAttributes getAttributeRisks() {
         progress.value = 0;
-        return new RiskModelAttributes(this.population, this.handle, this.identifiers, this.stop, progress, this.solverconfig, this.arxconfig);
+        return new RiskModelAttributes(this.handle, this.identifiers, this.stop, progress);
+    }
+
+    /**
+     * Returns a class providing access to an analysis of the n riskiest potential quasi-identifiers
+     * using the concepts of alpha distinction and alpha separation. Subsets of attributes which
+     * cannot be among the results are not analyzed.
+     *
+     * @param n The number of quasi-identifiers to return
+     * @return the RiskModelAttributes data from risk analysis
+     */
+    public RiskModelAttributes getAttributeRisks(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Number of quasi-identifiers must be > 0");
+        }
+        progress.value = 0;
+        return new RiskModelAttributes(this.handle, this.identifiers, this.stop, progress, n);
     }
 
     /**
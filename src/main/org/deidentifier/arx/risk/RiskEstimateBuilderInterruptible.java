@@ -53,6 +53,21 @@ public class RiskEstimateBuilderInterruptible {
         }
     }
 
+    /**
+     * Returns a class providing access to an analysis of the n riskiest potential quasi-identifiers
+     * using the concepts of alpha distinction and alpha separation.
+     *
+     * @param n The number of quasi-identifiers to return
+     * @return the RiskModelAttributes data from risk analysis
+     */
+    public RiskModelAttributes getAttributeRisks(int n) throws InterruptedException {
+        try {
+            return parent.getAttributeRisks(n);
+        } catch (ComputationInterruptedException e) {
+            throw new InterruptedException("Computation interrupted");
+        }
+    }
+
     /**
      * Returns a model of the equivalence classes in this data set
      * 
@@ -22,30 +22,64 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
-import org.deidentifier.arx.ARXConfiguration;
-import org.deidentifier.arx.ARXPopulationModel;
-import org.deidentifier.arx.ARXSolverConfiguration;
 import org.deidentifier.arx.DataHandleInternal;
 import org.deidentifier.arx.common.WrappedBoolean;
 import org.deidentifier.arx.common.WrappedInteger;
 import org.deidentifier.arx.exceptions.ComputationInterruptedException;
+import org.deidentifier.arx.io.IEncodedData;
+
+import com.carrotsearch.hppc.IntIntOpenHashMap;
+import com.carrotsearch.hppc.LongIntOpenHashMap;
 
 /**
  * A class for analyzing attribute-related risks. Calculates alpha-distinction and
  * alpha separation as described in R. Motwani et al.
  * "Efficient algorithms for masking and finding quasi-identifiers" Proc. VLDB Conf., 2007.
- *
+ * <br>
+ * The subsets of the given attributes are enumerated as a lattice, in which the equivalence
+ * classes of each subset are derived from the classes of its parent by refining them with one
+ * additional attribute. Independent branches of the lattice are processed in parallel. Optionally,
+ * only the n riskiest subsets are determined, which allows to prune branches of the lattice
+ * which cannot contain such subsets.
  *
  * @author Fabian Prasser
  * @author Maximilian Zitzmann
  */
 public class RiskModelAttributes {
 
+    /**
+     * Grouping of the records into equivalence classes. Suppressed records are assigned to no group.
+     *
+     * @author Fabian Prasser
+     */
+    private static final class Grouping {
+
+        /** Group of each record, -1 for suppressed records */
+        private final int[] groups;
+        /** Number of groups */
+        private final int   numGroups;
+
+        /**
+         * Creates a new instance
+         * 
+         * @param groups
+         * @param numGroups
+         */
+        private Grouping(int[] groups, int numGroups) {
+            this.groups = groups;
+            this.numGroups = numGroups;
+        }
+    }
+
     /**
      * Risks associated with a certain quasi-identifier
      *
@@ -65,20 +99,13 @@ public class RiskModelAttributes {
          * Creates a new instance
          *
          * @param identifier
+         * @param histogram
          */
-        private QuasiIdentifierRisk(List<String> identifier) {
+        private QuasiIdentifierRisk(List<String> identifier, RiskModelHistogram histogram) {
 
             // Store identifier
             this.identifier = identifier;
 
-            // Calculate distribution of class sizes
-            RiskModelHistogram histogram = new RiskEstimateBuilder(population,
-                                                                   handle,
-                                                                   new HashSet<String>(identifier),
-                                                                   stop,
-                                                                   solverconfig,
-                                                                   arxconfig).getEquivalenceClassModel();
-
             // Calculate distinction and separation
             this.alphaDistinction = getAlphaDistinction(histogram);
             this.alphaSeparation = getAlphaSeparation(histogram);
@@ -136,87 +163,243 @@ public class RiskModelAttributes {
             return alphaSeparation;
         }
     }
+
+    /**
+     * Task processing a subset of attributes and, recursively, all subsets which extend it with
+     * attributes following its last attribute.
+     *
+     * @author Fabian Prasser
+     */
+    private final class SubsetTask extends RecursiveAction {
+
+        /** SVUID */
+        private static final long      serialVersionUID = -4390917206419464457L;
+
+        /** Indexes of the attributes in this subset */
+        private final int[]            subset;
+        /** Grouping of the parent subset */
+        private final Grouping         parent;
+        /** Histogram of this subset joined with all following attributes, if already known */
+        private final RiskModelHistogram bound;
+
+        /**
+         * Creates a new instance
+         * 
+         * @param subset
+         * @param parent
+         * @param bound
+         */
+        private SubsetTask(int[] subset, Grouping parent, RiskModelHistogram bound) {
+            this.subset = subset;
+            this.parent = parent;
+            this.bound = bound;
+        }
+
+        @Override
+        protected void compute() {
+
+            // Derive the classes from the classes of the parent
+            Grouping grouping = parent;
+            if (subset.length != 0) {
+                grouping = getGrouping(parent, subset[subset.length - 1]);
+                addResult(new QuasiIdentifierRisk(getIdentifier(subset), getHistogram(grouping)));
+            }
+
+            // Check whether there are more attributes
+            int next = subset.length == 0 ? 0 : subset[subset.length - 1] + 1;
+            if (next == columns.length) {
+                return;
+            }
+            
+            // Check whether extensions of this subset can still be among the results
+            RiskModelHistogram bound = null;
+            if (limit != 0 && columns.length - next > 1) {
+                bound = this.bound != null ? this.bound : getBound(grouping, next);
+                if (isPruned(bound, subset.length + 1)) {
+                    setDone(Math.pow(2d, columns.length - next) - 1d);
+                    return;
+                }
+            }
+
+            // Process extensions. The first extension has the same bound.
+            List<SubsetTask> tasks = new ArrayList<SubsetTask>();
+            for (int index = next; index < columns.length; index++) {
+                int[] extension = Arrays.copyOf(subset, subset.length + 1);
+                extension[subset.length] = index;
+                tasks.add(new SubsetTask(extension, grouping, index == next ? bound : null));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    /** Order of quasi-identifiers by decreasing risk */
+    private static final Comparator<QuasiIdentifierRisk> RISK_ORDER = new Comparator<QuasiIdentifierRisk>() {
+        @Override
+        public int compare(QuasiIdentifierRisk o1, QuasiIdentifierRisk o2) {
+            int cmp = compareRisk(o1.alphaDistinction, o1.alphaSeparation, o1.identifier.size(), o2);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return o1.identifier.toString().compareTo(o2.identifier.toString());
+        }
+    };
+
+    /**
+     * Compares the given risk estimates to the given quasi-identifier. Returns a negative value if
+     * the estimates indicate a higher risk. Smaller quasi-identifiers with equal risks are considered
+     * to be more risky.
+     * 
+     * @param distinction
+     * @param separation
+     * @param size
+     * @param other
+     * @return
+     */
+    private static int compareRisk(double distinction, double separation, int size, QuasiIdentifierRisk other) {
+        int cmp = Double.compare(other.alphaDistinction, distinction);
+        if (cmp != 0) {
+            return cmp;
+        }
+        cmp = Double.compare(other.alphaSeparation, separation);
+        if (cmp != 0) {
+            return cmp;
+        }
+        return Integer.compare(size, other.identifier.size());
+    }
+
     /** Stop flag */
-    private final WrappedBoolean        stop;
+    private final WrappedBoolean                     stop;
     /** Results */
-    private final QuasiIdentifierRisk[] risks;
-    /** Just needed for creating risk models */
-    private ARXPopulationModel          population;
-    /** Data handle */
-    private DataHandleInternal          handle;
-    /** Just needed for creating risk models */
-    private ARXSolverConfiguration      solverconfig;
-    /** Just needed for creating risk models */
-    private ARXConfiguration            arxconfig;
+    private final QuasiIdentifierRisk[]              risks;
+    /** Data */
+    private final IEncodedData                       data;
+    /** Attributes, ordered by column index */
+    private final String[]                           attributes;
+    /** Column indexes of the attributes */
+    private final int[]                              columns;
+    /** Canonical codes of the attributes */
+    private final int[][]                            codes;
+    /** Number of records which are not suppressed */
+    private final int                                numRecords;
+    /** Maximal number of results, 0 if all subsets are analyzed */
+    private final int                                limit;
+    /** Results, ordered by decreasing risk if limited */
+    private final PriorityQueue<QuasiIdentifierRisk> results;
+    /** Progress */
+    private final WrappedInteger                     percentageDone;
+    /** Total number of subsets */
+    private final double                             total;
+    /** Number of subsets processed */
+    private double                                   done;
+
+    /**
+     * Creates a new instance analyzing all subsets of the given attributes
+     * @param handle
+     * @param identifiers
+     * @param stop
+     * @param percentageDone
+     */
+    RiskModelAttributes(final DataHandleInternal handle,
+                        final Set<String> identifiers,
+                        final WrappedBoolean stop,
+                        final WrappedInteger percentageDone) {
+        this(handle, identifiers, stop, percentageDone, 0);
+    }
 
     /**
-     * Creates a new instance
-     * @param population
+     * Creates a new instance analyzing the given number of riskiest subsets of the given attributes
      * @param handle
      * @param identifiers
      * @param stop
      * @param percentageDone
-     * @param solverconfig
-     * @param arxconfig
+     * @param limit The number of subsets to return, 0 if all subsets should be returned
      */
-    RiskModelAttributes(final ARXPopulationModel population,
-                        final DataHandleInternal handle,
+    RiskModelAttributes(final DataHandleInternal handle,
                         final Set<String> identifiers,
                         final WrappedBoolean stop,
                         final WrappedInteger percentageDone,
-                        final ARXSolverConfiguration solverconfig,
-                        final ARXConfiguration arxconfig) {
+                        final int limit) {
+        
+        // Check
+        if (limit < 0) {
+            throw new IllegalArgumentException("Number of quasi-identifiers must be > 0");
+        }
+        for (String identifier : identifiers) {
+            if (handle.getColumnIndexOf(identifier) == -1) {
+                throw new IllegalArgumentException(identifier + " is not an attribute");
+            }
+        }
         
-        this.population = population;
-        this.handle = handle;
         this.stop = stop;
-        this.solverconfig = solverconfig;
-        this.arxconfig = arxconfig;
-
-        // Find order list of qis
-        List<List<String>> qis = new ArrayList<>();
-        Set<Set<String>> powerset = getPowerSet(identifiers);
-        for (Set<String> set : powerset) {
-            
-            // Exclude empty set
-            if (!set.isEmpty()) {
-                
-                // Create and add
-                List<String> qi = new ArrayList<String>(set);
-                qis.add(qi);
-                
-                // Sort by column index
-                Collections.sort(qi, new Comparator<String>(){
-                    @Override
-                    public int compare(String o1, String o2) {
-                        int index1 = handle.getColumnIndexOf(o1);
-                        int index2 = handle.getColumnIndexOf(o2);
-                        return new Integer(index1).compareTo(index2);
-                    }
-                });
+        this.limit = limit;
+        this.percentageDone = percentageDone;
+        this.results = new PriorityQueue<QuasiIdentifierRisk>(11, Collections.reverseOrder(RISK_ORDER));
+
+        // Order attributes by column index
+        this.attributes = identifiers.toArray(new String[identifiers.size()]);
+        Arrays.sort(this.attributes, new Comparator<String>(){
+            @Override
+            public int compare(String o1, String o2) {
+                int index1 = handle.getColumnIndexOf(o1);
+                int index2 = handle.getColumnIndexOf(o2);
+                return new Integer(index1).compareTo(index2);
             }
+        });
+        
+        // Prepare data
+        this.data = handle.getEncodedData();
+        this.columns = new int[attributes.length];
+        this.codes = new int[attributes.length][];
+        for (int i = 0; i < attributes.length; i++) {
+            this.columns[i] = handle.getColumnIndexOf(attributes[i]);
+            this.codes[i] = getCanonicalCodes(data.getDictionary(columns[i]));
         }
         
+        // Initial grouping, which contains all records which are not suppressed
+        int numRows = handle.getNumRows();
+        int[] groups = new int[numRows];
+        int numRecords = 0;
+        for (int row = 0; row < numRows; row++) {
+            if (handle.isOutlier(row)) {
+                groups[row] = -1;
+            } else {
+                numRecords++;
+            }
+        }
+        this.numRecords = numRecords;
+        this.total = Math.pow(2d, attributes.length) - 1d;
+        
         // Compute risk estimates for all elements in the power set
-        Map<List<String>, QuasiIdentifierRisk> scores = new HashMap<>();
-        int done = 0;
-        for (List<String> qi : qis) {
-            checkInterrupt();
-            scores.put(qi, new QuasiIdentifierRisk(qi));
-            percentageDone.value = (int) Math.round((double) done++ / (double) (powerset.size() - 1) * 100d);
+        if (attributes.length != 0) {
+            int threads = Math.min(Runtime.getRuntime().availableProcessors(), attributes.length);
+            ForkJoinPool pool = new ForkJoinPool(threads, new ForkJoinWorkerThreadFactory() {
+                @Override
+                public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("ARX risk analysis worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, null, false);
+            try {
+                pool.invoke(new SubsetTask(new int[0], new Grouping(groups, numRecords == 0 ? 0 : 1), null));
+            } finally {
+                pool.shutdownNow();
+            }
         }
 
         // Now create sorted array
-        risks = new QuasiIdentifierRisk[scores.size()];
-        int idx = 0;
-        for (QuasiIdentifierRisk value : scores.values()) {
-            risks[idx++] = value;
+        risks = results.toArray(new QuasiIdentifierRisk[results.size()]);
+        if (limit == 0) {
+            Arrays.sort(risks);
+        } else {
+            Arrays.sort(risks, RISK_ORDER);
         }
-        Arrays.sort(risks);
     }
 
     /**
-     * Returns the quasi-identifiers, sorted by risk
+     * Returns the quasi-identifiers, sorted by risk. If only the riskiest quasi-identifiers
+     * have been determined, they are sorted by decreasing risk.
      *
      * @return
      */
@@ -224,6 +407,23 @@ public class RiskModelAttributes {
         return this.risks;
     }
 
+    /**
+     * Adds a result
+     * 
+     * @param risk
+     */
+    private void addResult(QuasiIdentifierRisk risk) {
+        synchronized (results) {
+            if (limit == 0 || results.size() < limit) {
+                results.add(risk);
+            } else if (RISK_ORDER.compare(risk, results.peek()) < 0) {
+                results.poll();
+                results.add(risk);
+            }
+        }
+        setDone(1d);
+    }
+
     /**
      * Checks for interrupts
      */
@@ -309,29 +509,140 @@ public class RiskModelAttributes {
     }
 
     /**
-     * Returns the power set
+     * Returns the histogram of the given grouping joined with all attributes starting at the given index.
+     * As the risks increase monotonically when attributes are added, this is an upper bound for the risks
+     * of all subsets which extend the grouping with some of these attributes.
+     * 
+     * @param grouping
+     * @param index
+     * @return
+     */
+    private RiskModelHistogram getBound(Grouping grouping, int index) {
+        for (; index < columns.length; index++) {
+            grouping = getGrouping(grouping, index);
+        }
+        return getHistogram(grouping);
+    }
+
+    /**
+     * Maps each entry of the given dictionary to the first entry with the same value. Dictionaries
+     * of output data may contain the same value twice, e.g. for suppressed and generalized values.
      *
-     * @param originalSet
+     * @param dictionary
+     * @return
+     */
+    private int[] getCanonicalCodes(String[] dictionary) {
+        Map<String, Integer> first = new HashMap<String, Integer>();
+        int[] codes = new int[dictionary.length];
+        for (int code = 0; code < dictionary.length; code++) {
+            Integer existing = first.get(dictionary[code]);
+            if (existing == null) {
+                first.put(dictionary[code], code);
+                codes[code] = code;
+            } else {
+                codes[code] = existing;
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Refines the given grouping with the attribute at the given index
+     * 
+     * @param parent
+     * @param index
      * @return
      */
-    private <T> Set<Set<T>> getPowerSet(Set<T> originalSet) {
-        checkInterrupt();
-        Set<Set<T>> sets = new HashSet<Set<T>>();
-        if (originalSet.isEmpty()) {
-            sets.add(new HashSet<T>());
-            return sets;
+    private Grouping getGrouping(Grouping parent, int index) {
+        
+        // Groups which only contain a single record cannot be refined any further
+        if (parent.numGroups == numRecords) {
+            return parent;
         }
-        List<T> list = new ArrayList<T>(originalSet);
-        T head = list.get(0);
-        Set<T> rest = new HashSet<T>(list.subList(1, list.size()));
-        for (Set<T> set : getPowerSet(rest)) {
+        
+        // Group by parent group and code
+        int column = columns[index];
+        int[] codes = this.codes[index];
+        int[] groups = new int[parent.groups.length];
+        LongIntOpenHashMap map = new LongIntOpenHashMap();
+        int numGroups = 0;
+        for (int row = 0; row < groups.length; row++) {
+            if (parent.groups[row] == -1) {
+                groups[row] = -1;
+            } else {
+                long key = (long) parent.groups[row] * (long) codes.length + (long) codes[data.getCode(row, column)];
+                int group = map.get(key);
+                if (group == 0) {
+                    group = ++numGroups;
+                    map.put(key, group);
+                }
+                groups[row] = group - 1;
+            }
             checkInterrupt();
-            Set<T> newSet = new HashSet<T>();
-            newSet.add(head);
-            newSet.addAll(set);
-            sets.add(newSet);
-            sets.add(set);
         }
-        return sets;
+        return new Grouping(groups, numGroups);
+    }
+
+    /**
+     * Returns the distribution of class sizes in the given grouping
+     * 
+     * @param grouping
+     * @return
+     */
+    private RiskModelHistogram getHistogram(Grouping grouping) {
+        int[] sizes = new int[grouping.numGroups];
+        for (int group : grouping.groups) {
+            if (group != -1) {
+                sizes[group]++;
+            }
+        }
+        IntIntOpenHashMap distribution = new IntIntOpenHashMap();
+        for (int size : sizes) {
+            distribution.putOrAdd(size, 1, 1);
+        }
+        return new RiskModelHistogram(distribution);
+    }
+
+    /**
+     * Returns the attribute names of the given subset
+     * 
+     * @param subset
+     * @return
+     */
+    private List<String> getIdentifier(int[] subset) {
+        List<String> identifier = new ArrayList<String>(subset.length);
+        for (int index : subset) {
+            identifier.add(attributes[index]);
+        }
+        return identifier;
+    }
+
+    /**
+     * Returns whether subsets with the given size and an upper bound on their risk
+     * can be ignored, because the required number of riskier subsets has already been found
+     * 
+     * @param bound
+     * @param size
+     * @return
+     */
+    private boolean isPruned(RiskModelHistogram bound, int size) {
+        QuasiIdentifierRisk threshold;
+        synchronized (results) {
+            if (results.size() < limit) {
+                return false;
+            }
+            threshold = results.peek();
+        }
+        return compareRisk(getAlphaDistinction(bound), getAlphaSeparation(bound), size, threshold) > 0;
+    }
+
+    /**
+     * Updates the progress
+     * 
+     * @param count The number of subsets which have been processed
+     */
+    private synchronized void setDone(double count) {
+        done += count;
+        percentageDone.value = (int) Math.round(done / total * 100d);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -359,7 +359,7 @@ public abstract class AbstractAnonymizationTest extends AbstractTest {
         final Data data = getDataObject(testCase);
         
         // Create an instance of the anonymizer
-        final ARXAnonymizer anonymizer = new ARXAnonymizer();
+        final ARXAnonymizer anonymizer = createAnonymizer();
         testCase.config.setPracticalMonotonicity(testCase.practical);
         
         // Test or warmup
@@ -495,6 +495,14 @@ public abstract class AbstractAnonymizationTest extends AbstractTest {
         }
     }
     
+    /**
+     * Creates the anonymizer used by this test
+     * @return
+     */
+    protected ARXAnonymizer createAnonymizer() {
+        return new ARXAnonymizer();
+    }
+    
     /**
      * Appends the given value to the file
      * @param value
@@ -0,0 +1,222 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXLattice.ARXNode;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.DataSubset;
+import org.deidentifier.arx.criteria.EntropyLDiversity;
+import org.deidentifier.arx.criteria.EntropyLDiversity.EntropyEstimator;
+import org.deidentifier.arx.criteria.EqualDistanceTCloseness;
+import org.deidentifier.arx.criteria.HierarchicalDistanceTCloseness;
+import org.deidentifier.arx.criteria.Inclusion;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.deidentifier.arx.criteria.OrderedDistanceTCloseness;
+import org.deidentifier.arx.metric.Metric;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test for anonymization with different options of the anonymization engine. The options
+ * must not change the results, which therefore equal the results of the according test cases
+ * with the default options.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+@RunWith(Parameterized.class)
+public class TestAnonymizationEngineOptions extends AbstractAnonymizationTest {
+
+    /**
+     * Options of the engine
+     *
+     * @author Fabian Prasser
+     */
+    public static enum EngineOption {
+        /** Multiple threads transforming data */
+        THREADS,
+        /** Multiple threads checking transformations */
+        SEARCH_THREADS,
+        /** History limited to a small amount of memory */
+        HISTORY_MEMORY_LIMIT,
+        /** Transformations aborted as soon as the suppression limit is provably exceeded */
+        FAST_FAIL,
+        /** All of the above */
+        ALL
+    }
+
+    /** The number of threads */
+    private static final int  THREADS      = 4;
+
+    /** The memory limit in bytes */
+    private static final long MEMORY_LIMIT = 16 * 1024;
+
+    /**
+     * Returns the test cases.
+     *
+     * @return
+     * @throws IOException
+     */
+    @Parameters(name = "{index}:[{0}-{1}]")
+    public static Collection<Object[]> cases() throws IOException {
+        List<Object[]> cases = new ArrayList<Object[]>();
+        for (EngineOption option : EngineOption.values()) {
+            for (ARXAnonymizationTestCase testCase : getTestCases()) {
+                cases.add(new Object[] { option, testCase });
+            }
+        }
+        return cases;
+    }
+
+    /**
+     * Returns the test cases for one option. Each option uses its own instances, as configurations are modified when being used.
+     *
+     * @return
+     * @throws IOException
+     */
+    private static ARXAnonymizationTestCase[] getTestCases() throws IOException {
+        return new ARXAnonymizationTestCase[] {
+            /* 0 */new ARXAnonymizationTestCase(ARXConfiguration.create(0.04d, Metric.createPrecomputedEntropyMetric(0.1d, true)).addPrivacyModel(new KAnonymity(5)), "./data/adult.csv", 255559.85455731067, new int[] { 1, 0, 1, 1, 3, 2, 2, 0, 1 }, false),
+            new ARXAnonymizationTestCase(ARXConfiguration.create(0.0d, Metric.createPrecomputedEntropyMetric(0.1d, true)).addPrivacyModel(new KAnonymity(100)), "./data/adult.csv", 453196.8932458743, new int[] { 0, 4, 1, 1, 3, 2, 2, 1, 1 }, false),
+            new ARXAnonymizationTestCase(ARXConfiguration.create(0.04d, Metric.createPrecomputedEntropyMetric(0.1d, true)).addPrivacyModel(new KAnonymity(100)), "./data/adult.csv", 379417.3460570988, new int[] { 1, 1, 1, 1, 3, 2, 2, 1, 1 }, true),
+            new ARXAnonymizationTestCase(ARXConfiguration.create(0.04d, Metric.createPrecomputedEntropyMetric(0.1d, false)).addPrivacyModel(new EntropyLDiversity("occupation", 5)), "occupation", "./data/adult.csv", 228878.2039109517, new int[] { 1, 0, 1, 1, 2, 2, 2, 1 }, false),
+            new ARXAnonymizationTestCase(ARXConfiguration.create(0.04d, Metric.createDiscernabilityMetric(true)).addPrivacyModel(new EqualDistanceTCloseness("occupation", 0.2d)).addPrivacyModel(new KAnonymity(5)), "occupation", "./data/adult.csv", "3.11880088E8", new int[] { 1, 4, 1, 0, 3, 2, 2, 1 }, false),
+            /* 5 */new ARXAnonymizationTestCase(ARXConfiguration.create(0.0d, Metric.createPrecomputedEntropyMetric(0.1d, true)).addPrivacyModel(new KAnonymity(5)).addPrivacyModel(new HierarchicalDistanceTCloseness("occupation", 0.2, Hierarchy.create("./data/adult_hierarchy_occupation.csv", StandardCharsets.UTF_8, ';'))).addPrivacyModel(new Inclusion(getSubset(20000))), "occupation", "./data/adult.csv", 178437.4164900378, new int[] { 1, 4, 1, 1, 3, 2, 2, 1 }, false),
+            new ARXAnonymizationTestCase(ARXConfiguration.create(0.0d, Metric.createPrecomputedEntropyMetric(0.1d, true)).addPrivacyModel(new KAnonymity(5)).addPrivacyModel(new Inclusion(getSubset(10000))), "occupation", "./data/adult.csv", 70774.7774633781, new int[] { 0, 4, 1, 1, 2, 2, 2, 0 }, false),
+            new ARXAnonymizationTestCase(ARXConfiguration.create(1d, Metric.createLossMetric(0.05d)).addPrivacyModel(new KAnonymity(5)), "./data/adult.csv", "occupation", -1231665634),
+            new ARXAnonymizationTestCase(ARXConfiguration.create(0.04d, Metric.createPrecomputedEntropyMetric(0.1d, false)).addPrivacyModel(new EntropyLDiversity("occupation", 100, EntropyEstimator.SHANNON)), "occupation", "./data/adult.csv", 0.0d, null, false),
+            new ARXAnonymizationTestCase(ARXConfiguration.create(0.04d, Metric.createDiscernabilityMetric(true)).addPrivacyModel(new OrderedDistanceTCloseness("occupation", 0.2d)).addPrivacyModel(new KAnonymity(5)), "occupation", "./data/adult.csv", "2712340.0", new int[] { 0, 0, 1, 1, 2, 2, 2, 0 }, false),
+            /* 10 */new ARXAnonymizationTestCase(ARXConfiguration.create(0.04d, Metric.createDiscernabilityMetric(true)).addPrivacyModel(new OrderedDistanceTCloseness("occupation", 0.2d)).addPrivacyModel(new KAnonymity(100)), "occupation", "./data/adult.csv", "1.9937246E7", new int[] { 1, 0, 1, 2, 3, 2, 2, 1 }, false),
+            new ARXAnonymizationTestCase(ARXConfiguration.create(0.04d, Metric.createDiscernabilityMetric(true)).addPrivacyModel(new OrderedDistanceTCloseness("occupation", 0.05d)).addPrivacyModel(new KAnonymity(5)), "occupation", "./data/adult.csv", "2.01413138E8", new int[] { 1, 4, 1, 0, 3, 2, 2, 0 }, true),
+        };
+    }
+
+    /**
+     * Returns a random subset of the given size
+     * @param size
+     * @return
+     */
+    private static DataSubset getSubset(int size) {
+        Set<Integer> set = new HashSet<Integer>();
+        Random random = new Random(0xDEADBEEF);
+        for (int i = 0; i < size; i++) {
+            set.add(random.nextInt(size));
+        }
+        return DataSubset.create(30162, set);
+    }
+
+    /** The option */
+    private final EngineOption option;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param option
+     * @param testCase
+     */
+    public TestAnonymizationEngineOptions(final EngineOption option, final ARXAnonymizationTestCase testCase) {
+        super(testCase);
+        this.option = option;
+    }
+
+    /**
+     * Compares the result with the result of an anonymizer using the default options. The
+     * optimum must be equal and transformations checked by both searches must have the same
+     * properties.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testSequential() throws IOException {
+        
+        // Results of local recoding are compared by the hash code of the output
+        if (testCase.hashcode != -1) {
+            return;
+        }
+        
+        // Configurations are modified when being used, so each run uses its own copy
+        testCase.config.setPracticalMonotonicity(testCase.practical);
+        ARXResult expected = new ARXAnonymizer().anonymize(getDataObject(testCase), testCase.config.clone());
+        ARXResult actual = createAnonymizer().anonymize(getDataObject(testCase), testCase.config.clone());
+        
+        // Compare optimum
+        if (expected.getGlobalOptimum() == null) {
+            assertNull(actual.getGlobalOptimum());
+            return;
+        }
+        assertArrayEquals(expected.getGlobalOptimum().getTransformation(), actual.getGlobalOptimum().getTransformation());
+        assertEquals(expected.getGlobalOptimum().getHighestScore(), actual.getGlobalOptimum().getHighestScore());
+        
+        // Compare transformations checked by both searches
+        Map<String, ARXNode> nodes = new HashMap<String, ARXNode>();
+        for (ARXNode[] level : expected.getLattice().getLevels()) {
+            for (ARXNode node : level) {
+                if (node.isChecked()) {
+                    nodes.put(Arrays.toString(node.getTransformation()), node);
+                }
+            }
+        }
+        for (ARXNode[] level : actual.getLattice().getLevels()) {
+            for (ARXNode node : level) {
+                ARXNode other = nodes.get(Arrays.toString(node.getTransformation()));
+                if (node.isChecked() && other != null) {
+                    assertEquals(Arrays.toString(node.getTransformation()), other.getAnonymity(), node.getAnonymity());
+                }
+            }
+        }
+    }
+
+    @Override
+    protected ARXAnonymizer createAnonymizer() {
+        ARXAnonymizer anonymizer = super.createAnonymizer();
+        if (option == EngineOption.THREADS || option == EngineOption.ALL) {
+            anonymizer.setNumberOfThreads(THREADS);
+        }
+        if (option == EngineOption.SEARCH_THREADS || option == EngineOption.ALL) {
+            anonymizer.setNumberOfSearchThreads(THREADS);
+        }
+        if (option == EngineOption.HISTORY_MEMORY_LIMIT || option == EngineOption.ALL) {
+            anonymizer.setHistoryMemoryLimit(MEMORY_LIMIT);
+        }
+        if (option == EngineOption.FAST_FAIL || option == EngineOption.ALL) {
+            anonymizer.setFastFailEnabled(true);
+        }
+        return anonymizer;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.tools.ToolProvider;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXEngineStatistics;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.AttributeType.Hierarchy.DefaultHierarchy;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.Data.DefaultData;
+import org.deidentifier.arx.DataHandle;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.junit.Test;
+
+/**
+ * Test for anonymization of datasets with more than 15 quasi-identifiers, which are
+ * transformed with the generic transformer or with transformers generated at runtime.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class TestAnonymizationManyQuasiIdentifiers extends AbstractTest {
+
+    /** The number of quasi-identifiers */
+    private static final int  QIS     = 18;
+
+    /** The number of records */
+    private static final int  ROWS    = 200;
+
+    /** The parameter k */
+    private static final int  K       = 3;
+
+    /** The maximal time to wait for the compilation of generated transformers in milliseconds */
+    private static final long TIMEOUT = 60000L;
+
+    /**
+     * Anonymizes a random dataset and checks whether the output is generalized according to
+     * the hierarchies and fulfills k-anonymity.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testKAnonymity() throws IOException {
+
+        // Define data
+        String[][] input = new String[ROWS][QIS];
+        String[] header = getHeader();
+        final DefaultData data = getData(input);
+
+        // Anonymize
+        final ARXResult result = new ARXAnonymizer().anonymize(data, getConfiguration());
+        assertNotNull(result.getGlobalOptimum());
+
+        // Check generalization
+        final DataHandle output = result.getOutput(false);
+        final Map<String, Integer> sizes = new HashMap<String, Integer>();
+        for (int row = 0; row < ROWS; row++) {
+            if (output.isOutlier(row)) {
+                continue;
+            }
+            String[] tuple = new String[QIS];
+            for (int i = 0; i < QIS; i++) {
+                tuple[i] = output.getValue(row, i);
+                assertEquals(generalize(input[row][i], output.getGeneralization(header[i])), tuple[i]);
+            }
+            String key = Arrays.toString(tuple);
+            sizes.put(key, sizes.containsKey(key) ? sizes.get(key) + 1 : 1);
+        }
+
+        // Check k-anonymity
+        for (int size : sizes.values()) {
+            assertTrue(size >= K);
+        }
+    }
+
+    /**
+     * Anonymizes a random dataset with transformers generated at runtime, once they have been
+     * compiled, and checks whether the search and its result equal the generic implementation.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    @Test
+    public void testGeneratedTransformers() throws IOException, InterruptedException {
+
+        // Generated transformers require a system Java compiler
+        assumeNotNull(ToolProvider.getSystemJavaCompiler());
+
+        // Anonymize with the generic transformer
+        final ARXResult expected = new ARXAnonymizer().anonymize(getData(new String[ROWS][QIS]), getConfiguration());
+        assertEquals(0, expected.getEngineStatistics().getNumberOfGeneratedTransitions());
+
+        // Anonymize with generated transformers, once they are available
+        final ARXAnonymizer anonymizer = new ARXAnonymizer();
+        anonymizer.setGeneratedTransformersEnabled(true);
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        ARXResult actual = anonymizer.anonymize(getData(new String[ROWS][QIS]), getConfiguration());
+        while (actual.getEngineStatistics().getNumberOfGeneratedTransitions() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            actual = anonymizer.anonymize(getData(new String[ROWS][QIS]), getConfiguration());
+        }
+        assertTrue("Generated transformers have not been used", actual.getEngineStatistics().getNumberOfGeneratedTransitions() > 0);
+
+        // Compare search
+        final ARXEngineStatistics statisticsExpected = expected.getEngineStatistics();
+        final ARXEngineStatistics statisticsActual = actual.getEngineStatistics();
+        assertEquals(statisticsExpected.getNumberOfChecks(), statisticsActual.getNumberOfChecks());
+        assertEquals(statisticsExpected.getNumberOfScannedItems(), statisticsActual.getNumberOfScannedItems());
+        assertEquals(statisticsExpected.getNumberOfClassesProduced(), statisticsActual.getNumberOfClassesProduced());
+
+        // Compare result
+        assertArrayEquals(expected.getGlobalOptimum().getTransformation(), actual.getGlobalOptimum().getTransformation());
+        final DataHandle outputExpected = expected.getOutput(false);
+        final DataHandle outputActual = actual.getOutput(false);
+        for (int row = 0; row < ROWS; row++) {
+            assertEquals(outputExpected.isOutlier(row), outputActual.isOutlier(row));
+            for (int i = 0; i < QIS; i++) {
+                assertEquals(outputExpected.getValue(row, i), outputActual.getValue(row, i));
+            }
+        }
+    }
+
+    /**
+     * Returns the configuration
+     *
+     * @return
+     */
+    private ARXConfiguration getConfiguration() {
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(K));
+        config.setSuppressionLimit(0.1d);
+        config.setHeuristicSearchThreshold(Integer.MAX_VALUE);
+        return config;
+    }
+
+    /**
+     * Returns a random dataset with hierarchies and stores its records in the given array
+     *
+     * @param input
+     * @return
+     */
+    private DefaultData getData(String[][] input) {
+
+        // Define data
+        final DefaultData data = Data.create();
+        String[] header = getHeader();
+        data.add(header);
+        Random random = new Random(0xDEADBEEF);
+        for (int row = 0; row < ROWS; row++) {
+            for (int i = 0; i < QIS; i++) {
+                input[row][i] = String.valueOf(random.nextInt(i % 3 == 0 ? 2 : 4));
+            }
+            data.add(input[row]);
+        }
+
+        // Define hierarchies
+        for (int i = 0; i < QIS; i++) {
+            final DefaultHierarchy hierarchy = Hierarchy.create();
+            hierarchy.add("0", "*");
+            hierarchy.add("1", "*");
+            hierarchy.add("2", "*");
+            hierarchy.add("3", "*");
+            data.getDefinition().setAttributeType(header[i], hierarchy);
+        }
+        return data;
+    }
+
+    /**
+     * Returns the header
+     *
+     * @return
+     */
+    private String[] getHeader() {
+        String[] header = new String[QIS];
+        for (int i = 0; i < QIS; i++) {
+            header[i] = "qi" + i;
+        }
+        return header;
+    }
+
+    /**
+     * Generalizes the given value to the given level
+     *
+     * @param value
+     * @param level
+     * @return
+     */
+    private String generalize(String value, int level) {
+        return level == 0 ? value : "*";
+    }
+}
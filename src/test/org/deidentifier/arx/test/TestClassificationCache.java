@@ -0,0 +1,137 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXClassificationCache;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.AttributeType.Hierarchy.DefaultHierarchy;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.Data.DefaultData;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.deidentifier.arx.metric.Metric;
+import org.junit.Test;
+
+/**
+ * Test for the persistent cache for classifications of transformations.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class TestClassificationCache extends AbstractTest {
+
+    /** The number of quasi-identifiers */
+    private static final int QIS  = 4;
+
+    /** The number of records */
+    private static final int ROWS = 1000;
+
+    /**
+     * Anonymizes a random dataset multiple times and checks whether cached classifications
+     * reduce the number of checks without changing the result.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCache() throws IOException {
+
+        File directory = File.createTempFile("arx", "cache");
+        directory.delete();
+        ARXClassificationCache cache = new ARXClassificationCache(directory);
+        try {
+            
+            // Initial run
+            ARXResult initial = anonymize(cache, 0.02d, Metric.createLossMetric());
+            assertTrue(directory.list().length == 1);
+            
+            // Same parameters
+            ARXResult repeated = anonymize(cache, 0.02d, Metric.createLossMetric());
+            assertTrue(repeated.getEngineStatistics().getNumberOfChecks() < initial.getEngineStatistics().getNumberOfChecks());
+            assertArrayEquals(initial.getGlobalOptimum().getTransformation(), repeated.getGlobalOptimum().getTransformation());
+
+            // Different quality model and lower suppression limit
+            for (double suppressionLimit : new double[] { 0.02d, 0.01d, 0d }) {
+                ARXResult expected = anonymize(null, suppressionLimit, Metric.createEntropyMetric());
+                ARXResult actual = anonymize(cache, suppressionLimit, Metric.createEntropyMetric());
+                assertArrayEquals(expected.getGlobalOptimum().getTransformation(), actual.getGlobalOptimum().getTransformation());
+                assertEquals(expected.getGlobalOptimum().getHighestScore().compareTo(actual.getGlobalOptimum().getHighestScore()), 0);
+            }
+            assertTrue(directory.list().length == 1);
+            
+        } finally {
+            cache.clear();
+            directory.delete();
+        }
+    }
+
+    /**
+     * Anonymizes a random dataset
+     * 
+     * @param cache
+     * @param suppressionLimit
+     * @param metric
+     * @return
+     * @throws IOException
+     */
+    private ARXResult anonymize(ARXClassificationCache cache, double suppressionLimit, Metric<?> metric) throws IOException {
+
+        // Define data
+        final DefaultData data = Data.create();
+        String[] header = new String[QIS];
+        for (int i = 0; i < QIS; i++) {
+            header[i] = "qi" + i;
+        }
+        data.add(header);
+        Random random = new Random(0xDEADBEEF);
+        for (int row = 0; row < ROWS; row++) {
+            String[] tuple = new String[QIS];
+            for (int i = 0; i < QIS; i++) {
+                tuple[i] = String.valueOf(random.nextInt(8));
+            }
+            data.add(tuple);
+        }
+
+        // Define hierarchies
+        for (int i = 0; i < QIS; i++) {
+            final DefaultHierarchy hierarchy = Hierarchy.create();
+            for (int value = 0; value < 8; value++) {
+                hierarchy.add(String.valueOf(value), String.valueOf(value / 2), String.valueOf(value / 4), "*");
+            }
+            data.getDefinition().setAttributeType(header[i], hierarchy);
+        }
+
+        // Anonymize
+        final ARXAnonymizer anonymizer = new ARXAnonymizer();
+        anonymizer.setClassificationCache(cache);
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.setSuppressionLimit(suppressionLimit);
+        config.setQualityModel(metric);
+        return anonymizer.anonymize(data, config);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.AttributeType;
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.AttributeType.Hierarchy.DefaultHierarchy;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.Data.DefaultData;
+import org.deidentifier.arx.DataHandle;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.deidentifier.arx.io.BinaryDataInput;
+import org.junit.Test;
+
+/**
+ * Test for the binary format for dictionary-encoded data.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class TestDataBinary extends AbstractTest {
+
+    /** The number of quasi-identifiers */
+    private static final int QIS  = 4;
+
+    /** The number of records */
+    private static final int ROWS = 500;
+
+    /**
+     * Writes and reads a random dataset and checks whether the content, the hierarchies
+     * and the result of anonymizing the data are preserved.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testBinaryData() throws IOException {
+
+        File file = File.createTempFile("arx", ".bin");
+        try {
+
+            // Write
+            Data data = getData();
+            data.getHandle().saveBinary(file);
+
+            // Read
+            BinaryDataInput input = new BinaryDataInput(file);
+            assertEquals(ROWS, input.getNumRows());
+            assertEquals(QIS, input.getHierarchies().size());
+            Data binary = Data.create(input);
+            for (int i = 0; i < QIS; i++) {
+                assertArrayEquals(data.getDefinition().getHierarchy("qi" + i), binary.getDefinition().getHierarchy("qi" + i));
+                binary.getDefinition().setAttributeType("qi" + i, AttributeType.QUASI_IDENTIFYING_ATTRIBUTE);
+            }
+            binary.getDefinition().setAttributeType("value", AttributeType.INSENSITIVE_ATTRIBUTE);
+
+            // Compare content
+            compare(data.getHandle(), binary.getHandle());
+
+            // Compare results
+            ARXResult expected = anonymize(data);
+            ARXResult actual = anonymize(binary);
+            assertArrayEquals(expected.getGlobalOptimum().getTransformation(), actual.getGlobalOptimum().getTransformation());
+            compare(expected.getOutput(), actual.getOutput());
+            
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Checks whether corrupt lengths and counts are detected before memory is allocated.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCorruptData() throws IOException {
+
+        // Offsets of the length of the first attribute name and of the first dictionary size
+        long[] offsets = {24L, 24L + 4L + 3L};
+        for (long offset : offsets) {
+            File file = File.createTempFile("arx", ".bin");
+            try {
+                getData().getHandle().saveBinary(file);
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    raf.seek(offset);
+                    raf.writeInt(Integer.MAX_VALUE);
+                } finally {
+                    raf.close();
+                }
+                try {
+                    new BinaryDataInput(file);
+                    fail("Corrupt data not detected");
+                } catch (IOException e) {
+                    assertTrue(e.getMessage().startsWith("Corrupt binary data file"));
+                }
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Anonymizes the given data
+     * 
+     * @param data
+     * @return
+     * @throws IOException
+     */
+    private ARXResult anonymize(Data data) throws IOException {
+        final ARXAnonymizer anonymizer = new ARXAnonymizer();
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.setSuppressionLimit(0.02d);
+        return anonymizer.anonymize(data, config);
+    }
+
+    /**
+     * Compares the content of the given handles
+     * 
+     * @param expected
+     * @param actual
+     */
+    private void compare(DataHandle expected, DataHandle actual) {
+        assertEquals(expected.getNumRows(), actual.getNumRows());
+        Iterator<String[]> iterator1 = expected.iterator();
+        Iterator<String[]> iterator2 = actual.iterator();
+        while (iterator1.hasNext()) {
+            assertTrue(iterator2.hasNext());
+            assertArrayEquals(iterator1.next(), iterator2.next());
+        }
+        assertTrue(!iterator2.hasNext());
+    }
+
+    /**
+     * Returns a random dataset
+     * 
+     * @return
+     */
+    private Data getData() {
+        
+        // Define data
+        final DefaultData data = Data.create();
+        String[] header = new String[QIS + 1];
+        for (int i = 0; i < QIS; i++) {
+            header[i] = "qi" + i;
+        }
+        header[QIS] = "value";
+        data.add(header);
+        Random random = new Random(0xDEADBEEF);
+        for (int row = 0; row < ROWS; row++) {
+            String[] tuple = new String[QIS + 1];
+            for (int i = 0; i < QIS; i++) {
+                tuple[i] = String.valueOf(random.nextInt(8));
+            }
+            tuple[QIS] = "\u00e4\u00f6\u00fc-" + random.nextInt(1000);
+            data.add(tuple);
+        }
+
+        // Define hierarchies
+        for (int i = 0; i < QIS; i++) {
+            final DefaultHierarchy hierarchy = Hierarchy.create();
+            for (int value = 0; value < 8; value++) {
+                hierarchy.add(String.valueOf(value), String.valueOf(value / 2), String.valueOf(value / 4), "*");
+            }
+            data.getDefinition().setAttributeType(header[i], hierarchy);
+        }
+        data.getDefinition().setAttributeType("value", AttributeType.INSENSITIVE_ATTRIBUTE);
+        return data;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.deidentifier.arx.RowSet;
+import org.deidentifier.arx.framework.data.DataColumns;
+import org.junit.Test;
+
+/**
+ * Test for the column storage of the input data.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class TestDataColumns extends AbstractTest {
+
+    /** The domain sizes, which cover all supported numbers of bits per code and their limits */
+    private static final int[] DOMAINS = { 1, 2, 3, 5, 16, 17, 200, 256, 257, 70000, Integer.MAX_VALUE };
+
+    /** The number of records */
+    private static final int   ROWS    = 1000;
+
+    /**
+     * Checks the number of bits used per code.
+     */
+    @Test
+    public void testBitsPerValue() {
+        DataColumns columns = new DataColumns(ROWS, DOMAINS);
+        int[] expected = { 8, 8, 8, 8, 8, 8, 8, 8, 16, 32, 32 };
+        for (int column = 0; column < DOMAINS.length; column++) {
+            assertEquals(expected[column], columns.getBitsPerValue(column));
+        }
+    }
+
+    /**
+     * Checks that the columns are smaller than an array of the same data.
+     */
+    @Test
+    public void testByteSize() {
+        DataColumns columns = new DataColumns(ROWS, new int[] { 74, 16, 7, 2, 42, 6, 5, 15, 41 });
+        long array = (long) ROWS * 9 * 4;
+        assertTrue(columns.getByteSize() * 4 <= array);
+    }
+
+    /**
+     * Checks that codes which do not fit into a column are rejected.
+     */
+    @Test
+    public void testRange() {
+        DataColumns columns = new DataColumns(ROWS, new int[] { 256, 65536 });
+        columns.set(0, 0, 255);
+        columns.set(0, 1, 65535);
+        int[][] invalid = { { 0, 256 }, { 0, -1 }, { 1, 65536 }, { 1, -1 } };
+        for (int[] entry : invalid) {
+            try {
+                columns.set(0, entry[0], entry[1]);
+                fail("Code out of range not detected");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        assertEquals(255, columns.get(0, 0));
+        assertEquals(65535, columns.get(0, 1));
+    }
+
+    /**
+     * Checks mapping ranges of columns, as done when generalizing blocks of records.
+     */
+    @Test
+    public void testGetColumn() {
+        int[][] data = getData();
+        DataColumns columns = new DataColumns(ROWS, DOMAINS);
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < DOMAINS.length; column++) {
+                columns.set(row, column, data[row][column]);
+            }
+        }
+        int from = 100;
+        int to = 356;
+        int[] target = new int[to - from];
+        for (int column = 0; column < DOMAINS.length; column++) {
+
+            // Map the codes to their rank among the codes in the range
+            int[] codes = new int[to - from];
+            for (int row = from; row < to; row++) {
+                codes[row - from] = data[row][column];
+            }
+            Arrays.sort(codes);
+            int max = codes[codes.length - 1];
+            if (max > 1 << 20) {
+                continue;
+            }
+            int[] map = new int[max + 1];
+            for (int i = 0; i < codes.length; i++) {
+                map[codes[i]] = i;
+            }
+
+            // Compare
+            columns.getColumn(from, to, column, map, target);
+            for (int row = from; row < to; row++) {
+                assertEquals(map[data[row][column]], target[row - from]);
+            }
+        }
+    }
+
+    /**
+     * Writes and reads random codes, and checks cloning, swapping and subsets.
+     */
+    @Test
+    public void testReadWrite() {
+
+        // Write
+        int[][] expected = getData();
+        DataColumns columns = new DataColumns(ROWS, DOMAINS);
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < DOMAINS.length; column++) {
+                columns.set(row, column, expected[row][column]);
+            }
+        }
+        assertEquals(ROWS, columns.getNumRows());
+        assertEquals(DOMAINS.length, columns.getNumColumns());
+        compare(expected, columns);
+
+        // Clone
+        DataColumns clone = columns.clone();
+        clone.set(0, 4, (expected[0][4] + 1) % DOMAINS[4]);
+        compare(expected, columns);
+
+        // Swap
+        Random random = new Random(0xDEADBEEF);
+        for (int i = 0; i < ROWS; i++) {
+            int row1 = random.nextInt(ROWS);
+            int row2 = random.nextInt(ROWS);
+            int[] temp = expected[row1];
+            expected[row1] = expected[row2];
+            expected[row2] = temp;
+            columns.swap(row1, row2);
+        }
+        compare(expected, columns);
+
+        // Subset
+        RowSet rowset = RowSet.create(ROWS);
+        for (int row = 0; row < ROWS; row += 3) {
+            rowset.add(row);
+        }
+        int[][] subset = new int[rowset.size()][];
+        for (int row = 0, index = 0; row < ROWS; row++) {
+            if (rowset.contains(row)) {
+                subset[index++] = expected[row];
+            }
+        }
+        compare(subset, columns.getSubsetInstance(rowset));
+    }
+
+    /**
+     * Compares the content
+     * 
+     * @param expected
+     * @param actual
+     */
+    private void compare(int[][] expected, DataColumns actual) {
+        assertEquals(expected.length, actual.getNumRows());
+        int[] tuple = new int[actual.getNumColumns()];
+        for (int row = 0; row < expected.length; row++) {
+            actual.getRow(row, tuple);
+            assertArrayEquals(expected[row], tuple);
+            for (int column = 0; column < tuple.length; column++) {
+                assertEquals(expected[row][column], actual.get(row, column));
+            }
+        }
+    }
+
+    /**
+     * Returns random codes, including the largest code of each domain
+     * 
+     * @return
+     */
+    private int[][] getData() {
+        Random random = new Random(0xDEADBEEF);
+        int[][] data = new int[ROWS][DOMAINS.length];
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < DOMAINS.length; column++) {
+                data[row][column] = row % 7 == 0 ? DOMAINS[column] - 1 : random.nextInt(DOMAINS[column]);
+            }
+        }
+        return data;
+    }
+}
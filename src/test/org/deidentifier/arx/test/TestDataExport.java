@@ -0,0 +1,260 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.AttributeType;
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.AttributeType.Hierarchy.DefaultHierarchy;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.Data.DefaultData;
+import org.deidentifier.arx.DataHandle;
+import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.criteria.DistinctLDiversity;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.deidentifier.arx.io.CSVDataOutput;
+import org.deidentifier.arx.io.CSVSyntax;
+import org.deidentifier.arx.io.JDBCDataOutput;
+import org.junit.Test;
+
+/**
+ * Test for exporting output data to CSV.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class TestDataExport extends AbstractTest {
+
+    /** The number of quasi-identifiers */
+    private static final int      QIS    = 3;
+
+    /** The number of records */
+    private static final int      ROWS   = 500;
+
+    /** Values with special characters */
+    private static final String[] VALUES = { "", " padded ", "a;b", "a,b", "quote\"d", "line\nbreak", "\u00e4\u00f6\u00fc", "plain" };
+
+    /**
+     * Checks whether exporting the output yields the same result as writing the decoded records.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExport() throws IOException {
+
+        DataHandle output = anonymize();
+        // Streams
+        for (CSVSyntax syntax : new CSVSyntax[] { new CSVSyntax(), new CSVSyntax(',', '\'', '\'', new char[] { '\r', '\n' }) }) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new CSVDataOutput(expected, syntax).write(output.iterator());
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            output.save(actual, syntax);
+            assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        }
+
+        // Files
+        File file1 = File.createTempFile("arx", ".csv");
+        File file2 = File.createTempFile("arx", ".csv");
+        try {
+            new CSVDataOutput(file1).write(output.iterator());
+            output.save(file2);
+            assertArrayEquals(Files.readAllBytes(file1.toPath()), Files.readAllBytes(file2.toPath()));
+        } finally {
+            file1.delete();
+            file2.delete();
+        }
+    }
+
+    /**
+     * Checks whether input and output can be written to a database.
+     *
+     * @throws IOException
+     * @throws SQLException
+     * @throws ClassNotFoundException
+     */
+    @Test
+    public void testExportJDBC() throws IOException, SQLException, ClassNotFoundException {
+
+        Class.forName("org.sqlite.JDBC");
+        File file = File.createTempFile("arx", ".db");
+        String url = "jdbc:sqlite:" + file.getAbsolutePath();
+        try {
+
+            // Output with concurrent writers
+            DataHandle output = anonymize();
+            JDBCDataOutput jdbc = new JDBCDataOutput(url, "output");
+            jdbc.setCreateTable(true);
+            jdbc.setBatchSize(32);
+            jdbc.setCommitInterval(100);
+            jdbc.setNumberOfThreads(3);
+            output.save(jdbc);
+            assertEquals(getRows(output), getRows(url, "output", "VARCHAR"));
+
+            // Input with typed columns and a column name containing a quote
+            DefaultData data = Data.create();
+            data.add("age", "na\"me");
+            for (int i = 0; i < ROWS; i++) {
+                data.add(i % 10 == 0 ? DataType.NULL_VALUE : String.valueOf(i), VALUES[i % VALUES.length]);
+            }
+            data.getDefinition().setDataType("age", DataType.INTEGER);
+            jdbc = new JDBCDataOutput(url, "input");
+            jdbc.setCreateTable(true);
+            data.getHandle().save(jdbc);
+            assertEquals(getRows(data.getHandle()), getRows(url, "input", "BIGINT"));
+
+            // Second write with the same instance
+            jdbc.setCreateTable(false);
+            data.getHandle().save(jdbc);
+            List<String> expected = new ArrayList<String>(getRows(data.getHandle()));
+            expected.addAll(getRows(data.getHandle()));
+            Collections.sort(expected);
+            assertEquals(expected, getRows(url, "input", "BIGINT"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Returns the sorted rows of the given handle
+     * 
+     * @param handle
+     * @return
+     */
+    private List<String> getRows(DataHandle handle) {
+        List<String> result = new ArrayList<String>();
+        Iterator<String[]> iterator = handle.iterator();
+        iterator.next();
+        while (iterator.hasNext()) {
+            result.add(Arrays.toString(iterator.next()));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Returns the sorted rows of the given table, checking the SQL type of the first column
+     * 
+     * @param url
+     * @param table
+     * @param type
+     * @return
+     * @throws SQLException
+     */
+    private List<String> getRows(String url, String table, String type) throws SQLException {
+        List<String> result = new ArrayList<String>();
+        Connection connection = DriverManager.getConnection(url);
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT * FROM " + table);
+        int columns = resultSet.getMetaData().getColumnCount();
+        while (resultSet.next()) {
+            String[] row = new String[columns];
+            for (int column = 0; column < columns; column++) {
+                row[column] = resultSet.getString(column + 1);
+                if (row[column] == null) {
+                    row[column] = DataType.NULL_VALUE;
+                }
+            }
+            result.add(Arrays.toString(row));
+        }
+        resultSet.close();
+        statement.close();
+        statement = connection.createStatement();
+        resultSet = statement.executeQuery("SELECT sql FROM sqlite_master WHERE name = '" + table + "'");
+        resultSet.next();
+        assertTrue(resultSet.getString(1).contains(type));
+        resultSet.close();
+        statement.close();
+        connection.close();
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Anonymizes a random dataset with attributes of all types
+     * 
+     * @return
+     * @throws IOException
+     */
+    private DataHandle anonymize() throws IOException {
+
+        // Define data
+        final DefaultData data = Data.create();
+        String[] header = new String[QIS + 3];
+        for (int i = 0; i < QIS; i++) {
+            header[i] = "qi" + i;
+        }
+        header[QIS] = "id";
+        header[QIS + 1] = "sensitive";
+        header[QIS + 2] = "insensitive";
+        data.add(header);
+        Random random = new Random(0xDEADBEEF);
+        for (int row = 0; row < ROWS; row++) {
+            String[] tuple = new String[QIS + 3];
+            for (int i = 0; i < QIS; i++) {
+                tuple[i] = VALUES[random.nextInt(VALUES.length)];
+            }
+            tuple[QIS] = String.valueOf(row);
+            tuple[QIS + 1] = VALUES[random.nextInt(VALUES.length)];
+            tuple[QIS + 2] = VALUES[random.nextInt(VALUES.length)] + random.nextInt(10);
+            data.add(tuple);
+        }
+
+        // Define attributes
+        for (int i = 0; i < QIS; i++) {
+            final DefaultHierarchy hierarchy = Hierarchy.create();
+            for (int value = 0; value < VALUES.length; value++) {
+                hierarchy.add(VALUES[value], value < VALUES.length / 2 ? "low;" : "\"high\"", "*");
+            }
+            data.getDefinition().setAttributeType(header[i], hierarchy);
+        }
+        data.getDefinition().setAttributeType("id", AttributeType.IDENTIFYING_ATTRIBUTE);
+        data.getDefinition().setAttributeType("sensitive", AttributeType.SENSITIVE_ATTRIBUTE);
+        data.getDefinition().setAttributeType("insensitive", AttributeType.INSENSITIVE_ATTRIBUTE);
+
+        // Anonymize
+        final ARXAnonymizer anonymizer = new ARXAnonymizer();
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(10));
+        config.addPrivacyModel(new DistinctLDiversity("sensitive", 2));
+        config.setSuppressionLimit(0.1d);
+        final ARXResult result = anonymizer.anonymize(data, config);
+        return result.getOutput(result.getLattice().getBottom(), false);
+    }
+}
@@ -17,14 +17,36 @@
 
 package org.deidentifier.arx.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.deidentifier.arx.Data;
+import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.io.ImportAdapter;
+import org.deidentifier.arx.io.ImportAdapterExcelStreaming;
+import org.deidentifier.arx.io.ImportAdapterJDBC;
+import org.deidentifier.arx.io.ImportColumnExcel;
+import org.deidentifier.arx.io.ImportColumnJDBC;
+import org.deidentifier.arx.io.ImportConfigurationExcel;
+import org.deidentifier.arx.io.ImportConfigurationJDBC;
 import org.junit.Test;
 
 import cern.colt.Arrays;
@@ -52,4 +74,210 @@ public class TestDataImport extends AbstractTest {
             System.out.println(Arrays.toString(result.get(result.size() - 1)));
         }
     }
+    
+    /**
+     * Test for streaming XLSX files
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testExcelStreaming() throws IOException {
+
+        // Sheet with shared and inline strings, numbers, booleans, formulas, missing cells and rows
+        String sheet = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                       "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">" +
+                       "<dimension ref=\"A1:D5\"/><sheetData>" +
+                       "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"s\"><v>1</v></c>" +
+                       "<c r=\"C1\" t=\"s\"><v>2</v></c><c r=\"D1\" t=\"inlineStr\"><is><t>flag</t></is></c></row>" +
+                       "<row r=\"2\"><c r=\"A2\" t=\"s\"><v>3</v></c><c r=\"B2\"><v>34</v></c>" +
+                       "<c r=\"C2\"><f>B2/8</f><v>4.25</v></c><c r=\"D2\" t=\"b\"><v>1</v></c></row>" +
+                       "<row r=\"4\"><c r=\"A4\" t=\"inlineStr\"><is><r><t>in</t></r><r><t>line</t></r></is></c>" +
+                       "<c r=\"D4\" t=\"b\"><v>0</v></c></row>" +
+                       "<row r=\"5\"><c><v>1</v></c><c><v>2</v></c><c t=\"s\"><v>3</v></c></row>" +
+                       "</sheetData></worksheet>";
+
+        // Create workbook
+        File file = File.createTempFile("arx", ".xlsx");
+        ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file));
+        String header = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+        String relationships = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+        String contentTypes = "application/vnd.openxmlformats-officedocument.spreadsheetml";
+        addEntry(zip, "[Content_Types].xml", header +
+                 "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
+                 "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
+                 "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
+                 "<Override PartName=\"/xl/workbook.xml\" ContentType=\"" + contentTypes + ".sheet.main+xml\"/>" +
+                 "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"" + contentTypes + ".worksheet+xml\"/>" +
+                 "<Override PartName=\"/xl/worksheets/sheet2.xml\" ContentType=\"" + contentTypes + ".worksheet+xml\"/>" +
+                 "<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"" + contentTypes + ".sharedStrings+xml\"/>" +
+                 "</Types>");
+        addEntry(zip, "_rels/.rels", header +
+                 "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+                 "<Relationship Id=\"rId1\" Type=\"" + relationships + "/officeDocument\" Target=\"xl/workbook.xml\"/>" +
+                 "</Relationships>");
+        addEntry(zip, "xl/workbook.xml", header +
+                 "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" xmlns:r=\"" + relationships + "\">" +
+                 "<sheets><sheet name=\"first\" sheetId=\"1\" r:id=\"rId2\"/><sheet name=\"second\" sheetId=\"2\" r:id=\"rId1\"/></sheets>" +
+                 "</workbook>");
+        addEntry(zip, "xl/_rels/workbook.xml.rels", header +
+                 "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+                 "<Relationship Id=\"rId1\" Type=\"" + relationships + "/worksheet\" Target=\"worksheets/sheet2.xml\"/>" +
+                 "<Relationship Id=\"rId2\" Type=\"" + relationships + "/worksheet\" Target=\"worksheets/sheet1.xml\"/>" +
+                 "<Relationship Id=\"rId3\" Type=\"" + relationships + "/sharedStrings\" Target=\"sharedStrings.xml\"/>" +
+                 "</Relationships>");
+        addEntry(zip, "xl/sharedStrings.xml", header +
+                 "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"4\" uniqueCount=\"4\">" +
+                 "<si><t>name</t></si><si><t>age</t></si><si><t>score</t></si><si><t xml:space=\"preserve\"> alice </t></si>" +
+                 "</sst>");
+        addEntry(zip, "xl/worksheets/sheet1.xml", header +
+                 "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>" +
+                 "<row r=\"1\"><c r=\"A1\"><v>0</v></c></row></sheetData></worksheet>");
+        addEntry(zip, "xl/worksheets/sheet2.xml", sheet);
+        zip.close();
+
+        try {
+
+            // Import columns by name and index
+            ImportConfigurationExcel config = new ImportConfigurationExcel(file.getAbsolutePath(), 1, true);
+            config.setStreaming(true);
+            config.addColumn(new ImportColumnExcel("flag", DataType.STRING));
+            config.addColumn(new ImportColumnExcel(0, DataType.STRING));
+            config.addColumn(new ImportColumnExcel(1, "years", DataType.STRING));
+            config.addColumn(new ImportColumnExcel("score", DataType.STRING));
+            ImportAdapter adapter = ImportAdapter.create(config);
+            assertTrue(adapter instanceof ImportAdapterExcelStreaming);
+            List<String> result = new ArrayList<String>();
+            while (adapter.hasNext()) {
+                result.add(Arrays.toString(adapter.next()));
+            }
+            assertEquals("[[flag, name, years, score], " +
+                         "[TRUE, alice, 34, 4.25], " +
+                         "[FALSE, inline, , ], " +
+                         "[, 1, 2, alice]]", result.toString());
+            assertEquals(100, adapter.getProgress());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Adds an entry to the given archive
+     * 
+     * @param zip
+     * @param name
+     * @param content
+     * @throws IOException
+     */
+    private void addEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    /**
+     * Test for importing a table in partitions
+     *
+     * @throws IOException
+     * @throws SQLException
+     * @throws ClassNotFoundException 
+     */
+    @Test
+    public void testJDBCPartitioned() throws IOException, SQLException, ClassNotFoundException {
+        
+        // Create table
+        Class.forName("org.sqlite.JDBC");
+        File file = File.createTempFile("arx", ".db");
+        String url = "jdbc:sqlite:" + file.getAbsolutePath();
+        int rows = 1000;
+        try {
+            Connection connection = DriverManager.getConnection(url);
+            Statement statement = connection.createStatement();
+            statement.execute("CREATE TABLE test (id INTEGER, name TEXT)");
+            statement.close();
+            connection.setAutoCommit(false);
+            PreparedStatement insert = connection.prepareStatement("INSERT INTO test VALUES (?, ?)");
+            for (int i = 0; i < rows; i++) {
+                if (i % 100 == 0) {
+                    insert.setNull(1, java.sql.Types.INTEGER);
+                } else {
+                    insert.setInt(1, i * 7);
+                }
+                insert.setString(2, "name" + i);
+                insert.executeUpdate();
+            }
+            insert.close();
+            connection.commit();
+            connection.close();
+            
+            // Import sequentially and in partitions
+            Set<String> expected = importJDBC(url, 0, rows);
+            assertEquals(rows, expected.size());
+            for (int partitions = 2; partitions <= 5; partitions++) {
+                assertEquals(expected, importJDBC(url, partitions, rows));
+            }
+            
+            // Stop reading early
+            ImportConfigurationJDBC config = new ImportConfigurationJDBC(url, "test");
+            config.addColumn(new ImportColumnJDBC(0, DataType.STRING, true));
+            config.setFetchSize(8);
+            config.setPartitioning("id", 3);
+            ImportAdapterJDBC adapter = (ImportAdapterJDBC) ImportAdapter.create(config);
+            adapter.next();
+            adapter.next();
+            adapter.close();
+            long time = System.currentTimeMillis();
+            while (isWorkerAlive() && System.currentTimeMillis() - time < 10000) {
+                Thread.yield();
+            }
+            assertFalse(isWorkerAlive());
+        } finally {
+            file.delete();
+        }
+    }
+    
+    /**
+     * Returns whether a worker of a JDBC import is still running
+     * 
+     * @return
+     */
+    private boolean isWorkerAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().equals("ARX JDBC import worker")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Imports the test table
+     * 
+     * @param url
+     * @param partitions
+     * @param rows
+     * @return
+     * @throws IOException
+     * @throws SQLException
+     */
+    private Set<String> importJDBC(String url, int partitions, int rows) throws IOException, SQLException {
+        
+        ImportConfigurationJDBC config = new ImportConfigurationJDBC(url, "test");
+        config.addColumn(new ImportColumnJDBC(0, DataType.STRING, true));
+        config.addColumn(new ImportColumnJDBC(1, DataType.STRING));
+        config.setFetchSize(64);
+        if (partitions != 0) {
+            config.setPartitioning("id", partitions);
+        }
+        ImportAdapter adapter = ImportAdapter.create(config);
+        assertEquals(0, adapter.getProgress());
+        assertTrue(adapter.hasNext());
+        assertEquals("[id, name]", Arrays.toString(adapter.next()));
+        Set<String> result = new HashSet<String>();
+        while (adapter.hasNext()) {
+            result.add(Arrays.toString(adapter.next()));
+            assertEquals((int) ((double) result.size() / (double) rows * 100d), adapter.getProgress());
+        }
+        assertEquals(100, adapter.getProgress());
+        return result;
+    }
 }
@@ -17,25 +17,49 @@
 
 package org.deidentifier.arx.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.deidentifier.arx.ARXAnonymizer;
 import org.deidentifier.arx.ARXConfiguration;
 import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.AttributeType.Hierarchy.DefaultHierarchy;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.Data.DefaultData;
+import org.deidentifier.arx.DataHandle;
+import org.deidentifier.arx.DataScale;
 import org.deidentifier.arx.DataSubset;
 import org.deidentifier.arx.DataType;
+import org.deidentifier.arx.DataType.DataTypeWithRatioScale;
+import org.deidentifier.arx.aggregates.StatisticsBuilder;
 import org.deidentifier.arx.aggregates.StatisticsContingencyTable;
 import org.deidentifier.arx.aggregates.StatisticsContingencyTable.Entry;
+import org.deidentifier.arx.aggregates.StatisticsEquivalenceClasses;
 import org.deidentifier.arx.aggregates.StatisticsFrequencyDistribution;
+import org.deidentifier.arx.aggregates.StatisticsSummary;
 import org.deidentifier.arx.criteria.DPresence;
 import org.deidentifier.arx.criteria.KAnonymity;
+import org.deidentifier.arx.exceptions.RollbackRequiredException;
+import org.deidentifier.arx.metric.Metric;
 import org.junit.Test;
 
 /**
@@ -218,6 +242,67 @@ public class TestDataStatistics extends AbstractTest {
         assertTrue("Unexpected result", deepEquals(toArray(contingency), frequencies));
     }
     
+    /**
+     * Checks contingency tables for columns with many distinct values.
+     */
+    @Test
+    public void testContingencySparse() {
+        
+        // Random data with many distinct pairs of values
+        DefaultData data = Data.create();
+        data.add("zip", "diagnosis");
+        Random random = new Random(0xDEADBEEF);
+        Map<List<String>, Integer> reference = new HashMap<List<String>, Integer>();
+        int rows = 20000;
+        for (int row = 0; row < rows; row++) {
+            String[] tuple = new String[] { String.valueOf(random.nextInt(1000)), String.valueOf(random.nextInt(10) * random.nextInt(10)) };
+            data.add(tuple);
+            List<String> key = Arrays.asList(tuple);
+            Integer count = reference.get(key);
+            reference.put(key, count == null ? 1 : count + 1);
+        }
+        DataHandle handle = data.getHandle();
+        
+        // Exact
+        StatisticsContingencyTable table = handle.getStatistics().getContingencyTable(0, 1);
+        assertEquals(1d, table.fraction, 0d);
+        int size = 0;
+        while (table.iterator.hasNext()) {
+            Entry entry = table.iterator.next();
+            Integer count = reference.get(Arrays.asList(table.values1[entry.value1], table.values2[entry.value2]));
+            assertEquals((double) count / (double) rows, entry.frequency, 1e-9);
+            size++;
+        }
+        assertEquals(reference.size(), size);
+        
+        // Top-N
+        List<Integer> counts = new ArrayList<Integer>(reference.values());
+        Collections.sort(counts, Collections.reverseOrder());
+        table = handle.getStatistics().getContingencyTableTopN(0, 1, 10);
+        double previous = Double.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            Entry entry = table.iterator.next();
+            assertEquals((double) counts.get(i) / (double) rows, entry.frequency, 1e-9);
+            assertTrue(entry.frequency <= previous);
+            previous = entry.frequency;
+        }
+        assertTrue(!table.iterator.hasNext());
+        
+        // Limited size
+        StatisticsBuilder builder = handle.getStatistics();
+        builder.setMaxContingencyTableSize(1000);
+        table = builder.getContingencyTable(0, 1);
+        assertTrue(table.fraction < 1d);
+        size = 0;
+        double sum = 0d;
+        while (table.iterator.hasNext()) {
+            sum += table.iterator.next().frequency;
+            size++;
+        }
+        assertTrue(size <= 1000);
+        assertEquals(1d, sum, 0.1d);
+    }
+
     /**
      * Performs a test.
      *
@@ -296,6 +381,271 @@ public class TestDataStatistics extends AbstractTest {
         assertTrue(Arrays.equals(frequency, distribution.frequency));
     }
     
+    /**
+     * Checks that cached statistics are reused and invalidated when the data or its definition is modified.
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     * @throws RollbackRequiredException
+     */
+    @Test
+    public void testCache() throws IllegalArgumentException, IOException, RollbackRequiredException {
+        
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        for (String attribute : new String[] { "age", "education", "marital-status", "race", "sex" }) {
+            data.getDefinition().setAttributeType(attribute, Hierarchy.create(new File("./data/adult_hierarchy_" + attribute + ".csv"), StandardCharsets.UTF_8, ';'));
+        }
+        ARXConfiguration config = ARXConfiguration.create(1d, Metric.createLossMetric(0.5d));
+        config.addPrivacyModel(new KAnonymity(5));
+        ARXResult result = new ARXAnonymizer().anonymize(data, config);
+        
+        // Input: change definition
+        DataHandle definitionChanged = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';').getHandle();
+        assertEquals(DataScale.NOMINAL, definitionChanged.getStatistics().getSummaryStatistics(false).get("age").getScale());
+        definitionChanged.getDefinition().setDataType("age", DataType.INTEGER);
+        assertEquals(DataScale.RATIO, definitionChanged.getStatistics().getSummaryStatistics(false).get("age").getScale());
+        
+        // Input: replace
+        DataHandle input = data.getHandle();
+        StatisticsFrequencyDistribution distribution = input.getStatistics().getFrequencyDistribution(8);
+        assertTrue(Arrays.asList(distribution.values).contains("<=50K"));
+        input.replace(8, "<=50K", "low");
+        distribution = input.getStatistics().getFrequencyDistribution(8);
+        assertTrue(Arrays.asList(distribution.values).contains("low"));
+        assertTrue(!Arrays.asList(distribution.values).contains("<=50K"));
+        
+        // Output: reuse
+        DataHandle output = result.getOutput(false);
+        StatisticsEquivalenceClasses classes = output.getStatistics().getEquivalenceClassStatistics();
+        assertSame(classes, output.getStatistics().getEquivalenceClassStatistics());
+        
+        // Output: sort
+        output.sort(true, 0);
+        assertNotSame(classes, output.getStatistics().getEquivalenceClassStatistics());
+        checkEquivalenceClasses(output);
+        
+        // Output: optimize
+        classes = output.getStatistics().getEquivalenceClassStatistics();
+        assertTrue(result.optimize(output) > 0);
+        assertNotSame(classes, output.getStatistics().getEquivalenceClassStatistics());
+        checkEquivalenceClasses(output);
+        checkEquivalenceClasses(output.getView());
+    }
+
+    /**
+     * Compares equivalence class statistics with classes formed from the values of records.
+     *
+     * @throws IllegalArgumentException
+     * @throws IOException
+     */
+    @Test
+    public void testEquivalenceClasses() throws IllegalArgumentException, IOException {
+        
+        // Random data, in which some values equal the suppressed value
+        DefaultData data = Data.create();
+        data.add("qi0", "qi1", "qi2");
+        Random random = new Random(0xDEADBEEF);
+        Set<Integer> set = new HashSet<Integer>();
+        for (int row = 0; row < 1000; row++) {
+            String[] tuple = new String[3];
+            for (int i = 0; i < tuple.length; i++) {
+                tuple[i] = random.nextInt(3) == 0 ? "*" : String.valueOf(random.nextInt(20));
+            }
+            data.add(tuple);
+            if (random.nextBoolean()) {
+                set.add(row);
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            DefaultHierarchy hierarchy = Hierarchy.create();
+            hierarchy.add("*", "*", "*");
+            for (int value = 0; value < 20; value++) {
+                hierarchy.add(String.valueOf(value), value < 10 ? "low" : "high", "*");
+            }
+            data.getDefinition().setAttributeType("qi" + i, hierarchy);
+        }
+        DataSubset subset = DataSubset.create(data, set);
+        
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.addPrivacyModel(new DPresence(0.0d, 1.0d, subset));
+        config.setMaxOutliers(0.2d);
+        
+        ARXAnonymizer anonymizer = new ARXAnonymizer();
+        ARXResult result = anonymizer.anonymize(data, config);
+        
+        // Check
+        DataHandle input = data.getHandle();
+        checkEquivalenceClasses(input);
+        checkEquivalenceClasses(input.getView());
+        DataHandle output = result.getOutput(result.getLattice().getBottom(), false);
+        checkEquivalenceClasses(output);
+        checkEquivalenceClasses(output.getView());
+        output.release();
+        output = result.getOutput(result.getLattice().getLevels()[1][0], false);
+        checkEquivalenceClasses(output);
+        checkEquivalenceClasses(output.getView());
+        output.release();
+        output = result.getOutput(false);
+        checkEquivalenceClasses(output);
+        checkEquivalenceClasses(output.getView());
+    }
+    
+    /**
+     * Compares summary statistics with statistics computed from the values of records.
+     *
+     * @throws IllegalArgumentException
+     * @throws ParseException
+     */
+    @Test
+    public void testSummaryStatistics() throws IllegalArgumentException, ParseException {
+        
+        // Random data with missing values and skewed distributions
+        DefaultData data = Data.create();
+        data.add("age", "weight", "name");
+        Random random = new Random(0xDEADBEEF);
+        for (int row = 0; row < 10000; row++) {
+            data.add(random.nextInt(20) == 0 ? DataType.NULL_VALUE : String.valueOf(random.nextInt(10) * random.nextInt(10)),
+                     String.valueOf(random.nextInt(100) / 4d),
+                     random.nextInt(20) == 0 ? DataType.NULL_VALUE : String.valueOf((char) ('a' + random.nextInt(5) * random.nextInt(5))));
+        }
+        data.getDefinition().setDataType("age", DataType.INTEGER);
+        data.getDefinition().setDataType("weight", DataType.DECIMAL);
+        
+        // Check
+        checkSummaryStatistics(data.getHandle(), false);
+        checkSummaryStatistics(data.getHandle(), true);
+    }
+    
+    /**
+     * Compares summary statistics with statistics computed from the values of records.
+     * 
+     * @param handle
+     * @param listwiseDeletion
+     * @throws ParseException 
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void checkSummaryStatistics(DataHandle handle, boolean listwiseDeletion) throws ParseException {
+        
+        Map<String, StatisticsSummary<?>> summaries = handle.getStatistics().getSummaryStatistics(listwiseDeletion);
+        for (int column = 0; column < handle.getNumColumns(); column++) {
+            
+            // Collect
+            final String attribute = handle.getAttributeName(column);
+            final DataType type = handle.getDataType(attribute);
+            List<String> values = new ArrayList<String>();
+            Map<String, Integer> frequencies = new HashMap<String, Integer>();
+            for (int row = 0; row < handle.getNumRows(); row++) {
+                boolean include = true;
+                for (int other = 0; listwiseDeletion && other < handle.getNumColumns(); other++) {
+                    include &= !DataType.isNull(handle.getValue(row, other));
+                }
+                String value = handle.getValue(row, column);
+                if (include && !DataType.isNull(value)) {
+                    values.add(value);
+                    Integer count = frequencies.get(value);
+                    frequencies.put(value, count == null ? 1 : count + 1);
+                }
+            }
+            Collections.sort(values, new Comparator<String>() {
+                @Override
+                public int compare(String o1, String o2) {
+                    try {
+                        return type.compare(o1, o2);
+                    } catch (NumberFormatException | ParseException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            
+            // Mode is the smallest among the most frequent values
+            String mode = values.get(0);
+            for (String value : values) {
+                if (frequencies.get(value) > frequencies.get(mode)) {
+                    mode = value;
+                }
+            }
+            
+            // Compare
+            StatisticsSummary<?> summary = summaries.get(attribute);
+            assertEquals(values.size(), summary.getNumberOfMeasuresAsString());
+            assertEquals(mode, summary.getModeAsString());
+            if (summary.getScale() != DataScale.NOMINAL) {
+                assertEquals(values.get(0), summary.getMinAsString());
+                assertEquals(values.get(values.size() - 1), summary.getMaxAsString());
+            }
+            if (type instanceof DataTypeWithRatioScale) {
+                DataTypeWithRatioScale rType = (DataTypeWithRatioScale) type;
+                DescriptiveStatistics statistics = new DescriptiveStatistics();
+                for (String value : values) {
+                    statistics.addValue(rType.toDouble(type.parse(value)));
+                }
+                double median = (rType.toDouble(type.parse(values.get((values.size() - 1) / 2))) +
+                                 rType.toDouble(type.parse(values.get(values.size() / 2)))) / 2d;
+                assertEquals(type.format(rType.fromDouble(median)), summary.getMedianAsString());
+                assertEquals(statistics.getMean(), summary.getArithmeticMeanAsDouble(), 1e-9);
+                assertEquals(statistics.getVariance(), summary.getSampleVarianceAsDouble(), 1e-9);
+                assertEquals(statistics.getStandardDeviation(), summary.getStdDevAsDouble(), 1e-9);
+                assertEquals(statistics.getPopulationVariance(), summary.getPopulationVarianceAsDouble(), 1e-9);
+                assertEquals(statistics.getMax() - statistics.getMin(), summary.getRangeAsDouble(), 1e-9);
+                assertEquals(statistics.getGeometricMean(), summary.getGeometricMeanAsDouble(), 1e-9);
+                double kurtosis = statistics.getKurtosis();
+                assertEquals(kurtosis < 0d ? Double.NaN : kurtosis, summary.getKurtosisAsDouble(), 1e-9);
+            }
+        }
+    }
+    
+    /**
+     * Compares equivalence class statistics with classes formed from the values of records.
+     * Like records, classes are suppressed if their first record is suppressed.
+     * 
+     * @param handle
+     */
+    private void checkEquivalenceClasses(DataHandle handle) {
+        
+        // Group
+        Set<String> attributes = handle.getDefinition().getQuasiIdentifyingAttributes();
+        Map<List<String>, int[]> classes = new HashMap<List<String>, int[]>();
+        for (int row = 0; row < handle.getNumRows(); row++) {
+            List<String> key = new ArrayList<String>();
+            for (int column = 0; column < handle.getNumColumns(); column++) {
+                if (attributes.contains(handle.getAttributeName(column))) {
+                    key.add(handle.getValue(row, column));
+                }
+            }
+            int[] entry = classes.get(key);
+            if (entry == null) {
+                entry = new int[] { 0, handle.isOutlier(row) ? 1 : 0 };
+                classes.put(key, entry);
+            }
+            entry[0]++;
+        }
+        
+        // Aggregate
+        int numberOfClasses = 0;
+        int numberOfOutlyingTuples = 0;
+        int maximalSize = 0;
+        int maximalSizeIncludingOutliers = 0;
+        for (int[] entry : classes.values()) {
+            maximalSizeIncludingOutliers = Math.max(maximalSizeIncludingOutliers, entry[0]);
+            if (entry[1] == 0) {
+                numberOfClasses++;
+                maximalSize = Math.max(maximalSize, entry[0]);
+            } else {
+                numberOfOutlyingTuples = entry[0];
+            }
+        }
+        
+        // Compare
+        StatisticsEquivalenceClasses statistics = handle.getStatistics().getEquivalenceClassStatistics();
+        assertEquals(classes.size(), statistics.getNumberOfEquivalenceClassesIncludingOutliers());
+        assertEquals(numberOfClasses, statistics.getNumberOfEquivalenceClasses());
+        assertEquals(handle.getNumRows(), statistics.getNumberOfTuplesIncludingOutliers());
+        assertEquals(numberOfOutlyingTuples, statistics.getNumberOfOutlyingTuples());
+        assertEquals(maximalSize, statistics.getMaximalEquivalenceClassSize());
+        assertEquals(maximalSizeIncludingOutliers, statistics.getMaximalEquivalenceClassSizeIncludingOutliers());
+    }
+    
     /**
      * Checks the two arrays regarding equality, treating a double[][]
      * as a set of comparable double[]'s
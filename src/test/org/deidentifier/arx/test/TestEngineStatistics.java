@@ -0,0 +1,128 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXEngineStatistics;
+import org.deidentifier.arx.ARXEngineStatisticsListener;
+import org.deidentifier.arx.ARXResult;
+import org.deidentifier.arx.AttributeType.Hierarchy;
+import org.deidentifier.arx.AttributeType.Hierarchy.DefaultHierarchy;
+import org.deidentifier.arx.Data;
+import org.deidentifier.arx.Data.DefaultData;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.junit.Test;
+
+/**
+ * Test for the statistics about the work performed by the anonymization engine.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class TestEngineStatistics extends AbstractTest {
+
+    /** The number of quasi-identifiers */
+    private static final int QIS  = 4;
+
+    /** The number of records */
+    private static final int ROWS = 1000;
+
+    /**
+     * Anonymizes a random dataset and checks whether the statistics are consistent
+     * and whether they are streamed to the listener.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testStatistics() throws IOException {
+
+        // Define data
+        final DefaultData data = Data.create();
+        String[] header = new String[QIS];
+        for (int i = 0; i < QIS; i++) {
+            header[i] = "qi" + i;
+        }
+        data.add(header);
+        Random random = new Random(0xDEADBEEF);
+        for (int row = 0; row < ROWS; row++) {
+            String[] tuple = new String[QIS];
+            for (int i = 0; i < QIS; i++) {
+                tuple[i] = String.valueOf(random.nextInt(8));
+            }
+            data.add(tuple);
+        }
+
+        // Define hierarchies
+        for (int i = 0; i < QIS; i++) {
+            final DefaultHierarchy hierarchy = Hierarchy.create();
+            for (int value = 0; value < 8; value++) {
+                hierarchy.add(String.valueOf(value), String.valueOf(value / 2), String.valueOf(value / 4), "*");
+            }
+            data.getDefinition().setAttributeType(header[i], hierarchy);
+        }
+
+        // Anonymize
+        final List<ARXEngineStatistics> streamed = new ArrayList<ARXEngineStatistics>();
+        final ARXAnonymizer anonymizer = new ARXAnonymizer();
+        anonymizer.setListener(new ARXEngineStatisticsListener() {
+            @Override
+            public void progress(double progress) {
+                // Ignore
+            }
+            @Override
+            public void statistics(ARXEngineStatistics statistics) {
+                streamed.add(statistics);
+            }
+        });
+        final ARXConfiguration config = ARXConfiguration.create();
+        config.addPrivacyModel(new KAnonymity(5));
+        config.setSuppressionLimit(0.02d);
+        final ARXResult result = anonymizer.anonymize(data, config);
+        final ARXEngineStatistics statistics = result.getEngineStatistics();
+
+        // Check consistency
+        assertNotNull(statistics);
+        assertTrue(statistics.getNumberOfChecks() > 0);
+        assertEquals(statistics.getNumberOfChecks(), statistics.getNumberOfUnoptimizedTransitions() +
+                                                     statistics.getNumberOfRollupTransitions() +
+                                                     statistics.getNumberOfSnapshotTransitions());
+        assertTrue(statistics.getNumberOfScannedItems() >= ROWS);
+        assertTrue(statistics.getNumberOfClassesProduced() >= statistics.getNumberOfChecks());
+        assertTrue(statistics.getNumberOfHistoryStores() >= statistics.getNumberOfHistoryEvictions());
+        assertTrue(statistics.getHistoryHitRate() >= 0d && statistics.getHistoryHitRate() <= 1d);
+
+        // Check streaming
+        assertTrue(!streamed.isEmpty());
+        long checks = 0;
+        for (ARXEngineStatistics element : streamed) {
+            assertTrue(element.getNumberOfChecks() >= checks);
+            checks = element.getNumberOfChecks();
+        }
+        assertTrue(checks <= statistics.getNumberOfChecks());
+    }
+}
@@ -17,12 +17,30 @@
 
 package org.deidentifier.arx.test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.deidentifier.arx.ARXAnonymizer;
+import org.deidentifier.arx.ARXConfiguration;
+import org.deidentifier.arx.ARXResult;
 import org.deidentifier.arx.AttributeType;
+import org.deidentifier.arx.AttributeType.Hierarchy;
 import org.deidentifier.arx.Data;
+import org.deidentifier.arx.DataHandle;
+import org.deidentifier.arx.criteria.KAnonymity;
+import org.deidentifier.arx.metric.Metric;
 import org.deidentifier.arx.risk.RiskEstimateBuilder;
 import org.deidentifier.arx.risk.RiskModelAttributes;
+import org.deidentifier.arx.risk.RiskModelAttributes.QuasiIdentifierRisk;
+import org.deidentifier.arx.risk.RiskModelHistogram;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -104,4 +122,63 @@ public class TestRiskQuasiIdentifiers {
             assertTrue("Separation expected: " + expectedResults[i].separation + "; got: " + risks[i].getSeparation(), expectedResults[i].separation == risks[i].getSeparation());
         }
     }
+
+    /**
+     * Compares the risks of all subsets of attributes with risks calculated from the equivalence
+     * classes of each subset, and checks the analysis of the riskiest subsets.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testWithAdultDataSet() throws IOException {
+
+        // Anonymize, to obtain suppressed and generalized records
+        Data data = Data.create("./data/adult.csv", StandardCharsets.UTF_8, ';');
+        for (String attribute : new String[] { "age", "education", "marital-status", "race", "sex" }) {
+            data.getDefinition().setAttributeType(attribute, Hierarchy.create(new File("./data/adult_hierarchy_" + attribute + ".csv"), StandardCharsets.UTF_8, ';'));
+        }
+        ARXConfiguration config = ARXConfiguration.create(0.05d, Metric.createLossMetric());
+        config.addPrivacyModel(new KAnonymity(5));
+        ARXResult result = new ARXAnonymizer().anonymize(data, config);
+        Set<String> attributes = new HashSet<String>(Arrays.asList("age", "education", "marital-status", "race", "sex", "workclass", "occupation"));
+
+        // Check input and output
+        for (DataHandle handle : new DataHandle[] { data.getHandle(), result.getOutput() }) {
+
+            // Check all subsets
+            QuasiIdentifierRisk[] risks = handle.getRiskEstimator(null, attributes).getAttributeRisks().getAttributeRisks();
+            assertEquals(127, risks.length);
+            for (QuasiIdentifierRisk risk : risks) {
+                RiskModelHistogram histogram = handle.getRiskEstimator(null, new HashSet<String>(risk.getIdentifier())).getEquivalenceClassModel();
+                double pairs = histogram.getNumRecords() * (histogram.getNumRecords() - 1d) / 2d;
+                double unseparated = 0d;
+                int[] classes = histogram.getHistogram();
+                for (int i = 0; i < classes.length; i += 2) {
+                    unseparated += classes[i + 1] * (classes[i] * (classes[i] - 1d) / 2d);
+                }
+                assertEquals(risk.getIdentifier().toString(), histogram.getNumClasses() / histogram.getNumRecords(), risk.getDistinction(), 1e-9);
+                assertEquals(risk.getIdentifier().toString(), (pairs - unseparated) / pairs, risk.getSeparation(), 1e-9);
+            }
+
+            // Check riskiest subsets
+            Arrays.sort(risks, new Comparator<QuasiIdentifierRisk>() {
+                @Override
+                public int compare(QuasiIdentifierRisk o1, QuasiIdentifierRisk o2) {
+                    int cmp = Double.compare(o2.getDistinction(), o1.getDistinction());
+                    cmp = cmp != 0 ? cmp : Double.compare(o2.getSeparation(), o1.getSeparation());
+                    cmp = cmp != 0 ? cmp : Integer.compare(o1.getIdentifier().size(), o2.getIdentifier().size());
+                    return cmp != 0 ? cmp : o1.getIdentifier().toString().compareTo(o2.getIdentifier().toString());
+                }
+            });
+            for (int n : new int[] { 1, 10, 200 }) {
+                QuasiIdentifierRisk[] top = handle.getRiskEstimator(null, attributes).getAttributeRisks(n).getAttributeRisks();
+                assertEquals(Math.min(n, risks.length), top.length);
+                for (int i = 0; i < top.length; i++) {
+                    assertEquals(risks[i].getIdentifier(), top[i].getIdentifier());
+                    assertTrue(risks[i].getDistinction() == top[i].getDistinction());
+                    assertTrue(risks[i].getSeparation() == top[i].getSeparation());
+                }
+            }
+        }
+    }
 }
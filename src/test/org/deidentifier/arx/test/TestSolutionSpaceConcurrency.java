@@ -0,0 +1,107 @@
+/*
+ * ARX: Powerful Data Anonymization
+ * Copyright 2012 - 2017 Fabian Prasser, Florian Kohlmayer and contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.deidentifier.arx.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.deidentifier.arx.framework.lattice.SolutionSpace;
+import org.deidentifier.arx.framework.lattice.Transformation;
+import org.junit.Test;
+
+import de.linearbits.jhpl.JHPLIterator.LongIterator;
+
+/**
+ * Tests concurrent access to the solution space.
+ *
+ * @author Fabian Prasser
+ * @author Florian Kohlmayer
+ */
+public class TestSolutionSpaceConcurrency extends AbstractTest {
+
+    /** The number of threads */
+    private static final int THREADS = 4;
+
+    /** The level at which transformations are tagged */
+    private static final int LEVEL   = 7;
+
+    /**
+     * Tags transformations and stores data from multiple threads, while other threads
+     * are reading properties, and checks whether all updates, including predictively
+     * propagated properties, are visible afterwards.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentTagging() throws Exception {
+
+        final SolutionSpace solutionSpace = new SolutionSpace(new int[] { 0, 0, 0, 0 }, new int[] { 4, 3, 5, 2 });
+        solutionSpace.setAnonymityPropertyPredictable(true);
+        final List<Long> identifiers = new ArrayList<Long>();
+        for (LongIterator iter = solutionSpace.unsafeGetAllTransformations(); iter.hasNext();) {
+            identifiers.add(iter.next());
+        }
+
+        // Write and read concurrently
+        ExecutorService executor = Executors.newFixedThreadPool(2 * THREADS);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = thread; j < identifiers.size(); j += THREADS) {
+                        Transformation transformation = solutionSpace.getTransformation(identifiers.get(j));
+                        transformation.setData(identifiers.get(j));
+                        if (transformation.getLevel() == LEVEL) {
+                            transformation.setProperty(solutionSpace.getPropertyAnonymous());
+                            transformation.setPropertyToNeighbours(solutionSpace.getPropertyNotKAnonymous());
+                        }
+                    }
+                }
+            }));
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < identifiers.size(); j++) {
+                        Transformation transformation = solutionSpace.getTransformation(identifiers.get(j));
+                        transformation.hasProperty(solutionSpace.getPropertyAnonymous());
+                        transformation.getData();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Check
+        for (long identifier : identifiers) {
+            Transformation transformation = solutionSpace.getTransformation(identifier);
+            assertEquals(Long.valueOf(identifier), transformation.getData());
+            assertEquals(transformation.getLevel() >= LEVEL, transformation.hasProperty(solutionSpace.getPropertyAnonymous()));
+            assertEquals(transformation.getLevel() <= LEVEL - 1, transformation.hasProperty(solutionSpace.getPropertyNotKAnonymous()));
+        }
+    }
+}